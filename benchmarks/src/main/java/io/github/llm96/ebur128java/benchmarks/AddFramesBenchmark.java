@@ -0,0 +1,132 @@
+package io.github.llm96.ebur128java.benchmarks;
+
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.State;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of adding frames for every sample type, block size, channel count and mode.
+ * <p>
+ * Besides calls per second, the {@code frames} counter reports frames per second. Run with
+ * {@code -prof gc} to see the allocation rate of the binding layer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class AddFramesBenchmark {
+  @Param({"default"})
+  public String backend;
+
+  @Param({"32", "256", "1024", "4096", "16384", "65536"})
+  public int blockSize;
+
+  @Param({"1", "2", "6", "12"})
+  public int channels;
+
+  @Param({"M", "I", "I+HISTOGRAM", "LRA", "LRA+HISTOGRAM", "SAMPLE_PEAK", "TRUE_PEAK", "I+LRA+TRUE_PEAK"})
+  public String mode;
+
+  private State state;
+  private short[] shorts;
+  private int[] ints;
+  private float[] floats;
+  private double[] doubles;
+  private ByteBuffer buffer;
+  private float[][] planarFloats;
+
+  /**
+   * Frames added, reported by JMH as frames per second.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @org.openjdk.jmh.annotations.State(Scope.Thread)
+  public static class Frames {
+    public long frames;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      frames = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void createSamples() {
+    doubles = Fixtures.noise(blockSize * channels, channels);
+    shorts = Fixtures.toShorts(doubles);
+    ints = Fixtures.toInts(doubles);
+    floats = Fixtures.toFloats(doubles);
+    buffer = ByteBuffer.allocateDirect(floats.length * 4).order(ByteOrder.nativeOrder());
+    buffer.asFloatBuffer().put(floats);
+    planarFloats = new float[channels][blockSize];
+    for (int i = 0; i < floats.length; i++) {
+      planarFloats[i % channels][i / channels] = floats[i];
+    }
+  }
+
+  /**
+   * Start each iteration with a new state, so that the block lists do not grow across iterations.
+   */
+  @Setup(Level.Iteration)
+  public void createState() {
+    state = Fixtures.state(backend, channels, mode);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeState() {
+    state.close();
+  }
+
+  @Benchmark
+  public int addFramesShort(Frames counter) {
+    counter.frames += blockSize;
+    return state.addFramesShort(shorts, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesInt(Frames counter) {
+    counter.frames += blockSize;
+    return state.addFramesInt(ints, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesFloat(Frames counter) {
+    counter.frames += blockSize;
+    return state.addFramesFloat(floats, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesDouble(Frames counter) {
+    counter.frames += blockSize;
+    return state.addFramesDouble(doubles, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesDirectBuffer(Frames counter) {
+    counter.frames += blockSize;
+    return state.addFrames(buffer, blockSize, SampleFormat.FLOAT);
+  }
+
+  @Benchmark
+  public int addFramesPlanarFloat(Frames counter) {
+    counter.frames += blockSize;
+    return state.addFramesPlanar(planarFloats, 0, blockSize);
+  }
+}
@@ -0,0 +1,108 @@
+package io.github.llm96.ebur128java.benchmarks;
+
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a call into libebur128 through JNA and through the Foreign Function and Memory API.
+ * <p>
+ * Both backends run the same native code, so the difference is the binding layer: copying or
+ * pinning Java arrays, interleaving planar input and reading the out-parameter of the getters.
+ * Small blocks in momentary mode make the call overhead dominate. Requires Java 22 and a library
+ * built with {@code -Pjava22}, see the README.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class BindingBenchmark {
+  @Param({"jna", "panama"})
+  public String backend;
+
+  @Param({"1", "64", "4096"})
+  public int blockSize;
+
+  @Param({"2"})
+  public int channels;
+
+  private State state;
+  private short[] shorts;
+  private float[] floats;
+  private double[] doubles;
+  private ByteBuffer buffer;
+  private float[][] planarFloats;
+
+  @Setup(Level.Trial)
+  public void createSamples() {
+    doubles = Fixtures.noise(blockSize * channels, channels);
+    shorts = Fixtures.toShorts(doubles);
+    floats = Fixtures.toFloats(doubles);
+    buffer = ByteBuffer.allocateDirect(floats.length * 4).order(ByteOrder.nativeOrder());
+    buffer.asFloatBuffer().put(floats);
+    planarFloats = new float[channels][blockSize];
+    for (int i = 0; i < floats.length; i++) {
+      planarFloats[i % channels][i / channels] = floats[i];
+    }
+  }
+
+  /**
+   * Start each iteration with a new state, so that the block lists do not grow across iterations.
+   */
+  @Setup(Level.Iteration)
+  public void createState() {
+    state = Fixtures.state(backend, channels, "M");
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeState() {
+    state.close();
+  }
+
+  @Benchmark
+  public int addFramesShort() {
+    return state.addFramesShort(shorts, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesFloat() {
+    return state.addFramesFloat(floats, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesDouble() {
+    return state.addFramesDouble(doubles, blockSize);
+  }
+
+  @Benchmark
+  public int addFramesDirectBuffer() {
+    return state.addFrames(buffer, blockSize, SampleFormat.FLOAT);
+  }
+
+  @Benchmark
+  public int addFramesPlanarFloat() {
+    return state.addFramesPlanar(planarFloats, 0, blockSize);
+  }
+
+  @Benchmark
+  public double loudnessMomentary() {
+    return state.getLoudnessMomentary();
+  }
+}
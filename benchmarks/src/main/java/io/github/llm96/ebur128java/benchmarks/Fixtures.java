@@ -0,0 +1,93 @@
+package io.github.llm96.ebur128java.benchmarks;
+
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+
+import java.util.Random;
+
+/**
+ * Shared setup of the benchmarks.
+ */
+final class Fixtures {
+  static final long SAMPLERATE = 48000;
+
+  private Fixtures() {
+  }
+
+  /**
+   * Get a backend by name.
+   *
+   * @param name backend name, or "default" for the default backend
+   * @return backend
+   */
+  static Backend backend(String name) {
+    return "default".equals(name) ? Backends.getDefault() : Backends.get(name);
+  }
+
+  /**
+   * Parse mode flags.
+   *
+   * @param mode names of Mode constants without the MODE_ prefix, joined with '+', e.g. "I+HISTOGRAM"
+   * @return mode flags
+   */
+  static int mode(String mode) {
+    int flags = 0;
+    for (String name : mode.split("\\+")) {
+      try {
+        flags |= Mode.class.getField("MODE_" + name).getInt(null);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalArgumentException("Unknown mode: " + name, e);
+      }
+    }
+    return flags;
+  }
+
+  static State state(String backend, int channels, String mode) {
+    return new State(backend(backend), channels, SAMPLERATE, mode(mode));
+  }
+
+  /**
+   * Generate interleaved noise whose level changes every second between -30 and -10 dBFS, so that
+   * gating and loudness range have something to do.
+   *
+   * @param samples number of samples
+   * @param channels number of channels
+   * @return samples in the range [-1.0, 1.0]
+   */
+  static double[] noise(int samples, int channels) {
+    Random random = new Random(128);
+    double[] noise = new double[samples];
+    for (int i = 0; i < samples; i++) {
+      long second = i / channels / SAMPLERATE;
+      double gain = Math.pow(10.0, (-30.0 + 5.0 * (second % 5)) / 20.0);
+      noise[i] = Math.max(-1.0, Math.min(1.0, random.nextGaussian() * gain));
+    }
+    return noise;
+  }
+
+  static short[] toShorts(double[] samples) {
+    short[] dst = new short[samples.length];
+    for (int i = 0; i < samples.length; i++) {
+      dst[i] = (short) Math.round(samples[i] * Short.MAX_VALUE);
+    }
+    return dst;
+  }
+
+  static int[] toInts(double[] samples) {
+    int[] dst = new int[samples.length];
+    for (int i = 0; i < samples.length; i++) {
+      dst[i] = (int) Math.round(samples[i] * Integer.MAX_VALUE);
+    }
+    return dst;
+  }
+
+  static float[] toFloats(double[] samples) {
+    float[] dst = new float[samples.length];
+    for (int i = 0; i < samples.length; i++) {
+      dst[i] = (float) samples[i];
+    }
+    return dst;
+  }
+}
@@ -0,0 +1,108 @@
+package io.github.llm96.ebur128java.benchmarks;
+
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the loudness getters on a state holding some minutes of programme.
+ * The peak benchmarks read every channel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class GetterBenchmark {
+  @Param({"default"})
+  public String backend;
+
+  @Param({"2", "12"})
+  public int channels;
+
+  @Param({"I+LRA+TRUE_PEAK", "I+LRA+TRUE_PEAK+HISTOGRAM"})
+  public String mode;
+
+  @Param({"60", "600"})
+  public int seconds;
+
+  private State state;
+  private final LoudnessSnapshot snapshot = new LoudnessSnapshot();
+
+  @Setup(Level.Trial)
+  public void createState() {
+    state = Fixtures.state(backend, channels, mode);
+    int frames = (int) Fixtures.SAMPLERATE;
+    float[] samples = Fixtures.toFloats(Fixtures.noise(frames * channels * 5, channels));
+    for (int i = 0; i < seconds; i++) {
+      int offset = (i % 5) * frames * channels;
+      float[] second = Arrays.copyOfRange(samples, offset, offset + frames * channels);
+      state.addFramesFloat(second, frames);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void closeState() {
+    state.close();
+  }
+
+  @Benchmark
+  public double loudnessMomentary() {
+    return state.getLoudnessMomentary();
+  }
+
+  @Benchmark
+  public double loudnessShortterm() {
+    return state.getLoudnessShortterm();
+  }
+
+  @Benchmark
+  public double loudnessGlobal() {
+    return state.getLoudnessGlobal();
+  }
+
+  @Benchmark
+  public double loudnessRange() {
+    return state.getLoudnessRange();
+  }
+
+  @Benchmark
+  public double relativeThreshold() {
+    return state.getRelativeThreshold();
+  }
+
+  @Benchmark
+  public void samplePeak(Blackhole blackhole) {
+    for (int c = 0; c < channels; c++) {
+      blackhole.consume(state.getSamplePeak(c));
+    }
+  }
+
+  @Benchmark
+  public void truePeak(Blackhole blackhole) {
+    for (int c = 0; c < channels; c++) {
+      blackhole.consume(state.getTruePeak(c));
+    }
+  }
+
+  @Benchmark
+  public LoudnessSnapshot snapshot() {
+    return state.snapshot(snapshot);
+  }
+}
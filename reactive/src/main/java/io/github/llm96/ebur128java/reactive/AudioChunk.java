@@ -0,0 +1,106 @@
+package io.github.llm96.ebur128java.reactive;
+
+/**
+ * Reusable buffer of interleaved float frames passed to a {@link LoudnessProcessor}.
+ * <p>
+ * The processor hands every chunk to its recycler once the frames have been added, so a
+ * publisher can refill the same chunks instead of allocating one per item.
+ */
+public final class AudioChunk {
+  private final float[] samples;
+  private final int channels;
+  private int frames;
+
+  /**
+   * Create an empty chunk.
+   *
+   * @param channels number of channels
+   * @param capacity maximum number of frames
+   * @throws IllegalArgumentException if channels is not positive or capacity is negative
+   */
+  public AudioChunk(int channels, int capacity) {
+    this(new float[size(channels, capacity)], channels);
+  }
+
+  /**
+   * Wrap an array of interleaved samples. The chunk is empty until {@link #setFrames} is called.
+   *
+   * @param samples  array of samples (channels must be interleaved)
+   * @param channels number of channels
+   * @throws IllegalArgumentException if channels is not positive
+   */
+  public AudioChunk(float[] samples, int channels) {
+    this.samples = samples;
+    this.channels = checkChannels(channels);
+  }
+
+  private static int size(int channels, int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    return Math.multiplyExact(checkChannels(channels), capacity);
+  }
+
+  private static int checkChannels(int channels) {
+    if (channels <= 0) {
+      throw new IllegalArgumentException("Invalid number of channels: " + channels);
+    }
+    return channels;
+  }
+
+  /**
+   * Get the array of samples, to be filled from the first frame.
+   *
+   * @return interleaved samples
+   */
+  public float[] getSamples() {
+    return samples;
+  }
+
+  /**
+   * Get the number of channels.
+   *
+   * @return number of channels
+   */
+  public int getChannels() {
+    return channels;
+  }
+
+  /**
+   * Get the maximum number of frames.
+   *
+   * @return number of frames the array can hold
+   */
+  public int getCapacity() {
+    return samples.length / channels;
+  }
+
+  /**
+   * Get the number of valid frames.
+   *
+   * @return number of frames
+   */
+  public int getFrames() {
+    return frames;
+  }
+
+  /**
+   * Set the number of valid frames, after filling the samples.
+   *
+   * @param frames number of frames
+   * @return this chunk
+   * @throws IllegalArgumentException if frames is negative or exceeds the capacity
+   */
+  public AudioChunk setFrames(int frames) {
+    if (frames < 0 || frames > getCapacity()) {
+      throw new IllegalArgumentException("Invalid number of frames: " + frames);
+    }
+    this.frames = frames;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "AudioChunk{channels=" + channels + ", frames=" + frames + ", capacity=" + getCapacity() + "}";
+  }
+}
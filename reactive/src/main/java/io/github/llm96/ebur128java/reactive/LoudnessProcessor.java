@@ -0,0 +1,347 @@
+package io.github.llm96.ebur128java.reactive;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Exception;
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.State;
+import org.reactivestreams.FlowAdapters;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Processor measuring a stream of {@link AudioChunk}s and publishing a {@link LoudnessSnapshot}
+ * every interval of audio.
+ * <p>
+ * The frames are added to the state on the thread delivering them, and the state must not be
+ * used elsewhere until the processor has completed. Readings are taken at exact multiples of the
+ * interval in frames, splitting chunks as needed, plus a last one for the remaining frames when
+ * the upstream completes.
+ * <p>
+ * Demand is propagated: at most {@code prefetch} chunks are requested ahead, and no more once
+ * {@code prefetch} readings are waiting for the subscriber, so a slow subscriber slows down the
+ * upstream instead of filling memory. Each chunk is passed to the recycler as soon as its frames
+ * have been added, so the upstream can reuse it. A failed call into the state cancels the upstream
+ * and is signalled to the subscriber as an {@link Exception}.
+ * <p>
+ * The processor accepts one upstream and one subscriber. {@link #toReactiveStreams()} exposes it
+ * as a Reactive Streams {@code Processor}.
+ */
+public final class LoudnessProcessor implements Flow.Processor<AudioChunk, LoudnessSnapshot> {
+  private final State state;
+  private final int channels;
+  private final long interval;
+  private final long intervalFrames;
+  private final int prefetch;
+  /** upstream demand below which more chunks are requested */
+  private final int limit;
+  private final Consumer<? super AudioChunk> recycler;
+
+  /** readings not yet delivered, at most about prefetch chunks worth */
+  private final ConcurrentLinkedQueue<LoudnessSnapshot> readings = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicLong requested = new AtomicLong();
+  /** chunks requested from the upstream and not yet received */
+  private final AtomicLong outstanding = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicReference<Flow.Subscriber<? super LoudnessSnapshot>> downstream = new AtomicReference<>();
+  /** error raised by the processor itself, signalled ahead of the queued readings */
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile Flow.Subscription upstream;
+  private volatile boolean done;
+  private volatile Throwable error;
+  private volatile boolean cancelled;
+  /** set once the subscriber has been terminated, guarded by wip */
+  private boolean terminated;
+
+  /** written by the upstream thread only */
+  private long framesToReading;
+  private float[] scratch;
+
+  /**
+   * Create a processor.
+   *
+   * @param state    state to measure
+   * @param interval interval of audio between readings in ms
+   * @param prefetch number of chunks requested ahead
+   * @param recycler receives every chunk once its frames have been added, or null
+   * @throws IllegalArgumentException if the interval is shorter than a frame or prefetch is not positive
+   */
+  public LoudnessProcessor(State state, long interval, int prefetch, Consumer<? super AudioChunk> recycler) {
+    long frames = state.getSamplerate() * interval / 1000;
+    if (frames <= 0) {
+      throw new IllegalArgumentException("Invalid interval: " + interval);
+    }
+    if (prefetch <= 0) {
+      throw new IllegalArgumentException("Invalid prefetch: " + prefetch);
+    }
+    this.state = state;
+    this.channels = state.getChannels();
+    this.interval = interval;
+    this.intervalFrames = frames;
+    this.prefetch = prefetch;
+    this.limit = Math.max(1, prefetch / 2);
+    this.recycler = recycler;
+    this.framesToReading = frames;
+  }
+
+  /**
+   * View the processor as a Reactive Streams processor.
+   *
+   * @return adapter delegating to this processor
+   */
+  public org.reactivestreams.Processor<AudioChunk, LoudnessSnapshot> toReactiveStreams() {
+    return FlowAdapters.toProcessor(this);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super LoudnessSnapshot> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    if (!downstream.compareAndSet(null, subscriber)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("LoudnessProcessor allows only one subscriber"));
+      return;
+    }
+    subscriber.onSubscribe(new Subscription());
+    drain();
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    Objects.requireNonNull(subscription, "subscription");
+    if (upstream != null) {
+      subscription.cancel();
+      return;
+    }
+    upstream = subscription;
+    if (cancelled) {
+      subscription.cancel();
+      return;
+    }
+    drain();
+  }
+
+  @Override
+  public void onNext(AudioChunk chunk) {
+    Objects.requireNonNull(chunk, "chunk");
+    outstanding.decrementAndGet();
+    if (!done && !cancelled && failure.get() == null) {
+      if (chunk.getChannels() != channels) {
+        fail(new IllegalArgumentException("Expected " + channels + " channels, got " + chunk.getChannels()));
+      } else {
+        int result = add(chunk.getSamples(), chunk.getFrames());
+        if (result != Error.SUCCESS) {
+          fail(new Exception("Failed to add frames", result));
+        }
+      }
+    }
+    if (recycler != null) {
+      recycler.accept(chunk);
+    }
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    error = Objects.requireNonNull(throwable, "throwable");
+    done = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    if (!done && !cancelled && failure.get() == null && framesToReading < intervalFrames) {
+      emit();
+    }
+    done = true;
+    drain();
+  }
+
+  /**
+   * Add frames, taking a reading at every multiple of the interval.
+   */
+  private int add(float[] src, int frames) {
+    int offset = 0;
+    while (frames > 0) {
+      int count = (int) Math.min(frames, framesToReading);
+      int result;
+      if (offset == 0) {
+        result = state.addFramesFloat(src, count);
+      } else {
+        if (scratch == null || scratch.length < count * channels) {
+          scratch = new float[count * channels];
+        }
+        System.arraycopy(src, offset * channels, scratch, 0, count * channels);
+        result = state.addFramesFloat(scratch, count);
+      }
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      offset += count;
+      frames -= count;
+      framesToReading -= count;
+      if (framesToReading == 0) {
+        emit();
+      }
+    }
+    return Error.SUCCESS;
+  }
+
+  private void emit() {
+    framesToReading = intervalFrames;
+    readings.offer(state.snapshot(null));
+    queued.incrementAndGet();
+  }
+
+  private void fail(Throwable throwable) {
+    if (failure.compareAndSet(null, throwable)) {
+      Flow.Subscription subscription = upstream;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+    drain();
+  }
+
+  /**
+   * Deliver readings as demanded, terminate the subscriber and request more chunks. Runs on one
+   * thread at a time; calls made while it runs are picked up by the running one.
+   */
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Flow.Subscriber<? super LoudnessSnapshot> subscriber = downstream.get();
+      if (subscriber != null && !terminated) {
+        if (!cancelled && failure.get() == null) {
+          deliver(subscriber);
+        }
+        if (!terminated && (cancelled || failure.get() != null)) {
+          clear();
+          terminated = true;
+          if (!cancelled) {
+            subscriber.onError(failure.get());
+          }
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void deliver(Flow.Subscriber<? super LoudnessSnapshot> subscriber) {
+    long demand = requested.get();
+    long emitted = 0;
+    while (emitted != demand && !cancelled && failure.get() == null) {
+      LoudnessSnapshot reading = readings.poll();
+      if (reading == null) {
+        break;
+      }
+      queued.decrementAndGet();
+      subscriber.onNext(reading);
+      emitted++;
+    }
+    if (emitted != 0 && demand != Long.MAX_VALUE) {
+      requested.addAndGet(-emitted);
+    }
+    if (cancelled || failure.get() != null) {
+      return;
+    }
+    if (done && readings.isEmpty()) {
+      terminated = true;
+      Throwable throwable = error;
+      if (throwable != null) {
+        subscriber.onError(throwable);
+      } else {
+        subscriber.onComplete();
+      }
+    } else if (!done) {
+      replenish();
+    }
+  }
+
+  private void replenish() {
+    Flow.Subscription subscription = upstream;
+    if (subscription == null || queued.get() >= prefetch) {
+      return;
+    }
+    long missing = prefetch - outstanding.get();
+    if (missing >= limit) {
+      outstanding.addAndGet(missing);
+      subscription.request(missing);
+    }
+  }
+
+  private void clear() {
+    readings.clear();
+    queued.set(0);
+  }
+
+  /**
+   * Get the state being measured.
+   *
+   * @return the state
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Get the interval between readings.
+   *
+   * @return interval in ms
+   */
+  public long getInterval() {
+    return interval;
+  }
+
+  /**
+   * Get the number of readings waiting for the subscriber.
+   *
+   * @return number of readings
+   */
+  public int getQueuedReadings() {
+    return queued.get();
+  }
+
+  private final class Subscription implements Flow.Subscription {
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        fail(new IllegalArgumentException("Non-positive request: " + n));
+        return;
+      }
+      long current;
+      long next;
+      do {
+        current = requested.get();
+        next = current + n < 0 ? Long.MAX_VALUE : current + n;
+      } while (!requested.compareAndSet(current, next));
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      Flow.Subscription subscription = upstream;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+      drain();
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package io.github.llm96.ebur128java.reactive;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Readings must be taken at every multiple of the interval whatever the chunk sizes, and demand
+ * must stop flowing upstream while readings wait for a slow subscriber.
+ */
+public class LoudnessProcessorTest {
+  private static final int CHANNELS = 2;
+  private static final long SAMPLERATE = 48000;
+  private static final int MODE = Mode.MODE_I;
+  /** 100 ms */
+  private static final int INTERVAL_FRAMES = 4800;
+
+  private final JavaBackend backend = new JavaBackend();
+
+  @Test
+  public void readingsAreTakenAtEveryInterval() {
+    int frames = 5 * INTERVAL_FRAMES + 1234;
+    float[] samples = samples(frames);
+    List<AudioChunk> recycled = new ArrayList<>();
+    try (State state = new State(backend, CHANNELS, SAMPLERATE, MODE);
+         State reference = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      LoudnessProcessor processor = new LoudnessProcessor(state, 100, 4, recycled::add);
+      Downstream downstream = new Downstream();
+      processor.subscribe(downstream);
+      downstream.subscription.request(Long.MAX_VALUE);
+      Upstream upstream = new Upstream();
+      processor.onSubscribe(upstream);
+
+      int chunks = 0;
+      for (int offset = 0; offset < frames; offset += 1000) {
+        int count = Math.min(1000, frames - offset);
+        processor.onNext(chunk(samples, offset, count));
+        chunks++;
+      }
+      processor.onComplete();
+
+      assertEquals(chunks, recycled.size());
+      assertTrue(downstream.completed);
+      assertEquals(6, downstream.readings.size());
+      for (int i = 0; i < 6; i++) {
+        int end = Math.min((i + 1) * INTERVAL_FRAMES, frames);
+        int start = i * INTERVAL_FRAMES;
+        float[] block = Arrays.copyOfRange(samples, start * CHANNELS, end * CHANNELS);
+        assertEquals(Error.SUCCESS, reference.addFramesFloat(block, end - start));
+        assertEquals(reference.getLoudnessMomentary(), downstream.readings.get(i).getMomentary(), 1e-9);
+      }
+      assertEquals(reference.getLoudnessGlobal(), downstream.readings.get(5).getGlobal(), 1e-9);
+    }
+  }
+
+  @Test
+  public void slowSubscriberStopsTheUpstream() {
+    float[] samples = samples(INTERVAL_FRAMES);
+    try (State state = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      LoudnessProcessor processor = new LoudnessProcessor(state, 100, 4, null);
+      Downstream downstream = new Downstream();
+      processor.subscribe(downstream);
+      Upstream upstream = new Upstream();
+      processor.onSubscribe(upstream);
+      assertEquals(4, upstream.requested);
+
+      // every chunk completes a reading, nobody has asked for them
+      while (upstream.requested > upstream.delivered) {
+        assertTrue(upstream.delivered < 100);
+        processor.onNext(chunk(samples, 0, INTERVAL_FRAMES));
+        upstream.delivered++;
+      }
+      long requested = upstream.requested;
+      assertTrue(processor.getQueuedReadings() >= 4);
+      assertTrue(processor.getQueuedReadings() <= 2 * 4);
+      assertEquals(requested, processor.getQueuedReadings());
+      assertTrue(downstream.readings.isEmpty());
+
+      downstream.subscription.request(requested);
+      assertEquals(requested, downstream.readings.size());
+      assertEquals(0, processor.getQueuedReadings());
+      assertTrue(upstream.requested > requested);
+    }
+  }
+
+  @Test
+  public void chunkOfOtherChannelsFailsTheProcessor() {
+    try (State state = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      LoudnessProcessor processor = new LoudnessProcessor(state, 100, 4, null);
+      Downstream downstream = new Downstream();
+      processor.subscribe(downstream);
+      downstream.subscription.request(1);
+      Upstream upstream = new Upstream();
+      processor.onSubscribe(upstream);
+
+      processor.onNext(new AudioChunk(1, 100).setFrames(100));
+      assertTrue(upstream.cancelled);
+      assertTrue(downstream.error instanceof IllegalArgumentException);
+      assertFalse(downstream.completed);
+      assertTrue(downstream.readings.isEmpty());
+    }
+  }
+
+  @Test
+  public void secondSubscriberIsRejected() {
+    try (State state = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      LoudnessProcessor processor = new LoudnessProcessor(state, 100, 4, null);
+      Downstream first = new Downstream();
+      Downstream second = new Downstream();
+      processor.subscribe(first);
+      processor.subscribe(second);
+      assertNull(first.error);
+      assertTrue(second.error instanceof IllegalStateException);
+    }
+  }
+
+  private static AudioChunk chunk(float[] samples, int offset, int frames) {
+    float[] copy = Arrays.copyOfRange(samples, offset * CHANNELS, (offset + frames) * CHANNELS);
+    return new AudioChunk(copy, CHANNELS).setFrames(frames);
+  }
+
+  private static float[] samples(int frames) {
+    float[] samples = new float[frames * CHANNELS];
+    for (int i = 0; i < frames; i++) {
+      double level = 0.1 + 0.4 * i / frames;
+      samples[i * CHANNELS] = (float) (level * Math.sin(i * 2 * Math.PI * 1000 / SAMPLERATE));
+      samples[i * CHANNELS + 1] = samples[i * CHANNELS] / 2;
+    }
+    return samples;
+  }
+
+  /**
+   * Upstream driven by the test, counting the chunks requested.
+   */
+  private static final class Upstream implements Flow.Subscription {
+    long requested;
+    long delivered;
+    boolean cancelled;
+
+    @Override
+    public void request(long n) {
+      requested += n;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private static final class Downstream implements Flow.Subscriber<LoudnessSnapshot> {
+    final List<LoudnessSnapshot> readings = new ArrayList<>();
+    Flow.Subscription subscription;
+    Throwable error;
+    boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(LoudnessSnapshot item) {
+      readings.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
@@ -45,4 +45,28 @@ public class Channel {
 
   private Channel() {
   }
+
+  /**
+   * Get the channel type libebur128 assigns to a channel of a new state: left, right, center,
+   * unused, left surround and right surround, then unused.
+   *
+   * @param channelNumber zero based channel index
+   * @return channel type
+   */
+  public static int defaultType(int channelNumber) {
+    switch (channelNumber) {
+      case 0:
+        return LEFT;
+      case 1:
+        return RIGHT;
+      case 2:
+        return CENTER;
+      case 4:
+        return LEFT_SURROUND;
+      case 5:
+        return RIGHT_SURROUND;
+      default:
+        return UNUSED;
+    }
+  }
 }
@@ -0,0 +1,170 @@
+package io.github.llm96.ebur128java;
+
+import java.util.Arrays;
+
+/**
+ * Reusable set of loudness readings of a {@link State}, filled by {@link State#snapshot(LoudnessSnapshot)}
+ * or {@link PublishedLoudness#read(LoudnessSnapshot)}.
+ * <p>
+ * Readings that are not enabled by the mode of the state are NaN, readings that failed are
+ * Double.NEGATIVE_INFINITY like the getters of {@link State}.
+ */
+public class LoudnessSnapshot {
+  private int mode;
+  private double momentary = Double.NaN;
+  private double shortterm = Double.NaN;
+  private double global = Double.NaN;
+  private double relativeThreshold = Double.NaN;
+  private double range = Double.NaN;
+  private double[] samplePeaks = new double[0];
+  private double[] truePeaks = new double[0];
+
+  /**
+   * Fill the snapshot from a state, reusing the peak arrays if the channel count is unchanged.
+   *
+   * @param state state to read
+   */
+  void read(State state) {
+    int channels = state.getChannels();
+    reset(state.getMode(), channels);
+    momentary = state.getLoudnessMomentary();
+    shortterm = has(Mode.MODE_S) ? state.getLoudnessShortterm() : Double.NaN;
+    if (has(Mode.MODE_I)) {
+      global = state.getLoudnessGlobal();
+      relativeThreshold = state.getRelativeThreshold();
+    } else {
+      global = Double.NaN;
+      relativeThreshold = Double.NaN;
+    }
+    range = has(Mode.MODE_LRA) ? state.getLoudnessRange() : Double.NaN;
+    boolean samplePeak = has(Mode.MODE_SAMPLE_PEAK);
+    boolean truePeak = has(Mode.MODE_TRUE_PEAK);
+    for (int c = 0; c < channels; c++) {
+      samplePeaks[c] = samplePeak ? state.getSamplePeak(c) : Double.NaN;
+      truePeaks[c] = truePeak ? state.getTruePeak(c) : Double.NaN;
+    }
+  }
+
+  /**
+   * Set the mode and size the peak arrays, reusing them if the channel count is unchanged.
+   */
+  void reset(int mode, int channels) {
+    this.mode = mode;
+    if (samplePeaks.length != channels) {
+      samplePeaks = new double[channels];
+      truePeaks = new double[channels];
+    }
+  }
+
+  void set(double momentary, double shortterm, double global, double relativeThreshold, double range) {
+    this.momentary = momentary;
+    this.shortterm = shortterm;
+    this.global = global;
+    this.relativeThreshold = relativeThreshold;
+    this.range = range;
+  }
+
+  void setPeaks(int channelNumber, double samplePeak, double truePeak) {
+    samplePeaks[channelNumber] = samplePeak;
+    truePeaks[channelNumber] = truePeak;
+  }
+
+  private boolean has(int flags) {
+    return (mode & flags) == flags;
+  }
+
+  /**
+   * Get the mode flags of the state the snapshot was taken from.
+   *
+   * @return mode flags
+   */
+  public int getMode() {
+    return mode;
+  }
+
+  /**
+   * Get the number of channels of the peak readings.
+   *
+   * @return number of channels
+   */
+  public int getChannels() {
+    return samplePeaks.length;
+  }
+
+  /**
+   * Get momentary loudness (last 400ms) in LUFS.
+   *
+   * @return momentary loudness in LUFS
+   */
+  public double getMomentary() {
+    return momentary;
+  }
+
+  /**
+   * Get short-term loudness (last 3s) in LUFS.
+   *
+   * @return short-term loudness in LUFS, or NaN without MODE_S
+   */
+  public double getShortterm() {
+    return shortterm;
+  }
+
+  /**
+   * Get global integrated loudness in LUFS.
+   *
+   * @return integrated loudness in LUFS, or NaN without MODE_I
+   */
+  public double getGlobal() {
+    return global;
+  }
+
+  /**
+   * Get relative threshold in LUFS.
+   *
+   * @return relative threshold in LUFS, or NaN without MODE_I
+   */
+  public double getRelativeThreshold() {
+    return relativeThreshold;
+  }
+
+  /**
+   * Get loudness range (LRA) of programme in LU.
+   *
+   * @return loudness range (LRA) in LU, or NaN without MODE_LRA
+   */
+  public double getRange() {
+    return range;
+  }
+
+  /**
+   * Get maximum sample peak of a channel.
+   *
+   * @param channelNumber channel to read
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or NaN without MODE_SAMPLE_PEAK
+   */
+  public double getSamplePeak(int channelNumber) {
+    return samplePeaks[channelNumber];
+  }
+
+  /**
+   * Get maximum true peak of a channel.
+   *
+   * @param channelNumber channel to read
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or NaN without MODE_TRUE_PEAK
+   */
+  public double getTruePeak(int channelNumber) {
+    return truePeaks[channelNumber];
+  }
+
+  @Override
+  public String toString() {
+    return "LoudnessSnapshot{momentary=" + momentary
+        + ", shortterm=" + shortterm
+        + ", global=" + global
+        + ", relativeThreshold=" + relativeThreshold
+        + ", range=" + range
+        + ", samplePeaks=" + Arrays.toString(samplePeaks)
+        + ", truePeaks=" + Arrays.toString(truePeaks)
+        + "}";
+  }
+}
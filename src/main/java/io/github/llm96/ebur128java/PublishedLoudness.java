@@ -0,0 +1,129 @@
+package io.github.llm96.ebur128java;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Readings of a {@link State} published by the thread adding its frames, so that any number of
+ * other threads can read them without locking and without touching the state.
+ * <p>
+ * The readings are kept behind a sequence lock: the single publishing thread makes the sequence
+ * odd, stores the values and makes it even again, and a reader retries until it read all values
+ * under the same even sequence. Publishing and reading do not allocate. The values are stored in
+ * an {@link AtomicLongArray} so that the protocol is correct under the Java 8 memory model.
+ */
+public final class PublishedLoudness {
+  private static final int MOMENTARY = 0;
+  private static final int SHORTTERM = 1;
+  private static final int GLOBAL = 2;
+  private static final int RELATIVE_THRESHOLD = 3;
+  private static final int RANGE = 4;
+  private static final int PEAKS = 5;
+
+  private final int mode;
+  private final int channels;
+  private final AtomicLong sequence = new AtomicLong();
+  private final AtomicLongArray values;
+  /** publisher's reading of the state, copied into values */
+  private final LoudnessSnapshot scratch = new LoudnessSnapshot();
+
+  /**
+   * Create readings for states of the given layout, all NaN until the first publication.
+   *
+   * @param channels number of channels
+   * @param mode     mode flags of the states (see Mode constants)
+   */
+  public PublishedLoudness(int channels, int mode) {
+    this.mode = mode;
+    this.channels = channels;
+    this.values = new AtomicLongArray(PEAKS + 2 * channels);
+    for (int i = 0; i < values.length(); i++) {
+      values.set(i, Double.doubleToRawLongBits(Double.NaN));
+    }
+  }
+
+  /**
+   * Read the current values of a state and publish them. Must only be called by one thread at a
+   * time, the thread that adds the frames.
+   *
+   * @param state state to read
+   * @throws IllegalArgumentException if the channels or mode of the state differ
+   */
+  public void publish(State state) {
+    if (state.getChannels() != channels || state.getMode() != mode) {
+      throw new IllegalArgumentException("State does not match the published channels and mode");
+    }
+    LoudnessSnapshot snapshot = state.snapshot(scratch);
+    long next = sequence.get() + 1;
+    sequence.set(next);
+    set(MOMENTARY, snapshot.getMomentary());
+    set(SHORTTERM, snapshot.getShortterm());
+    set(GLOBAL, snapshot.getGlobal());
+    set(RELATIVE_THRESHOLD, snapshot.getRelativeThreshold());
+    set(RANGE, snapshot.getRange());
+    for (int c = 0; c < channels; c++) {
+      set(PEAKS + 2 * c, snapshot.getSamplePeak(c));
+      set(PEAKS + 2 * c + 1, snapshot.getTruePeak(c));
+    }
+    sequence.set(next + 1);
+  }
+
+  private void set(int index, double value) {
+    values.set(index, Double.doubleToRawLongBits(value));
+  }
+
+  private double get(int index) {
+    return Double.longBitsToDouble(values.get(index));
+  }
+
+  /**
+   * Read a consistent set of the last published values. Lock-free, may be called by any number
+   * of threads.
+   *
+   * @param reuse snapshot to fill, or null to create a new one
+   * @return the filled snapshot
+   */
+  public LoudnessSnapshot read(LoudnessSnapshot reuse) {
+    LoudnessSnapshot snapshot = reuse != null ? reuse : new LoudnessSnapshot();
+    snapshot.reset(mode, channels);
+    long before;
+    do {
+      before = sequence.get();
+      if ((before & 1) != 0) {
+        continue;
+      }
+      snapshot.set(get(MOMENTARY), get(SHORTTERM), get(GLOBAL), get(RELATIVE_THRESHOLD), get(RANGE));
+      for (int c = 0; c < channels; c++) {
+        snapshot.setPeaks(c, get(PEAKS + 2 * c), get(PEAKS + 2 * c + 1));
+      }
+    } while ((before & 1) != 0 || sequence.get() != before);
+    return snapshot;
+  }
+
+  /**
+   * Get the number of publications so far, which changes whenever the readings change.
+   *
+   * @return number of publications
+   */
+  public long getVersion() {
+    return sequence.get() >>> 1;
+  }
+
+  /**
+   * Get the number of channels of the readings.
+   *
+   * @return number of channels
+   */
+  public int getChannels() {
+    return channels;
+  }
+
+  /**
+   * Get the mode flags of the readings.
+   *
+   * @return mode flags
+   */
+  public int getMode() {
+    return mode;
+  }
+}
@@ -0,0 +1,22 @@
+package io.github.llm96.ebur128java;
+
+/**
+ * Keeps an object reachable until a point in the code, so that a {@link State} is not reclaimed
+ * by {@link StateRegistry} while its engine is still in use. The Java 9+ version of this class in
+ * the multi-release jar uses {@code Reference.reachabilityFence}.
+ */
+final class Reachability {
+  private Reachability() {
+  }
+
+  /**
+   * Ensure that the object stays reachable at least until this call.
+   *
+   * @param object object to keep reachable
+   */
+  static void fence(Object object) {
+    // an empty block on a shared object cannot be removed, so the object is live until here
+    synchronized (object) {
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package io.github.llm96.ebur128java;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of interleaved samples in memory: container size, significant bits, signedness, integer
+ * or float, and byte order.
+ * <p>
+ * The constants {@link #SHORT}, {@link #INT}, {@link #FLOAT} and {@link #DOUBLE} are the formats
+ * accepted by the native add_frames functions, in native byte order. Other formats are converted
+ * by {@link State#addFramesBytes(ByteBuffer, long, SampleFormat)}. Integer samples with fewer
+ * significant bits than their container are stored in its least significant bits.
+ */
+public final class SampleFormat {
+  /** 16-bit signed integer samples (ebur128_add_frames_short) */
+  public static final SampleFormat SHORT = new SampleFormat("SHORT", 2, 16, true, false, ByteOrder.nativeOrder());
+
+  /** 32-bit signed integer samples (ebur128_add_frames_int) */
+  public static final SampleFormat INT = new SampleFormat("INT", 4, 32, true, false, ByteOrder.nativeOrder());
+
+  /** 32-bit float samples (ebur128_add_frames_float) */
+  public static final SampleFormat FLOAT = new SampleFormat("FLOAT", 4, 32, true, true, ByteOrder.nativeOrder());
+
+  /** 64-bit float samples (ebur128_add_frames_double) */
+  public static final SampleFormat DOUBLE = new SampleFormat("DOUBLE", 8, 64, true, true, ByteOrder.nativeOrder());
+
+  /** 8-bit unsigned integer samples, as in 8-bit WAV */
+  public static final SampleFormat UNSIGNED_8 = integer(1, 8, false, ByteOrder.LITTLE_ENDIAN);
+
+  /** 24-bit signed integer samples packed in 3 bytes, little-endian as in WAV */
+  public static final SampleFormat INT_24_LE = integer(3, 24, true, ByteOrder.LITTLE_ENDIAN);
+
+  /** 24-bit signed integer samples packed in 3 bytes, big-endian as in AIFF */
+  public static final SampleFormat INT_24_BE = integer(3, 24, true, ByteOrder.BIG_ENDIAN);
+
+  private final String name;
+  private final int bytesPerSample;
+  private final int bitsPerSample;
+  private final boolean signed;
+  private final boolean floatingPoint;
+  private final ByteOrder order;
+
+  private SampleFormat(String name, int bytesPerSample, int bitsPerSample, boolean signed, boolean floatingPoint,
+                       ByteOrder order) {
+    this.name = name;
+    this.bytesPerSample = bytesPerSample;
+    this.bitsPerSample = bitsPerSample;
+    this.signed = signed;
+    this.floatingPoint = floatingPoint;
+    this.order = order;
+  }
+
+  /**
+   * Describe an integer sample format.
+   *
+   * @param bytesPerSample size of the container, 1 to 4 bytes
+   * @param bitsPerSample  number of significant bits, stored in the least significant bits of the container
+   * @param signed         true for two's complement, false for offset binary
+   * @param order          byte order of the container
+   * @return sample format
+   * @throws IllegalArgumentException if the sizes are invalid
+   */
+  public static SampleFormat integer(int bytesPerSample, int bitsPerSample, boolean signed, ByteOrder order) {
+    if (bytesPerSample < 1 || bytesPerSample > 4 || bitsPerSample < 1 || bitsPerSample > bytesPerSample * 8) {
+      throw new IllegalArgumentException("Invalid integer format: " + bitsPerSample + " bits in " + bytesPerSample
+          + " bytes");
+    }
+    String name = (signed ? "INT_" : "UINT_") + bitsPerSample
+        + (bitsPerSample != bytesPerSample * 8 ? "_IN_" + bytesPerSample * 8 : "")
+        + (order == ByteOrder.LITTLE_ENDIAN ? "_LE" : "_BE");
+    return new SampleFormat(name, bytesPerSample, bitsPerSample, signed, false, order);
+  }
+
+  /**
+   * Describe an IEEE 754 float sample format.
+   *
+   * @param bytesPerSample 4 for single or 8 for double precision
+   * @param order          byte order of the samples
+   * @return sample format
+   * @throws IllegalArgumentException if the size is invalid
+   */
+  public static SampleFormat floatingPoint(int bytesPerSample, ByteOrder order) {
+    if (bytesPerSample != 4 && bytesPerSample != 8) {
+      throw new IllegalArgumentException("Invalid float format: " + bytesPerSample + " bytes");
+    }
+    String name = (bytesPerSample == 4 ? "FLOAT" : "DOUBLE") + (order == ByteOrder.LITTLE_ENDIAN ? "_LE" : "_BE");
+    return new SampleFormat(name, bytesPerSample, bytesPerSample * 8, true, true, order);
+  }
+
+  /**
+   * Get the size of one sample.
+   *
+   * @return number of bytes per sample
+   */
+  public int getBytesPerSample() {
+    return bytesPerSample;
+  }
+
+  /**
+   * Get the number of significant bits of one sample.
+   *
+   * @return number of bits per sample
+   */
+  public int getBitsPerSample() {
+    return bitsPerSample;
+  }
+
+  /**
+   * Check if integer samples are signed.
+   *
+   * @return true for two's complement or float samples, false for offset binary
+   */
+  public boolean isSigned() {
+    return signed;
+  }
+
+  /**
+   * Check if the samples are floats.
+   *
+   * @return true for float samples, false for integers
+   */
+  public boolean isFloatingPoint() {
+    return floatingPoint;
+  }
+
+  /**
+   * Get the byte order of the samples.
+   *
+   * @return byte order
+   */
+  public ByteOrder getOrder() {
+    return order;
+  }
+
+  /**
+   * Get the native add_frames format with the same layout.
+   *
+   * @return {@link #SHORT}, {@link #INT}, {@link #FLOAT} or {@link #DOUBLE}, or null if samples of
+   * this format have to be converted
+   */
+  public SampleFormat getNativeFormat() {
+    if (order != ByteOrder.nativeOrder() || !signed || bitsPerSample != bytesPerSample * 8) {
+      return null;
+    }
+    if (floatingPoint) {
+      return bytesPerSample == 4 ? FLOAT : DOUBLE;
+    }
+    if (bytesPerSample == 2) {
+      return SHORT;
+    }
+    return bytesPerSample == 4 ? INT : null;
+  }
+
+  /**
+   * Convert integer samples to 32-bit signed integers, scaled so that full scale is the same.
+   *
+   * @param src   source of the samples, its byte order is ignored
+   * @param index byte index of the first sample in src
+   * @param dst   destination, filled from index 0
+   * @param count number of samples
+   * @throws IllegalStateException if this is a float format
+   */
+  public void toInts(ByteBuffer src, int index, int[] dst, int count) {
+    if (floatingPoint) {
+      throw new IllegalStateException("Not an integer format: " + name);
+    }
+    boolean swap = src.order() != order;
+    for (int i = 0; i < count; i++) {
+      dst[i] = readInteger(src, index + i * bytesPerSample, swap);
+    }
+  }
+
+  /**
+   * Convert samples to floats (1.0 is full scale).
+   *
+   * @param src   source of the samples, its byte order is ignored
+   * @param index byte index of the first sample in src
+   * @param dst   destination, filled from index 0
+   * @param count number of samples
+   */
+  public void toFloats(ByteBuffer src, int index, float[] dst, int count) {
+    boolean swap = src.order() != order;
+    if (!floatingPoint) {
+      for (int i = 0; i < count; i++) {
+        dst[i] = readInteger(src, index + i * bytesPerSample, swap) * (1.0f / 2147483648.0f);
+      }
+    } else if (bytesPerSample == 4) {
+      for (int i = 0; i < count; i++) {
+        int bits = src.getInt(index + 4 * i);
+        dst[i] = Float.intBitsToFloat(swap ? Integer.reverseBytes(bits) : bits);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        long bits = src.getLong(index + 8 * i);
+        dst[i] = (float) Double.longBitsToDouble(swap ? Long.reverseBytes(bits) : bits);
+      }
+    }
+  }
+
+  /**
+   * Read an integer sample, shifted to the most significant bits of an int.
+   */
+  private int readInteger(ByteBuffer src, int index, boolean swap) {
+    int value;
+    switch (bytesPerSample) {
+      case 1:
+        value = src.get(index);
+        break;
+      case 2:
+        short s = src.getShort(index);
+        value = swap ? Short.reverseBytes(s) : s;
+        break;
+      case 3:
+        int b0 = src.get(index) & 0xFF;
+        int b1 = src.get(index + 1) & 0xFF;
+        int b2 = src.get(index + 2) & 0xFF;
+        value = order == ByteOrder.LITTLE_ENDIAN ? b2 << 16 | b1 << 8 | b0 : b0 << 16 | b1 << 8 | b2;
+        break;
+      default:
+        int i = src.getInt(index);
+        value = swap ? Integer.reverseBytes(i) : i;
+        break;
+    }
+    value <<= 32 - bitsPerSample;
+    return signed ? value : value ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * Convert float samples to doubles.
+   *
+   * @param src   source of the samples, its byte order is ignored
+   * @param index byte index of the first sample in src
+   * @param dst   destination, filled from index 0
+   * @param count number of samples
+   * @throws IllegalStateException if this is an integer format
+   */
+  public void toDoubles(ByteBuffer src, int index, double[] dst, int count) {
+    if (!floatingPoint) {
+      throw new IllegalStateException("Not a float format: " + name);
+    }
+    boolean swap = src.order() != order;
+    if (bytesPerSample == 4) {
+      for (int i = 0; i < count; i++) {
+        int bits = src.getInt(index + 4 * i);
+        dst[i] = Float.intBitsToFloat(swap ? Integer.reverseBytes(bits) : bits);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        long bits = src.getLong(index + 8 * i);
+        dst[i] = Double.longBitsToDouble(swap ? Long.reverseBytes(bits) : bits);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SampleFormat)) {
+      return false;
+    }
+    SampleFormat other = (SampleFormat) o;
+    return bytesPerSample == other.bytesPerSample && bitsPerSample == other.bitsPerSample
+        && signed == other.signed && floatingPoint == other.floatingPoint && order.equals(other.order);
+  }
+
+  @Override
+  public int hashCode() {
+    return (((bytesPerSample * 31 + bitsPerSample) * 31 + (signed ? 1 : 0)) * 31 + (floatingPoint ? 1 : 0)) * 31
+        + order.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -1,34 +1,153 @@
 package io.github.llm96.ebur128java;
 
 import com.sun.jna.Pointer;
-import io.github.llm96.ebur128java.jna.Ebur128;
+import io.github.llm96.ebur128java.metrics.Instrumentation;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * High-level wrapper for EBUR128 state management and loudness measurement.
- * Provides simplified access to the underlying JNA library.
+ * Provides simplified access to the underlying library through a {@link Backend}.
  */
 public class State implements AutoCloseable {
-  private Pointer state;
-  private final int channels;
-  private final long samplerate;
+  private final Backend backend;
+  private Engine state;
+  private final StateRegistry.Tracker tracker;
+  private int channels;
+  private long samplerate;
   private final int mode;
 
+  /** first bytes of a checkpoint, "EBCP" */
+  private static final int CHECKPOINT_MAGIC = 0x45424350;
+
+  /** number of samples converted at a time by addFramesBytes */
+  private static final int SCRATCH_SAMPLES = 8192;
+  private int[] intScratch;
+  private float[] floatScratch;
+  private double[] doubleScratch;
+
+  /**
+   * Create and initialize a new EBUR128 state using the default backend.
+   *
+   * @param channels   the number of channels
+   * @param samplerate the sample rate
+   * @param mode       mode flags (see Mode constants)
+   * @throws IllegalStateException if initialization fails or no backend is available
+   */
+  public State(int channels, long samplerate, int mode) {
+    this(Backends.getDefault(), channels, samplerate, mode);
+  }
+
   /**
    * Create and initialize a new EBUR128 state.
    *
+   * @param backend    backend performing the measurement
    * @param channels   the number of channels
    * @param samplerate the sample rate
    * @param mode       mode flags (see Mode constants)
    * @throws IllegalStateException if initialization fails
    */
-  public State(int channels, long samplerate, int mode) {
+  public State(Backend backend, int channels, long samplerate, int mode) {
+    this.backend = backend;
     this.channels = channels;
     this.samplerate = samplerate;
     this.mode = mode;
-    this.state = Ebur128.init(channels, samplerate, mode);
-    if (this.state == null) {
+    Engine engine = backend.init(channels, samplerate, mode);
+    if (engine == null) {
       throw new IllegalStateException("Failed to initialize EBUR128 state");
     }
+    this.state = Instrumentation.instrument(engine, backend, channels);
+    this.tracker = StateRegistry.register(this, backend, this.state, channels, samplerate, mode);
+  }
+
+  private State(Backend backend, Engine state, int channels, long samplerate, int mode) {
+    this.backend = backend;
+    this.channels = channels;
+    this.samplerate = samplerate;
+    this.mode = mode;
+    this.state = Instrumentation.instrument(state, backend, channels);
+    this.tracker = StateRegistry.register(this, backend, this.state, channels, samplerate, mode);
+  }
+
+  /**
+   * Write the complete measurement state, so that an interrupted analysis can be resumed with
+   * {@link #restore(InputStream)}, possibly on another machine. The stream is flushed but not closed.
+   * <p>
+   * Only states of the java backend can be checkpointed: libebur128 does not expose its state, so
+   * the jna and panama backends throw UnsupportedOperationException, before anything is written to
+   * the stream and leaving the state usable.
+   *
+   * @param out destination of the checkpoint
+   * @throws IOException                   if writing fails
+   * @throws UnsupportedOperationException if the backend is not the java backend
+   */
+  public void checkpoint(OutputStream out) throws IOException {
+    checkState();
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(CHECKPOINT_MAGIC);
+    data.writeUTF(backend.getName());
+    data.writeInt(channels);
+    data.writeLong(samplerate);
+    data.writeInt(mode);
+    try {
+      state.save(data);
+    } finally {
+      Reachability.fence(this);
+    }
+    data.flush();
+  }
+
+  /**
+   * Restore a state from a checkpoint, using the backend that wrote it. Exactly the bytes of the
+   * checkpoint are read from the stream, which is not closed.
+   *
+   * @param in source of the checkpoint
+   * @return state continuing the measurement
+   * @throws IOException if reading fails, the checkpoint is invalid or its backend is not available
+   */
+  public static State restore(InputStream in) throws IOException {
+    return restore(null, in);
+  }
+
+  /**
+   * Restore a state from a checkpoint.
+   *
+   * @param backend backend that wrote the checkpoint, or null to look it up by name
+   * @param in      source of the checkpoint
+   * @return state continuing the measurement
+   * @throws IOException                   if reading fails, the checkpoint is invalid or was written by another backend
+   * @throws UnsupportedOperationException if the backend cannot restore its state, as only the java backend can
+   */
+  public static State restore(Backend backend, InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != CHECKPOINT_MAGIC) {
+      throw new IOException("Not an EBUR128 checkpoint");
+    }
+    String name = data.readUTF();
+    if (backend == null) {
+      try {
+        backend = Backends.get(name);
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Backend of checkpoint not available: " + name, e);
+      }
+    } else if (!backend.getName().equals(name)) {
+      throw new IOException("Checkpoint of backend " + name + " cannot be restored by " + backend.getName());
+    }
+    int channels = data.readInt();
+    long samplerate = data.readLong();
+    int mode = data.readInt();
+    Engine engine = backend.restore(data);
+    return new State(backend, engine, channels, samplerate, mode);
   }
 
   /**
@@ -40,7 +159,11 @@ public class State implements AutoCloseable {
    */
   public int setChannel(int channelNumber, int channelType) {
     checkState();
-    return Ebur128.setChannel(state, channelNumber, channelType);
+    try {
+      return state.setChannel(channelNumber, channelType);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -52,7 +175,18 @@ public class State implements AutoCloseable {
    */
   public int changeParameters(int channels, long samplerate) {
     checkState();
-    return Ebur128.changeParameters(state, channels, samplerate);
+    int result;
+    try {
+      result = state.changeParameters(channels, samplerate);
+    } finally {
+      Reachability.fence(this);
+    }
+    if (result == Error.SUCCESS) {
+      this.channels = channels;
+      this.samplerate = samplerate;
+      tracker.changeParameters(channels, samplerate);
+    }
+    return result;
   }
 
   /**
@@ -63,7 +197,16 @@ public class State implements AutoCloseable {
    */
   public int setMaxWindow(long window) {
     checkState();
-    return Ebur128.setMaxWindow(state, window);
+    int result;
+    try {
+      result = state.setMaxWindow(window);
+    } finally {
+      Reachability.fence(this);
+    }
+    if (result == Error.SUCCESS) {
+      tracker.maxWindow = window;
+    }
+    return result;
   }
 
   /**
@@ -74,7 +217,36 @@ public class State implements AutoCloseable {
    */
   public int setMaxHistory(long history) {
     checkState();
-    return Ebur128.setMaxHistory(state, history);
+    int result;
+    try {
+      result = state.setMaxHistory(history);
+    } finally {
+      Reachability.fence(this);
+    }
+    if (result == Error.SUCCESS) {
+      tracker.maxHistory = history;
+    }
+    return result;
+  }
+
+  /**
+   * Discard all frames added so far, keeping the parameters, channel types, maximum window and
+   * maximum history.
+   *
+   * @return error code (see Error constants)
+   */
+  public int reset() {
+    checkState();
+    int result;
+    try {
+      result = state.reset();
+    } finally {
+      Reachability.fence(this);
+    }
+    if (result == Error.SUCCESS) {
+      tracker.frames = 0;
+    }
+    return result;
   }
 
   /**
@@ -86,7 +258,11 @@ public class State implements AutoCloseable {
    */
   public int addFramesShort(short[] src, long frames) {
     checkState();
-    return Ebur128.addFramesShort(state, src, frames);
+    try {
+      return added(state.addFramesShort(src, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -98,7 +274,11 @@ public class State implements AutoCloseable {
    */
   public int addFramesInt(int[] src, long frames) {
     checkState();
-    return Ebur128.addFramesInt(state, src, frames);
+    try {
+      return added(state.addFramesInt(src, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -110,7 +290,11 @@ public class State implements AutoCloseable {
    */
   public int addFramesFloat(float[] src, long frames) {
     checkState();
-    return Ebur128.addFramesFloat(state, src, frames);
+    try {
+      return added(state.addFramesFloat(src, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -122,7 +306,295 @@ public class State implements AutoCloseable {
    */
   public int addFramesDouble(double[] src, long frames) {
     checkState();
-    return Ebur128.addFramesDouble(state, src, frames);
+    try {
+      return added(state.addFramesDouble(src, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from one array per channel (short samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the number of arrays does not match the channels or an array is too small
+   */
+  public int addFramesPlanar(short[][] src, int offset, int frames) {
+    checkState();
+    checkPlanar(src.length, offset, frames);
+    for (short[] channel : src) {
+      checkChannel(channel.length, offset, frames);
+    }
+    try {
+      return added(state.addFramesPlanar(src, offset, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from one array per channel (int samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the number of arrays does not match the channels or an array is too small
+   */
+  public int addFramesPlanar(int[][] src, int offset, int frames) {
+    checkState();
+    checkPlanar(src.length, offset, frames);
+    for (int[] channel : src) {
+      checkChannel(channel.length, offset, frames);
+    }
+    try {
+      return added(state.addFramesPlanar(src, offset, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from one array per channel (float samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the number of arrays does not match the channels or an array is too small
+   */
+  public int addFramesPlanar(float[][] src, int offset, int frames) {
+    checkState();
+    checkPlanar(src.length, offset, frames);
+    for (float[] channel : src) {
+      checkChannel(channel.length, offset, frames);
+    }
+    try {
+      return added(state.addFramesPlanar(src, offset, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from one array per channel (double samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the number of arrays does not match the channels or an array is too small
+   */
+  public int addFramesPlanar(double[][] src, int offset, int frames) {
+    checkState();
+    checkPlanar(src.length, offset, frames);
+    for (double[] channel : src) {
+      checkChannel(channel.length, offset, frames);
+    }
+    try {
+      return added(state.addFramesPlanar(src, offset, frames), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from one direct buffer per channel, without interleaving them first
+   * when the backend supports planar input.
+   * Samples are read starting at each buffer's position, which is left unchanged.
+   *
+   * @param src    one direct buffer of source samples in native byte order per channel
+   * @param frames number of frames
+   * @param format sample format of the buffer contents
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the number of buffers does not match the channels, or a buffer is not
+   *                                  direct, not in native byte order or too small
+   */
+  public int addFramesPlanar(ByteBuffer[] src, int frames, SampleFormat format) {
+    checkState();
+    SampleFormat nativeFormat = nativeFormat(format);
+    checkPlanar(src.length, 0, frames);
+    for (ByteBuffer channel : src) {
+      if (!channel.isDirect()) {
+        throw new IllegalArgumentException("Buffer must be direct");
+      }
+      if (channel.order() != ByteOrder.nativeOrder()) {
+        throw new IllegalArgumentException("Buffer must be in native byte order");
+      }
+      checkChannel(channel.remaining() / format.getBytesPerSample(), 0, frames);
+    }
+    try {
+      return added(state.addFramesPlanar(src, frames, nativeFormat), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  private void checkPlanar(int length, int offset, int frames) {
+    if (length != channels) {
+      throw new IllegalArgumentException("Expected " + channels + " channels, got " + length);
+    }
+    if (offset < 0 || frames < 0) {
+      throw new IllegalArgumentException("Invalid offset or number of frames: " + offset + ", " + frames);
+    }
+  }
+
+  private static void checkChannel(int length, int offset, int frames) {
+    if (length - offset < frames) {
+      throw new IllegalArgumentException("Channel has fewer than " + frames + " frames after offset " + offset);
+    }
+  }
+
+  /**
+   * Add frames to be processed from a direct buffer, without copying.
+   * Samples are read starting at the buffer's position, which is left unchanged.
+   *
+   * @param src    direct buffer of source frames in native byte order (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @param format sample format of the buffer contents
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the buffer is not direct, not in native byte order or too small
+   */
+  public int addFrames(ByteBuffer src, long frames, SampleFormat format) {
+    checkState();
+    if (!src.isDirect()) {
+      throw new IllegalArgumentException("Buffer must be direct");
+    }
+    if (src.order() != ByteOrder.nativeOrder()) {
+      throw new IllegalArgumentException("Buffer must be in native byte order");
+    }
+    if (frames < 0 || frames > src.remaining() / ((long) channels * format.getBytesPerSample())) {
+      throw new IllegalArgumentException("Invalid number of frames: " + frames);
+    }
+    try {
+      return added(state.addFrames(src, frames, nativeFormat(format)), frames);
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from a buffer of any sample format.
+   * Samples are read starting at the buffer's position, which is left unchanged. Samples in a
+   * native format in a direct buffer are passed on without copying, other samples are converted
+   * in blocks into a scratch array reused by this state.
+   *
+   * @param src    buffer of source frames (channels must be interleaved), its byte order is ignored
+   * @param frames number of frames (not number of samples!)
+   * @param format sample format of the buffer contents
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the buffer is too small
+   */
+  public int addFramesBytes(ByteBuffer src, long frames, SampleFormat format) {
+    checkState();
+    if (frames < 0 || frames > src.remaining() / ((long) channels * format.getBytesPerSample())) {
+      throw new IllegalArgumentException("Invalid number of frames: " + frames);
+    }
+    SampleFormat nativeFormat = format.getNativeFormat();
+    if (nativeFormat != null && src.isDirect() && src.order() == ByteOrder.nativeOrder()) {
+      try {
+        return added(state.addFrames(src, frames, nativeFormat), frames);
+      } finally {
+        Reachability.fence(this);
+      }
+    }
+    int index = src.position();
+    int frameBytes = channels * format.getBytesPerSample();
+    int blockFrames = Math.max(1, SCRATCH_SAMPLES / channels);
+    try {
+      while (frames > 0) {
+        int count = (int) Math.min(frames, blockFrames);
+        int samples = count * channels;
+        int result;
+        if (!format.isFloatingPoint()) {
+          if (intScratch == null) {
+            intScratch = new int[blockFrames * channels];
+          }
+          format.toInts(src, index, intScratch, samples);
+          result = state.addFramesInt(intScratch, count);
+        } else if (format.getBytesPerSample() == 4) {
+          if (floatScratch == null) {
+            floatScratch = new float[blockFrames * channels];
+          }
+          format.toFloats(src, index, floatScratch, samples);
+          result = state.addFramesFloat(floatScratch, count);
+        } else {
+          if (doubleScratch == null) {
+            doubleScratch = new double[blockFrames * channels];
+          }
+          format.toDoubles(src, index, doubleScratch, samples);
+          result = state.addFramesDouble(doubleScratch, count);
+        }
+        if (result != Error.SUCCESS) {
+          return result;
+        }
+        tracker.frames += count;
+        index += count * frameBytes;
+        frames -= count;
+      }
+      return Error.SUCCESS;
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Add frames to be processed from a byte array of any sample format.
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param offset index in src of the first frame
+   * @param frames number of frames (not number of samples!)
+   * @param format sample format of the array contents
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if the array is too small
+   */
+  public int addFramesBytes(byte[] src, int offset, long frames, SampleFormat format) {
+    checkState();
+    if (offset < 0 || offset > src.length) {
+      throw new IllegalArgumentException("Invalid offset: " + offset);
+    }
+    // wrapped on each call, so that the state never keeps a reference to the caller's array
+    ByteBuffer buffer = ByteBuffer.wrap(src);
+    buffer.position(offset);
+    return addFramesBytes(buffer, frames, format);
+  }
+
+  private static SampleFormat nativeFormat(SampleFormat format) {
+    SampleFormat nativeFormat = format.getNativeFormat();
+    if (nativeFormat == null) {
+      throw new IllegalArgumentException("Sample format " + format + " must be converted, use addFramesBytes");
+    }
+    return nativeFormat;
+  }
+
+  /**
+   * Add frames to be processed from native memory, without copying.
+   *
+   * @param src    pointer to native memory holding the source frames (channels must be interleaved)
+   * @param offset offset in bytes from src to the first frame
+   * @param frames number of frames (not number of samples!)
+   * @param format sample format of the memory contents
+   * @return error code (see Error constants)
+   * @throws IllegalArgumentException if src is null, offset or frames are negative or the end of the frames overflows
+   */
+  public int addFrames(Pointer src, long offset, long frames, SampleFormat format) {
+    checkState();
+    if (src == null) {
+      throw new IllegalArgumentException("Pointer must not be null");
+    }
+    // the end of the frames, offset + frames * frameBytes, must not overflow
+    if (offset < 0 || frames < 0
+        || frames > (Long.MAX_VALUE - offset) / ((long) channels * format.getBytesPerSample())) {
+      throw new IllegalArgumentException("Invalid offset or number of frames: " + offset + ", " + frames);
+    }
+    try {
+      return added(state.addFrames(Pointer.nativeValue(src) + offset, frames, nativeFormat(format)), frames);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -132,7 +604,11 @@ public class State implements AutoCloseable {
    */
   public double getLoudnessGlobal() {
     checkState();
-    return Ebur128.loudnessGlobal(state);
+    try {
+      return state.loudnessGlobal();
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -142,7 +618,11 @@ public class State implements AutoCloseable {
    */
   public double getLoudnessMomentary() {
     checkState();
-    return Ebur128.loudnessMomentary(state);
+    try {
+      return state.loudnessMomentary();
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -152,7 +632,11 @@ public class State implements AutoCloseable {
    */
   public double getLoudnessShortterm() {
     checkState();
-    return Ebur128.loudnessShortterm(state);
+    try {
+      return state.loudnessShortterm();
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -163,7 +647,11 @@ public class State implements AutoCloseable {
    */
   public double getLoudnessWindow(long window) {
     checkState();
-    return Ebur128.loudnessWindow(state, window);
+    try {
+      return state.loudnessWindow(window);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -173,7 +661,11 @@ public class State implements AutoCloseable {
    */
   public double getLoudnessRange() {
     checkState();
-    return Ebur128.loudnessRange(state);
+    try {
+      return state.loudnessRange();
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -184,7 +676,11 @@ public class State implements AutoCloseable {
    */
   public double getSamplePeak(int channelNumber) {
     checkState();
-    return Ebur128.samplePeak(state, channelNumber);
+    try {
+      return state.samplePeak(channelNumber);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -195,7 +691,11 @@ public class State implements AutoCloseable {
    */
   public double getPrevSamplePeak(int channelNumber) {
     checkState();
-    return Ebur128.prevSamplePeak(state, channelNumber);
+    try {
+      return state.prevSamplePeak(channelNumber);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -206,7 +706,11 @@ public class State implements AutoCloseable {
    */
   public double getTruePeak(int channelNumber) {
     checkState();
-    return Ebur128.truePeak(state, channelNumber);
+    try {
+      return state.truePeak(channelNumber);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -217,7 +721,11 @@ public class State implements AutoCloseable {
    */
   public double getPrevTruePeak(int channelNumber) {
     checkState();
-    return Ebur128.prevTruePeak(state, channelNumber);
+    try {
+      return state.prevTruePeak(channelNumber);
+    } finally {
+      Reachability.fence(this);
+    }
   }
 
   /**
@@ -227,7 +735,87 @@ public class State implements AutoCloseable {
    */
   public double getRelativeThreshold() {
     checkState();
-    return Ebur128.relativeThreshold(state);
+    try {
+      return state.relativeThreshold();
+    } finally {
+      Reachability.fence(this);
+    }
+  }
+
+  /**
+   * Get global integrated loudness in LUFS across multiple states, as if their gating blocks had
+   * been measured by a single state.
+   *
+   * @param states states created with the same backend
+   * @return integrated loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   * @throws IllegalArgumentException if no states are given or they use different backends
+   */
+  public static double getLoudnessGlobalMultiple(State... states) {
+    try {
+      return backend(states).loudnessGlobalMultiple(engines(states));
+    } finally {
+      Reachability.fence(states);
+    }
+  }
+
+  /**
+   * Get loudness range (LRA) in LU across multiple states, as if their short-term blocks had
+   * been measured by a single state.
+   *
+   * @param states states created with the same backend
+   * @return loudness range (LRA) in LU, or Double.NEGATIVE_INFINITY on error
+   * @throws IllegalArgumentException if no states are given or they use different backends
+   */
+  public static double getLoudnessRangeMultiple(State... states) {
+    try {
+      return backend(states).loudnessRangeMultiple(engines(states));
+    } finally {
+      Reachability.fence(states);
+    }
+  }
+
+  private static Backend backend(State[] states) {
+    if (states.length == 0) {
+      throw new IllegalArgumentException("No states given");
+    }
+    Backend backend = states[0].backend;
+    for (State state : states) {
+      if (state.backend != backend) {
+        throw new IllegalArgumentException("States must use the same backend");
+      }
+    }
+    return backend;
+  }
+
+  private static Engine[] engines(State[] states) {
+    Engine[] engines = new Engine[states.length];
+    for (int i = 0; i < states.length; i++) {
+      states[i].checkState();
+      engines[i] = Instrumentation.unwrap(states[i].state);
+    }
+    return engines;
+  }
+
+  /**
+   * Read every loudness value enabled by the mode in one call.
+   * Reusing the snapshot makes repeated polling free of garbage.
+   *
+   * @param reuse snapshot to fill, or null to create a new one
+   * @return the filled snapshot
+   */
+  public LoudnessSnapshot snapshot(LoudnessSnapshot reuse) {
+    checkState();
+    LoudnessSnapshot snapshot = reuse != null ? reuse : new LoudnessSnapshot();
+    snapshot.read(this);
+    return snapshot;
+  }
+
+  /**
+   * Check whether the maximum window and maximum history are still the defaults, that is
+   * setMaxWindow and setMaxHistory were never applied.
+   */
+  boolean hasDefaultLimits() {
+    return tracker.maxWindow < 0 && tracker.maxHistory < 0;
   }
 
   /**
@@ -239,6 +827,15 @@ public class State implements AutoCloseable {
     return state != null;
   }
 
+  /**
+   * Get the backend performing the measurement.
+   *
+   * @return backend
+   */
+  public Backend getBackend() {
+    return backend;
+  }
+
   /**
    * Get the number of channels.
    *
@@ -267,16 +864,30 @@ public class State implements AutoCloseable {
   }
 
   /**
-   * Destroy the state and release resources.
+   * Destroy the state and release resources. A state that is not closed is destroyed when it is
+   * garbage collected and reported as a leak by {@link StateRegistry}.
    */
   @Override
   public void close() {
     if (state != null) {
-      Ebur128.destroy(state);
+      tracker.release();
+      state.destroy();
       state = null;
     }
   }
 
+  /**
+   * Account for frames added by the engine.
+   *
+   * @return result, unchanged
+   */
+  private int added(int result, long frames) {
+    if (result == Error.SUCCESS) {
+      tracker.frames += frames;
+    }
+    return result;
+  }
+
   /**
    * Check if the state is valid, throw exception if not.
    *
@@ -0,0 +1,159 @@
+package io.github.llm96.ebur128java;
+
+/**
+ * Point-in-time description of a {@link State} tracked by {@link StateRegistry}, either open or
+ * reclaimed without being closed.
+ */
+public final class StateAllocation {
+  private final long id;
+  private final String backend;
+  private final boolean nativeMemory;
+  private final int channels;
+  private final long samplerate;
+  private final int mode;
+  private final long maxWindow;
+  private final long maxHistory;
+  private final long frames;
+  private final long estimatedBytes;
+  private final long createdMillis;
+  private final Throwable allocationTrace;
+
+  StateAllocation(long id, String backend, boolean nativeMemory, int channels, long samplerate, int mode,
+                  long maxWindow, long maxHistory, long frames, long estimatedBytes, long createdMillis,
+                  Throwable allocationTrace) {
+    this.id = id;
+    this.backend = backend;
+    this.nativeMemory = nativeMemory;
+    this.channels = channels;
+    this.samplerate = samplerate;
+    this.mode = mode;
+    this.maxWindow = maxWindow;
+    this.maxHistory = maxHistory;
+    this.frames = frames;
+    this.estimatedBytes = estimatedBytes;
+    this.createdMillis = createdMillis;
+    this.allocationTrace = allocationTrace;
+  }
+
+  /**
+   * Get the number of the state, in order of creation.
+   *
+   * @return state number
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Get the name of the backend measuring the state.
+   *
+   * @return backend name
+   */
+  public String getBackend() {
+    return backend;
+  }
+
+  /**
+   * Check whether the state holds native memory, or lives on the Java heap.
+   *
+   * @return true if the backend allocates native memory
+   */
+  public boolean isNative() {
+    return nativeMemory;
+  }
+
+  /**
+   * Get the number of channels.
+   *
+   * @return number of channels
+   */
+  public int getChannels() {
+    return channels;
+  }
+
+  /**
+   * Get the sample rate.
+   *
+   * @return sample rate
+   */
+  public long getSamplerate() {
+    return samplerate;
+  }
+
+  /**
+   * Get the mode flags.
+   *
+   * @return mode flags
+   */
+  public int getMode() {
+    return mode;
+  }
+
+  /**
+   * Get the maximum window set on the state.
+   *
+   * @return duration in ms, or -1 if not set
+   */
+  public long getMaxWindow() {
+    return maxWindow;
+  }
+
+  /**
+   * Get the maximum history set on the state.
+   *
+   * @return duration in ms, or -1 if not set
+   */
+  public long getMaxHistory() {
+    return maxHistory;
+  }
+
+  /**
+   * Get the number of frames added since the state was created, restored or reset.
+   *
+   * @return number of frames
+   */
+  public long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Get the estimated memory held by the state, see {@link StateRegistry#estimateBytes}.
+   *
+   * @return estimated bytes
+   */
+  public long getEstimatedBytes() {
+    return estimatedBytes;
+  }
+
+  /**
+   * Get the time the state was created.
+   *
+   * @return milliseconds since the epoch
+   */
+  public long getCreatedMillis() {
+    return createdMillis;
+  }
+
+  /**
+   * Get the stack trace of the creation of the state.
+   *
+   * @return stack trace, or null unless leak detection is enabled
+   */
+  public Throwable getAllocationTrace() {
+    return allocationTrace;
+  }
+
+  @Override
+  public String toString() {
+    return "StateAllocation{id=" + id
+        + ", backend=" + backend
+        + ", channels=" + channels
+        + ", samplerate=" + samplerate
+        + ", mode=" + mode
+        + ", maxWindow=" + maxWindow
+        + ", maxHistory=" + maxHistory
+        + ", frames=" + frames
+        + ", estimatedBytes=" + estimatedBytes
+        + "}";
+  }
+}
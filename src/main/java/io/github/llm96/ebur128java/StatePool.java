@@ -0,0 +1,318 @@
+package io.github.llm96.ebur128java;
+
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of idle states, keyed by channels, sample rate, mode and channel types, so that short
+ * programmes do not pay for initializing and destroying a state each. Pooling only helps the
+ * {@code java} backend, see below.
+ * <p>
+ * Closing a state acquired from the pool resets it and returns it to the pool instead of
+ * destroying it; the state must not be used afterwards. States whose maximum window or maximum
+ * history were changed are destroyed instead, so that every acquired state measures the whole
+ * programme. When the pool is full, idle states of the least recently used keys are destroyed
+ * first. This class is thread-safe.
+ * <p>
+ * Only backends that reset their engines in place, see {@link Backend#hasInPlaceReset()}, are
+ * pooled; today that is the {@code java} backend. libebur128 cannot empty a state, so with the
+ * native backends every acquire creates a new state, counted as a miss, and closing it destroys
+ * it: the pool saves nothing there.
+ */
+public class StatePool implements AutoCloseable {
+  private final Backend backend;
+  /** whether the backend resets engines in place, without which pooling saves nothing */
+  private final boolean pooling;
+  private final int maxIdlePerKey;
+  private final int maxIdle;
+
+  /** idle states per key, in access order so that the first key is the coldest */
+  private final LinkedHashMap<Key, ArrayDeque<PooledState>> idle = new LinkedHashMap<>(16, 0.75f, true);
+  private int idleCount;
+  private long retainedBytes;
+  private boolean closed;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+
+  /**
+   * Create a pool using the default backend.
+   *
+   * @param maxIdlePerKey maximum number of idle states per key
+   * @param maxIdle       maximum number of idle states in total
+   */
+  public StatePool(int maxIdlePerKey, int maxIdle) {
+    this(Backends.getDefault(), maxIdlePerKey, maxIdle);
+  }
+
+  /**
+   * Create a pool.
+   *
+   * @param backend       backend performing the measurement
+   * @param maxIdlePerKey maximum number of idle states per key
+   * @param maxIdle       maximum number of idle states in total
+   * @throws IllegalArgumentException if maxIdlePerKey or maxIdle is negative
+   */
+  public StatePool(Backend backend, int maxIdlePerKey, int maxIdle) {
+    if (maxIdlePerKey < 0 || maxIdle < 0) {
+      throw new IllegalArgumentException("Invalid maximum number of idle states: " + maxIdlePerKey + ", " + maxIdle);
+    }
+    this.backend = backend;
+    this.pooling = backend.hasInPlaceReset();
+    this.maxIdlePerKey = maxIdlePerKey;
+    this.maxIdle = maxIdle;
+  }
+
+  /**
+   * Acquire an empty state with the default channel types.
+   *
+   * @param channels   the number of channels
+   * @param samplerate the sample rate
+   * @param mode       mode flags (see Mode constants)
+   * @return state, returned to the pool when closed
+   * @throws IllegalStateException if the pool is closed or initialization fails
+   */
+  public State acquire(int channels, long samplerate, int mode) {
+    return acquire(channels, samplerate, mode, null);
+  }
+
+  /**
+   * Acquire an empty state.
+   *
+   * @param channels   the number of channels
+   * @param samplerate the sample rate
+   * @param mode       mode flags (see Mode constants)
+   * @param channelMap channel type of each channel from Channel constants, or null for the defaults
+   * @return state, returned to the pool when closed
+   * @throws IllegalStateException    if the pool is closed or initialization fails
+   * @throws IllegalArgumentException if the channel map does not match the channels
+   */
+  public State acquire(int channels, long samplerate, int mode, int[] channelMap) {
+    if (channelMap != null && channelMap.length != channels) {
+      throw new IllegalArgumentException("Channel map must have " + channels + " entries");
+    }
+    Key key = new Key(channels, samplerate, mode, channelMap == null ? null : channelMap.clone());
+    PooledState state = null;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("State pool has been closed");
+      }
+      ArrayDeque<PooledState> states = idle.get(key);
+      if (states != null) {
+        state = states.pollLast();
+        if (states.isEmpty()) {
+          idle.remove(key);
+        }
+        idleCount--;
+        retainedBytes -= key.bytes;
+      }
+    }
+    if (state != null) {
+      hits.increment();
+      state.leased.set(true);
+      return state;
+    }
+    misses.increment();
+    state = new PooledState(key);
+    if (!state.restoreChannels()) {
+      state.destroy();
+      throw new IllegalArgumentException("Invalid channel map: " + Arrays.toString(channelMap));
+    }
+    return state;
+  }
+
+  /**
+   * Reset a state and keep it if there is room, called when a pooled state is closed.
+   */
+  private void release(PooledState state) {
+    if (!pooling) {
+      state.destroy();
+      return;
+    }
+    Key key = state.key;
+    boolean reusable = state.getChannels() == key.channels && state.getSamplerate() == key.samplerate
+        && state.hasDefaultLimits() && state.reset() == Error.SUCCESS && state.restoreChannels();
+    if (!reusable) {
+      discarded.increment();
+      state.destroy();
+      return;
+    }
+    synchronized (this) {
+      if (closed) {
+        reusable = false;
+      } else {
+        ArrayDeque<PooledState> states = idle.get(key);
+        if (states == null) {
+          states = new ArrayDeque<>();
+          idle.put(key, states);
+        }
+        if (states.size() < maxIdlePerKey) {
+          states.addLast(state);
+          idleCount++;
+          retainedBytes += key.bytes;
+          evictColdest();
+          return;
+        }
+        if (states.isEmpty()) {
+          idle.remove(key);
+        }
+      }
+    }
+    if (reusable) {
+      evictions.increment();
+    } else {
+      discarded.increment();
+    }
+    state.destroy();
+  }
+
+  /**
+   * Destroy the oldest idle states of the least recently used keys until the pool fits.
+   */
+  private void evictColdest() {
+    Iterator<Map.Entry<Key, ArrayDeque<PooledState>>> keys = idle.entrySet().iterator();
+    while (idleCount > maxIdle && keys.hasNext()) {
+      Map.Entry<Key, ArrayDeque<PooledState>> entry = keys.next();
+      ArrayDeque<PooledState> states = entry.getValue();
+      while (idleCount > maxIdle && !states.isEmpty()) {
+        states.pollFirst().destroy();
+        idleCount--;
+        retainedBytes -= entry.getKey().bytes;
+        evictions.increment();
+      }
+      if (states.isEmpty()) {
+        keys.remove();
+      }
+    }
+  }
+
+  /**
+   * Destroy all idle states.
+   */
+  public synchronized void clear() {
+    for (ArrayDeque<PooledState> states : idle.values()) {
+      for (PooledState state : states) {
+        state.destroy();
+      }
+    }
+    idle.clear();
+    idleCount = 0;
+    retainedBytes = 0;
+  }
+
+  /**
+   * Get the counters of the pool.
+   *
+   * @return statistics
+   */
+  public synchronized StatePoolStatistics getStatistics() {
+    return new StatePoolStatistics(hits.sum(), misses.sum(), evictions.sum(), discarded.sum(), idleCount,
+        idle.size(), retainedBytes);
+  }
+
+  /**
+   * Get the backend performing the measurement.
+   *
+   * @return backend
+   */
+  public Backend getBackend() {
+    return backend;
+  }
+
+  /**
+   * Destroy all idle states. States acquired before are destroyed when they are closed.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    clear();
+  }
+
+  /**
+   * Estimate the memory held by an empty state.
+   */
+  static long estimateBytes(int channels, long samplerate, int mode) {
+    return StateRegistry.estimateBytes(channels, samplerate, mode, -1, -1, 0);
+  }
+
+  private static final class Key {
+    final int channels;
+    final long samplerate;
+    final int mode;
+    final int[] channelMap;
+    final long bytes;
+    private final int hash;
+
+    Key(int channels, long samplerate, int mode, int[] channelMap) {
+      this.channels = channels;
+      this.samplerate = samplerate;
+      this.mode = mode;
+      this.channelMap = channelMap;
+      this.bytes = estimateBytes(channels, samplerate, mode);
+      this.hash = ((channels * 31 + Long.hashCode(samplerate)) * 31 + mode) * 31 + Arrays.hashCode(channelMap);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return channels == other.channels && samplerate == other.samplerate && mode == other.mode
+          && Arrays.equals(channelMap, other.channelMap);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  private final class PooledState extends State {
+    final Key key;
+    /** cleared by the first close, so that closing twice or from two threads releases once */
+    final AtomicBoolean leased = new AtomicBoolean(true);
+
+    PooledState(Key key) {
+      super(backend, key.channels, key.samplerate, key.mode);
+      this.key = key;
+    }
+
+    /**
+     * Apply the channel types of the key, undoing any setChannel() by the previous user.
+     */
+    boolean restoreChannels() {
+      for (int c = 0; c < key.channels; c++) {
+        int type = key.channelMap != null ? key.channelMap[c] : Channel.defaultType(c);
+        if (setChannel(c, type) != Error.SUCCESS) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void destroy() {
+      super.close();
+    }
+
+    @Override
+    public void close() {
+      if (leased.compareAndSet(true, false)) {
+        release(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package io.github.llm96.ebur128java;
+
+/**
+ * Point-in-time counters of a {@link StatePool}.
+ */
+public final class StatePoolStatistics {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long discarded;
+  private final int idle;
+  private final int keys;
+  private final long retainedBytes;
+
+  StatePoolStatistics(long hits, long misses, long evictions, long discarded, int idle, int keys, long retainedBytes) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.discarded = discarded;
+    this.idle = idle;
+    this.keys = keys;
+    this.retainedBytes = retainedBytes;
+  }
+
+  /**
+   * Get the number of acquisitions served by an idle state.
+   *
+   * @return number of hits
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of acquisitions that initialized a new state.
+   *
+   * @return number of misses
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Get the fraction of acquisitions served by an idle state.
+   *
+   * @return hit rate between 0 and 1
+   */
+  public double getHitRate() {
+    long total = hits + misses;
+    return total > 0 ? (double) hits / total : 0.0;
+  }
+
+  /**
+   * Get the number of idle states destroyed because the pool was full.
+   *
+   * @return number of evictions
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Get the number of returned states destroyed because they could not be reused, for example
+   * after their parameters were changed.
+   *
+   * @return number of discarded states
+   */
+  public long getDiscarded() {
+    return discarded;
+  }
+
+  /**
+   * Get the number of idle states.
+   *
+   * @return number of idle states
+   */
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * Get the number of keys with idle states.
+   *
+   * @return number of keys
+   */
+  public int getKeys() {
+    return keys;
+  }
+
+  /**
+   * Get the estimated memory held by the idle states, not counting a maximum window or history
+   * changed after acquisition.
+   *
+   * @return retained bytes
+   */
+  public long getRetainedBytes() {
+    return retainedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "StatePoolStatistics{hits=" + hits
+        + ", misses=" + misses
+        + ", hitRate=" + getHitRate()
+        + ", evictions=" + evictions
+        + ", discarded=" + discarded
+        + ", idle=" + idle
+        + ", keys=" + keys
+        + ", retainedBytes=" + retainedBytes
+        + "}";
+  }
+}
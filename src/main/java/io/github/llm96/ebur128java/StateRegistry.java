@@ -0,0 +1,352 @@
+package io.github.llm96.ebur128java;
+
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the open {@link State}s and the memory they hold.
+ * <p>
+ * A state is registered when it is created and removed when it is closed. A state that becomes
+ * unreachable without being closed is destroyed by a daemon thread, so that its native memory is
+ * not lost, and recorded as a leak. Closing states remains necessary: the garbage collector does
+ * not see native memory and may reclaim them late or never.
+ * <p>
+ * When the {@value #LEAK_DETECTION_PROPERTY} system property is true, the stack trace of the
+ * creation of every state is recorded and included in the leak report. This costs a stack walk
+ * per state, so it is disabled by default.
+ */
+public final class StateRegistry {
+  /**
+   * System property enabling the recording of allocation stack traces.
+   */
+  public static final String LEAK_DETECTION_PROPERTY = "ebur128java.leakDetection";
+
+  /** number of most recent leaks kept for the report */
+  static final int MAX_LEAKS = 64;
+
+  /** ebur128_state and its internal struct */
+  private static final long STATE_BYTES = 512;
+  /** channel map, four peak arrays and the five filter states of a channel */
+  private static final long CHANNEL_BYTES = Integer.BYTES + 9 * Double.BYTES;
+  /** malloc'd entry of a gating block list: the energy and the list link, with allocator overhead */
+  private static final long BLOCK_BYTES = 32;
+  /** taps of the true peak interpolator */
+  private static final int TRUE_PEAK_TAPS = 49;
+  private static final int HISTOGRAM_BINS = 1000;
+
+  private static final boolean LEAK_DETECTION = Boolean.getBoolean(LEAK_DETECTION_PROPERTY);
+
+  private static final Set<Tracker> LIVE = ConcurrentHashMap.newKeySet();
+  private static final ReferenceQueue<State> QUEUE = new ReferenceQueue<>();
+  private static final AtomicLong IDS = new AtomicLong();
+  private static final AtomicLong LEAKED_STATES = new AtomicLong();
+  private static final AtomicLong LEAKED_BYTES = new AtomicLong();
+  /** most recent leaks, guarded by itself */
+  private static final ArrayDeque<StateAllocation> LEAKS = new ArrayDeque<>();
+
+  static {
+    Thread thread = new Thread(StateRegistry::reclaim, "ebur128-state-cleaner");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private StateRegistry() {
+  }
+
+  /**
+   * Track a new state.
+   *
+   * @param state  state to track, not referenced by the tracker
+   * @param engine engine of the state, destroyed if the state is reclaimed without being closed
+   * @return tracker to update while the state is used and to release when it is closed
+   */
+  static Tracker register(State state, Backend backend, Engine engine, int channels, long samplerate, int mode) {
+    Tracker tracker = new Tracker(state, backend, engine, channels, samplerate, mode);
+    LIVE.add(tracker);
+    return tracker;
+  }
+
+  /**
+   * Body of the cleaner thread: destroy the engines of states reclaimed without being closed.
+   */
+  private static void reclaim() {
+    while (true) {
+      Tracker tracker;
+      try {
+        tracker = (Tracker) QUEUE.remove();
+      } catch (InterruptedException e) {
+        continue;
+      }
+      if (!LIVE.remove(tracker)) {
+        continue;
+      }
+      StateAllocation leak = tracker.describe();
+      try {
+        tracker.engine.destroy();
+      } catch (RuntimeException e) {
+        // the state is gone either way, keep reclaiming the others
+      }
+      LEAKED_STATES.incrementAndGet();
+      LEAKED_BYTES.addAndGet(leak.getEstimatedBytes());
+      synchronized (LEAKS) {
+        if (LEAKS.size() == MAX_LEAKS) {
+          LEAKS.pollFirst();
+        }
+        LEAKS.addLast(leak);
+      }
+    }
+  }
+
+  /**
+   * Check whether allocation stack traces are recorded.
+   *
+   * @return value of the {@value #LEAK_DETECTION_PROPERTY} system property
+   */
+  public static boolean isLeakDetectionEnabled() {
+    return LEAK_DETECTION;
+  }
+
+  /**
+   * Describe the open states.
+   *
+   * @return open states, in no particular order
+   */
+  public static List<StateAllocation> getLiveStates() {
+    List<StateAllocation> states = new ArrayList<>(LIVE.size());
+    for (Tracker tracker : LIVE) {
+      states.add(tracker.describe());
+    }
+    return states;
+  }
+
+  /**
+   * Get the number of open states.
+   *
+   * @return number of states
+   */
+  public static int getLiveCount() {
+    return LIVE.size();
+  }
+
+  /**
+   * Get the estimated native memory held by the open states of native backends.
+   *
+   * @return estimated bytes
+   */
+  public static long getEstimatedNativeBytes() {
+    long bytes = 0;
+    for (Tracker tracker : LIVE) {
+      if (tracker.backend.isNative()) {
+        bytes += tracker.estimateBytes();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Get the number of states reclaimed without being closed.
+   *
+   * @return number of leaks
+   */
+  public static long getLeakedCount() {
+    return LEAKED_STATES.get();
+  }
+
+  /**
+   * Get the estimated memory held by the states reclaimed without being closed until they were
+   * reclaimed.
+   *
+   * @return estimated bytes
+   */
+  public static long getLeakedBytes() {
+    return LEAKED_BYTES.get();
+  }
+
+  /**
+   * Describe the most recent states reclaimed without being closed.
+   *
+   * @return up to {@value #MAX_LEAKS} leaks, oldest first
+   */
+  public static List<StateAllocation> getLeaks() {
+    synchronized (LEAKS) {
+      return new ArrayList<>(LEAKS);
+    }
+  }
+
+  /**
+   * Describe the leaks and the open states, with their allocation stack traces if leak detection
+   * is enabled.
+   *
+   * @return human readable report
+   */
+  public static String getLeakReport() {
+    StringWriter text = new StringWriter();
+    PrintWriter out = new PrintWriter(text);
+    List<StateAllocation> leaks = getLeaks();
+    List<StateAllocation> live = getLiveStates();
+    out.println(getLeakedCount() + " states reclaimed without close(), " + getLeakedBytes() + " bytes");
+    for (StateAllocation leak : leaks) {
+      print(out, "Leaked", leak);
+    }
+    out.println(live.size() + " open states, " + getEstimatedNativeBytes() + " native bytes");
+    for (StateAllocation state : live) {
+      print(out, "Open", state);
+    }
+    if (!LEAK_DETECTION) {
+      out.println("Set -D" + LEAK_DETECTION_PROPERTY + "=true to record allocation stack traces");
+    }
+    out.flush();
+    return text.toString();
+  }
+
+  private static void print(PrintWriter out, String label, StateAllocation state) {
+    out.println(label + " " + state);
+    Throwable trace = state.getAllocationTrace();
+    if (trace != null) {
+      for (StackTraceElement element : trace.getStackTrace()) {
+        out.println("\tat " + element);
+      }
+    }
+  }
+
+  /**
+   * Estimate the memory libebur128 1.2.6 allocates for a state: the K-weighted audio of the
+   * maximum window, the true peak interpolator and its buffers, and either the histograms or one
+   * list entry per gating block kept within the maximum history. The pure Java backend holds
+   * comparable amounts on the heap.
+   *
+   * @param channels   the number of channels
+   * @param samplerate the sample rate
+   * @param mode       mode flags (see Mode constants)
+   * @param maxWindow  maximum window in ms, or -1 for the default
+   * @param maxHistory maximum history in ms, or -1 for the default (unbounded)
+   * @param frames     number of frames added
+   * @return estimated bytes
+   */
+  public static long estimateBytes(int channels, long samplerate, int mode, long maxWindow, long maxHistory,
+                                   long frames) {
+    long samplesIn100ms = (samplerate + 5) / 10;
+    long bytes = STATE_BYTES + channels * CHANNEL_BYTES;
+
+    long window = (mode & Mode.MODE_S) == Mode.MODE_S ? 3000 : (mode & Mode.MODE_M) == Mode.MODE_M ? 400 : 0;
+    window = Math.max(window, maxWindow);
+    long audioFrames = samplerate * window / 1000;
+    if (samplesIn100ms > 0 && audioFrames % samplesIn100ms != 0) {
+      audioFrames = (audioFrames + samplesIn100ms) - (audioFrames % samplesIn100ms);
+    }
+    bytes += audioFrames * channels * Double.BYTES;
+
+    if ((mode & Mode.MODE_TRUE_PEAK) == Mode.MODE_TRUE_PEAK) {
+      int factor = samplerate < 96000 ? 4 : samplerate < 192000 ? 2 : 1;
+      if (factor > 1) {
+        long delay = (TRUE_PEAK_TAPS + factor - 1) / factor;
+        long inputFrames = samplesIn100ms * 4;
+        bytes += inputFrames * (1 + factor) * channels * Float.BYTES;
+        bytes += factor * delay * (Integer.BYTES + Double.BYTES) + channels * delay * Float.BYTES;
+      }
+    }
+
+    if ((mode & Mode.MODE_HISTOGRAM) == Mode.MODE_HISTOGRAM) {
+      bytes += 2 * HISTOGRAM_BINS * Long.BYTES;
+    } else if (samplesIn100ms > 0) {
+      long history = maxHistory < 0 ? Long.MAX_VALUE : maxHistory;
+      if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA) {
+        history = Math.max(history, 3000);
+      } else if ((mode & Mode.MODE_M) == Mode.MODE_M) {
+        history = Math.max(history, 400);
+      }
+      long hops = frames / samplesIn100ms;
+      if ((mode & Mode.MODE_I) == Mode.MODE_I && hops >= 4) {
+        // a gating block every 100 ms once the first 400 ms are complete
+        bytes += Math.min(hops - 3, history / 100) * BLOCK_BYTES;
+      }
+      if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA && hops >= 30) {
+        // a short-term block every second once the first 3 s are complete
+        bytes += Math.min((hops - 30) / 10 + 1, history / 3000) * BLOCK_BYTES;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Accounting of one state. The settings are updated by the thread using the state and read
+   * racily by the registry, which only needs an estimate.
+   */
+  static final class Tracker extends PhantomReference<State> {
+    final long id = IDS.incrementAndGet();
+    final Backend backend;
+    final Engine engine;
+    final int mode;
+    final long createdMillis = System.currentTimeMillis();
+    final Throwable allocationTrace;
+    int channels;
+    long samplerate;
+    long maxWindow = -1;
+    long maxHistory = -1;
+    long frames;
+
+    Tracker(State state, Backend backend, Engine engine, int channels, long samplerate, int mode) {
+      super(state, QUEUE);
+      this.backend = backend;
+      this.engine = engine;
+      this.channels = channels;
+      this.samplerate = samplerate;
+      this.mode = mode;
+      this.allocationTrace = LEAK_DETECTION ? allocationTrace(id) : null;
+    }
+
+    /**
+     * Record the stack trace of the creation of a state, starting at its constructor.
+     */
+    private static Throwable allocationTrace(long id) {
+      Throwable trace = new Throwable("State #" + id + " created here");
+      StackTraceElement[] elements = trace.getStackTrace();
+      int first = 0;
+      while (first < elements.length && elements[first].getClassName().startsWith(StateRegistry.class.getName())) {
+        first++;
+      }
+      trace.setStackTrace(Arrays.copyOfRange(elements, first, elements.length));
+      return trace;
+    }
+
+    /**
+     * Account for parameters changed by changeParameters, keeping the duration of the frames added.
+     */
+    void changeParameters(int channels, long samplerate) {
+      if (this.samplerate > 0) {
+        frames = frames * samplerate / this.samplerate;
+      }
+      this.channels = channels;
+      this.samplerate = samplerate;
+    }
+
+    /**
+     * Stop tracking a closed state.
+     */
+    void release() {
+      LIVE.remove(this);
+      clear();
+    }
+
+    long estimateBytes() {
+      return StateRegistry.estimateBytes(channels, samplerate, mode, maxWindow, maxHistory, frames);
+    }
+
+    StateAllocation describe() {
+      return new StateAllocation(id, backend.getName(), backend.isNative(), channels, samplerate, mode, maxWindow,
+          maxHistory, frames, estimateBytes(), createdMillis, allocationTrace);
+    }
+  }
+}
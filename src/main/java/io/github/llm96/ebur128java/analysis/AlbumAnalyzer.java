@@ -0,0 +1,177 @@
+package io.github.llm96.ebur128java.analysis;
+
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.io.AudioSource;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the tracks of an album or playlist concurrently and combines them into album loudness
+ * in the same pass.
+ * <p>
+ * The state of each track is kept until all tracks are measured, because the album integrated
+ * loudness and loudness range are calculated from the gating blocks of all states, and closed
+ * right after.
+ */
+public class AlbumAnalyzer {
+  private final Backend backend;
+  private final Executor executor;
+  private final int mode;
+  private final int bufferFrames;
+
+  /**
+   * Create an analyzer on the common fork/join pool using the default backend.
+   *
+   * @param mode mode flags of the states (see Mode constants)
+   */
+  public AlbumAnalyzer(int mode) {
+    this(ForkJoinPool.commonPool(), mode);
+  }
+
+  /**
+   * Create an analyzer using the default backend.
+   *
+   * @param executor executor measuring the tracks
+   * @param mode     mode flags of the states (see Mode constants)
+   */
+  public AlbumAnalyzer(Executor executor, int mode) {
+    this(Backends.getDefault(), executor, mode, BatchAnalyzer.DEFAULT_BUFFER_FRAMES);
+  }
+
+  /**
+   * Create an analyzer.
+   *
+   * @param backend      backend performing the measurement
+   * @param executor     executor measuring the tracks
+   * @param mode         mode flags of the states (see Mode constants)
+   * @param bufferFrames number of frames read from a source at a time
+   * @throws IllegalArgumentException if bufferFrames is not positive
+   */
+  public AlbumAnalyzer(Backend backend, Executor executor, int mode, int bufferFrames) {
+    if (bufferFrames <= 0) {
+      throw new IllegalArgumentException("Invalid number of buffer frames: " + bufferFrames);
+    }
+    this.backend = backend;
+    this.executor = executor;
+    this.mode = mode;
+    this.bufferFrames = bufferFrames;
+  }
+
+  /**
+   * Measure the tracks and the album. Failures to open or read a track are reported in its
+   * result, and the album is calculated from the other tracks.
+   *
+   * @param tracks tracks to measure
+   * @param opener opens the audio source of a track
+   * @param <T>    type of the tracks
+   * @return per-track and album results
+   */
+  public <T> AlbumResult<T> analyse(List<? extends T> tracks, BatchAnalyzer.Opener<? super T> opener) {
+    List<CompletableFuture<Track<T>>> tasks = new ArrayList<>(tracks.size());
+    for (T track : tracks) {
+      long submitNanos = System.nanoTime();
+      tasks.add(CompletableFuture.supplyAsync(() -> analyse(track, opener, submitNanos), executor));
+    }
+    List<BatchResult<T>> results = new ArrayList<>(tracks.size());
+    List<State> states = new ArrayList<>(tracks.size());
+    int joined = 0;
+    try {
+      for (; joined < tasks.size(); joined++) {
+        Track<T> track = tasks.get(joined).join();
+        results.add(track.result);
+        if (track.state != null) {
+          states.add(track.state);
+        }
+      }
+      return combine(results, states.toArray(new State[0]));
+    } finally {
+      for (State state : states) {
+        state.close();
+      }
+      // only left if waiting was interrupted by an exception
+      for (; joined < tasks.size(); joined++) {
+        tasks.get(joined).thenAccept(Track::close);
+      }
+    }
+  }
+
+  private <T> Track<T> analyse(T item, BatchAnalyzer.Opener<? super T> opener, long submitNanos) {
+    long start = System.nanoTime();
+    State state = null;
+    try (AudioSource source = opener.open(item)) {
+      state = new State(backend, source.getChannels(), source.getSamplerate(), mode);
+      long frames = source.transferTo(state, new float[bufferFrames * source.getChannels()]);
+      LoudnessSnapshot snapshot = state.snapshot(null);
+      long end = System.nanoTime();
+      return new Track<>(state, new BatchResult<>(item, snapshot, frames, null, end - submitNanos, end - start));
+    } catch (java.lang.Exception | LinkageError e) {
+      // reported in the result, the album is calculated from the other tracks
+      if (state != null) {
+        state.close();
+      }
+      long end = System.nanoTime();
+      return new Track<>(null, new BatchResult<>(item, null, 0, e, end - submitNanos, end - start));
+    } catch (java.lang.Error e) {
+      // fatal, fails the whole album
+      if (state != null) {
+        state.close();
+      }
+      throw e;
+    }
+  }
+
+  private <T> AlbumResult<T> combine(List<BatchResult<T>> results, State[] states) {
+    double global = Double.NaN;
+    double range = Double.NaN;
+    if ((mode & Mode.MODE_I) == Mode.MODE_I) {
+      global = states.length > 0 ? State.getLoudnessGlobalMultiple(states) : Double.NEGATIVE_INFINITY;
+    }
+    if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA) {
+      range = states.length > 0 ? State.getLoudnessRangeMultiple(states) : 0.0;
+    }
+    boolean samplePeaks = (mode & Mode.MODE_SAMPLE_PEAK) == Mode.MODE_SAMPLE_PEAK;
+    boolean truePeaks = (mode & Mode.MODE_TRUE_PEAK) == Mode.MODE_TRUE_PEAK;
+    double samplePeak = samplePeaks ? 0.0 : Double.NaN;
+    double truePeak = truePeaks ? 0.0 : Double.NaN;
+    for (BatchResult<T> result : results) {
+      LoudnessSnapshot snapshot = result.getSnapshot();
+      if (snapshot == null) {
+        continue;
+      }
+      for (int c = 0; c < snapshot.getChannels(); c++) {
+        if (samplePeaks) {
+          samplePeak = Math.max(samplePeak, snapshot.getSamplePeak(c));
+        }
+        if (truePeaks) {
+          truePeak = Math.max(truePeak, snapshot.getTruePeak(c));
+        }
+      }
+    }
+    return new AlbumResult<>(Collections.unmodifiableList(results), global, range, samplePeak, truePeak);
+  }
+
+  private static final class Track<T> {
+    final State state;
+    final BatchResult<T> result;
+
+    Track(State state, BatchResult<T> result) {
+      this.state = state;
+      this.result = result;
+    }
+
+    void close() {
+      if (state != null) {
+        state.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package io.github.llm96.ebur128java.analysis;
+
+import java.util.List;
+
+/**
+ * Per-track and combined loudness of an album or playlist measured by an {@link AlbumAnalyzer}.
+ * The album readings combine the tracks that were analysed successfully, readings that are not
+ * enabled by the mode of the analyzer are NaN.
+ *
+ * @param <T> type of the tracks
+ */
+public final class AlbumResult<T> {
+  private final List<BatchResult<T>> tracks;
+  private final double global;
+  private final double range;
+  private final double samplePeak;
+  private final double truePeak;
+
+  AlbumResult(List<BatchResult<T>> tracks, double global, double range, double samplePeak, double truePeak) {
+    this.tracks = tracks;
+    this.global = global;
+    this.range = range;
+    this.samplePeak = samplePeak;
+    this.truePeak = truePeak;
+  }
+
+  /**
+   * Get the result of each track.
+   *
+   * @return unmodifiable list of track results, in the order of the tracks
+   */
+  public List<BatchResult<T>> getTracks() {
+    return tracks;
+  }
+
+  /**
+   * Check if every track was analysed successfully.
+   *
+   * @return true if no track failed
+   */
+  public boolean isComplete() {
+    for (BatchResult<T> track : tracks) {
+      if (!track.isSuccess()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get integrated loudness of all tracks in LUFS.
+   *
+   * @return integrated loudness in LUFS, or NaN without MODE_I
+   */
+  public double getGlobal() {
+    return global;
+  }
+
+  /**
+   * Get loudness range (LRA) of all tracks in LU.
+   *
+   * @return loudness range (LRA) in LU, or NaN without MODE_LRA
+   */
+  public double getRange() {
+    return range;
+  }
+
+  /**
+   * Get the maximum sample peak of all channels of all tracks.
+   *
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or NaN without MODE_SAMPLE_PEAK
+   */
+  public double getSamplePeak() {
+    return samplePeak;
+  }
+
+  /**
+   * Get the maximum true peak of all channels of all tracks.
+   *
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or NaN without MODE_TRUE_PEAK
+   */
+  public double getTruePeak() {
+    return truePeak;
+  }
+
+  @Override
+  public String toString() {
+    return "AlbumResult{tracks=" + tracks.size()
+        + ", global=" + global
+        + ", range=" + range
+        + ", samplePeak=" + samplePeak
+        + ", truePeak=" + truePeak
+        + "}";
+  }
+}
@@ -0,0 +1,297 @@
+package io.github.llm96.ebur128java.analysis;
+
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.StatePool;
+import io.github.llm96.ebur128java.io.AudioSource;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Analyses many audio sources concurrently, one {@link State} per source.
+ * <p>
+ * Items are opened and measured on the executor, for example {@link ForkJoinPool#commonPool()} or
+ * {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21+. At most {@code maxInFlight} items
+ * are submitted at a time across all streams of an analyzer, which bounds the native memory held by
+ * states, and decode buffers are reused between items. Items are pulled from the input only as
+ * results are consumed.
+ */
+public class BatchAnalyzer {
+  /** default number of frames read from a source at a time */
+  public static final int DEFAULT_BUFFER_FRAMES = 4096;
+
+  /**
+   * Opens the audio source of an item on a worker thread.
+   *
+   * @param <T> type of the items
+   */
+  @FunctionalInterface
+  public interface Opener<T> {
+    /**
+     * Open the audio source of an item.
+     *
+     * @param item item to open
+     * @return audio source, closed by the analyzer
+     * @throws IOException if the item cannot be opened
+     */
+    AudioSource open(T item) throws IOException;
+  }
+
+  private final Backend backend;
+  private final StatePool pool;
+  private final Executor executor;
+  private final int mode;
+  private final int maxInFlight;
+  private final int bufferFrames;
+  private final Semaphore permits;
+  private final ConcurrentLinkedQueue<float[]> buffers = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final AtomicInteger running = new AtomicInteger();
+  private final LongAdder frames = new LongAdder();
+  private final LongAdder totalLatencyNanos = new LongAdder();
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+  private final LongAdder totalProcessingNanos = new LongAdder();
+  private final AtomicLong startNanos = new AtomicLong();
+
+  /**
+   * Create an analyzer on the common fork/join pool using the default backend, with one item in
+   * flight per available processor.
+   *
+   * @param mode mode flags of the states (see Mode constants)
+   */
+  public BatchAnalyzer(int mode) {
+    this(ForkJoinPool.commonPool(), mode, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create an analyzer using the default backend.
+   *
+   * @param executor    executor running the analysis of each item
+   * @param mode        mode flags of the states (see Mode constants)
+   * @param maxInFlight maximum number of items submitted at a time
+   */
+  public BatchAnalyzer(Executor executor, int mode, int maxInFlight) {
+    this(Backends.getDefault(), executor, mode, maxInFlight, DEFAULT_BUFFER_FRAMES);
+  }
+
+  /**
+   * Create an analyzer.
+   *
+   * @param backend      backend performing the measurement
+   * @param executor     executor running the analysis of each item
+   * @param mode         mode flags of the states (see Mode constants)
+   * @param maxInFlight  maximum number of items submitted at a time
+   * @param bufferFrames number of frames read from a source at a time
+   * @throws IllegalArgumentException if maxInFlight or bufferFrames is not positive
+   */
+  public BatchAnalyzer(Backend backend, Executor executor, int mode, int maxInFlight, int bufferFrames) {
+    this(backend, null, executor, mode, maxInFlight, bufferFrames);
+  }
+
+  /**
+   * Create an analyzer taking its states from a pool, which is left open.
+   *
+   * @param pool         pool of states, also providing the backend
+   * @param executor     executor running the analysis of each item
+   * @param mode         mode flags of the states (see Mode constants)
+   * @param maxInFlight  maximum number of items submitted at a time
+   * @param bufferFrames number of frames read from a source at a time
+   * @throws IllegalArgumentException if maxInFlight or bufferFrames is not positive
+   */
+  public BatchAnalyzer(StatePool pool, Executor executor, int mode, int maxInFlight, int bufferFrames) {
+    this(pool.getBackend(), pool, executor, mode, maxInFlight, bufferFrames);
+  }
+
+  private BatchAnalyzer(Backend backend, StatePool pool, Executor executor, int mode, int maxInFlight,
+                        int bufferFrames) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("Invalid maximum number of items in flight: " + maxInFlight);
+    }
+    if (bufferFrames <= 0) {
+      throw new IllegalArgumentException("Invalid number of buffer frames: " + bufferFrames);
+    }
+    this.backend = backend;
+    this.pool = pool;
+    this.executor = executor;
+    this.mode = mode;
+    this.maxInFlight = maxInFlight;
+    this.bufferFrames = bufferFrames;
+    this.permits = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Analyse items concurrently.
+   * <p>
+   * The returned stream yields one result per item in completion order, and submits further items
+   * as results are consumed. Failures to open or read an item are reported in its result. Closing
+   * the returned stream closes the input stream; items already submitted still run to completion.
+   *
+   * @param items  items to analyse
+   * @param opener opens the audio source of an item
+   * @param <T>    type of the items
+   * @return stream of results in completion order
+   */
+  public <T> Stream<BatchResult<T>> analyse(Stream<? extends T> items, Opener<? super T> opener) {
+    return StreamSupport.stream(new Results<T>(items.iterator(), opener), false).onClose(items::close);
+  }
+
+  /**
+   * Get the counters of all items analysed so far.
+   *
+   * @return statistics
+   */
+  public BatchStatistics getStatistics() {
+    long start = startNanos.get();
+    return new BatchStatistics(submitted.sum(), succeeded.sum(), failed.sum(), running.get(), frames.sum(),
+        start == 0 ? 0 : System.nanoTime() - start, totalLatencyNanos.sum(), maxLatencyNanos.get(),
+        totalProcessingNanos.sum());
+  }
+
+  /**
+   * Get the maximum number of items submitted at a time.
+   *
+   * @return maximum number of items in flight
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  private <T> BatchResult<T> analyse(T item, Opener<? super T> opener, long submitNanos) {
+    long start = System.nanoTime();
+    running.incrementAndGet();
+    LoudnessSnapshot snapshot = null;
+    long count = 0;
+    Throwable error = null;
+    try (AudioSource source = opener.open(item)) {
+      float[] buffer = borrowBuffer(source.getChannels());
+      try (State state = pool != null ? pool.acquire(source.getChannels(), source.getSamplerate(), mode)
+          : new State(backend, source.getChannels(), source.getSamplerate(), mode)) {
+        count = source.transferTo(state, buffer);
+        snapshot = state.snapshot(null);
+      } finally {
+        buffers.offer(buffer);
+      }
+    } catch (java.lang.Exception | LinkageError e) {
+      // reported in the result, the consumer waits for one result per submitted item
+      error = e;
+    } catch (java.lang.Error e) {
+      running.decrementAndGet();
+      failed.increment();
+      throw e;
+    }
+    long end = System.nanoTime();
+    running.decrementAndGet();
+    if (error == null) {
+      succeeded.increment();
+      frames.add(count);
+    } else {
+      failed.increment();
+    }
+    long latency = end - submitNanos;
+    totalLatencyNanos.add(latency);
+    totalProcessingNanos.add(end - start);
+    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    return new BatchResult<>(item, snapshot, error == null ? count : 0, error, latency, end - start);
+  }
+
+  /**
+   * Take a decode buffer for a number of channels from the pool, which never holds more buffers
+   * than items in flight.
+   */
+  private float[] borrowBuffer(int channels) {
+    int length = bufferFrames * channels;
+    float[] buffer = buffers.poll();
+    return buffer != null && buffer.length >= length ? buffer : new float[length];
+  }
+
+  /**
+   * Submits items while results are consumed, keeping at most maxInFlight results outstanding.
+   */
+  private final class Results<T> extends Spliterators.AbstractSpliterator<BatchResult<T>> {
+    private final Iterator<? extends T> items;
+    private final Opener<? super T> opener;
+    private final BlockingQueue<BatchResult<T>> completed = new LinkedBlockingQueue<>();
+    private int pending;
+
+    Results(Iterator<? extends T> items, Opener<? super T> opener) {
+      super(Long.MAX_VALUE, Spliterator.NONNULL);
+      this.items = items;
+      this.opener = opener;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super BatchResult<T>> action) {
+      try {
+        while (pending < maxInFlight && items.hasNext()) {
+          if (pending == 0) {
+            permits.acquire();
+          } else if (!permits.tryAcquire()) {
+            break;
+          }
+          T item;
+          try {
+            item = items.next();
+          } catch (RuntimeException | java.lang.Error e) {
+            permits.release();
+            throw e;
+          }
+          submit(item);
+        }
+        if (pending == 0) {
+          return false;
+        }
+        BatchResult<T> result = completed.take();
+        pending--;
+        action.accept(result);
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for results", e);
+      }
+    }
+
+    private void submit(T item) {
+      long submitNanos = System.nanoTime();
+      startNanos.compareAndSet(0, submitNanos);
+      submitted.increment();
+      try {
+        executor.execute(() -> {
+          try {
+            completed.add(analyse(item, opener, submitNanos));
+          } catch (java.lang.Error e) {
+            // propagated to the executor, after giving the consumer the result it waits for
+            completed.add(new BatchResult<>(item, null, 0, e, System.nanoTime() - submitNanos, 0));
+            throw e;
+          } finally {
+            permits.release();
+          }
+        });
+      } catch (RuntimeException e) {
+        submitted.decrement();
+        permits.release();
+        throw e;
+      }
+      pending++;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package io.github.llm96.ebur128java.analysis;
+
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+
+/**
+ * Outcome of analysing one item of a {@link BatchAnalyzer}.
+ *
+ * @param <T> type of the analysed items
+ */
+public final class BatchResult<T> {
+  private final T item;
+  private final LoudnessSnapshot snapshot;
+  private final long frames;
+  private final Throwable error;
+  private final long latencyNanos;
+  private final long processingNanos;
+
+  BatchResult(T item, LoudnessSnapshot snapshot, long frames, Throwable error, long latencyNanos,
+              long processingNanos) {
+    this.item = item;
+    this.snapshot = snapshot;
+    this.frames = frames;
+    this.error = error;
+    this.latencyNanos = latencyNanos;
+    this.processingNanos = processingNanos;
+  }
+
+  /**
+   * Get the analysed item.
+   *
+   * @return item
+   */
+  public T getItem() {
+    return item;
+  }
+
+  /**
+   * Check if the analysis succeeded.
+   *
+   * @return true if the item was analysed, false if it failed
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Get the loudness readings after all frames of the item have been added.
+   *
+   * @return readings, or null if the analysis failed
+   */
+  public LoudnessSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Get the number of frames analysed.
+   *
+   * @return number of frames, or 0 if the analysis failed
+   */
+  public long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Get the cause of a failed analysis.
+   *
+   * @return cause, or null if the analysis succeeded
+   */
+  public Throwable getError() {
+    return error;
+  }
+
+  /**
+   * Get the time from submitting the item to the executor until its analysis finished.
+   *
+   * @return latency in nanoseconds
+   */
+  public long getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /**
+   * Get the time spent opening, reading and measuring the item.
+   *
+   * @return processing time in nanoseconds
+   */
+  public long getProcessingNanos() {
+    return processingNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult{item=" + item
+        + (error == null ? ", frames=" + frames + ", snapshot=" + snapshot : ", error=" + error)
+        + ", latencyNanos=" + latencyNanos
+        + "}";
+  }
+}
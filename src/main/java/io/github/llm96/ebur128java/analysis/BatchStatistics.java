@@ -0,0 +1,162 @@
+package io.github.llm96.ebur128java.analysis;
+
+/**
+ * Point-in-time counters of a {@link BatchAnalyzer}, used to size its executor and in-flight limit.
+ */
+public final class BatchStatistics {
+  private final long submitted;
+  private final long succeeded;
+  private final long failed;
+  private final int running;
+  private final long frames;
+  private final long elapsedNanos;
+  private final long totalLatencyNanos;
+  private final long maxLatencyNanos;
+  private final long totalProcessingNanos;
+
+  BatchStatistics(long submitted, long succeeded, long failed, int running, long frames, long elapsedNanos,
+                  long totalLatencyNanos, long maxLatencyNanos, long totalProcessingNanos) {
+    this.submitted = submitted;
+    this.succeeded = succeeded;
+    this.failed = failed;
+    this.running = running;
+    this.frames = frames;
+    this.elapsedNanos = elapsedNanos;
+    this.totalLatencyNanos = totalLatencyNanos;
+    this.maxLatencyNanos = maxLatencyNanos;
+    this.totalProcessingNanos = totalProcessingNanos;
+  }
+
+  /**
+   * Get the number of items handed to the executor.
+   *
+   * @return number of submitted items
+   */
+  public long getSubmitted() {
+    return submitted;
+  }
+
+  /**
+   * Get the number of items analysed successfully.
+   *
+   * @return number of successful items
+   */
+  public long getSucceeded() {
+    return succeeded;
+  }
+
+  /**
+   * Get the number of items whose analysis failed.
+   *
+   * @return number of failed items
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * Get the number of finished items.
+   *
+   * @return number of successful and failed items
+   */
+  public long getCompleted() {
+    return succeeded + failed;
+  }
+
+  /**
+   * Get the number of items being analysed by a worker.
+   *
+   * @return number of running items
+   */
+  public int getRunning() {
+    return running;
+  }
+
+  /**
+   * Get the number of submitted items waiting for a worker of the executor.
+   *
+   * @return queue depth
+   */
+  public long getQueued() {
+    return Math.max(0, submitted - getCompleted() - running);
+  }
+
+  /**
+   * Get the number of frames analysed.
+   *
+   * @return number of frames
+   */
+  public long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Get the time since the first item was submitted.
+   *
+   * @return elapsed time in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the number of finished items per second since the first item was submitted.
+   *
+   * @return items per second
+   */
+  public double getItemsPerSecond() {
+    return elapsedNanos > 0 ? getCompleted() * 1e9 / elapsedNanos : 0.0;
+  }
+
+  /**
+   * Get the number of analysed frames per second since the first item was submitted.
+   *
+   * @return frames per second
+   */
+  public double getFramesPerSecond() {
+    return elapsedNanos > 0 ? frames * 1e9 / elapsedNanos : 0.0;
+  }
+
+  /**
+   * Get the mean time from submitting an item until its analysis finished.
+   *
+   * @return mean latency in nanoseconds
+   */
+  public double getMeanLatencyNanos() {
+    long completed = getCompleted();
+    return completed > 0 ? (double) totalLatencyNanos / completed : 0.0;
+  }
+
+  /**
+   * Get the longest time from submitting an item until its analysis finished.
+   *
+   * @return maximum latency in nanoseconds
+   */
+  public long getMaxLatencyNanos() {
+    return maxLatencyNanos;
+  }
+
+  /**
+   * Get the mean time a worker spent on an item.
+   *
+   * @return mean processing time in nanoseconds
+   */
+  public double getMeanProcessingNanos() {
+    long completed = getCompleted();
+    return completed > 0 ? (double) totalProcessingNanos / completed : 0.0;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchStatistics{submitted=" + submitted
+        + ", succeeded=" + succeeded
+        + ", failed=" + failed
+        + ", running=" + running
+        + ", queued=" + getQueued()
+        + ", itemsPerSecond=" + getItemsPerSecond()
+        + ", framesPerSecond=" + getFramesPerSecond()
+        + ", meanLatencyNanos=" + getMeanLatencyNanos()
+        + ", maxLatencyNanos=" + maxLatencyNanos
+        + "}";
+  }
+}
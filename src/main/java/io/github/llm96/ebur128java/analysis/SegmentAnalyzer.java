@@ -0,0 +1,213 @@
+package io.github.llm96.ebur128java.analysis;
+
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.io.AudioSource;
+import io.github.llm96.ebur128java.io.RandomAccessAudioSource;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures one long programme by splitting it into contiguous segments analysed concurrently,
+ * and combining integrated loudness and loudness range across their states.
+ * <p>
+ * Segments start on whole seconds of the 100 ms block grid. Each segment is measured past its
+ * end until its last 400 ms gating block is complete, so every gating block of the programme is
+ * measured exactly once. The 3 s short-term blocks crossing a boundary are measured by a short
+ * extra state around the boundary. The only difference to measuring the programme in one state
+ * is that the K-weighting filter of each segment starts from silence, which affects the first
+ * milliseconds of each segment.
+ */
+public class SegmentAnalyzer {
+  /** shortest segment worth measuring separately, in seconds */
+  static final int MIN_SEGMENT_SECONDS = 60;
+
+  private final Backend backend;
+  private final Executor executor;
+  private final int mode;
+  private final int segments;
+  private final int bufferFrames;
+
+  /**
+   * Create an analyzer on the common fork/join pool using the default backend, with one segment
+   * per available processor.
+   *
+   * @param mode mode flags of the states (see Mode constants)
+   */
+  public SegmentAnalyzer(int mode) {
+    this(ForkJoinPool.commonPool(), mode, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create an analyzer using the default backend.
+   *
+   * @param executor executor measuring the segments
+   * @param mode     mode flags of the states (see Mode constants)
+   * @param segments maximum number of segments
+   */
+  public SegmentAnalyzer(Executor executor, int mode, int segments) {
+    this(Backends.getDefault(), executor, mode, segments, BatchAnalyzer.DEFAULT_BUFFER_FRAMES);
+  }
+
+  /**
+   * Create an analyzer.
+   *
+   * @param backend      backend performing the measurement
+   * @param executor     executor measuring the segments
+   * @param mode         mode flags of the states (see Mode constants)
+   * @param segments     maximum number of segments
+   * @param bufferFrames number of frames read from a source at a time
+   * @throws IllegalArgumentException if segments or bufferFrames is not positive
+   */
+  public SegmentAnalyzer(Backend backend, Executor executor, int mode, int segments, int bufferFrames) {
+    if (segments <= 0) {
+      throw new IllegalArgumentException("Invalid number of segments: " + segments);
+    }
+    if (bufferFrames <= 0) {
+      throw new IllegalArgumentException("Invalid number of buffer frames: " + bufferFrames);
+    }
+    this.backend = backend;
+    this.executor = executor;
+    this.mode = mode;
+    this.segments = segments;
+    this.bufferFrames = bufferFrames;
+  }
+
+  /**
+   * Measure a programme. Programmes shorter than a minute per segment use fewer segments.
+   *
+   * @param source programme to measure
+   * @return combined loudness of the programme
+   * @throws IOException           if reading a segment fails
+   * @throws IllegalStateException if a state cannot be initialized
+   */
+  public SegmentResult analyse(RandomAccessAudioSource source) throws IOException {
+    int channels = source.getChannels();
+    long samplerate = source.getSamplerate();
+    long frames = source.getFrames();
+    // block hop of libebur128, short-term blocks start every 10 hops
+    long hop = (samplerate + 5) / 10;
+    long second = 10 * hop;
+    int count = (int) Math.max(1, Math.min(segments, frames / (MIN_SEGMENT_SECONDS * second)));
+    long[] bounds = new long[count + 1];
+    for (int i = 1; i < count; i++) {
+      bounds[i] = frames / count * i / second * second;
+    }
+    bounds[count] = frames;
+
+    // the segments come first, followed by the boundary tasks if any
+    List<CompletableFuture<State>> tasks = new ArrayList<>(2 * count);
+    try {
+      for (int i = 0; i < count; i++) {
+        // measure up to 300 ms past the boundary, completing the gating blocks starting before it
+        long end = i + 1 < count ? Math.min(bounds[i + 1] + 3 * hop, frames) : frames;
+        tasks.add(submit(source, bounds[i], end - bounds[i], mode));
+      }
+      if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA) {
+        // the segments miss the two short-term blocks starting 2 s and 1 s before each boundary
+        int boundaryMode = Mode.MODE_LRA | (mode & Mode.MODE_HISTOGRAM);
+        for (int i = 1; i < count; i++) {
+          tasks.add(submit(source, bounds[i] - 2 * second, 4 * second, boundaryMode));
+        }
+      }
+      State[] states = join(tasks);
+      return combine(Arrays.copyOf(states, count), Arrays.copyOfRange(states, count, states.length), channels,
+          frames);
+    } finally {
+      // every task is waited for, even when submitting or another task failed, so that no state leaks
+      for (CompletableFuture<State> task : tasks) {
+        State state = task.handle((result, failure) -> result).join();
+        if (state != null) {
+          state.close();
+        }
+      }
+    }
+  }
+
+  private CompletableFuture<State> submit(RandomAccessAudioSource source, long start, long frames, int mode) {
+    return CompletableFuture.supplyAsync(() -> {
+      try (AudioSource segment = source.open(start, frames)) {
+        State state = new State(backend, segment.getChannels(), segment.getSamplerate(), mode);
+        try {
+          segment.transferTo(state, new float[bufferFrames * segment.getChannels()]);
+          return state;
+        } catch (IOException | RuntimeException | java.lang.Error e) {
+          state.close();
+          throw e;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executor);
+  }
+
+  /**
+   * Wait for all tasks, then throw the failure of the first one that failed, if any.
+   */
+  private static State[] join(List<CompletableFuture<State>> tasks) throws IOException {
+    Throwable failure = null;
+    State[] result = new State[tasks.size()];
+    for (int i = 0; i < result.length; i++) {
+      try {
+        result[i] = tasks.get(i).join();
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof UncheckedIOException) {
+      throw ((UncheckedIOException) failure).getCause();
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof java.lang.Error) {
+      throw (java.lang.Error) failure;
+    }
+    return result;
+  }
+
+  private SegmentResult combine(State[] segmentStates, State[] boundaryStates, int channels, long frames) {
+    double global = Double.NaN;
+    if ((mode & Mode.MODE_I) == Mode.MODE_I) {
+      global = State.getLoudnessGlobalMultiple(segmentStates);
+    }
+    double range = Double.NaN;
+    if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA) {
+      State[] all = Arrays.copyOf(segmentStates, segmentStates.length + boundaryStates.length);
+      System.arraycopy(boundaryStates, 0, all, segmentStates.length, boundaryStates.length);
+      range = State.getLoudnessRangeMultiple(all);
+    }
+    State last = segmentStates[segmentStates.length - 1];
+    double momentary = last.getLoudnessMomentary();
+    double shortterm = (mode & Mode.MODE_S) == Mode.MODE_S ? last.getLoudnessShortterm() : Double.NaN;
+
+    double[] samplePeaks = new double[channels];
+    double[] truePeaks = new double[channels];
+    boolean samplePeak = (mode & Mode.MODE_SAMPLE_PEAK) == Mode.MODE_SAMPLE_PEAK;
+    boolean truePeak = (mode & Mode.MODE_TRUE_PEAK) == Mode.MODE_TRUE_PEAK;
+    for (int c = 0; c < channels; c++) {
+      samplePeaks[c] = samplePeak ? 0.0 : Double.NaN;
+      truePeaks[c] = truePeak ? 0.0 : Double.NaN;
+      for (State state : segmentStates) {
+        if (samplePeak) {
+          samplePeaks[c] = Math.max(samplePeaks[c], state.getSamplePeak(c));
+        }
+        if (truePeak) {
+          truePeaks[c] = Math.max(truePeaks[c], state.getTruePeak(c));
+        }
+      }
+    }
+    return new SegmentResult(segmentStates.length, frames, global, range, momentary, shortterm, samplePeaks,
+        truePeaks);
+  }
+}
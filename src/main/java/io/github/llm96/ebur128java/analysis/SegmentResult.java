@@ -0,0 +1,126 @@
+package io.github.llm96.ebur128java.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Loudness of a programme measured in segments by a {@link SegmentAnalyzer}.
+ * Readings that are not enabled by the mode of the analyzer are NaN.
+ */
+public final class SegmentResult {
+  private final int segments;
+  private final long frames;
+  private final double global;
+  private final double range;
+  private final double momentary;
+  private final double shortterm;
+  private final double[] samplePeaks;
+  private final double[] truePeaks;
+
+  SegmentResult(int segments, long frames, double global, double range, double momentary, double shortterm,
+                double[] samplePeaks, double[] truePeaks) {
+    this.segments = segments;
+    this.frames = frames;
+    this.global = global;
+    this.range = range;
+    this.momentary = momentary;
+    this.shortterm = shortterm;
+    this.samplePeaks = samplePeaks;
+    this.truePeaks = truePeaks;
+  }
+
+  /**
+   * Get the number of segments measured in parallel.
+   *
+   * @return number of segments
+   */
+  public int getSegments() {
+    return segments;
+  }
+
+  /**
+   * Get the number of frames of the programme.
+   *
+   * @return number of frames
+   */
+  public long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Get global integrated loudness in LUFS.
+   *
+   * @return integrated loudness in LUFS, or NaN without MODE_I
+   */
+  public double getGlobal() {
+    return global;
+  }
+
+  /**
+   * Get loudness range (LRA) of programme in LU.
+   *
+   * @return loudness range (LRA) in LU, or NaN without MODE_LRA
+   */
+  public double getRange() {
+    return range;
+  }
+
+  /**
+   * Get momentary loudness of the last 400ms of the programme in LUFS.
+   *
+   * @return momentary loudness in LUFS
+   */
+  public double getMomentary() {
+    return momentary;
+  }
+
+  /**
+   * Get short-term loudness of the last 3s of the programme in LUFS.
+   *
+   * @return short-term loudness in LUFS, or NaN without MODE_S
+   */
+  public double getShortterm() {
+    return shortterm;
+  }
+
+  /**
+   * Get the number of channels of the peak readings.
+   *
+   * @return number of channels
+   */
+  public int getChannels() {
+    return samplePeaks.length;
+  }
+
+  /**
+   * Get maximum sample peak of a channel.
+   *
+   * @param channelNumber channel to read
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or NaN without MODE_SAMPLE_PEAK
+   */
+  public double getSamplePeak(int channelNumber) {
+    return samplePeaks[channelNumber];
+  }
+
+  /**
+   * Get maximum true peak of a channel.
+   *
+   * @param channelNumber channel to read
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or NaN without MODE_TRUE_PEAK
+   */
+  public double getTruePeak(int channelNumber) {
+    return truePeaks[channelNumber];
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentResult{segments=" + segments
+        + ", frames=" + frames
+        + ", global=" + global
+        + ", range=" + range
+        + ", momentary=" + momentary
+        + ", shortterm=" + shortterm
+        + ", samplePeaks=" + Arrays.toString(samplePeaks)
+        + ", truePeaks=" + Arrays.toString(truePeaks)
+        + "}";
+  }
+}
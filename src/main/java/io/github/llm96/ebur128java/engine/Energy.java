@@ -0,0 +1,76 @@
+package io.github.llm96.ebur128java.engine;
+
+/**
+ * Conversions between energy and loudness, and the histogram used by
+ * {@link io.github.llm96.ebur128java.Mode#MODE_HISTOGRAM}: 1000 bins of 0.1 LU from -70 to +30 LUFS.
+ */
+final class Energy {
+  static final int HISTOGRAM_SIZE = 1000;
+
+  /** energy of -10 LU, the relative gate of integrated loudness */
+  static final double RELATIVE_GATE_FACTOR = Math.pow(10.0, -10.0 / 10.0);
+
+  /** energy of -20 LU, the relative gate of loudness range */
+  static final double MINUS_TWENTY_DECIBELS = Math.pow(10.0, -20.0 / 10.0);
+
+  /** energy at the centre of each histogram bin */
+  static final double[] HISTOGRAM_ENERGIES = new double[HISTOGRAM_SIZE];
+
+  /** energy at the lower boundary of each histogram bin, the first one being the absolute gate of -70 LUFS */
+  static final double[] HISTOGRAM_ENERGY_BOUNDARIES = new double[HISTOGRAM_SIZE + 1];
+
+  static {
+    HISTOGRAM_ENERGY_BOUNDARIES[0] = Math.pow(10.0, (-70.0 + 0.691) / 10.0);
+    for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+      HISTOGRAM_ENERGIES[i] = Math.pow(10.0, ((double) i / 10.0 - 69.95 + 0.691) / 10.0);
+    }
+    for (int i = 1; i < HISTOGRAM_SIZE + 1; i++) {
+      HISTOGRAM_ENERGY_BOUNDARIES[i] = Math.pow(10.0, ((double) i / 10.0 - 70.0 + 0.691) / 10.0);
+    }
+  }
+
+  /** absolute gate of -70 LUFS as energy */
+  static final double ABSOLUTE_GATE = HISTOGRAM_ENERGY_BOUNDARIES[0];
+
+  private Energy() {
+  }
+
+  static double toLoudness(double energy) {
+    return 10 * (Math.log(energy) / Math.log(10.0)) - 0.691;
+  }
+
+  static double fromLoudness(double loudness) {
+    return Math.pow(10.0, (loudness + 0.691) / 10.0);
+  }
+
+  /**
+   * Find the histogram bin of an energy at or above the absolute gate.
+   */
+  static int histogramIndex(double energy) {
+    int min = 0;
+    int max = HISTOGRAM_SIZE;
+    do {
+      int mid = (min + max) >>> 1;
+      if (energy >= HISTOGRAM_ENERGY_BOUNDARIES[mid]) {
+        min = mid;
+      } else {
+        max = mid;
+      }
+    } while (max - min != 1);
+    return min;
+  }
+
+  /**
+   * Find the first histogram bin whose centre energy is at or above a relative gate.
+   */
+  static int gateIndex(double gate) {
+    if (gate < ABSOLUTE_GATE) {
+      return 0;
+    }
+    int index = histogramIndex(gate);
+    if (gate > HISTOGRAM_ENERGIES[index]) {
+      index++;
+    }
+    return index;
+  }
+}
@@ -0,0 +1,112 @@
+package io.github.llm96.ebur128java.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Block energies in order of arrival, keeping at most a maximum number by dropping the oldest.
+ * The storage grows by doubling up to the maximum.
+ */
+final class EnergyList {
+  private double[] values = new double[16];
+  private int head;
+  private int size;
+  private long max;
+
+  EnergyList(long max) {
+    this.max = max;
+  }
+
+  void add(double energy) {
+    if (max <= 0) {
+      return;
+    }
+    if (size == max) {
+      head = next(head);
+      size--;
+    } else if (size == values.length) {
+      grow();
+    }
+    values[index(size)] = energy;
+    size++;
+  }
+
+  void setMax(long max) {
+    this.max = max;
+    while (size > Math.max(max, 0)) {
+      head = next(head);
+      size--;
+    }
+  }
+
+  void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Get a block energy.
+   *
+   * @param i index from the oldest block
+   */
+  double get(int i) {
+    return values[index(i)];
+  }
+
+  private int index(int i) {
+    int j = head + i;
+    return j < values.length ? j : j - values.length;
+  }
+
+  private int next(int i) {
+    return i + 1 < values.length ? i + 1 : 0;
+  }
+
+  private void grow() {
+    double[] grown = new double[(int) Math.min(values.length * 2L, Math.min(max, Integer.MAX_VALUE - 8))];
+    for (int i = 0; i < size; i++) {
+      grown[i] = get(i);
+    }
+    values = grown;
+    head = 0;
+  }
+
+  /**
+   * Write the block energies, oldest first.
+   */
+  void save(DataOutput out) throws IOException {
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      out.writeDouble(get(i));
+    }
+  }
+
+  /**
+   * Replace the block energies by those written by save(), dropping the oldest beyond the maximum.
+   */
+  void restore(DataInput in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Invalid number of blocks: " + count);
+    }
+    clear();
+    for (int i = 0; i < count; i++) {
+      add(in.readDouble());
+    }
+  }
+
+  /**
+   * Copy the block energies into an array.
+   */
+  double[] toArray(double[] dst, int offset) {
+    for (int i = 0; i < size; i++) {
+      dst[offset + i] = get(i);
+    }
+    return dst;
+  }
+}
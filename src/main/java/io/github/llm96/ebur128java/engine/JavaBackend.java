@@ -0,0 +1,92 @@
+package io.github.llm96.ebur128java.engine;
+
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Backend measuring in pure Java, without the native library.
+ * <p>
+ * Implements the same algorithm as libebur128 1.2.6: the K-weighting pre-filter, gating blocks of
+ * 400 ms with 75% overlap, absolute and relative gating, loudness range from 3 s blocks, sample
+ * peak and true peak with 4x (2x above 96 kHz) oversampling. Results match the native library up
+ * to floating point rounding. It has the lowest priority, so it is only used by default when no
+ * native backend is available.
+ */
+public final class JavaBackend implements Backend {
+  public static final String NAME = "java";
+
+  private final Kernels kernels;
+
+  public JavaBackend() {
+    this(Kernels.INSTANCE);
+  }
+
+  /**
+   * Create a backend using specific kernels, such as the scalar ones to compare them with the
+   * SIMD ones.
+   */
+  JavaBackend(Kernels kernels) {
+    this.kernels = kernels;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getPriority() {
+    return 0;
+  }
+
+  @Override
+  public int[] getVersion() {
+    return new int[]{1, 2, 6};
+  }
+
+  @Override
+  public boolean isNative() {
+    return false;
+  }
+
+  @Override
+  public boolean hasInPlaceReset() {
+    return true;
+  }
+
+  @Override
+  public Engine init(int channels, long samplerate, int mode) {
+    return JavaEngine.create(kernels, channels, samplerate, mode);
+  }
+
+  @Override
+  public Engine restore(DataInput in) throws IOException {
+    return JavaEngine.restore(kernels, in);
+  }
+
+  @Override
+  public double loudnessGlobalMultiple(Engine[] engines) {
+    return JavaEngine.gatedLoudness(toJavaEngines(engines));
+  }
+
+  @Override
+  public double loudnessRangeMultiple(Engine[] engines) {
+    return JavaEngine.loudnessRange(toJavaEngines(engines));
+  }
+
+  private static JavaEngine[] toJavaEngines(Engine[] engines) {
+    JavaEngine[] javaEngines = new JavaEngine[engines.length];
+    for (int i = 0; i < engines.length; i++) {
+      javaEngines[i] = (JavaEngine) engines[i];
+    }
+    return javaEngines;
+  }
+
+  @Override
+  public String toString() {
+    return NAME + " (" + kernels.getName() + ")";
+  }
+}
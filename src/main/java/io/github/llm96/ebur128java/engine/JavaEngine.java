@@ -0,0 +1,941 @@
+package io.github.llm96.ebur128java.engine;
+
+import com.sun.jna.Pointer;
+import io.github.llm96.ebur128java.Channel;
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.metrics.Instrumentation;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Pure Java implementation of the libebur128 measurement.
+ * <p>
+ * Frames are processed in chunks of at most 400 ms: each chunk is converted into a scratch buffer,
+ * checked for sample and true peaks, K-weighted into a ring buffer of the maximum window, and
+ * every 100 ms the energy of the last 400 ms (and 3 s for loudness range) is gated into the block
+ * lists or histograms. Apart from the growth of the block lists, adding frames does not allocate.
+ */
+final class JavaEngine implements Engine {
+  static final long MIN_SAMPLERATE = 16;
+  static final long MAX_SAMPLERATE = 2822400;
+  static final int MAX_CHANNELS = 64;
+  /** version of the checkpoint layout written by save() */
+  static final int CHECKPOINT_VERSION = 1;
+
+  private final int mode;
+  private int channels;
+  private long samplerate;
+  private int samplesIn100ms;
+
+  private int[] channelMap;
+  private double[] samplePeak;
+  private double[] prevSamplePeak;
+  private double[] truePeak;
+  private double[] prevTruePeak;
+
+  private final Kernels kernels;
+  private KWeightingFilter filter;
+  private TruePeakInterpolator interpolator;
+
+  /** K-weighted audio of the maximum window */
+  private double[] audioData;
+  private int audioDataFrames;
+  private int audioDataIndex;
+  private int neededFrames;
+  private int shortTermFrameCounter;
+
+  private long window;
+  private long history = Long.MAX_VALUE;
+
+  private final EnergyList blockList;
+  private final EnergyList shortTermBlockList;
+  private final long[] blockEnergyHistogram;
+  private final long[] shortTermBlockEnergyHistogram;
+
+  /** scaled input of the chunk being processed */
+  private double[] scratch;
+
+  /** this engine as the argument of the multiple-engine calculations */
+  private final JavaEngine[] self = {this};
+  /** reusable copy of the short-term blocks, sorted by loudnessRange() */
+  private double[] rangeScratch = new double[0];
+
+  private final Samples.Shorts shorts = new Samples.Shorts();
+  private final Samples.Ints ints = new Samples.Ints();
+  private final Samples.Floats floats = new Samples.Floats();
+  private final Samples.Doubles doubles = new Samples.Doubles();
+  private final Samples.Bytes bytes = new Samples.Bytes();
+  private final Samples.Address memory = new Samples.Address();
+  private final Samples.PlanarShorts planarShorts = new Samples.PlanarShorts();
+  private final Samples.PlanarInts planarInts = new Samples.PlanarInts();
+  private final Samples.PlanarFloats planarFloats = new Samples.PlanarFloats();
+  private final Samples.PlanarDoubles planarDoubles = new Samples.PlanarDoubles();
+  private final Samples.PlanarBytes planarBytes = new Samples.PlanarBytes();
+
+  private JavaEngine(Kernels kernels, int channels, long samplerate, int mode, long window) {
+    this.kernels = kernels;
+    this.mode = mode;
+    this.window = window;
+    boolean histogram = (mode & Mode.MODE_HISTOGRAM) == Mode.MODE_HISTOGRAM;
+    this.blockList = histogram ? null : new EnergyList(history / 100);
+    this.shortTermBlockList = histogram ? null : new EnergyList(history / 3000);
+    this.blockEnergyHistogram = histogram ? new long[Energy.HISTOGRAM_SIZE] : null;
+    this.shortTermBlockEnergyHistogram = histogram ? new long[Energy.HISTOGRAM_SIZE] : null;
+    initChannels(channels);
+    initSamplerate(samplerate);
+    initBuffers();
+  }
+
+  /**
+   * Initialize an engine.
+   *
+   * @return the engine, or null if the parameters are invalid
+   */
+  static JavaEngine create(Kernels kernels, int channels, long samplerate, int mode) {
+    if (channels <= 0 || channels > MAX_CHANNELS || samplerate < MIN_SAMPLERATE || samplerate > MAX_SAMPLERATE) {
+      return null;
+    }
+    long window;
+    if ((mode & Mode.MODE_S) == Mode.MODE_S) {
+      window = 3000;
+    } else if ((mode & Mode.MODE_M) == Mode.MODE_M) {
+      window = 400;
+    } else {
+      return null;
+    }
+    return new JavaEngine(kernels, channels, samplerate, mode, window);
+  }
+
+  private void initChannels(int channels) {
+    this.channels = channels;
+    channelMap = new int[channels];
+    for (int i = 0; i < channels; i++) {
+      channelMap[i] = Channel.defaultType(i);
+    }
+    samplePeak = new double[channels];
+    prevSamplePeak = new double[channels];
+    truePeak = new double[channels];
+    prevTruePeak = new double[channels];
+  }
+
+  private void initSamplerate(long samplerate) {
+    this.samplerate = samplerate;
+    this.samplesIn100ms = (int) ((samplerate + 5) / 10);
+  }
+
+  /**
+   * Allocate the filter, interpolator and buffers for the current parameters and start over with
+   * the first 400 ms block.
+   */
+  private void initBuffers() {
+    filter = kernels.filter(channels, samplerate);
+    interpolator = (mode & Mode.MODE_TRUE_PEAK) == Mode.MODE_TRUE_PEAK
+        ? TruePeakInterpolator.create(kernels, channels, samplerate) : null;
+    scratch = new double[samplesIn100ms * 4 * channels];
+    initAudioData();
+  }
+
+  private void initAudioData() {
+    long frames = samplerate * window / 1000;
+    if (frames % samplesIn100ms != 0) {
+      frames = (frames + samplesIn100ms) - (frames % samplesIn100ms);
+    }
+    audioDataFrames = (int) frames;
+    audioData = new double[audioDataFrames * channels];
+    neededFrames = samplesIn100ms * 4;
+    audioDataIndex = 0;
+    shortTermFrameCounter = 0;
+  }
+
+  @Override
+  public int setChannel(int channelNumber, int value) {
+    if (channelNumber < 0 || channelNumber >= channels) {
+      return Error.ERROR_INVALID_CHANNEL_INDEX;
+    }
+    if (value == Channel.DUAL_MONO && (channels != 1 || channelNumber != 0)) {
+      return Error.ERROR_INVALID_CHANNEL_INDEX;
+    }
+    channelMap[channelNumber] = value;
+    return Error.SUCCESS;
+  }
+
+  @Override
+  public int changeParameters(int channels, long samplerate) {
+    if (channels <= 0 || channels > MAX_CHANNELS || samplerate < MIN_SAMPLERATE || samplerate > MAX_SAMPLERATE) {
+      return Error.ERROR_NOMEM;
+    }
+    if (channels == this.channels && samplerate == this.samplerate) {
+      return Error.ERROR_NO_CHANGE;
+    }
+    if (channels != this.channels) {
+      initChannels(channels);
+    }
+    if (samplerate != this.samplerate) {
+      initSamplerate(samplerate);
+    }
+    initBuffers();
+    return Error.SUCCESS;
+  }
+
+  @Override
+  public int setMaxWindow(long window) {
+    if ((mode & Mode.MODE_S) == Mode.MODE_S && window < 3000) {
+      window = 3000;
+    } else if ((mode & Mode.MODE_M) == Mode.MODE_M && window < 400) {
+      window = 400;
+    }
+    if (window == this.window) {
+      return Error.ERROR_NO_CHANGE;
+    }
+    if (window > Long.MAX_VALUE / samplerate
+        || (samplerate * window / 1000 + samplesIn100ms) * channels > Integer.MAX_VALUE - 8) {
+      return Error.ERROR_NOMEM;
+    }
+    this.window = window;
+    initAudioData();
+    return Error.SUCCESS;
+  }
+
+  @Override
+  public int setMaxHistory(long history) {
+    if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA && history < 3000) {
+      history = 3000;
+    } else if ((mode & Mode.MODE_M) == Mode.MODE_M && history < 400) {
+      history = 400;
+    }
+    if (history == this.history) {
+      return Error.ERROR_NO_CHANGE;
+    }
+    this.history = history;
+    if (blockList != null) {
+      blockList.setMax(history / 100);
+      shortTermBlockList.setMax(history / 3000);
+    }
+    return Error.SUCCESS;
+  }
+
+  @Override
+  public int reset() {
+    filter.reset();
+    if (interpolator != null) {
+      interpolator.reset();
+    }
+    Arrays.fill(audioData, 0.0);
+    neededFrames = samplesIn100ms * 4;
+    audioDataIndex = 0;
+    shortTermFrameCounter = 0;
+    Arrays.fill(samplePeak, 0.0);
+    Arrays.fill(prevSamplePeak, 0.0);
+    Arrays.fill(truePeak, 0.0);
+    Arrays.fill(prevTruePeak, 0.0);
+    if (blockList != null) {
+      blockList.clear();
+      shortTermBlockList.clear();
+    } else {
+      Arrays.fill(blockEnergyHistogram, 0);
+      Arrays.fill(shortTermBlockEnergyHistogram, 0);
+    }
+    return Error.SUCCESS;
+  }
+
+  /**
+   * Write parameters, settings, peaks, filter and interpolator memories, the K-weighted audio of
+   * the current window, the frame counters and the block lists or histograms.
+   */
+  @Override
+  public void save(DataOutput out) throws IOException {
+    out.writeInt(CHECKPOINT_VERSION);
+    out.writeInt(channels);
+    out.writeLong(samplerate);
+    out.writeInt(mode);
+    out.writeLong(window);
+    out.writeLong(history);
+    for (int c = 0; c < channels; c++) {
+      out.writeInt(channelMap[c]);
+      out.writeDouble(samplePeak[c]);
+      out.writeDouble(prevSamplePeak[c]);
+      out.writeDouble(truePeak[c]);
+      out.writeDouble(prevTruePeak[c]);
+    }
+    writeDoubles(out, filter.v);
+    if (interpolator != null) {
+      out.writeInt(interpolator.zi);
+      for (int c = 0; c < channels; c++) {
+        for (int i = 0; i < interpolator.delay; i++) {
+          out.writeFloat(interpolator.delayed(c, i));
+        }
+      }
+    }
+    out.writeInt(audioDataIndex);
+    out.writeInt(neededFrames);
+    out.writeInt(shortTermFrameCounter);
+    writeDoubles(out, audioData);
+    if (blockList != null) {
+      blockList.save(out);
+      shortTermBlockList.save(out);
+    } else {
+      writeHistogram(out, blockEnergyHistogram);
+      writeHistogram(out, shortTermBlockEnergyHistogram);
+    }
+  }
+
+  /**
+   * Create an engine from a checkpoint written by save().
+   *
+   * @throws IOException if reading fails or the checkpoint is invalid
+   */
+  static JavaEngine restore(Kernels kernels, DataInput in) throws IOException {
+    int version = in.readInt();
+    if (version != CHECKPOINT_VERSION) {
+      throw new IOException("Unsupported checkpoint version: " + version);
+    }
+    int channels = in.readInt();
+    long samplerate = in.readLong();
+    int mode = in.readInt();
+    JavaEngine engine = create(kernels, channels, samplerate, mode);
+    if (engine == null) {
+      throw new IOException("Invalid checkpoint parameters: " + channels + ", " + samplerate + ", " + mode);
+    }
+    long window = in.readLong();
+    long history = in.readLong();
+    engine.setMaxWindow(window);
+    engine.setMaxHistory(history);
+    if (engine.window != window || engine.history != history) {
+      throw new IOException("Invalid checkpoint window or history: " + window + ", " + history);
+    }
+    for (int c = 0; c < channels; c++) {
+      engine.channelMap[c] = in.readInt();
+      engine.samplePeak[c] = in.readDouble();
+      engine.prevSamplePeak[c] = in.readDouble();
+      engine.truePeak[c] = in.readDouble();
+      engine.prevTruePeak[c] = in.readDouble();
+    }
+    readDoubles(in, engine.filter.v);
+    TruePeakInterpolator interpolator = engine.interpolator;
+    if (interpolator != null) {
+      int zi = in.readInt();
+      if (zi < 0 || zi >= interpolator.delay) {
+        throw new IOException("Invalid checkpoint delay line index: " + zi);
+      }
+      interpolator.zi = zi;
+      for (int c = 0; c < channels; c++) {
+        for (int i = 0; i < interpolator.delay; i++) {
+          interpolator.setDelayed(c, i, in.readFloat());
+        }
+      }
+    }
+    engine.audioDataIndex = in.readInt();
+    engine.neededFrames = in.readInt();
+    engine.shortTermFrameCounter = in.readInt();
+    if (engine.audioDataIndex < 0 || engine.audioDataIndex >= engine.audioDataFrames
+        || engine.neededFrames <= 0 || engine.neededFrames > engine.samplesIn100ms * 4
+        || engine.shortTermFrameCounter < 0 || engine.shortTermFrameCounter >= engine.samplesIn100ms * 30) {
+      throw new IOException("Invalid checkpoint frame counters");
+    }
+    readDoubles(in, engine.audioData);
+    if (engine.blockList != null) {
+      engine.blockList.restore(in);
+      engine.shortTermBlockList.restore(in);
+    } else {
+      readHistogram(in, engine.blockEnergyHistogram);
+      readHistogram(in, engine.shortTermBlockEnergyHistogram);
+    }
+    return engine;
+  }
+
+  private static void writeDoubles(DataOutput out, double[] values) throws IOException {
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static void readDoubles(DataInput in, double[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readDouble();
+    }
+  }
+
+  /**
+   * Write the non-empty bins of a histogram as (index, count) pairs.
+   */
+  private static void writeHistogram(DataOutput out, long[] histogram) throws IOException {
+    int bins = 0;
+    for (long count : histogram) {
+      if (count != 0) {
+        bins++;
+      }
+    }
+    out.writeInt(bins);
+    for (int i = 0; i < histogram.length; i++) {
+      if (histogram[i] != 0) {
+        out.writeShort(i);
+        out.writeLong(histogram[i]);
+      }
+    }
+  }
+
+  private static void readHistogram(DataInput in, long[] histogram) throws IOException {
+    int bins = in.readInt();
+    if (bins < 0 || bins > histogram.length) {
+      throw new IOException("Invalid number of histogram bins: " + bins);
+    }
+    for (int i = 0; i < bins; i++) {
+      int index = in.readShort();
+      if (index < 0 || index >= histogram.length) {
+        throw new IOException("Invalid histogram bin: " + index);
+      }
+      histogram[index] = in.readLong();
+    }
+  }
+
+  @Override
+  public int addFramesShort(short[] src, long frames) {
+    shorts.src = src;
+    return addFrames(shorts, frames);
+  }
+
+  @Override
+  public int addFramesInt(int[] src, long frames) {
+    ints.src = src;
+    return addFrames(ints, frames);
+  }
+
+  @Override
+  public int addFramesFloat(float[] src, long frames) {
+    floats.src = src;
+    return addFrames(floats, frames);
+  }
+
+  @Override
+  public int addFramesDouble(double[] src, long frames) {
+    doubles.src = src;
+    return addFrames(doubles, frames);
+  }
+
+  @Override
+  public int addFrames(ByteBuffer src, long frames, SampleFormat format) {
+    bytes.src = src;
+    bytes.position = src.position();
+    bytes.format = format;
+    return addFrames(bytes, frames);
+  }
+
+  @Override
+  public int addFrames(long address, long frames, SampleFormat format) {
+    Pointer.nativeValue(memory.src, address);
+    memory.format = format;
+    return addFrames(memory, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(short[][] src, int offset, long frames) {
+    planarShorts.src = src;
+    return addFrames(planar(planarShorts, offset), frames);
+  }
+
+  @Override
+  public int addFramesPlanar(int[][] src, int offset, long frames) {
+    planarInts.src = src;
+    return addFrames(planar(planarInts, offset), frames);
+  }
+
+  @Override
+  public int addFramesPlanar(float[][] src, int offset, long frames) {
+    planarFloats.src = src;
+    return addFrames(planar(planarFloats, offset), frames);
+  }
+
+  @Override
+  public int addFramesPlanar(double[][] src, int offset, long frames) {
+    planarDoubles.src = src;
+    return addFrames(planar(planarDoubles, offset), frames);
+  }
+
+  @Override
+  public int addFramesPlanar(ByteBuffer[] src, long frames, SampleFormat format) {
+    planarBytes.set(src, format);
+    return addFrames(planarBytes, frames);
+  }
+
+  private Samples planar(Samples.Planar samples, int offset) {
+    samples.channels = channels;
+    samples.offset = offset;
+    return samples;
+  }
+
+  private int addFrames(Samples samples, long frames) {
+    try {
+      Arrays.fill(prevSamplePeak, 0.0);
+      Arrays.fill(prevTruePeak, 0.0);
+      long offset = 0;
+      while (frames > 0) {
+        int chunk = (int) Math.min(frames, neededFrames);
+        samples.read(offset * channels, chunk * channels, scratch);
+        process(chunk);
+        offset += chunk;
+        frames -= chunk;
+        audioDataIndex += chunk;
+        if (chunk == neededFrames) {
+          if ((mode & Mode.MODE_I) == Mode.MODE_I) {
+            addBlock(gatingBlockEnergy(samplesIn100ms * 4));
+          }
+          if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA) {
+            shortTermFrameCounter += chunk;
+            if (shortTermFrameCounter == samplesIn100ms * 30) {
+              addShortTermBlock(gatingBlockEnergy(samplesIn100ms * 30));
+              shortTermFrameCounter = samplesIn100ms * 20;
+            }
+          }
+          neededFrames = samplesIn100ms;
+          if (audioDataIndex == audioDataFrames) {
+            audioDataIndex = 0;
+          }
+        } else {
+          if ((mode & Mode.MODE_LRA) == Mode.MODE_LRA) {
+            shortTermFrameCounter += chunk;
+          }
+          neededFrames -= chunk;
+        }
+      }
+      for (int c = 0; c < channels; c++) {
+        if (prevSamplePeak[c] > samplePeak[c]) {
+          samplePeak[c] = prevSamplePeak[c];
+        }
+        if (prevTruePeak[c] > truePeak[c]) {
+          truePeak[c] = prevTruePeak[c];
+        }
+      }
+      return Error.SUCCESS;
+    } finally {
+      samples.clear();
+    }
+  }
+
+  /**
+   * Process a converted chunk in the scratch buffer.
+   */
+  private void process(int frames) {
+    if ((mode & Mode.MODE_SAMPLE_PEAK) == Mode.MODE_SAMPLE_PEAK) {
+      for (int c = 0; c < channels; c++) {
+        double max = 0.0;
+        for (int i = c, n = frames * channels; i < n; i += channels) {
+          double value = Math.abs(scratch[i]);
+          if (value > max) {
+            max = value;
+          }
+        }
+        if (max > prevSamplePeak[c]) {
+          prevSamplePeak[c] = max;
+        }
+      }
+    }
+    if (interpolator != null) {
+      interpolator.process(scratch, frames, prevTruePeak);
+    }
+    filter.process(scratch, audioData, audioDataIndex, frames, channelMap);
+  }
+
+  /**
+   * Calculate the mean energy of the last frames in the audio data, with channel weighting.
+   */
+  private double gatingBlockEnergy(int framesPerBlock) {
+    double sum = 0.0;
+    for (int c = 0; c < channels; c++) {
+      int type = channelMap[c];
+      if (type == Channel.UNUSED) {
+        continue;
+      }
+      double channelSum = 0.0;
+      if (audioDataIndex < framesPerBlock) {
+        for (int i = 0; i < audioDataIndex; i++) {
+          double value = audioData[i * channels + c];
+          channelSum += value * value;
+        }
+        for (int i = audioDataFrames - (framesPerBlock - audioDataIndex); i < audioDataFrames; i++) {
+          double value = audioData[i * channels + c];
+          channelSum += value * value;
+        }
+      } else {
+        for (int i = audioDataIndex - framesPerBlock; i < audioDataIndex; i++) {
+          double value = audioData[i * channels + c];
+          channelSum += value * value;
+        }
+      }
+      if (type == Channel.Mp110 || type == Channel.Mm110 || type == Channel.Mp060
+          || type == Channel.Mm060 || type == Channel.Mp090 || type == Channel.Mm090) {
+        channelSum *= 1.41;
+      } else if (type == Channel.DUAL_MONO) {
+        channelSum *= 2.0;
+      }
+      sum += channelSum;
+    }
+    return sum / (double) framesPerBlock;
+  }
+
+  private void addBlock(double energy) {
+    if (energy >= Energy.ABSOLUTE_GATE) {
+      if (blockEnergyHistogram != null) {
+        blockEnergyHistogram[Energy.histogramIndex(energy)]++;
+      } else {
+        blockList.add(energy);
+      }
+    }
+  }
+
+  private void addShortTermBlock(double energy) {
+    if (energy >= Energy.ABSOLUTE_GATE) {
+      if (shortTermBlockEnergyHistogram != null) {
+        shortTermBlockEnergyHistogram[Energy.histogramIndex(energy)]++;
+      } else {
+        shortTermBlockList.add(energy);
+      }
+    }
+  }
+
+  /**
+   * Get the energy of the last frames, or NaN if they exceed the maximum window.
+   */
+  private double energyInInterval(long intervalFrames) {
+    if (intervalFrames > audioDataFrames) {
+      return Double.NaN;
+    }
+    return gatingBlockEnergy((int) intervalFrames);
+  }
+
+  private static double loudness(double energy) {
+    if (Double.isNaN(energy)) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    return energy <= 0.0 ? Double.NEGATIVE_INFINITY : Energy.toLoudness(energy);
+  }
+
+  /**
+   * Report a getter called in a mode or for a channel it does not support, as the native
+   * library would return the code.
+   */
+  private static double error(int code) {
+    Instrumentation.recordError(code);
+    return Double.NEGATIVE_INFINITY;
+  }
+
+  @Override
+  public double loudnessGlobal() {
+    return gatedLoudness(self);
+  }
+
+  @Override
+  public double loudnessMomentary() {
+    return loudness(energyInInterval(samplesIn100ms * 4L));
+  }
+
+  @Override
+  public double loudnessShortterm() {
+    return loudness(energyInInterval(samplesIn100ms * 30L));
+  }
+
+  @Override
+  public double loudnessWindow(long window) {
+    if (window > this.window) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    return loudness(energyInInterval(samplerate * window / 1000));
+  }
+
+  @Override
+  public double loudnessRange() {
+    if ((mode & Mode.MODE_LRA) != Mode.MODE_LRA) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    if (shortTermBlockEnergyHistogram != null) {
+      return loudnessRange(shortTermBlockEnergyHistogram);
+    }
+    int size = shortTermBlockList.size();
+    if (rangeScratch.length < size) {
+      rangeScratch = new double[Math.max(size, 2 * rangeScratch.length)];
+    }
+    copyShortTermBlocks(rangeScratch, 0);
+    return loudnessRange(rangeScratch, size);
+  }
+
+  @Override
+  public double samplePeak(int channelNumber) {
+    if ((mode & Mode.MODE_SAMPLE_PEAK) != Mode.MODE_SAMPLE_PEAK) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    if (!isChannel(channelNumber)) {
+      return error(Error.ERROR_INVALID_CHANNEL_INDEX);
+    }
+    return samplePeak[channelNumber];
+  }
+
+  @Override
+  public double prevSamplePeak(int channelNumber) {
+    if ((mode & Mode.MODE_SAMPLE_PEAK) != Mode.MODE_SAMPLE_PEAK) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    if (!isChannel(channelNumber)) {
+      return error(Error.ERROR_INVALID_CHANNEL_INDEX);
+    }
+    return prevSamplePeak[channelNumber];
+  }
+
+  @Override
+  public double truePeak(int channelNumber) {
+    if ((mode & Mode.MODE_TRUE_PEAK) != Mode.MODE_TRUE_PEAK) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    if (!isChannel(channelNumber)) {
+      return error(Error.ERROR_INVALID_CHANNEL_INDEX);
+    }
+    return Math.max(truePeak[channelNumber], samplePeak[channelNumber]);
+  }
+
+  @Override
+  public double prevTruePeak(int channelNumber) {
+    if ((mode & Mode.MODE_TRUE_PEAK) != Mode.MODE_TRUE_PEAK) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    if (!isChannel(channelNumber)) {
+      return error(Error.ERROR_INVALID_CHANNEL_INDEX);
+    }
+    return Math.max(prevTruePeak[channelNumber], prevSamplePeak[channelNumber]);
+  }
+
+  @Override
+  public double relativeThreshold() {
+    if ((mode & Mode.MODE_I) != Mode.MODE_I) {
+      return error(Error.ERROR_INVALID_MODE);
+    }
+    long count = blockCount();
+    if (count == 0) {
+      return -70.0;
+    }
+    return Energy.toLoudness(blockEnergySum() / count * Energy.RELATIVE_GATE_FACTOR);
+  }
+
+  @Override
+  public void destroy() {
+    audioData = null;
+    scratch = null;
+  }
+
+  private boolean isChannel(int channelNumber) {
+    return channelNumber >= 0 && channelNumber < channels;
+  }
+
+  /**
+   * Get the number of gating blocks above the absolute gate.
+   */
+  private long blockCount() {
+    if (blockEnergyHistogram != null) {
+      long count = 0;
+      for (long bin : blockEnergyHistogram) {
+        count += bin;
+      }
+      return count;
+    }
+    return blockList.size();
+  }
+
+  /**
+   * Get the sum of the energies of all gating blocks above the absolute gate.
+   */
+  private double blockEnergySum() {
+    double sum = 0.0;
+    if (blockEnergyHistogram != null) {
+      for (int i = 0; i < Energy.HISTOGRAM_SIZE; i++) {
+        sum += blockEnergyHistogram[i] * Energy.HISTOGRAM_ENERGIES[i];
+      }
+    } else {
+      for (int i = 0, n = blockList.size(); i < n; i++) {
+        sum += blockList.get(i);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Integrated loudness across engines, gated at -70 LUFS and -10 LU.
+   */
+  static double gatedLoudness(JavaEngine[] engines) {
+    for (JavaEngine engine : engines) {
+      if (engine != null && (engine.mode & Mode.MODE_I) != Mode.MODE_I) {
+        return error(Error.ERROR_INVALID_MODE);
+      }
+    }
+    double sum = 0.0;
+    long count = 0;
+    for (JavaEngine engine : engines) {
+      if (engine != null) {
+        sum += engine.blockEnergySum();
+        count += engine.blockCount();
+      }
+    }
+    if (count == 0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    double relativeThreshold = sum / count * Energy.RELATIVE_GATE_FACTOR;
+    int startIndex = Energy.gateIndex(relativeThreshold);
+
+    double gatedLoudness = 0.0;
+    long aboveThreshold = 0;
+    for (JavaEngine engine : engines) {
+      if (engine == null) {
+        continue;
+      }
+      if (engine.blockEnergyHistogram != null) {
+        for (int j = startIndex; j < Energy.HISTOGRAM_SIZE; j++) {
+          gatedLoudness += engine.blockEnergyHistogram[j] * Energy.HISTOGRAM_ENERGIES[j];
+          aboveThreshold += engine.blockEnergyHistogram[j];
+        }
+      } else {
+        for (int i = 0, n = engine.blockList.size(); i < n; i++) {
+          double energy = engine.blockList.get(i);
+          if (energy >= relativeThreshold) {
+            aboveThreshold++;
+            gatedLoudness += energy;
+          }
+        }
+      }
+    }
+    if (aboveThreshold == 0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    return Energy.toLoudness(gatedLoudness / aboveThreshold);
+  }
+
+  /**
+   * Loudness range across engines, between the 10th and 95th percentile of the short-term
+   * loudness gated at -70 LUFS and -20 LU. Uses the histogram algorithm if the first engine does.
+   */
+  static double loudnessRange(JavaEngine[] engines) {
+    for (JavaEngine engine : engines) {
+      if (engine == null || (engine.mode & Mode.MODE_LRA) != Mode.MODE_LRA) {
+        return error(Error.ERROR_INVALID_MODE);
+      }
+    }
+    if (engines.length == 0) {
+      return 0.0;
+    }
+    if (engines[0].shortTermBlockEnergyHistogram != null) {
+      long[] histogram = new long[Energy.HISTOGRAM_SIZE];
+      for (JavaEngine engine : engines) {
+        engine.addShortTermBlocks(histogram);
+      }
+      return loudnessRange(histogram);
+    }
+    int size = 0;
+    for (JavaEngine engine : engines) {
+      size += engine.shortTermBlockCount();
+    }
+    double[] energies = new double[size];
+    int offset = 0;
+    for (JavaEngine engine : engines) {
+      offset = engine.copyShortTermBlocks(energies, offset);
+    }
+    return loudnessRange(energies, size);
+  }
+
+  private void addShortTermBlocks(long[] histogram) {
+    if (shortTermBlockEnergyHistogram != null) {
+      for (int j = 0; j < Energy.HISTOGRAM_SIZE; j++) {
+        histogram[j] += shortTermBlockEnergyHistogram[j];
+      }
+    } else {
+      for (int i = 0, n = shortTermBlockList.size(); i < n; i++) {
+        histogram[Energy.histogramIndex(shortTermBlockList.get(i))]++;
+      }
+    }
+  }
+
+  private int shortTermBlockCount() {
+    if (shortTermBlockEnergyHistogram != null) {
+      long count = 0;
+      for (long bin : shortTermBlockEnergyHistogram) {
+        count += bin;
+      }
+      return (int) count;
+    }
+    return shortTermBlockList.size();
+  }
+
+  private int copyShortTermBlocks(double[] dst, int offset) {
+    if (shortTermBlockEnergyHistogram != null) {
+      for (int j = 0; j < Energy.HISTOGRAM_SIZE; j++) {
+        for (long k = 0; k < shortTermBlockEnergyHistogram[j]; k++) {
+          dst[offset++] = Energy.HISTOGRAM_ENERGIES[j];
+        }
+      }
+      return offset;
+    }
+    shortTermBlockList.toArray(dst, offset);
+    return offset + shortTermBlockList.size();
+  }
+
+  static double loudnessRange(long[] histogram) {
+    long size = 0;
+    double power = 0.0;
+    for (int j = 0; j < Energy.HISTOGRAM_SIZE; j++) {
+      size += histogram[j];
+      power += histogram[j] * Energy.HISTOGRAM_ENERGIES[j];
+    }
+    if (size == 0) {
+      return 0.0;
+    }
+    power /= size;
+    int index = Energy.gateIndex(Energy.MINUS_TWENTY_DECIBELS * power);
+    size = 0;
+    for (int j = index; j < Energy.HISTOGRAM_SIZE; j++) {
+      size += histogram[j];
+    }
+    if (size == 0) {
+      return 0.0;
+    }
+    long percentileLow = (long) ((size - 1) * 0.1 + 0.5);
+    long percentileHigh = (long) ((size - 1) * 0.95 + 0.5);
+
+    size = 0;
+    int j = index;
+    while (size <= percentileLow) {
+      size += histogram[j++];
+    }
+    double lowEnergy = Energy.HISTOGRAM_ENERGIES[j - 1];
+    while (size <= percentileHigh) {
+      size += histogram[j++];
+    }
+    double highEnergy = Energy.HISTOGRAM_ENERGIES[j - 1];
+    return Energy.toLoudness(highEnergy) - Energy.toLoudness(lowEnergy);
+  }
+
+  static double loudnessRange(double[] energies, int size) {
+    if (size == 0) {
+      return 0.0;
+    }
+    double power = 0.0;
+    for (int i = 0; i < size; i++) {
+      power += energies[i];
+    }
+    power /= size;
+    double integrated = Energy.MINUS_TWENTY_DECIBELS * power;
+
+    Arrays.sort(energies, 0, size);
+    int start = 0;
+    while (start < size && energies[start] < integrated) {
+      start++;
+    }
+    int relgatedSize = size - start;
+    if (relgatedSize == 0) {
+      return 0.0;
+    }
+    double highEnergy = energies[start + (int) ((relgatedSize - 1) * 0.95 + 0.5)];
+    double lowEnergy = energies[start + (int) ((relgatedSize - 1) * 0.1 + 0.5)];
+    return Energy.toLoudness(highEnergy) - Energy.toLoudness(lowEnergy);
+  }
+}
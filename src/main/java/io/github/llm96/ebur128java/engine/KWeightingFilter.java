@@ -0,0 +1,113 @@
+package io.github.llm96.ebur128java.engine;
+
+import io.github.llm96.ebur128java.Channel;
+
+import java.util.Arrays;
+
+/**
+ * K-weighting pre-filter of ITU-R BS.1770: a high shelf followed by a high pass, combined into a
+ * single fourth order IIR filter in direct form II, with one set of filter memories per channel.
+ * This is the scalar implementation, see {@link Kernels}.
+ */
+class KWeightingFilter {
+  final double[] a = new double[5];
+  final double[] b = new double[5];
+  final int channels;
+
+  /** filter memories v[1..4], v[k] of all channels stored at (k - 1) * channels */
+  final double[] v;
+
+  KWeightingFilter(int channels, long samplerate) {
+    this.channels = channels;
+    double f0 = 1681.974450955533;
+    double g = 3.999843853973347;
+    double q = 0.7071752369554196;
+
+    double k = Math.tan(Math.PI * f0 / (double) samplerate);
+    double vh = Math.pow(10.0, g / 20.0);
+    double vb = Math.pow(vh, 0.4996667741545416);
+
+    double[] pb = {0.0, 0.0, 0.0};
+    double[] pa = {1.0, 0.0, 0.0};
+    double[] rb = {1.0, -2.0, 1.0};
+    double[] ra = {1.0, 0.0, 0.0};
+
+    double a0 = 1.0 + k / q + k * k;
+    pb[0] = (vh + vb * k / q + k * k) / a0;
+    pb[1] = 2.0 * (k * k - vh) / a0;
+    pb[2] = (vh - vb * k / q + k * k) / a0;
+    pa[1] = 2.0 * (k * k - 1.0) / a0;
+    pa[2] = (1.0 - k / q + k * k) / a0;
+
+    f0 = 38.13547087602444;
+    q = 0.5003270373238773;
+    k = Math.tan(Math.PI * f0 / (double) samplerate);
+
+    ra[1] = 2.0 * (k * k - 1.0) / (1.0 + k / q + k * k);
+    ra[2] = (1.0 - k / q + k * k) / (1.0 + k / q + k * k);
+
+    b[0] = pb[0] * rb[0];
+    b[1] = pb[0] * rb[1] + pb[1] * rb[0];
+    b[2] = pb[0] * rb[2] + pb[1] * rb[1] + pb[2] * rb[0];
+    b[3] = pb[1] * rb[2] + pb[2] * rb[1];
+    b[4] = pb[2] * rb[2];
+
+    a[0] = pa[0] * ra[0];
+    a[1] = pa[0] * ra[1] + pa[1] * ra[0];
+    a[2] = pa[0] * ra[2] + pa[1] * ra[1] + pa[2] * ra[0];
+    a[3] = pa[1] * ra[2] + pa[2] * ra[1];
+    a[4] = pa[2] * ra[2];
+
+    v = new double[channels * 4];
+  }
+
+  /**
+   * Filter interleaved frames.
+   *
+   * @param src         scaled input samples, starting at index 0
+   * @param dst         filtered output samples
+   * @param dstFrame    frame index in dst of the first output frame
+   * @param frames      number of frames
+   * @param channelMap  channel types, channels marked {@link Channel#UNUSED} are skipped
+   */
+  void process(double[] src, double[] dst, int dstFrame, int frames, int[] channelMap) {
+    double a1 = a[1], a2 = a[2], a3 = a[3], a4 = a[4];
+    double b0 = b[0], b1 = b[1], b2 = b[2], b3 = b[3], b4 = b[4];
+    for (int c = 0; c < channels; c++) {
+      if (channelMap[c] == Channel.UNUSED) {
+        continue;
+      }
+      double v1 = v[c], v2 = v[channels + c], v3 = v[2 * channels + c], v4 = v[3 * channels + c];
+      int in = c;
+      int out = dstFrame * channels + c;
+      for (int i = 0; i < frames; i++) {
+        double v0 = src[in] - a1 * v1 - a2 * v2 - a3 * v3 - a4 * v4;
+        dst[out] = b0 * v0 + b1 * v1 + b2 * v2 + b3 * v3 + b4 * v4;
+        v4 = v3;
+        v3 = v2;
+        v2 = v1;
+        v1 = v0;
+        in += channels;
+        out += channels;
+      }
+      v[c] = flush(v1);
+      v[channels + c] = flush(v2);
+      v[2 * channels + c] = flush(v3);
+      v[3 * channels + c] = flush(v4);
+    }
+  }
+
+  /**
+   * Clear the filter memories.
+   */
+  void reset() {
+    Arrays.fill(v, 0.0);
+  }
+
+  /**
+   * Flush denormals to zero, so that silence does not slow the filter down.
+   */
+  static double flush(double value) {
+    return Math.abs(value) < Double.MIN_NORMAL ? 0.0 : value;
+  }
+}
@@ -0,0 +1,43 @@
+package io.github.llm96.ebur128java.engine;
+
+/**
+ * Factory of the DSP kernels used by the pure Java backend.
+ * <p>
+ * This class provides the scalar kernels. On Java 17+ the jar also contains SIMD kernels built on
+ * the incubating Vector API, which are used when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} unless the {@value #VECTOR_PROPERTY} system property
+ * is set to false.
+ */
+class Kernels {
+  /**
+   * System property disabling the Vector API kernels when set to false.
+   */
+  static final String VECTOR_PROPERTY = "ebur128java.vector";
+
+  private static final String VECTOR_KERNELS = "io.github.llm96.ebur128java.engine.VectorKernels";
+
+  static final Kernels INSTANCE = load();
+
+  KWeightingFilter filter(int channels, long samplerate) {
+    return new KWeightingFilter(channels, samplerate);
+  }
+
+  TruePeakInterpolator interpolator(int taps, int factor, int channels) {
+    return new TruePeakInterpolator(taps, factor, channels);
+  }
+
+  String getName() {
+    return "scalar";
+  }
+
+  private static Kernels load() {
+    if (Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))) {
+      try {
+        return (Kernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+      } catch (java.lang.Exception | LinkageError e) {
+        // Java 8-16, or the jdk.incubator.vector module is not present
+      }
+    }
+    return new Kernels();
+  }
+}
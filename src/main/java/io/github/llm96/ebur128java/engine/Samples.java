@@ -0,0 +1,325 @@
+package io.github.llm96.ebur128java.engine;
+
+import com.sun.jna.Pointer;
+import io.github.llm96.ebur128java.SampleFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of samples for one add_frames call, converted to interleaved doubles in the range of
+ * [-1.0, 1.0] for integer formats. Instances are reused across calls to avoid allocation.
+ */
+abstract class Samples {
+  static final double SHORT_SCALE = 1.0 / 32768.0;
+  static final double INT_SCALE = 1.0 / 2147483648.0;
+
+  /**
+   * Convert samples.
+   *
+   * @param offset index of the first sample
+   * @param count  number of samples
+   * @param dst    destination, filled from index 0
+   */
+  abstract void read(long offset, int count, double[] dst);
+
+  /**
+   * Release the reference to the source.
+   */
+  abstract void clear();
+
+  static final class Shorts extends Samples {
+    short[] src;
+
+    @Override
+    void read(long offset, int count, double[] dst) {
+      int o = (int) offset;
+      for (int i = 0; i < count; i++) {
+        dst[i] = src[o + i] * SHORT_SCALE;
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  static final class Ints extends Samples {
+    int[] src;
+
+    @Override
+    void read(long offset, int count, double[] dst) {
+      int o = (int) offset;
+      for (int i = 0; i < count; i++) {
+        dst[i] = src[o + i] * INT_SCALE;
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  static final class Floats extends Samples {
+    float[] src;
+
+    @Override
+    void read(long offset, int count, double[] dst) {
+      int o = (int) offset;
+      for (int i = 0; i < count; i++) {
+        dst[i] = src[o + i];
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  static final class Doubles extends Samples {
+    double[] src;
+
+    @Override
+    void read(long offset, int count, double[] dst) {
+      System.arraycopy(src, (int) offset, dst, 0, count);
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  /**
+   * Samples in a buffer in native byte order, read with absolute gets from a start position.
+   */
+  static final class Bytes extends Samples {
+    ByteBuffer src;
+    int position;
+    SampleFormat format;
+
+    @Override
+    void read(long offset, int count, double[] dst) {
+      int bytes = format.getBytesPerSample();
+      int p = position + (int) offset * bytes;
+      if (format == SampleFormat.SHORT) {
+        for (int i = 0; i < count; i++, p += 2) {
+          dst[i] = src.getShort(p) * SHORT_SCALE;
+        }
+      } else if (format == SampleFormat.INT) {
+        for (int i = 0; i < count; i++, p += 4) {
+          dst[i] = src.getInt(p) * INT_SCALE;
+        }
+      } else if (format == SampleFormat.FLOAT) {
+        for (int i = 0; i < count; i++, p += 4) {
+          dst[i] = src.getFloat(p);
+        }
+      } else {
+        for (int i = 0; i < count; i++, p += 8) {
+          dst[i] = src.getDouble(p);
+        }
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  /**
+   * Samples in native memory, copied in bulk into a scratch array before conversion.
+   */
+  static final class Address extends Samples {
+    final Pointer src = new Pointer(0);
+    SampleFormat format;
+    private short[] shorts = new short[0];
+    private int[] ints = new int[0];
+    private float[] floats = new float[0];
+
+    @Override
+    void read(long offset, int count, double[] dst) {
+      long byteOffset = offset * format.getBytesPerSample();
+      if (format == SampleFormat.SHORT) {
+        if (shorts.length < count) {
+          shorts = new short[dst.length];
+        }
+        src.read(byteOffset, shorts, 0, count);
+        for (int i = 0; i < count; i++) {
+          dst[i] = shorts[i] * SHORT_SCALE;
+        }
+      } else if (format == SampleFormat.INT) {
+        if (ints.length < count) {
+          ints = new int[dst.length];
+        }
+        src.read(byteOffset, ints, 0, count);
+        for (int i = 0; i < count; i++) {
+          dst[i] = ints[i] * INT_SCALE;
+        }
+      } else if (format == SampleFormat.FLOAT) {
+        if (floats.length < count) {
+          floats = new float[dst.length];
+        }
+        src.read(byteOffset, floats, 0, count);
+        for (int i = 0; i < count; i++) {
+          dst[i] = floats[i];
+        }
+      } else {
+        src.read(byteOffset, dst, 0, count);
+      }
+    }
+
+    @Override
+    void clear() {
+      Pointer.nativeValue(src, 0);
+    }
+  }
+
+  /**
+   * Samples in one array or buffer per channel, interleaved while they are converted.
+   */
+  abstract static class Planar extends Samples {
+    int channels;
+    int offset;
+
+    @Override
+    final void read(long offset, int count, double[] dst) {
+      int frame = this.offset + (int) (offset / channels);
+      int frames = count / channels;
+      for (int c = 0; c < channels; c++) {
+        read(c, frame, frames, dst);
+      }
+    }
+
+    /**
+     * Convert the samples of one channel into every channels-th element of dst.
+     *
+     * @param channel channel index
+     * @param frame   index of the first frame
+     * @param frames  number of frames
+     * @param dst     destination of the interleaved samples, filled from index 0
+     */
+    abstract void read(int channel, int frame, int frames, double[] dst);
+  }
+
+  static final class PlanarShorts extends Planar {
+    short[][] src;
+
+    @Override
+    void read(int channel, int frame, int frames, double[] dst) {
+      short[] s = src[channel];
+      for (int i = 0, d = channel; i < frames; i++, d += channels) {
+        dst[d] = s[frame + i] * SHORT_SCALE;
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  static final class PlanarInts extends Planar {
+    int[][] src;
+
+    @Override
+    void read(int channel, int frame, int frames, double[] dst) {
+      int[] s = src[channel];
+      for (int i = 0, d = channel; i < frames; i++, d += channels) {
+        dst[d] = s[frame + i] * INT_SCALE;
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  static final class PlanarFloats extends Planar {
+    float[][] src;
+
+    @Override
+    void read(int channel, int frame, int frames, double[] dst) {
+      float[] s = src[channel];
+      for (int i = 0, d = channel; i < frames; i++, d += channels) {
+        dst[d] = s[frame + i];
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  static final class PlanarDoubles extends Planar {
+    double[][] src;
+
+    @Override
+    void read(int channel, int frame, int frames, double[] dst) {
+      double[] s = src[channel];
+      for (int i = 0, d = channel; i < frames; i++, d += channels) {
+        dst[d] = s[frame + i];
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+
+  /**
+   * Samples in one buffer per channel in native byte order, read with absolute gets from the
+   * positions at the time of the call.
+   */
+  static final class PlanarBytes extends Planar {
+    ByteBuffer[] src;
+    int[] positions = new int[0];
+    SampleFormat format;
+
+    void set(ByteBuffer[] src, SampleFormat format) {
+      if (positions.length < src.length) {
+        positions = new int[src.length];
+      }
+      for (int c = 0; c < src.length; c++) {
+        positions[c] = src[c].position();
+      }
+      this.src = src;
+      this.format = format;
+      this.channels = src.length;
+      this.offset = 0;
+    }
+
+    @Override
+    void read(int channel, int frame, int frames, double[] dst) {
+      ByteBuffer s = src[channel];
+      int p = positions[channel] + frame * format.getBytesPerSample();
+      if (format == SampleFormat.SHORT) {
+        for (int i = 0, d = channel; i < frames; i++, d += channels, p += 2) {
+          dst[d] = s.getShort(p) * SHORT_SCALE;
+        }
+      } else if (format == SampleFormat.INT) {
+        for (int i = 0, d = channel; i < frames; i++, d += channels, p += 4) {
+          dst[d] = s.getInt(p) * INT_SCALE;
+        }
+      } else if (format == SampleFormat.FLOAT) {
+        for (int i = 0, d = channel; i < frames; i++, d += channels, p += 4) {
+          dst[d] = s.getFloat(p);
+        }
+      } else {
+        for (int i = 0, d = channel; i < frames; i++, d += channels, p += 8) {
+          dst[d] = s.getDouble(p);
+        }
+      }
+    }
+
+    @Override
+    void clear() {
+      src = null;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package io.github.llm96.ebur128java.engine;
+
+import java.util.Arrays;
+
+/**
+ * Polyphase FIR interpolator used to estimate true peaks, with a 49 tap Hann-windowed sinc
+ * split into one sub-filter per interpolation factor and one delay line per channel.
+ * This is the scalar implementation, see {@link Kernels}.
+ */
+class TruePeakInterpolator {
+  private static final double ALMOST_ZERO = 0.000001;
+
+  final int factor;
+  final int channels;
+  final int delay;
+
+  /** coefficients and delay line offsets of each sub-filter */
+  final double[][] coeff;
+  final int[][] index;
+
+  /** delay line of each channel, stored at channel * delay */
+  final float[] z;
+  int zi;
+
+  TruePeakInterpolator(int taps, int factor, int channels) {
+    this.factor = factor;
+    this.channels = channels;
+    this.delay = (taps + factor - 1) / factor;
+    this.z = new float[channels * delay];
+
+    double[][] c = new double[factor][delay];
+    int[][] idx = new int[factor][delay];
+    int[] count = new int[factor];
+    for (int j = 0; j < taps; j++) {
+      double m = (double) j - (double) (taps - 1) / 2.0;
+      double value = 1.0;
+      if (Math.abs(m) > ALMOST_ZERO) {
+        value = Math.sin(m * Math.PI / factor) / (m * Math.PI / factor);
+      }
+      value *= 0.5 * (1 - Math.cos(2 * Math.PI * j / (taps - 1)));
+      if (Math.abs(value) > ALMOST_ZERO) {
+        int f = j % factor;
+        int t = count[f]++;
+        c[f][t] = value;
+        idx[f][t] = j / factor;
+      }
+    }
+    coeff = new double[factor][];
+    index = new int[factor][];
+    for (int f = 0; f < factor; f++) {
+      coeff[f] = Arrays.copyOf(c[f], count[f]);
+      index[f] = Arrays.copyOf(idx[f], count[f]);
+    }
+  }
+
+  /**
+   * Create the interpolator used at a sample rate.
+   *
+   * @return the interpolator, or null if the sample rate is high enough to use sample peaks
+   */
+  static TruePeakInterpolator create(Kernels kernels, int channels, long samplerate) {
+    if (samplerate < 96000) {
+      return kernels.interpolator(49, 4, channels);
+    } else if (samplerate < 192000) {
+      return kernels.interpolator(49, 2, channels);
+    }
+    return null;
+  }
+
+  /**
+   * Clear the delay lines.
+   */
+  void reset() {
+    Arrays.fill(z, 0.0f);
+    zi = 0;
+  }
+
+  /**
+   * Get a sample of the delay line of a channel, for checkpoints.
+   *
+   * @param channel channel index
+   * @param i       position in the delay line, zi being the newest sample
+   */
+  float delayed(int channel, int i) {
+    return z[channel * delay + i];
+  }
+
+  /**
+   * Set a sample of the delay line of a channel, when restoring a checkpoint.
+   *
+   * @param channel channel index
+   * @param i       position in the delay line, zi being the newest sample
+   * @param value   sample
+   */
+  void setDelayed(int channel, int i, float value) {
+    z[channel * delay + i] = value;
+  }
+
+  /**
+   * Interpolate interleaved frames and raise the peaks to the largest absolute output values.
+   *
+   * @param src    scaled input samples, starting at index 0
+   * @param frames number of frames
+   * @param peaks  peak of each channel
+   */
+  void process(double[] src, int frames, double[] peaks) {
+    int in = 0;
+    for (int frame = 0; frame < frames; frame++) {
+      for (int chan = 0; chan < channels; chan++) {
+        int base = chan * delay;
+        z[base + zi] = (float) src[in++];
+        double peak = peaks[chan];
+        for (int f = 0; f < factor; f++) {
+          double[] c = coeff[f];
+          int[] idx = index[f];
+          double acc = 0.0;
+          for (int t = 0; t < c.length; t++) {
+            int i = zi - idx[t];
+            if (i < 0) {
+              i += delay;
+            }
+            acc += (double) z[base + i] * c[t];
+          }
+          double value = Math.abs((double) (float) acc);
+          if (value > peak) {
+            peak = value;
+          }
+        }
+        peaks[chan] = peak;
+      }
+      if (++zi == delay) {
+        zi = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package io.github.llm96.ebur128java.io;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Exception;
+import io.github.llm96.ebur128java.State;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of interleaved audio frames, read sequentially from start to end.
+ */
+public interface AudioSource extends Closeable {
+  /**
+   * Get the number of channels.
+   *
+   * @return number of channels
+   */
+  int getChannels();
+
+  /**
+   * Get the sample rate.
+   *
+   * @return sample rate
+   */
+  long getSamplerate();
+
+  /**
+   * Read the next frames as float samples (1.0 is 0 dBFS).
+   *
+   * @param buffer destination of the interleaved samples, filled from index 0
+   * @param frames maximum number of frames to read (not number of samples!)
+   * @return number of frames read, or -1 at the end of the source
+   * @throws IOException if reading fails
+   */
+  int read(float[] buffer, int frames) throws IOException;
+
+  /**
+   * Add all remaining frames to a state.
+   * The default implementation reads through the buffer, sources backed by memory may add their
+   * frames without copying.
+   *
+   * @param state  state to add the frames to, with the channels and sample rate of this source
+   * @param buffer scratch buffer holding at least one frame
+   * @return number of frames added
+   * @throws IOException if reading fails
+   * @throws Exception   if the state rejects the frames
+   */
+  default long transferTo(State state, float[] buffer) throws IOException {
+    int capacity = buffer.length / getChannels();
+    if (capacity == 0) {
+      throw new IllegalArgumentException("Buffer too small for " + getChannels() + " channels");
+    }
+    long total = 0;
+    int frames;
+    while ((frames = read(buffer, capacity)) >= 0) {
+      int result = state.addFramesFloat(buffer, frames);
+      if (result != Error.SUCCESS) {
+        throw new Exception("Failed to add frames", result);
+      }
+      total += frames;
+    }
+    return total;
+  }
+}
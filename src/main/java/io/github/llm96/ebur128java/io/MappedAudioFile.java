@@ -0,0 +1,344 @@
+package io.github.llm96.ebur128java.io;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Exception;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.State;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped WAV, BWF, RF64/BW64 or raw PCM file.
+ * <p>
+ * The audio data is mapped read-only in windows of whole frames. When the samples are 16-bit or
+ * 32-bit integers, or 32-bit or 64-bit floats, in native byte order, {@link AudioSource#transferTo}
+ * of the sources opened from this file passes the mapped windows to the state without copying.
+ * Other formats (8-bit unsigned, 24-bit, byte-swapped) are converted by
+ * {@link State#addFramesBytes(ByteBuffer, long, SampleFormat)}.
+ * <p>
+ * Sources opened from one file may be read concurrently. Closing the file closes its channel,
+ * the mapped windows are released by the garbage collector.
+ */
+public class MappedAudioFile implements RandomAccessAudioSource, Closeable {
+  /** maximum size of a mapped window */
+  static final long MAX_WINDOW_BYTES = 1L << 30;
+
+  private static final int WAVE_FORMAT_PCM = 1;
+  private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+  private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+  private static final long UNKNOWN_SIZE = 0xFFFFFFFFL;
+
+  private final FileChannel channel;
+  private final int channels;
+  private final long samplerate;
+  private final SampleFormat format;
+  private final int frameBytes;
+  private final long frames;
+
+  /** mapped windows of the data, each holding windowFrames frames except the last */
+  private final MappedByteBuffer[] windows;
+  private final long windowFrames;
+
+  private MappedAudioFile(FileChannel channel, int channels, long samplerate, SampleFormat format, long dataOffset,
+                          long dataBytes) throws IOException {
+    this.channel = channel;
+    this.channels = channels;
+    this.samplerate = samplerate;
+    this.format = format;
+    this.frameBytes = channels * format.getBytesPerSample();
+    this.frames = Math.max(0, Math.min(dataBytes, channel.size() - dataOffset)) / frameBytes;
+
+    this.windowFrames = MAX_WINDOW_BYTES / frameBytes;
+    int count = (int) ((frames + windowFrames - 1) / windowFrames);
+    this.windows = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      long first = i * windowFrames;
+      long length = Math.min(windowFrames, frames - first) * frameBytes;
+      windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * frameBytes, length);
+      windows[i].order(format.getOrder());
+    }
+  }
+
+  /**
+   * Open a RIFF WAV or BWF file, or an RF64 or BW64 file larger than 4 GiB.
+   *
+   * @param path file to open
+   * @return mapped file
+   * @throws IOException if the file cannot be read or its format is not supported
+   */
+  public static MappedAudioFile openWav(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return parseWav(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Open a file of headerless interleaved PCM samples.
+   *
+   * @param path       file to open
+   * @param channels   number of channels
+   * @param samplerate sample rate
+   * @param format     format of the samples
+   * @param offset     offset in bytes of the first frame
+   * @return mapped file
+   * @throws IOException if the file cannot be read or the channels or sample rate are invalid
+   */
+  public static MappedAudioFile openRaw(Path path, int channels, long samplerate, SampleFormat format, long offset)
+      throws IOException {
+    checkFormat(channels, samplerate);
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MappedAudioFile(channel, channels, samplerate, format, offset, Long.MAX_VALUE);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static MappedAudioFile parseWav(FileChannel channel) throws IOException {
+    ByteBuffer header = read(channel, 0, 12);
+    String riff = id(header, 0);
+    if (!("RIFF".equals(riff) || "RF64".equals(riff) || "BW64".equals(riff)) || !"WAVE".equals(id(header, 8))) {
+      throw new IOException("Not a WAV file");
+    }
+    long ds64DataBytes = -1;
+    ByteBuffer format = null;
+    long position = 12;
+    long size = channel.size();
+    while (position + 8 <= size) {
+      ByteBuffer chunk = read(channel, position, 8);
+      String id = id(chunk, 0);
+      long length = chunk.getInt(4) & 0xFFFFFFFFL;
+      long body = position + 8;
+      if ("ds64".equals(id)) {
+        ds64DataBytes = read(channel, body, 16).getLong(8);
+      } else if ("fmt ".equals(id)) {
+        format = read(channel, body, (int) Math.min(length, 40));
+      } else if ("data".equals(id)) {
+        if (format == null) {
+          throw new IOException("WAV data chunk before fmt chunk");
+        }
+        if (length == UNKNOWN_SIZE && ds64DataBytes >= 0) {
+          length = ds64DataBytes;
+        } else if (length == 0 || length == UNKNOWN_SIZE) {
+          // header of an unfinished recording, use the rest of the file
+          length = size - body;
+        }
+        return fromFormat(channel, format, body, length);
+      }
+      position = body + length + (length & 1);
+    }
+    throw new IOException("WAV file has no data chunk");
+  }
+
+  private static MappedAudioFile fromFormat(FileChannel channel, ByteBuffer format, long dataOffset, long dataBytes)
+      throws IOException {
+    if (format.limit() < 16) {
+      throw new IOException("WAV fmt chunk too short");
+    }
+    int tag = format.getShort(0) & 0xFFFF;
+    int channels = format.getShort(2) & 0xFFFF;
+    long samplerate = format.getInt(4) & 0xFFFFFFFFL;
+    int blockAlign = format.getShort(12) & 0xFFFF;
+    if (tag == WAVE_FORMAT_EXTENSIBLE) {
+      if (format.limit() < 26) {
+        throw new IOException("WAV extensible fmt chunk too short");
+      }
+      tag = format.getShort(24) & 0xFFFF;
+    }
+    if (tag != WAVE_FORMAT_PCM && tag != WAVE_FORMAT_IEEE_FLOAT) {
+      throw new IOException("Unsupported WAV format tag: " + tag);
+    }
+    if (channels == 0 || blockAlign % channels != 0) {
+      throw new IOException("Invalid WAV block alignment: " + blockAlign);
+    }
+    checkFormat(channels, samplerate);
+    // samples with fewer valid bits are left-justified in their container, so read them as full containers
+    int bytesPerSample = blockAlign / channels;
+    SampleFormat sampleFormat;
+    if (tag == WAVE_FORMAT_IEEE_FLOAT) {
+      if (bytesPerSample != 4 && bytesPerSample != 8) {
+        throw new IOException("Unsupported sample format: " + bytesPerSample * 8 + " bit float");
+      }
+      sampleFormat = SampleFormat.floatingPoint(bytesPerSample, ByteOrder.LITTLE_ENDIAN);
+    } else {
+      if (bytesPerSample < 1 || bytesPerSample > 4) {
+        throw new IOException("Unsupported sample format: " + bytesPerSample * 8 + " bit PCM");
+      }
+      // 8-bit WAV samples are unsigned
+      sampleFormat = SampleFormat.integer(bytesPerSample, bytesPerSample * 8, bytesPerSample > 1,
+          ByteOrder.LITTLE_ENDIAN);
+    }
+    return new MappedAudioFile(channel, channels, samplerate, sampleFormat, dataOffset, dataBytes);
+  }
+
+  private static void checkFormat(int channels, long samplerate) throws IOException {
+    if (channels <= 0 || samplerate <= 0) {
+      throw new IOException("Invalid channels or sample rate: " + channels + ", " + samplerate);
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static String id(ByteBuffer buffer, int offset) {
+    byte[] id = new byte[4];
+    for (int i = 0; i < 4; i++) {
+      id[i] = buffer.get(offset + i);
+    }
+    return new String(id, StandardCharsets.US_ASCII);
+  }
+
+  @Override
+  public int getChannels() {
+    return channels;
+  }
+
+  @Override
+  public long getSamplerate() {
+    return samplerate;
+  }
+
+  @Override
+  public long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Get the format of the samples in the file.
+   *
+   * @return sample format
+   */
+  public SampleFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * Get the format in which the mapped samples are passed to a state without conversion.
+   *
+   * @return sample format, or null if the samples are converted
+   */
+  public SampleFormat getDirectFormat() {
+    return format.getNativeFormat();
+  }
+
+  /**
+   * Open the whole file as a sequential source.
+   *
+   * @return source of all frames
+   */
+  public AudioSource open() {
+    return open(0, frames);
+  }
+
+  @Override
+  public AudioSource open(long start, long frames) {
+    if (start < 0 || frames < 0 || start + frames > this.frames) {
+      throw new IllegalArgumentException("Invalid range: " + start + ", " + frames);
+    }
+    return new Reader(start, start + frames);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Sequential source of a range of frames, reading the shared windows through its own views.
+   */
+  private final class Reader implements AudioSource {
+    private final ByteBuffer[] views = new ByteBuffer[windows.length];
+    private long position;
+    private final long end;
+
+    Reader(long start, long end) {
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int getChannels() {
+      return channels;
+    }
+
+    @Override
+    public long getSamplerate() {
+      return samplerate;
+    }
+
+    /**
+     * Get a view of the window holding the current frame, positioned at that frame.
+     */
+    private ByteBuffer window() {
+      int index = (int) (position / windowFrames);
+      ByteBuffer view = views[index];
+      if (view == null) {
+        view = windows[index].duplicate().order(format.getOrder());
+        views[index] = view;
+      }
+      view.position((int) ((position - index * windowFrames) * frameBytes));
+      return view;
+    }
+
+    /**
+     * Get the number of frames from the current frame to the end of its window or the range.
+     */
+    private int available(int max) {
+      long windowEnd = (position / windowFrames + 1) * windowFrames;
+      return (int) Math.min(max, Math.min(windowEnd, end) - position);
+    }
+
+    @Override
+    public int read(float[] buffer, int frames) {
+      if (position >= end) {
+        return -1;
+      }
+      int count = available(frames);
+      ByteBuffer src = window();
+      format.toFloats(src, src.position(), buffer, count * channels);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public long transferTo(State state, float[] buffer) throws IOException {
+      long total = 0;
+      while (position < end) {
+        int count = available(Integer.MAX_VALUE);
+        int result = state.addFramesBytes(window(), count, format);
+        if (result != Error.SUCCESS) {
+          throw new Exception("Failed to add frames", result);
+        }
+        position += count;
+        total += count;
+      }
+      return total;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
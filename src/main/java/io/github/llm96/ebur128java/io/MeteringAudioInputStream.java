@@ -0,0 +1,169 @@
+package io.github.llm96.ebur128java.io;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Exception;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.State;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+/**
+ * Audio input stream measuring the frames read through it.
+ * <p>
+ * Every byte read from the source is returned unchanged, and the frames are added to a state
+ * with the channels and sample rate of the source, converted by {@link State#addFramesBytes}
+ * into scratch arrays kept by the state. This meters audio while it is played, written or
+ * converted by {@link AudioSystem}, without decoding it a second time.
+ * <p>
+ * Only the frames that are read are measured: skipped frames are not, and mark and reset are not
+ * supported since they would measure frames twice. The source must be PCM, signed or unsigned
+ * integers of up to 32 bits or 32 or 64-bit floats; other encodings can be converted with
+ * {@link AudioSystem#getAudioInputStream(AudioFormat.Encoding, AudioInputStream)} first.
+ */
+public class MeteringAudioInputStream extends AudioInputStream {
+  private final State state;
+  private final boolean ownsState;
+  private final SampleFormat sampleFormat;
+  private final int frameSize;
+
+  /**
+   * Meter a stream into a new state, closed with this stream.
+   *
+   * @param source stream to read
+   * @param mode   mode flags of the state (see Mode constants)
+   * @throws IllegalArgumentException if the format of the source is not supported
+   */
+  public MeteringAudioInputStream(AudioInputStream source, int mode) {
+    this(source, newState(source.getFormat(), mode), true);
+  }
+
+  /**
+   * Meter a stream into an existing state, left open when this stream is closed.
+   *
+   * @param source stream to read
+   * @param state  state with the channels and sample rate of the source
+   * @throws IllegalArgumentException if the format of the source is not supported or does not match the state
+   */
+  public MeteringAudioInputStream(AudioInputStream source, State state) {
+    this(source, state, false);
+  }
+
+  private MeteringAudioInputStream(AudioInputStream source, State state, boolean ownsState) {
+    super(source, source.getFormat(), source.getFrameLength());
+    AudioFormat format = source.getFormat();
+    this.sampleFormat = toSampleFormat(format);
+    if (state.getChannels() != format.getChannels() || state.getSamplerate() != samplerate(format)) {
+      throw new IllegalArgumentException("State of " + state.getChannels() + " channels at "
+          + state.getSamplerate() + " Hz does not match " + format);
+    }
+    this.state = state;
+    this.ownsState = ownsState;
+    this.frameSize = sampleFormat.getBytesPerSample() * format.getChannels();
+  }
+
+  private static State newState(AudioFormat format, int mode) {
+    toSampleFormat(format);
+    return new State(format.getChannels(), samplerate(format), mode);
+  }
+
+  private static long samplerate(AudioFormat format) {
+    return Math.round(format.getSampleRate());
+  }
+
+  /**
+   * Get the sample format of the frames of a PCM audio format.
+   *
+   * @param format audio format
+   * @return sample format to pass to {@link State#addFramesBytes}
+   * @throws IllegalArgumentException if the format is not PCM or its sample size is not supported
+   */
+  public static SampleFormat toSampleFormat(AudioFormat format) {
+    AudioFormat.Encoding encoding = format.getEncoding();
+    int channels = format.getChannels();
+    int bits = format.getSampleSizeInBits();
+    if (channels <= 0 || bits <= 0) {
+      throw new IllegalArgumentException("Unsupported audio format: " + format);
+    }
+    int bytesPerSample = format.getFrameSize() > 0 ? format.getFrameSize() / channels : (bits + 7) / 8;
+    ByteOrder order = format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+      if (bits != bytesPerSample * 8) {
+        throw new IllegalArgumentException("Unsupported audio format: " + format);
+      }
+      return SampleFormat.floatingPoint(bytesPerSample, order);
+    }
+    boolean signed = AudioFormat.Encoding.PCM_SIGNED.equals(encoding);
+    if (!signed && !AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
+      throw new IllegalArgumentException("Unsupported encoding " + encoding + ", convert to PCM first");
+    }
+    return SampleFormat.integer(bytesPerSample, bits, signed, order);
+  }
+
+  /**
+   * Read bytes from the source and add the frames they hold to the state. Whole frames are
+   * returned, as by {@link AudioInputStream#read(byte[], int, int)}.
+   *
+   * @throws Exception if the state rejects the frames
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = super.read(b, off, len);
+    if (read > 0) {
+      int result = state.addFramesBytes(b, off, read / frameSize, sampleFormat);
+      if (result != Error.SUCCESS) {
+        throw new Exception("Failed to add frames", result);
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readlimit) {
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * Get the state the frames are added to.
+   *
+   * @return the state
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Get the sample format of the frames of the source.
+   *
+   * @return sample format
+   */
+  public SampleFormat getSampleFormat() {
+    return sampleFormat;
+  }
+
+  /**
+   * Close the source, and the state if it was created by this stream.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      if (ownsState) {
+        state.close();
+      }
+    }
+  }
+}
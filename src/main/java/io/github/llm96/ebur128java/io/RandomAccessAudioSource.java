@@ -0,0 +1,40 @@
+package io.github.llm96.ebur128java.io;
+
+import java.io.IOException;
+
+/**
+ * Audio of known length whose frames can be read from any position, for example a file.
+ */
+public interface RandomAccessAudioSource {
+  /**
+   * Get the number of channels.
+   *
+   * @return number of channels
+   */
+  int getChannels();
+
+  /**
+   * Get the sample rate.
+   *
+   * @return sample rate
+   */
+  long getSamplerate();
+
+  /**
+   * Get the total number of frames.
+   *
+   * @return number of frames
+   */
+  long getFrames();
+
+  /**
+   * Open a range of frames as a sequential source. May be called concurrently, each returned
+   * source is read by a single thread.
+   *
+   * @param start  first frame of the range
+   * @param frames number of frames in the range
+   * @return source of the range, to be closed by the caller
+   * @throws IOException if the range cannot be opened
+   */
+  AudioSource open(long start, long frames) throws IOException;
+}
@@ -5,12 +5,41 @@ import com.sun.jna.Pointer;
 import com.sun.jna.ptr.DoubleByReference;
 import com.sun.jna.ptr.IntByReference;
 import com.sun.jna.ptr.PointerByReference;
+import io.github.llm96.ebur128java.metrics.Instrumentation;
 
 public class Ebur128 {
-  private static Ebur128Library library;
+  /**
+   * System property selecting how the native library is bound: "direct" (default) or "interface".
+   */
+  public static final String MAPPING_PROPERTY = "ebur128java.mapping";
+
+  private static final Ebur128Library library;
+  private static final boolean direct;
 
   static {
-    library = Native.loadLibrary("ebur128", Ebur128Library.class);
+    String libraryName = NativeLoader.getLibraryName();
+    Ebur128Library loaded = null;
+    if (!"interface".equalsIgnoreCase(System.getProperty(MAPPING_PROPERTY, "direct"))) {
+      try {
+        loaded = new Ebur128Direct(libraryName);
+      } catch (LinkageError e) {
+        // direct mapping unavailable, fall back to the interface proxy
+      }
+    }
+    direct = loaded != null;
+    if (loaded == null) {
+      loaded = Native.loadLibrary(libraryName, Ebur128Library.class);
+    }
+    library = loaded;
+  }
+
+  /**
+   * Check whether the library is bound with direct mapping.
+   *
+   * @return true for direct mapping, false for the interface proxy
+   */
+  public static boolean isDirectMapping() {
+    return direct;
   }
 
   /**
@@ -108,6 +137,18 @@ public class Ebur128 {
     return library.ebur128_add_frames_short(state, src, frames);
   }
 
+  /**
+   * Add frames to be processed (short samples) from native memory, without copying.
+   *
+   * @param state  library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code
+   */
+  public static int addFramesShort(Pointer state, Pointer src, long frames) {
+    return library.ebur128_add_frames_short(state, src, frames);
+  }
+
   /**
    * Add frames to be processed (int samples).
    *
@@ -120,6 +161,18 @@ public class Ebur128 {
     return library.ebur128_add_frames_int(state, src, frames);
   }
 
+  /**
+   * Add frames to be processed (int samples) from native memory, without copying.
+   *
+   * @param state  library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code
+   */
+  public static int addFramesInt(Pointer state, Pointer src, long frames) {
+    return library.ebur128_add_frames_int(state, src, frames);
+  }
+
   /**
    * Add frames to be processed (float samples).
    *
@@ -132,6 +185,18 @@ public class Ebur128 {
     return library.ebur128_add_frames_float(state, src, frames);
   }
 
+  /**
+   * Add frames to be processed (float samples) from native memory, without copying.
+   *
+   * @param state  library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code
+   */
+  public static int addFramesFloat(Pointer state, Pointer src, long frames) {
+    return library.ebur128_add_frames_float(state, src, frames);
+  }
+
   /**
    * Add frames to be processed (double samples).
    *
@@ -144,6 +209,18 @@ public class Ebur128 {
     return library.ebur128_add_frames_double(state, src, frames);
   }
 
+  /**
+   * Add frames to be processed (double samples) from native memory, without copying.
+   *
+   * @param state  library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code
+   */
+  public static int addFramesDouble(Pointer state, Pointer src, long frames) {
+    return library.ebur128_add_frames_double(state, src, frames);
+  }
+
   /**
    * Get global integrated loudness in LUFS.
    *
@@ -151,11 +228,22 @@ public class Ebur128 {
    * @return integrated loudness in LUFS, or Double.NEGATIVE_INFINITY on error
    */
   public static double loudnessGlobal(Pointer state) {
-    DoubleByReference out = new DoubleByReference();
+    return loudnessGlobal(state, new DoubleByReference());
+  }
+
+  /**
+   * Get global integrated loudness in LUFS.
+   *
+   * @param state library state
+   * @param out   reusable holder of the result
+   * @return integrated loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  public static double loudnessGlobal(Pointer state, DoubleByReference out) {
     int result = library.ebur128_loudness_global(state, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -171,6 +259,7 @@ public class Ebur128 {
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -181,11 +270,22 @@ public class Ebur128 {
    * @return momentary loudness in LUFS, or Double.NEGATIVE_INFINITY on error
    */
   public static double loudnessMomentary(Pointer state) {
-    DoubleByReference out = new DoubleByReference();
+    return loudnessMomentary(state, new DoubleByReference());
+  }
+
+  /**
+   * Get momentary loudness (last 400ms) in LUFS.
+   *
+   * @param state library state
+   * @param out   reusable holder of the result
+   * @return momentary loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  public static double loudnessMomentary(Pointer state, DoubleByReference out) {
     int result = library.ebur128_loudness_momentary(state, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -196,11 +296,22 @@ public class Ebur128 {
    * @return short-term loudness in LUFS, or Double.NEGATIVE_INFINITY on error
    */
   public static double loudnessShortterm(Pointer state) {
-    DoubleByReference out = new DoubleByReference();
+    return loudnessShortterm(state, new DoubleByReference());
+  }
+
+  /**
+   * Get short-term loudness (last 3s) in LUFS.
+   *
+   * @param state library state
+   * @param out   reusable holder of the result
+   * @return short-term loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  public static double loudnessShortterm(Pointer state, DoubleByReference out) {
     int result = library.ebur128_loudness_shortterm(state, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -212,11 +323,23 @@ public class Ebur128 {
    * @return loudness in LUFS, or Double.NEGATIVE_INFINITY on error
    */
   public static double loudnessWindow(Pointer state, long window) {
-    DoubleByReference out = new DoubleByReference();
+    return loudnessWindow(state, window, new DoubleByReference());
+  }
+
+  /**
+   * Get loudness of the specified window in LUFS.
+   *
+   * @param state  library state
+   * @param window window in ms to calculate loudness
+   * @param out    reusable holder of the result
+   * @return loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  public static double loudnessWindow(Pointer state, long window, DoubleByReference out) {
     int result = library.ebur128_loudness_window(state, window, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -227,11 +350,22 @@ public class Ebur128 {
    * @return loudness range (LRA) in LU, or Double.NEGATIVE_INFINITY on error
    */
   public static double loudnessRange(Pointer state) {
-    DoubleByReference out = new DoubleByReference();
+    return loudnessRange(state, new DoubleByReference());
+  }
+
+  /**
+   * Get loudness range (LRA) of programme in LU.
+   *
+   * @param state library state
+   * @param out   reusable holder of the result
+   * @return loudness range (LRA) in LU, or Double.NEGATIVE_INFINITY on error
+   */
+  public static double loudnessRange(Pointer state, DoubleByReference out) {
     int result = library.ebur128_loudness_range(state, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -247,6 +381,7 @@ public class Ebur128 {
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -258,11 +393,23 @@ public class Ebur128 {
    * @return maximum sample peak in float format (1.0 is 0 dBFS), or Double.NEGATIVE_INFINITY on error
    */
   public static double samplePeak(Pointer state, int channelNumber) {
-    DoubleByReference out = new DoubleByReference();
+    return samplePeak(state, channelNumber, new DoubleByReference());
+  }
+
+  /**
+   * Get maximum sample peak from all frames that have been processed.
+   *
+   * @param state         library state
+   * @param channelNumber channel to analyse
+   * @param out           reusable holder of the result
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or Double.NEGATIVE_INFINITY on error
+   */
+  public static double samplePeak(Pointer state, int channelNumber, DoubleByReference out) {
     int result = library.ebur128_sample_peak(state, channelNumber, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -274,11 +421,23 @@ public class Ebur128 {
    * @return maximum sample peak in float format (1.0 is 0 dBFS), or Double.NEGATIVE_INFINITY on error
    */
   public static double prevSamplePeak(Pointer state, int channelNumber) {
-    DoubleByReference out = new DoubleByReference();
+    return prevSamplePeak(state, channelNumber, new DoubleByReference());
+  }
+
+  /**
+   * Get maximum sample peak from the last call to add_frames().
+   *
+   * @param state         library state
+   * @param channelNumber channel to analyse
+   * @param out           reusable holder of the result
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or Double.NEGATIVE_INFINITY on error
+   */
+  public static double prevSamplePeak(Pointer state, int channelNumber, DoubleByReference out) {
     int result = library.ebur128_prev_sample_peak(state, channelNumber, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -290,11 +449,23 @@ public class Ebur128 {
    * @return maximum true peak in float format (1.0 is 0 dBTP), or Double.NEGATIVE_INFINITY on error
    */
   public static double truePeak(Pointer state, int channelNumber) {
-    DoubleByReference out = new DoubleByReference();
+    return truePeak(state, channelNumber, new DoubleByReference());
+  }
+
+  /**
+   * Get maximum true peak from all frames that have been processed.
+   *
+   * @param state         library state
+   * @param channelNumber channel to analyse
+   * @param out           reusable holder of the result
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or Double.NEGATIVE_INFINITY on error
+   */
+  public static double truePeak(Pointer state, int channelNumber, DoubleByReference out) {
     int result = library.ebur128_true_peak(state, channelNumber, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -306,11 +477,23 @@ public class Ebur128 {
    * @return maximum true peak in float format (1.0 is 0 dBTP), or Double.NEGATIVE_INFINITY on error
    */
   public static double prevTruePeak(Pointer state, int channelNumber) {
-    DoubleByReference out = new DoubleByReference();
+    return prevTruePeak(state, channelNumber, new DoubleByReference());
+  }
+
+  /**
+   * Get maximum true peak from the last call to add_frames().
+   *
+   * @param state         library state
+   * @param channelNumber channel to analyse
+   * @param out           reusable holder of the result
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or Double.NEGATIVE_INFINITY on error
+   */
+  public static double prevTruePeak(Pointer state, int channelNumber, DoubleByReference out) {
     int result = library.ebur128_prev_true_peak(state, channelNumber, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 
@@ -321,11 +504,22 @@ public class Ebur128 {
    * @return relative threshold in LUFS, or Double.NEGATIVE_INFINITY on error
    */
   public static double relativeThreshold(Pointer state) {
-    DoubleByReference out = new DoubleByReference();
+    return relativeThreshold(state, new DoubleByReference());
+  }
+
+  /**
+   * Get relative threshold in LUFS.
+   *
+   * @param state library state
+   * @param out   reusable holder of the result
+   * @return relative threshold in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  public static double relativeThreshold(Pointer state, DoubleByReference out) {
     int result = library.ebur128_relative_threshold(state, out);
     if (result == 0) {
       return out.getValue();
     }
+    Instrumentation.recordError(result);
     return Double.NEGATIVE_INFINITY;
   }
 }
@@ -0,0 +1,233 @@
+package io.github.llm96.ebur128java.jna;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.DoubleByReference;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * Direct-mapped implementation of {@link Ebur128Library}.
+ * <p>
+ * The functions are bound with {@link Native#register(Class, String)} to static native methods,
+ * which avoids the reflection and argument marshalling of the interface proxy used by
+ * {@link Native#load(String, Class)}.
+ */
+final class Ebur128Direct implements Ebur128Library {
+  Ebur128Direct(String libraryName) {
+    Native.register(Functions.class, libraryName);
+  }
+
+  @Override
+  public void ebur128_get_version(IntByReference major, IntByReference minor, IntByReference patch) {
+    Functions.ebur128_get_version(major, minor, patch);
+  }
+
+  @Override
+  public Pointer ebur128_init(int channels, long samplerate, int mode) {
+    return Functions.ebur128_init(channels, samplerate, mode);
+  }
+
+  @Override
+  public void ebur128_destroy(PointerByReference st) {
+    Functions.ebur128_destroy(st);
+  }
+
+  @Override
+  public int ebur128_set_channel(Pointer st, int channel_number, int value) {
+    return Functions.ebur128_set_channel(st, channel_number, value);
+  }
+
+  @Override
+  public int ebur128_change_parameters(Pointer st, int channels, long samplerate) {
+    return Functions.ebur128_change_parameters(st, channels, samplerate);
+  }
+
+  @Override
+  public int ebur128_set_max_window(Pointer st, long window) {
+    return Functions.ebur128_set_max_window(st, window);
+  }
+
+  @Override
+  public int ebur128_set_max_history(Pointer st, long history) {
+    return Functions.ebur128_set_max_history(st, history);
+  }
+
+  @Override
+  public int ebur128_add_frames_short(Pointer st, short[] src, long frames) {
+    return Functions.ebur128_add_frames_short(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_short(Pointer st, Pointer src, long frames) {
+    return Functions.ebur128_add_frames_short(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_int(Pointer st, int[] src, long frames) {
+    return Functions.ebur128_add_frames_int(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_int(Pointer st, Pointer src, long frames) {
+    return Functions.ebur128_add_frames_int(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_float(Pointer st, float[] src, long frames) {
+    return Functions.ebur128_add_frames_float(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_float(Pointer st, Pointer src, long frames) {
+    return Functions.ebur128_add_frames_float(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_double(Pointer st, double[] src, long frames) {
+    return Functions.ebur128_add_frames_double(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_add_frames_double(Pointer st, Pointer src, long frames) {
+    return Functions.ebur128_add_frames_double(st, src, frames);
+  }
+
+  @Override
+  public int ebur128_loudness_global(Pointer st, DoubleByReference out) {
+    return Functions.ebur128_loudness_global(st, out);
+  }
+
+  @Override
+  public int ebur128_loudness_global_multiple(Pointer[] sts, long size, DoubleByReference out) {
+    return Functions.ebur128_loudness_global_multiple(toMemory(sts), size, out);
+  }
+
+  @Override
+  public int ebur128_loudness_momentary(Pointer st, DoubleByReference out) {
+    return Functions.ebur128_loudness_momentary(st, out);
+  }
+
+  @Override
+  public int ebur128_loudness_shortterm(Pointer st, DoubleByReference out) {
+    return Functions.ebur128_loudness_shortterm(st, out);
+  }
+
+  @Override
+  public int ebur128_loudness_window(Pointer st, long window, DoubleByReference out) {
+    return Functions.ebur128_loudness_window(st, window, out);
+  }
+
+  @Override
+  public int ebur128_loudness_range(Pointer st, DoubleByReference out) {
+    return Functions.ebur128_loudness_range(st, out);
+  }
+
+  @Override
+  public int ebur128_loudness_range_multiple(Pointer[] sts, long size, DoubleByReference out) {
+    return Functions.ebur128_loudness_range_multiple(toMemory(sts), size, out);
+  }
+
+  @Override
+  public int ebur128_sample_peak(Pointer st, int channel_number, DoubleByReference out) {
+    return Functions.ebur128_sample_peak(st, channel_number, out);
+  }
+
+  @Override
+  public int ebur128_prev_sample_peak(Pointer st, int channel_number, DoubleByReference out) {
+    return Functions.ebur128_prev_sample_peak(st, channel_number, out);
+  }
+
+  @Override
+  public int ebur128_true_peak(Pointer st, int channel_number, DoubleByReference out) {
+    return Functions.ebur128_true_peak(st, channel_number, out);
+  }
+
+  @Override
+  public int ebur128_prev_true_peak(Pointer st, int channel_number, DoubleByReference out) {
+    return Functions.ebur128_prev_true_peak(st, channel_number, out);
+  }
+
+  @Override
+  public int ebur128_relative_threshold(Pointer st, DoubleByReference out) {
+    return Functions.ebur128_relative_threshold(st, out);
+  }
+
+  /**
+   * Direct mapping does not support arrays of pointers, so the array is copied into native memory.
+   *
+   * @param pointers array of pointers
+   * @return native array holding the pointers
+   */
+  private static Pointer toMemory(Pointer[] pointers) {
+    if (pointers.length == 0) {
+      return null;
+    }
+    Memory memory = new Memory((long) Native.POINTER_SIZE * pointers.length);
+    memory.write(0, pointers, 0, pointers.length);
+    return memory;
+  }
+
+  /**
+   * Native functions, registered by the constructor of the enclosing class.
+   */
+  private static final class Functions {
+    private Functions() {
+    }
+
+    static native void ebur128_get_version(IntByReference major, IntByReference minor, IntByReference patch);
+
+    static native Pointer ebur128_init(int channels, long samplerate, int mode);
+
+    static native void ebur128_destroy(PointerByReference st);
+
+    static native int ebur128_set_channel(Pointer st, int channel_number, int value);
+
+    static native int ebur128_change_parameters(Pointer st, int channels, long samplerate);
+
+    static native int ebur128_set_max_window(Pointer st, long window);
+
+    static native int ebur128_set_max_history(Pointer st, long history);
+
+    static native int ebur128_add_frames_short(Pointer st, short[] src, long frames);
+
+    static native int ebur128_add_frames_short(Pointer st, Pointer src, long frames);
+
+    static native int ebur128_add_frames_int(Pointer st, int[] src, long frames);
+
+    static native int ebur128_add_frames_int(Pointer st, Pointer src, long frames);
+
+    static native int ebur128_add_frames_float(Pointer st, float[] src, long frames);
+
+    static native int ebur128_add_frames_float(Pointer st, Pointer src, long frames);
+
+    static native int ebur128_add_frames_double(Pointer st, double[] src, long frames);
+
+    static native int ebur128_add_frames_double(Pointer st, Pointer src, long frames);
+
+    static native int ebur128_loudness_global(Pointer st, DoubleByReference out);
+
+    static native int ebur128_loudness_global_multiple(Pointer sts, long size, DoubleByReference out);
+
+    static native int ebur128_loudness_momentary(Pointer st, DoubleByReference out);
+
+    static native int ebur128_loudness_shortterm(Pointer st, DoubleByReference out);
+
+    static native int ebur128_loudness_window(Pointer st, long window, DoubleByReference out);
+
+    static native int ebur128_loudness_range(Pointer st, DoubleByReference out);
+
+    static native int ebur128_loudness_range_multiple(Pointer sts, long size, DoubleByReference out);
+
+    static native int ebur128_sample_peak(Pointer st, int channel_number, DoubleByReference out);
+
+    static native int ebur128_prev_sample_peak(Pointer st, int channel_number, DoubleByReference out);
+
+    static native int ebur128_true_peak(Pointer st, int channel_number, DoubleByReference out);
+
+    static native int ebur128_prev_true_peak(Pointer st, int channel_number, DoubleByReference out);
+
+    static native int ebur128_relative_threshold(Pointer st, DoubleByReference out);
+  }
+}
@@ -81,6 +81,16 @@ public interface Ebur128Library extends Library {
    */
   int ebur128_add_frames_short(Pointer st, short[] src, long frames);
 
+  /**
+   * Add frames to be processed (short samples) from native memory.
+   *
+   * @param st     library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return EBUR128_SUCCESS on success
+   */
+  int ebur128_add_frames_short(Pointer st, Pointer src, long frames);
+
   /**
    * Add frames to be processed (int samples).
    *
@@ -91,6 +101,16 @@ public interface Ebur128Library extends Library {
    */
   int ebur128_add_frames_int(Pointer st, int[] src, long frames);
 
+  /**
+   * Add frames to be processed (int samples) from native memory.
+   *
+   * @param st     library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return EBUR128_SUCCESS on success
+   */
+  int ebur128_add_frames_int(Pointer st, Pointer src, long frames);
+
   /**
    * Add frames to be processed (float samples).
    *
@@ -101,6 +121,16 @@ public interface Ebur128Library extends Library {
    */
   int ebur128_add_frames_float(Pointer st, float[] src, long frames);
 
+  /**
+   * Add frames to be processed (float samples) from native memory.
+   *
+   * @param st     library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return EBUR128_SUCCESS on success
+   */
+  int ebur128_add_frames_float(Pointer st, Pointer src, long frames);
+
   /**
    * Add frames to be processed (double samples).
    *
@@ -111,6 +141,16 @@ public interface Ebur128Library extends Library {
    */
   int ebur128_add_frames_double(Pointer st, double[] src, long frames);
 
+  /**
+   * Add frames to be processed (double samples) from native memory.
+   *
+   * @param st     library state
+   * @param src    pointer to source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return EBUR128_SUCCESS on success
+   */
+  int ebur128_add_frames_double(Pointer st, Pointer src, long frames);
+
   /**
    * Get global integrated loudness in LUFS.
    *
@@ -0,0 +1,81 @@
+package io.github.llm96.ebur128java.jna;
+
+import com.sun.jna.Pointer;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Backend calling libebur128 through JNA, see {@link Ebur128}.
+ */
+public final class JnaBackend implements Backend {
+  public static final String NAME = "jna";
+
+  /**
+   * Create the backend, loading the native library.
+   *
+   * @throws UnsatisfiedLinkError if the native library cannot be loaded
+   */
+  public JnaBackend() {
+    try {
+      Ebur128.isDirectMapping();
+    } catch (UnsatisfiedLinkError e) {
+      IOException failure = NativeLoader.getFailure();
+      if (failure != null) {
+        e.addSuppressed(failure);
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getPriority() {
+    return 100;
+  }
+
+  @Override
+  public int[] getVersion() {
+    return Ebur128.getVersion();
+  }
+
+  @Override
+  public Engine init(int channels, long samplerate, int mode) {
+    Pointer state = Ebur128.init(channels, samplerate, mode);
+    return state == null ? null : new JnaEngine(state, channels, samplerate, mode);
+  }
+
+  @Override
+  public Engine restore(DataInput in) {
+    throw new UnsupportedOperationException("libebur128 does not expose its state, use the java backend");
+  }
+
+  @Override
+  public double loudnessGlobalMultiple(Engine[] engines) {
+    return Ebur128.loudnessGlobalMultiple(toPointers(engines));
+  }
+
+  @Override
+  public double loudnessRangeMultiple(Engine[] engines) {
+    return Ebur128.loudnessRangeMultiple(toPointers(engines));
+  }
+
+  private static Pointer[] toPointers(Engine[] engines) {
+    Pointer[] states = new Pointer[engines.length];
+    for (int i = 0; i < engines.length; i++) {
+      states[i] = ((JnaEngine) engines[i]).state;
+    }
+    return states;
+  }
+
+  @Override
+  public String toString() {
+    return NAME + (Ebur128.isDirectMapping() ? " (direct)" : " (interface)");
+  }
+}
@@ -0,0 +1,272 @@
+package io.github.llm96.ebur128java.jna;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.DoubleByReference;
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.metrics.Instrumentation;
+import io.github.llm96.ebur128java.spi.Engine;
+import io.github.llm96.ebur128java.spi.Interleaver;
+
+import java.io.DataOutput;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Engine wrapping a native libebur128 state.
+ */
+final class JnaEngine implements Engine {
+  Pointer state;
+
+  /** parameters and settings to restore when the state is reset */
+  private final int mode;
+  private int channels;
+  private long samplerate;
+  private int[] channelTypes;
+  private long maxWindow = -1;
+  private long maxHistory = -1;
+
+  /** reusable out-parameter of the loudness getters */
+  private final DoubleByReference out = new DoubleByReference();
+
+  /** off-heap scratch for planar input, which libebur128 only accepts interleaved */
+  private final Interleaver interleaver = new Interleaver(this::addFrames);
+
+  /** reusable pointer handed to the native add_frames functions */
+  private final Pointer source = new Pointer(0);
+  private ByteBuffer lastBuffer;
+  private long lastBufferAddress;
+
+  JnaEngine(Pointer state, int channels, long samplerate, int mode) {
+    this.state = state;
+    this.channels = channels;
+    this.samplerate = samplerate;
+    this.mode = mode;
+  }
+
+  @Override
+  public int setChannel(int channelNumber, int value) {
+    int result = Ebur128.setChannel(state, channelNumber, value);
+    if (result == Error.SUCCESS) {
+      if (channelTypes == null) {
+        channelTypes = new int[channels];
+        Arrays.fill(channelTypes, -1);
+      }
+      channelTypes[channelNumber] = value;
+    }
+    return result;
+  }
+
+  @Override
+  public int changeParameters(int channels, long samplerate) {
+    int result = Ebur128.changeParameters(state, channels, samplerate);
+    if (result == Error.SUCCESS) {
+      if (channels != this.channels) {
+        // libebur128 restores the default channel types
+        channelTypes = null;
+      }
+      this.channels = channels;
+      this.samplerate = samplerate;
+    }
+    return result;
+  }
+
+  @Override
+  public int setMaxWindow(long window) {
+    int result = Ebur128.setMaxWindow(state, window);
+    if (result == Error.SUCCESS) {
+      maxWindow = window;
+    }
+    return result;
+  }
+
+  @Override
+  public int setMaxHistory(long history) {
+    int result = Ebur128.setMaxHistory(state, history);
+    if (result == Error.SUCCESS) {
+      maxHistory = history;
+    }
+    return result;
+  }
+
+  /**
+   * libebur128 cannot discard its block lists, so the state is replaced by a new one with the same
+   * settings. If a setting cannot be applied to the new state, the old one is kept and the error
+   * is returned.
+   */
+  @Override
+  public int reset() {
+    Pointer fresh = Ebur128.init(channels, samplerate, mode);
+    if (fresh == null) {
+      return Error.ERROR_NOMEM;
+    }
+    int result = Error.SUCCESS;
+    if (channelTypes != null) {
+      for (int c = 0; c < channels && result == Error.SUCCESS; c++) {
+        if (channelTypes[c] >= 0) {
+          result = Ebur128.setChannel(fresh, c, channelTypes[c]);
+        }
+      }
+    }
+    if (result == Error.SUCCESS && maxWindow >= 0) {
+      result = replayed(Ebur128.setMaxWindow(fresh, maxWindow));
+    }
+    if (result == Error.SUCCESS && maxHistory >= 0) {
+      result = replayed(Ebur128.setMaxHistory(fresh, maxHistory));
+    }
+    if (result != Error.SUCCESS) {
+      Ebur128.destroy(fresh);
+      return result;
+    }
+    Ebur128.destroy(state);
+    state = fresh;
+    return Error.SUCCESS;
+  }
+
+  /**
+   * A setting equal to the default of the new state is not an error.
+   */
+  private static int replayed(int result) {
+    return result == Error.ERROR_NO_CHANGE ? Error.SUCCESS : result;
+  }
+
+  @Override
+  public int addFramesShort(short[] src, long frames) {
+    // JNA copies the array to native memory and back
+    Instrumentation.recordMarshalled(2 * frames * channels * Short.BYTES);
+    return Ebur128.addFramesShort(state, src, frames);
+  }
+
+  @Override
+  public int addFramesInt(int[] src, long frames) {
+    // JNA copies the array to native memory and back
+    Instrumentation.recordMarshalled(2 * frames * channels * Integer.BYTES);
+    return Ebur128.addFramesInt(state, src, frames);
+  }
+
+  @Override
+  public int addFramesFloat(float[] src, long frames) {
+    // JNA copies the array to native memory and back
+    Instrumentation.recordMarshalled(2 * frames * channels * Float.BYTES);
+    return Ebur128.addFramesFloat(state, src, frames);
+  }
+
+  @Override
+  public int addFramesDouble(double[] src, long frames) {
+    // JNA copies the array to native memory and back
+    Instrumentation.recordMarshalled(2 * frames * channels * Double.BYTES);
+    return Ebur128.addFramesDouble(state, src, frames);
+  }
+
+  @Override
+  public int addFrames(ByteBuffer src, long frames, SampleFormat format) {
+    if (src != lastBuffer) {
+      lastBufferAddress = Pointer.nativeValue(Native.getDirectBufferPointer(src));
+      lastBuffer = src;
+    }
+    return addFrames(lastBufferAddress + src.position(), frames, format);
+  }
+
+  @Override
+  public int addFrames(long address, long frames, SampleFormat format) {
+    Pointer.nativeValue(source, address);
+    if (format == SampleFormat.SHORT) {
+      return Ebur128.addFramesShort(state, source, frames);
+    } else if (format == SampleFormat.INT) {
+      return Ebur128.addFramesInt(state, source, frames);
+    } else if (format == SampleFormat.FLOAT) {
+      return Ebur128.addFramesFloat(state, source, frames);
+    } else if (format == SampleFormat.DOUBLE) {
+      return Ebur128.addFramesDouble(state, source, frames);
+    }
+    throw new IllegalArgumentException("Unsupported sample format: " + format);
+  }
+
+  @Override
+  public int addFramesPlanar(short[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(int[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(float[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(double[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(ByteBuffer[] src, long frames, SampleFormat format) {
+    return interleaver.addFrames(src, frames, format);
+  }
+
+  @Override
+  public double loudnessGlobal() {
+    return Ebur128.loudnessGlobal(state, out);
+  }
+
+  @Override
+  public double loudnessMomentary() {
+    return Ebur128.loudnessMomentary(state, out);
+  }
+
+  @Override
+  public double loudnessShortterm() {
+    return Ebur128.loudnessShortterm(state, out);
+  }
+
+  @Override
+  public double loudnessWindow(long window) {
+    return Ebur128.loudnessWindow(state, window, out);
+  }
+
+  @Override
+  public double loudnessRange() {
+    return Ebur128.loudnessRange(state, out);
+  }
+
+  @Override
+  public double samplePeak(int channelNumber) {
+    return Ebur128.samplePeak(state, channelNumber, out);
+  }
+
+  @Override
+  public double prevSamplePeak(int channelNumber) {
+    return Ebur128.prevSamplePeak(state, channelNumber, out);
+  }
+
+  @Override
+  public double truePeak(int channelNumber) {
+    return Ebur128.truePeak(state, channelNumber, out);
+  }
+
+  @Override
+  public double prevTruePeak(int channelNumber) {
+    return Ebur128.prevTruePeak(state, channelNumber, out);
+  }
+
+  @Override
+  public double relativeThreshold() {
+    return Ebur128.relativeThreshold(state, out);
+  }
+
+  @Override
+  public void save(DataOutput out) {
+    throw new UnsupportedOperationException("libebur128 does not expose its state, use the java backend");
+  }
+
+  @Override
+  public void destroy() {
+    Ebur128.destroy(state);
+    state = null;
+    lastBuffer = null;
+  }
+}
@@ -0,0 +1,275 @@
+package io.github.llm96.ebur128java.jna;
+
+import com.sun.jna.Platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Location of the libebur128 binary bundled in the jar.
+ * <p>
+ * The jar carries a build of libebur128 per platform under the JNA resource prefix, e.g.
+ * {@code linux-x86-64/libebur128.so}, with its SHA-256 in a {@code .sha256} file next to it. The
+ * binary for the running platform is extracted once into
+ * {@code <cache>/<version>/<platform>/<checksum>/} and reused by later JVMs after its checksum
+ * has been verified, instead of JNA extracting it into a new temporary file at every start.
+ * Extraction writes a temporary file and moves it into place, so concurrent JVMs never load a
+ * partial copy.
+ * <p>
+ * The cache directory is {@value #CACHE_PROPERTY} if set, else {@code ~/.cache/ebur128java} if it
+ * is writable, else {@code ebur128java-<user>} in {@code java.io.tmpdir}, which is only used if
+ * it is owned by the current user and is made accessible to that user only. Setting
+ * {@value #BUNDLED_PROPERTY} to false, or running on a platform without a bundled binary, leaves
+ * the search to JNA (jna.library.path, then the system search path).
+ * <p>
+ * The lookup happens once, when the native backends are first loaded; see
+ * {@link io.github.llm96.ebur128java.spi.Backends#preload()} to do it ahead of time.
+ */
+public final class NativeLoader {
+  /**
+   * System property selecting whether the bundled binary is used, "true" (default) or "false".
+   */
+  public static final String BUNDLED_PROPERTY = "ebur128java.bundled";
+
+  /**
+   * System property overriding the directory the bundled binary is extracted into.
+   */
+  public static final String CACHE_PROPERTY = "ebur128java.nativeCache";
+
+  static final String LIBRARY_NAME = "ebur128";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private NativeLoader() {
+  }
+
+  /**
+   * Get the name to load libebur128 by.
+   *
+   * @return absolute path of the extracted binary, or the library name if it is not used
+   */
+  public static String getLibraryName() {
+    File file = getBundledFile();
+    return file != null ? file.getAbsolutePath() : LIBRARY_NAME;
+  }
+
+  /**
+   * Get the bundled binary, extracting it on the first call.
+   *
+   * @return extracted binary, or null if there is none for this platform, it is disabled or it
+   * could not be extracted
+   */
+  public static File getBundledFile() {
+    return Holder.FILE;
+  }
+
+  /**
+   * Get the reason the bundled binary is not used.
+   *
+   * @return failure to extract or verify it, or null
+   */
+  public static IOException getFailure() {
+    return Holder.FAILURE;
+  }
+
+  private static final class Holder {
+    static IOException FAILURE;
+    static final File FILE = locate();
+
+    private Holder() {
+    }
+
+    private static File locate() {
+      if (!Boolean.parseBoolean(System.getProperty(BUNDLED_PROPERTY, "true"))) {
+        return null;
+      }
+      try {
+        return extract(Platform.RESOURCE_PREFIX + "/" + System.mapLibraryName(LIBRARY_NAME));
+      } catch (IOException e) {
+        // JNA extracts the resource into a temporary file itself as a last resort
+        FAILURE = e;
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Extract a resource into the cache unless a verified copy is already there.
+   *
+   * @return extracted file, or null if the resource does not exist
+   */
+  private static File extract(String resource) throws IOException {
+    ClassLoader loader = NativeLoader.class.getClassLoader();
+    if (loader == null || loader.getResource(resource) == null) {
+      return null;
+    }
+    String checksum = readChecksum(loader, resource + ".sha256");
+    if (checksum == null) {
+      // built without checksum files: trust the jar and verify the copy against it
+      try (InputStream in = loader.getResourceAsStream(resource)) {
+        checksum = sha256(in, null);
+      }
+    }
+    String name = resource.substring(resource.lastIndexOf('/') + 1);
+    Path directory = cacheDirectory().resolve(version()).resolve(Platform.RESOURCE_PREFIX)
+        .resolve(checksum.substring(0, 16));
+    Path target = directory.resolve(name);
+    if (Files.isRegularFile(target) && checksum.equals(sha256(target))) {
+      return target.toFile();
+    }
+
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, name, ".tmp");
+    try {
+      String actual;
+      try (InputStream in = loader.getResourceAsStream(resource);
+           OutputStream out = Files.newOutputStream(temp)) {
+        actual = sha256(in, out);
+      }
+      if (!checksum.equals(actual)) {
+        throw new IOException("Checksum mismatch for " + resource + ": expected " + checksum + ", got " + actual);
+      }
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      // another JVM may have won the race, or holds a loaded copy that cannot be replaced
+      if (Files.isRegularFile(target) && checksum.equals(sha256(target))) {
+        return target.toFile();
+      }
+      throw e;
+    }
+    return target.toFile();
+  }
+
+  private static String readChecksum(ClassLoader loader, String resource) throws IOException {
+    try (InputStream in = loader.getResourceAsStream(resource)) {
+      if (in == null) {
+        return null;
+      }
+      byte[] bytes = new byte[64];
+      int length = 0;
+      int read;
+      while (length < bytes.length && (read = in.read(bytes, length, bytes.length - length)) > 0) {
+        length += read;
+      }
+      if (length < bytes.length) {
+        throw new IOException("Invalid checksum in " + resource);
+      }
+      return new String(bytes, StandardCharsets.US_ASCII).toLowerCase();
+    }
+  }
+
+  private static Path cacheDirectory() throws IOException {
+    String configured = System.getProperty(CACHE_PROPERTY);
+    if (configured != null) {
+      return Paths.get(configured);
+    }
+    Path home = Paths.get(System.getProperty("user.home"), ".cache", "ebur128java");
+    try {
+      Files.createDirectories(home);
+      if (Files.isWritable(home)) {
+        return home;
+      }
+    } catch (IOException | SecurityException e) {
+      // read-only home, as on serverless platforms
+    }
+    Path temp = Paths.get(System.getProperty("java.io.tmpdir"));
+    return privateDirectory(temp, temp.resolve("ebur128java-" + System.getProperty("user.name")));
+  }
+
+  /**
+   * Create or check a directory in a shared parent, so that no other user can replace the binary
+   * between its verification and its loading: it must be a real directory owned by this user,
+   * and is made accessible to its owner only where POSIX permissions are supported.
+   *
+   * @throws IOException if the directory belongs to someone else or cannot be secured
+   */
+  private static Path privateDirectory(Path parent, Path directory) throws IOException {
+    boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+    Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+    try {
+      if (posix) {
+        Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+      } else {
+        Files.createDirectory(directory);
+      }
+    } catch (FileAlreadyExistsException e) {
+      // created earlier, by this or another user: checked below
+    }
+    if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+      throw new IOException("Not a directory: " + directory);
+    }
+    // the owner of a file created now is the user running this JVM
+    Path probe = Files.createTempFile(parent, "ebur128java", ".owner");
+    UserPrincipal user;
+    try {
+      user = Files.getOwner(probe);
+    } finally {
+      Files.delete(probe);
+    }
+    UserPrincipal owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS);
+    if (!owner.equals(user)) {
+      throw new IOException("Directory " + directory + " is owned by " + owner.getName() + ", not " + user.getName());
+    }
+    if (posix && !Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS).equals(ownerOnly)) {
+      Files.setPosixFilePermissions(directory, ownerOnly);
+    }
+    return directory;
+  }
+
+  private static String version() {
+    String version = NativeLoader.class.getPackage().getImplementationVersion();
+    return version != null ? version : "dev";
+  }
+
+  private static String sha256(Path file) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      return sha256(in, null);
+    }
+  }
+
+  /**
+   * Digest a stream, copying it to out if not null.
+   */
+  private static String sha256(InputStream in, OutputStream out) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = in.read(buffer)) > 0) {
+      digest.update(buffer, 0, read);
+      if (out != null) {
+        out.write(buffer, 0, read);
+      }
+    }
+    StringBuilder hex = new StringBuilder(64);
+    for (byte b : digest.digest()) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,206 @@
+package io.github.llm96.ebur128java.metrics;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in instrumentation of the calls made by states into their backends.
+ * <p>
+ * Enabled with the {@value #INSTRUMENTATION_PROPERTY} system property, read once when the class is
+ * loaded. States created while it is enabled wrap their engine to time every call and count
+ * frames and error codes into {@link #getMetrics()}; on Java 11+ calls slower than the threshold
+ * of the {@code io.github.llm96.ebur128java.Call} JFR event (1 ms by default) are recorded while a
+ * flight recording is running. When disabled, states use their engine directly and the reporting
+ * methods below compile to nothing, so the hot path is unchanged.
+ * <p>
+ * The reporting methods are meant for backends, to account for work only they can see.
+ */
+public final class Instrumentation {
+  /**
+   * System property enabling instrumentation, "true" or "false" (default).
+   */
+  public static final String INSTRUMENTATION_PROPERTY = "ebur128java.instrumentation";
+
+  private static final boolean ENABLED = Boolean.getBoolean(INSTRUMENTATION_PROPERTY);
+
+  private static final Counters COUNTERS = new Counters();
+
+  private Instrumentation() {
+  }
+
+  /**
+   * Check whether instrumentation is enabled.
+   *
+   * @return value of the {@value #INSTRUMENTATION_PROPERTY} system property
+   */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Get the counters. They stay at zero while instrumentation is disabled.
+   *
+   * @return live view of the counters
+   */
+  public static Metrics getMetrics() {
+    return COUNTERS;
+  }
+
+  /**
+   * Set all counters to zero and restart the frame rate.
+   */
+  public static void reset() {
+    COUNTERS.reset();
+  }
+
+  /**
+   * Wrap an engine to instrument its calls if instrumentation is enabled.
+   *
+   * @param engine   engine to wrap
+   * @param backend  backend that created the engine
+   * @param channels number of channels of the engine
+   * @return the instrumented engine, or engine itself if instrumentation is disabled
+   */
+  public static Engine instrument(Engine engine, Backend backend, int channels) {
+    return ENABLED ? new InstrumentedEngine(engine, backend, channels, COUNTERS) : engine;
+  }
+
+  /**
+   * Get the engine wrapped by {@link #instrument}, to pass it back to its backend.
+   *
+   * @param engine engine that may be instrumented
+   * @return the engine of the backend
+   */
+  public static Engine unwrap(Engine engine) {
+    return engine instanceof InstrumentedEngine ? ((InstrumentedEngine) engine).delegate : engine;
+  }
+
+  /**
+   * Count bytes copied or interleaved to hand samples to native code.
+   *
+   * @param bytes number of bytes
+   */
+  public static void recordMarshalled(long bytes) {
+    if (ENABLED) {
+      COUNTERS.bytes.add(bytes);
+    }
+  }
+
+  /**
+   * Count an error that the backend cannot return as a code, such as a failed getter.
+   *
+   * @param code error code (see Error constants)
+   */
+  public static void recordError(int code) {
+    if (ENABLED) {
+      COUNTERS.error(code);
+    }
+  }
+
+  /**
+   * Counters shared by all instrumented engines.
+   */
+  static final class Counters implements Metrics {
+    /** error codes counted separately, from Error.ERROR_NOMEM to Error.ERROR_NO_CHANGE */
+    private static final int CODES = Error.ERROR_NO_CHANGE + 1;
+
+    final LongAdder calls = new LongAdder();
+    final LongAdder nativeCalls = new LongAdder();
+    final LongAdder callNanos = new LongAdder();
+    final LongAdder frames = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    /** indexed by code, unknown codes at 0 since SUCCESS is never counted */
+    private final LongAdder[] errors = new LongAdder[CODES];
+    private volatile long startNanos = System.nanoTime();
+
+    Counters() {
+      for (int i = 0; i < errors.length; i++) {
+        errors[i] = new LongAdder();
+      }
+    }
+
+    void error(int code) {
+      errors[code > Error.SUCCESS && code < CODES ? code : 0].increment();
+    }
+
+    void reset() {
+      calls.reset();
+      nativeCalls.reset();
+      callNanos.reset();
+      frames.reset();
+      bytes.reset();
+      for (LongAdder error : errors) {
+        error.reset();
+      }
+      startNanos = System.nanoTime();
+    }
+
+    @Override
+    public long getCalls() {
+      return calls.sum();
+    }
+
+    @Override
+    public long getNativeCalls() {
+      return nativeCalls.sum();
+    }
+
+    @Override
+    public long getCallNanos() {
+      return callNanos.sum();
+    }
+
+    @Override
+    public long getFrames() {
+      return frames.sum();
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+      long elapsed = getElapsedNanos();
+      return elapsed > 0 ? getFrames() * 1e9 / elapsed : 0.0;
+    }
+
+    @Override
+    public long getBytesMarshalled() {
+      return bytes.sum();
+    }
+
+    @Override
+    public long getErrors(int code) {
+      if (code == -1) {
+        return errors[0].sum();
+      }
+      return code > Error.SUCCESS && code < CODES ? errors[code].sum() : 0;
+    }
+
+    @Override
+    public long getErrors() {
+      long sum = 0;
+      for (LongAdder error : errors) {
+        sum += error.sum();
+      }
+      return sum;
+    }
+
+    @Override
+    public long getElapsedNanos() {
+      return System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public String toString() {
+      return "Metrics{calls=" + getCalls()
+          + ", nativeCalls=" + getNativeCalls()
+          + ", callNanos=" + getCallNanos()
+          + ", frames=" + getFrames()
+          + ", framesPerSecond=" + getFramesPerSecond()
+          + ", bytesMarshalled=" + getBytesMarshalled()
+          + ", errors=" + getErrors()
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package io.github.llm96.ebur128java.metrics;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Engine timing and counting the calls into another engine.
+ */
+final class InstrumentedEngine implements Engine {
+  final Engine delegate;
+  private final String backend;
+  private final boolean nativeBackend;
+  private final Instrumentation.Counters counters;
+  private int channels;
+
+  InstrumentedEngine(Engine delegate, Backend backend, int channels, Instrumentation.Counters counters) {
+    this.delegate = delegate;
+    this.backend = backend.getName();
+    this.nativeBackend = backend.isNative();
+    this.channels = channels;
+    this.counters = counters;
+  }
+
+  /**
+   * Account for a call returning an error code.
+   *
+   * @return result, unchanged
+   */
+  private int count(Object event, long start, String operation, long frames, int result) {
+    long nanos = System.nanoTime() - start;
+    counters.calls.increment();
+    if (nativeBackend) {
+      counters.nativeCalls.increment();
+    }
+    counters.callNanos.add(nanos);
+    if (result == Error.SUCCESS) {
+      counters.frames.add(frames);
+    } else {
+      counters.error(result);
+    }
+    Recorder.end(event, operation, backend, channels, frames, result);
+    return result;
+  }
+
+  /**
+   * Account for a getter. Its error code, if any, is reported by the backend.
+   *
+   * @return value, unchanged
+   */
+  private double count(Object event, long start, String operation, double value) {
+    count(event, start, operation, 0, Error.SUCCESS);
+    return value;
+  }
+
+  @Override
+  public int setChannel(int channelNumber, int value) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "setChannel", 0, delegate.setChannel(channelNumber, value));
+  }
+
+  @Override
+  public int changeParameters(int channels, long samplerate) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    int result = delegate.changeParameters(channels, samplerate);
+    if (result == Error.SUCCESS) {
+      this.channels = channels;
+    }
+    return count(event, start, "changeParameters", 0, result);
+  }
+
+  @Override
+  public int setMaxWindow(long window) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "setMaxWindow", 0, delegate.setMaxWindow(window));
+  }
+
+  @Override
+  public int setMaxHistory(long history) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "setMaxHistory", 0, delegate.setMaxHistory(history));
+  }
+
+  @Override
+  public int reset() {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "reset", 0, delegate.reset());
+  }
+
+  @Override
+  public int addFramesShort(short[] src, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesShort", frames, delegate.addFramesShort(src, frames));
+  }
+
+  @Override
+  public int addFramesInt(int[] src, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesInt", frames, delegate.addFramesInt(src, frames));
+  }
+
+  @Override
+  public int addFramesFloat(float[] src, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesFloat", frames, delegate.addFramesFloat(src, frames));
+  }
+
+  @Override
+  public int addFramesDouble(double[] src, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesDouble", frames, delegate.addFramesDouble(src, frames));
+  }
+
+  @Override
+  public int addFrames(ByteBuffer src, long frames, SampleFormat format) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFrames", frames, delegate.addFrames(src, frames, format));
+  }
+
+  @Override
+  public int addFrames(long address, long frames, SampleFormat format) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFrames", frames, delegate.addFrames(address, frames, format));
+  }
+
+  @Override
+  public int addFramesPlanar(short[][] src, int offset, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesPlanar", frames, delegate.addFramesPlanar(src, offset, frames));
+  }
+
+  @Override
+  public int addFramesPlanar(int[][] src, int offset, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesPlanar", frames, delegate.addFramesPlanar(src, offset, frames));
+  }
+
+  @Override
+  public int addFramesPlanar(float[][] src, int offset, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesPlanar", frames, delegate.addFramesPlanar(src, offset, frames));
+  }
+
+  @Override
+  public int addFramesPlanar(double[][] src, int offset, long frames) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesPlanar", frames, delegate.addFramesPlanar(src, offset, frames));
+  }
+
+  @Override
+  public int addFramesPlanar(ByteBuffer[] src, long frames, SampleFormat format) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "addFramesPlanar", frames, delegate.addFramesPlanar(src, frames, format));
+  }
+
+  @Override
+  public double loudnessGlobal() {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "loudnessGlobal", delegate.loudnessGlobal());
+  }
+
+  @Override
+  public double loudnessMomentary() {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "loudnessMomentary", delegate.loudnessMomentary());
+  }
+
+  @Override
+  public double loudnessShortterm() {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "loudnessShortterm", delegate.loudnessShortterm());
+  }
+
+  @Override
+  public double loudnessWindow(long window) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "loudnessWindow", delegate.loudnessWindow(window));
+  }
+
+  @Override
+  public double loudnessRange() {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "loudnessRange", delegate.loudnessRange());
+  }
+
+  @Override
+  public double samplePeak(int channelNumber) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "samplePeak", delegate.samplePeak(channelNumber));
+  }
+
+  @Override
+  public double prevSamplePeak(int channelNumber) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "prevSamplePeak", delegate.prevSamplePeak(channelNumber));
+  }
+
+  @Override
+  public double truePeak(int channelNumber) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "truePeak", delegate.truePeak(channelNumber));
+  }
+
+  @Override
+  public double prevTruePeak(int channelNumber) {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "prevTruePeak", delegate.prevTruePeak(channelNumber));
+  }
+
+  @Override
+  public double relativeThreshold() {
+    Object event = Recorder.begin();
+    long start = System.nanoTime();
+    return count(event, start, "relativeThreshold", delegate.relativeThreshold());
+  }
+
+  @Override
+  public void save(DataOutput out) throws IOException {
+    delegate.save(out);
+  }
+
+  @Override
+  public void destroy() {
+    delegate.destroy();
+  }
+}
@@ -0,0 +1,73 @@
+package io.github.llm96.ebur128java.metrics;
+
+/**
+ * Counters of the calls made by states into their backends, to be bridged to a monitoring system.
+ * The counters are cumulative since the JVM started or the last {@link Instrumentation#reset()},
+ * and read without locking, so related counters may be slightly out of step.
+ */
+public interface Metrics {
+  /**
+   * Get the number of calls into backends: adding frames, getters and settings.
+   *
+   * @return number of calls
+   */
+  long getCalls();
+
+  /**
+   * Get the number of calls into backends holding a native libebur128 state.
+   *
+   * @return number of native calls
+   */
+  long getNativeCalls();
+
+  /**
+   * Get the time spent in calls into backends.
+   *
+   * @return time in nanoseconds
+   */
+  long getCallNanos();
+
+  /**
+   * Get the number of frames added.
+   *
+   * @return number of frames
+   */
+  long getFrames();
+
+  /**
+   * Get the number of frames added per second since the counters started.
+   *
+   * @return frames per second
+   */
+  double getFramesPerSecond();
+
+  /**
+   * Get the number of bytes copied or interleaved to hand samples to native code. Direct buffers,
+   * native pointers and arrays passed to the panama backend are not copied.
+   *
+   * @return number of bytes
+   */
+  long getBytesMarshalled();
+
+  /**
+   * Get the number of calls that failed with an error code.
+   *
+   * @param code error code (see Error constants)
+   * @return number of errors, codes not defined by Error are counted together under -1
+   */
+  long getErrors(int code);
+
+  /**
+   * Get the number of calls that failed with any error code.
+   *
+   * @return number of errors
+   */
+  long getErrors();
+
+  /**
+   * Get the time since the counters started.
+   *
+   * @return elapsed time in nanoseconds
+   */
+  long getElapsedNanos();
+}
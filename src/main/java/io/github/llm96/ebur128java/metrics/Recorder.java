@@ -0,0 +1,32 @@
+package io.github.llm96.ebur128java.metrics;
+
+/**
+ * Records instrumented calls as JFR events. JFR is not part of the Java 8 API, so this version
+ * records nothing; the Java 11+ version in the multi-release jar emits {@code CallEvent}s.
+ */
+final class Recorder {
+  private Recorder() {
+  }
+
+  /**
+   * Start timing a call.
+   *
+   * @return event to pass to {@link #end}, or null if no event is recorded
+   */
+  static Object begin() {
+    return null;
+  }
+
+  /**
+   * Finish timing a call and record it if it was slow enough.
+   *
+   * @param event     event returned by {@link #begin}
+   * @param operation name of the engine method
+   * @param backend   name of the backend
+   * @param channels  number of channels
+   * @param frames    number of frames passed, 0 for other calls
+   * @param result    error code (see Error constants)
+   */
+  static void end(Object event, String operation, String backend, int channels, long frames, int result) {
+  }
+}
@@ -0,0 +1,314 @@
+package io.github.llm96.ebur128java.realtime;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.PublishedLoudness;
+import io.github.llm96.ebur128java.State;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A live feed registered with a {@link StreamMeterService}.
+ * <p>
+ * Frames submitted to the stream are copied into reused buffers and queued; a worker of the
+ * service passes them to the state of the stream, which is only ever used by one worker at a time.
+ * The readings are published every 100 ms block and can be read by any number of threads without
+ * locking. Each stream should be fed by one thread at a time.
+ */
+public final class MeteredStream implements AutoCloseable {
+  private final StreamMeterService service;
+  final State state;
+  final int channels;
+  /** frames per 100 ms block, also the most frames combined into one call to the state */
+  final int hop;
+  private final int maxQueuedFrames;
+  private final PublishedLoudness readings;
+
+  /** buffers waiting for a worker, in submission order */
+  final ConcurrentLinkedQueue<Chunk> pending = new ConcurrentLinkedQueue<>();
+  /** buffers returned by the worker, reused by submit */
+  private final ConcurrentLinkedQueue<Chunk> free = new ConcurrentLinkedQueue<>();
+  private final AtomicLong queuedFrames = new AtomicLong();
+  /** set while the stream is in the ready queue of a shard or being processed */
+  final AtomicBoolean scheduled = new AtomicBoolean();
+  /** shard processing the stream, changed by rebalancing */
+  volatile int shard;
+  /** time the workers spent on the stream, written by the worker running it */
+  volatile long busyNanos;
+  /** busyNanos at the last rebalancing, guarded by the service */
+  long rebalanceMark;
+
+  private volatile long processedFrames;
+  private volatile long overruns;
+  private volatile long droppedFrames;
+  private volatile int error = Error.SUCCESS;
+  private volatile RuntimeException failure;
+  volatile boolean closing;
+  private volatile boolean finished;
+  private final CountDownLatch closed = new CountDownLatch(1);
+
+  MeteredStream(StreamMeterService service, State state, int shard, int maxQueuedFrames) {
+    this.service = service;
+    this.state = state;
+    this.channels = state.getChannels();
+    this.hop = (int) Math.max(1, (state.getSamplerate() + 5) / 10);
+    this.shard = shard;
+    this.maxQueuedFrames = maxQueuedFrames;
+    this.readings = new PublishedLoudness(channels, state.getMode());
+  }
+
+  /**
+   * Queue interleaved frames. Does not block; a block that would exceed the maximum number of
+   * queued frames of the stream is dropped and counted as an overrun.
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param offset index in src of the first frame
+   * @param frames number of frames
+   * @return true if the frames were queued, false if they were dropped
+   * @throws IllegalArgumentException if the range is outside src
+   * @throws IllegalStateException    if the stream is closed or failed
+   */
+  public boolean submit(float[] src, int offset, int frames) {
+    if (offset < 0 || frames < 0 || ((long) offset + frames) * channels > src.length) {
+      throw new IllegalArgumentException("Invalid range: " + offset + ", " + frames);
+    }
+    checkFailure();
+    if (closing) {
+      throw new IllegalStateException("Stream is closed");
+    }
+    if (frames == 0) {
+      return true;
+    }
+    if (queuedFrames.get() + frames > maxQueuedFrames) {
+      overruns++;
+      droppedFrames += frames;
+      return false;
+    }
+    int samples = frames * channels;
+    Chunk chunk = free.poll();
+    if (chunk == null || chunk.data.length < samples) {
+      chunk = new Chunk(samples);
+    }
+    System.arraycopy(src, offset * channels, chunk.data, 0, samples);
+    chunk.frames = frames;
+    chunk.submitNanos = System.nanoTime();
+    queuedFrames.addAndGet(frames);
+    pending.offer(chunk);
+    service.schedule(this);
+    return true;
+  }
+
+  /**
+   * Pass frames to the state. Called by the worker running the stream.
+   *
+   * @return true if a 100 ms block completed
+   */
+  boolean add(float[] data, int frames) {
+    int result = state.addFramesFloat(data, frames);
+    if (result != Error.SUCCESS && error == Error.SUCCESS) {
+      error = result;
+    }
+    long before = processedFrames;
+    processedFrames = before + frames;
+    return (before + frames) / hop != before / hop;
+  }
+
+  /**
+   * Hand a processed buffer back for reuse. Called by the worker running the stream.
+   */
+  void release(Chunk chunk) {
+    queuedFrames.addAndGet(-chunk.frames);
+    free.offer(chunk);
+  }
+
+  /**
+   * Publish the readings of the state. Called by the worker running the stream.
+   */
+  void publish() {
+    readings.publish(state);
+  }
+
+  /**
+   * Publish the final readings and close the state once a close was requested and all frames are
+   * processed. Called by the worker running the stream.
+   *
+   * @return true if the stream finished and must not be scheduled again
+   */
+  boolean finishIfDrained() {
+    if (!closing || !pending.isEmpty()) {
+      return false;
+    }
+    readings.publish(state);
+    state.close();
+    finished = true;
+    service.unregister(this);
+    closed.countDown();
+    return true;
+  }
+
+  /**
+   * Finish a stream whose state threw, dropping its queued frames, and wake up the threads
+   * closing it. Called by the worker running the stream.
+   */
+  void fail(RuntimeException e) {
+    failure = e;
+    closing = true;
+    Chunk chunk;
+    while ((chunk = pending.poll()) != null) {
+      release(chunk);
+    }
+    try {
+      state.close();
+    } catch (RuntimeException suppressed) {
+      e.addSuppressed(suppressed);
+    }
+    finished = true;
+    service.unregister(this);
+    closed.countDown();
+  }
+
+  private void checkFailure() {
+    RuntimeException e = failure;
+    if (e != null) {
+      throw new IllegalStateException("Stream failed", e);
+    }
+  }
+
+  boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Read the readings published at the last completed block, or after closing, of all frames.
+   * Lock-free, may be called by any number of threads.
+   *
+   * @param reuse snapshot to overwrite, or null to allocate a new one
+   * @return snapshot of the readings
+   */
+  public LoudnessSnapshot snapshot(LoudnessSnapshot reuse) {
+    return readings.read(reuse);
+  }
+
+  /**
+   * Get the readings published by the workers.
+   *
+   * @return published readings
+   */
+  public PublishedLoudness getReadings() {
+    return readings;
+  }
+
+  /**
+   * Get the shard the stream is currently assigned to.
+   *
+   * @return index of the shard
+   */
+  public int getShard() {
+    return shard;
+  }
+
+  /**
+   * Get the number of frames queued but not yet passed to the state.
+   *
+   * @return number of frames
+   */
+  public long getQueuedFrames() {
+    return queuedFrames.get();
+  }
+
+  /**
+   * Get the number of frames passed to the state.
+   *
+   * @return number of frames
+   */
+  public long getProcessedFrames() {
+    return processedFrames;
+  }
+
+  /**
+   * Get the number of submissions dropped because too many frames were queued.
+   *
+   * @return number of overruns
+   */
+  public long getOverruns() {
+    return overruns;
+  }
+
+  /**
+   * Get the number of frames dropped because too many frames were queued.
+   *
+   * @return number of frames
+   */
+  public long getDroppedFrames() {
+    return droppedFrames;
+  }
+
+  /**
+   * Get the first error returned by the state.
+   *
+   * @return error code (see Error constants)
+   * @throws IllegalStateException if the state threw an exception, which is its cause
+   */
+  public int getError() {
+    checkFailure();
+    return error;
+  }
+
+  /**
+   * Get the exception thrown by the state, after which the stream was finished and its queued
+   * frames dropped.
+   *
+   * @return the exception, or null
+   */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  /**
+   * Time since the oldest queued buffer was submitted.
+   *
+   * @return lag in nanoseconds, 0 if nothing is queued
+   */
+  long lagNanos(long now) {
+    Chunk chunk = pending.peek();
+    return chunk != null ? Math.max(0, now - chunk.submitNanos) : 0;
+  }
+
+  /**
+   * Pass the frames still queued to the state, publish the final readings, close the state and
+   * unregister the stream. Waits for the worker to finish; frames submitted concurrently with
+   * closing may be lost. Returns normally if the stream failed, see {@link #getFailure()}.
+   */
+  @Override
+  public void close() {
+    closing = true;
+    service.schedule(this);
+    boolean interrupted = false;
+    while (closed.getCount() > 0) {
+      try {
+        closed.await();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A buffer of interleaved frames.
+   */
+  static final class Chunk {
+    final float[] data;
+    int frames;
+    long submitNanos;
+
+    Chunk(int samples) {
+      this.data = new float[samples];
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package io.github.llm96.ebur128java.realtime;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.PublishedLoudness;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Live meter that decouples an audio callback from the measurement.
+ * <p>
+ * One producer thread, typically the audio callback, writes float frames into a pre-allocated
+ * single-producer/single-consumer ring buffer. Writing never blocks, never allocates and takes no
+ * lock: a block that does not fit is dropped and counted as an overrun. A dedicated analysis
+ * thread drains the ring into the {@link State} straight from the ring's direct buffer, at most
+ * 100 ms of frames at a time, and publishes the readings whenever a 100 ms block completes. Any
+ * number of threads can read the published readings without locking.
+ * <p>
+ * The meter owns the state: it must not be used directly while the meter is open, and it is
+ * closed with the meter.
+ */
+public class RealtimeMeter implements AutoCloseable {
+  /** time the analysis thread sleeps when the ring is empty */
+  static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final State state;
+  private final int channels;
+  private final int capacity;
+  private final int maxDrainFrames;
+
+  /** ring of capacity interleaved float frames in native byte order */
+  private final ByteBuffer ring;
+  /** producer's view of the ring, used for bulk puts */
+  private final FloatBuffer producerView;
+  /** analysis thread's view of the ring, positioned at the frames passed to the state */
+  private final ByteBuffer consumerView;
+
+  /** number of frames written, advanced by the producer only */
+  private final AtomicLong head = new AtomicLong();
+  /** number of frames drained, advanced by the analysis thread only */
+  private final AtomicLong tail = new AtomicLong();
+  /** producer's last read of tail, so that a write only reads tail when the ring looks full */
+  private long cachedTail;
+
+  private volatile long overruns;
+  private volatile long droppedFrames;
+  private volatile int error = Error.SUCCESS;
+  /** exception that stopped the analysis thread */
+  private volatile RuntimeException failure;
+
+  private final PublishedLoudness readings;
+  private final Thread thread;
+  private volatile boolean closing;
+  private boolean closed;
+
+  /**
+   * Create a meter with a daemon analysis thread.
+   *
+   * @param state          state measuring the audio, owned by the meter
+   * @param capacityFrames capacity of the ring in frames
+   * @throws IllegalArgumentException if the capacity is not positive or too large
+   */
+  public RealtimeMeter(State state, int capacityFrames) {
+    this(state, capacityFrames, runnable -> {
+      Thread thread = new Thread(runnable, "ebur128-realtime-meter");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Create a meter.
+   *
+   * @param state          state measuring the audio, owned by the meter
+   * @param capacityFrames capacity of the ring in frames
+   * @param threadFactory  creates the analysis thread
+   * @throws IllegalArgumentException if the capacity is not positive or too large
+   */
+  public RealtimeMeter(State state, int capacityFrames, ThreadFactory threadFactory) {
+    this.state = state;
+    this.channels = state.getChannels();
+    if (capacityFrames <= 0 || (long) capacityFrames * channels * Float.BYTES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacityFrames);
+    }
+    this.capacity = capacityFrames;
+    this.maxDrainFrames = (int) Math.max(1, (state.getSamplerate() + 5) / 10);
+    this.ring = ByteBuffer.allocateDirect(capacityFrames * channels * Float.BYTES).order(ByteOrder.nativeOrder());
+    this.producerView = ring.asFloatBuffer();
+    this.consumerView = ring.duplicate().order(ByteOrder.nativeOrder());
+    this.readings = new PublishedLoudness(channels, state.getMode());
+    this.thread = threadFactory.newThread(this::drain);
+    thread.start();
+  }
+
+  /**
+   * Write interleaved frames. Called by the producer thread only; wait-free and allocation-free.
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param offset index in src of the first frame
+   * @param frames number of frames
+   * @return true if the frames were queued, false if they were dropped because the ring is full
+   * @throws IllegalArgumentException if the range is outside src or larger than the capacity
+   * @throws IllegalStateException    if the analysis thread failed
+   */
+  public boolean write(float[] src, int offset, int frames) {
+    if (offset < 0 || frames < 0 || ((long) offset + frames) * channels > src.length) {
+      throw new IllegalArgumentException("Invalid range: " + offset + ", " + frames);
+    }
+    checkFailure();
+    long position = reserve(frames);
+    if (position < 0) {
+      return false;
+    }
+    int index = (int) (position % capacity);
+    int first = Math.min(frames, capacity - index);
+    producerView.position(index * channels);
+    producerView.put(src, offset * channels, first * channels);
+    if (first < frames) {
+      producerView.position(0);
+      producerView.put(src, (offset + first) * channels, (frames - first) * channels);
+    }
+    head.lazySet(position + frames);
+    return true;
+  }
+
+  /**
+   * Write frames from one array per channel. Called by the producer thread only; wait-free and
+   * allocation-free.
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return true if the frames were queued, false if they were dropped because the ring is full
+   * @throws IllegalArgumentException if the number of arrays does not match the channels, or the range is
+   *                                  outside an array or larger than the capacity
+   * @throws IllegalStateException    if the analysis thread failed
+   */
+  public boolean writePlanar(float[][] src, int offset, int frames) {
+    if (src.length != channels) {
+      throw new IllegalArgumentException("Expected " + channels + " channels, got " + src.length);
+    }
+    for (float[] channel : src) {
+      if (offset < 0 || frames < 0 || channel.length - offset < frames) {
+        throw new IllegalArgumentException("Invalid range: " + offset + ", " + frames);
+      }
+    }
+    checkFailure();
+    long position = reserve(frames);
+    if (position < 0) {
+      return false;
+    }
+    int index = (int) (position % capacity);
+    for (int i = 0; i < frames; i++) {
+      int p = index * channels;
+      for (int c = 0; c < channels; c++) {
+        producerView.put(p + c, src[c][offset + i]);
+      }
+      if (++index == capacity) {
+        index = 0;
+      }
+    }
+    head.lazySet(position + frames);
+    return true;
+  }
+
+  /**
+   * Check that there is room for a block, counting an overrun if there is not.
+   *
+   * @return position of the block, or -1 if it does not fit
+   */
+  private long reserve(int frames) {
+    if (frames > capacity) {
+      throw new IllegalArgumentException("Block of " + frames + " frames exceeds the capacity of " + capacity);
+    }
+    long position = head.get();
+    if (position + frames - cachedTail > capacity) {
+      cachedTail = tail.get();
+      if (position + frames - cachedTail > capacity) {
+        // single writer, so the increments cannot be lost
+        overruns++;
+        droppedFrames += frames;
+        return -1;
+      }
+    }
+    return position;
+  }
+
+  private void checkFailure() {
+    RuntimeException e = failure;
+    if (e != null) {
+      throw new IllegalStateException("Analysis thread failed", e);
+    }
+  }
+
+  /**
+   * Body of the analysis thread: pass queued frames to the state until closed, then drain the rest.
+   * An exception thrown by the state stops the thread and fails the meter.
+   */
+  private void drain() {
+    try {
+      drainUntilClosed();
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+  }
+
+  private void drainUntilClosed() {
+    long position = tail.get();
+    while (true) {
+      long available = head.get() - position;
+      if (available == 0) {
+        if (closing) {
+          if (head.get() == position) {
+            readings.publish(state);
+            return;
+          }
+          continue;
+        }
+        LockSupport.parkNanos(this, POLL_NANOS);
+        continue;
+      }
+      int index = (int) (position % capacity);
+      int frames = (int) Math.min(Math.min(available, capacity - index), maxDrainFrames);
+      consumerView.position(index * channels * Float.BYTES);
+      int result = state.addFrames(consumerView, frames, SampleFormat.FLOAT);
+      if (result != Error.SUCCESS && error == Error.SUCCESS) {
+        error = result;
+      }
+      if ((position + frames) / maxDrainFrames != position / maxDrainFrames) {
+        readings.publish(state);
+      }
+      position += frames;
+      tail.lazySet(position);
+    }
+  }
+
+  /**
+   * Read the readings published at the last completed block, or after closing, of all frames.
+   * Lock-free, may be called by any number of threads.
+   *
+   * @param reuse snapshot to overwrite, or null to allocate a new one
+   * @return snapshot of the readings
+   */
+  public LoudnessSnapshot snapshot(LoudnessSnapshot reuse) {
+    return readings.read(reuse);
+  }
+
+  /**
+   * Get the readings published by the analysis thread.
+   *
+   * @return published readings
+   */
+  public PublishedLoudness getReadings() {
+    return readings;
+  }
+
+  /**
+   * Get the capacity of the ring.
+   *
+   * @return capacity in frames
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the number of frames queued but not yet passed to the state.
+   *
+   * @return number of frames
+   */
+  public int getBufferedFrames() {
+    return (int) (head.get() - tail.get());
+  }
+
+  /**
+   * Get the number of frames passed to the state.
+   *
+   * @return number of frames
+   */
+  public long getProcessedFrames() {
+    return tail.get();
+  }
+
+  /**
+   * Get the number of writes dropped because the ring was full.
+   *
+   * @return number of overruns
+   */
+  public long getOverruns() {
+    return overruns;
+  }
+
+  /**
+   * Get the number of frames dropped because the ring was full.
+   *
+   * @return number of frames
+   */
+  public long getDroppedFrames() {
+    return droppedFrames;
+  }
+
+  /**
+   * Get the first error returned by the state while draining.
+   *
+   * @return error code (see Error constants)
+   * @throws IllegalStateException if the state threw an exception, which is its cause
+   */
+  public int getError() {
+    checkFailure();
+    return error;
+  }
+
+  /**
+   * Get the exception thrown by the state, which stopped the analysis thread. The readings are
+   * no longer updated and the frames written since are not measured.
+   *
+   * @return the exception, or null
+   */
+  public RuntimeException getFailure() {
+    return failure;
+  }
+
+  /**
+   * Pass the frames still queued to the state, stop the analysis thread and close the state.
+   * Frames written concurrently with or after closing may be lost.
+   *
+   * @throws IllegalStateException if the analysis thread failed, once the state is closed
+   */
+  @Override
+  public synchronized void close() {
+    closing = true;
+    LockSupport.unpark(thread);
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (!closed) {
+      closed = true;
+      state.close();
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    checkFailure();
+  }
+}
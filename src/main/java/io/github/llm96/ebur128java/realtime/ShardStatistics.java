@@ -0,0 +1,141 @@
+package io.github.llm96.ebur128java.realtime;
+
+/**
+ * Point-in-time counters of one shard of a {@link StreamMeterService}. A shard whose lag keeps
+ * growing or whose utilization approaches 1 cannot keep up with its streams.
+ */
+public final class ShardStatistics {
+  private final int shard;
+  private final int streams;
+  private final long queuedFrames;
+  private final long lagNanos;
+  private final long maxLagNanos;
+  private final long processedFrames;
+  private final long batches;
+  private final long busyNanos;
+  private final long elapsedNanos;
+
+  ShardStatistics(int shard, int streams, long queuedFrames, long lagNanos, long maxLagNanos, long processedFrames,
+                  long batches, long busyNanos, long elapsedNanos) {
+    this.shard = shard;
+    this.streams = streams;
+    this.queuedFrames = queuedFrames;
+    this.lagNanos = lagNanos;
+    this.maxLagNanos = maxLagNanos;
+    this.processedFrames = processedFrames;
+    this.batches = batches;
+    this.busyNanos = busyNanos;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Get the index of the shard.
+   *
+   * @return index of the shard
+   */
+  public int getShard() {
+    return shard;
+  }
+
+  /**
+   * Get the number of streams assigned to the shard.
+   *
+   * @return number of streams
+   */
+  public int getStreams() {
+    return streams;
+  }
+
+  /**
+   * Get the number of frames queued on the streams of the shard.
+   *
+   * @return number of frames
+   */
+  public long getQueuedFrames() {
+    return queuedFrames;
+  }
+
+  /**
+   * Get the time since the oldest buffer still queued on a stream of the shard was submitted.
+   *
+   * @return lag in nanoseconds, 0 if nothing is queued
+   */
+  public long getLagNanos() {
+    return lagNanos;
+  }
+
+  /**
+   * Get the longest time a buffer waited before the worker picked it up.
+   *
+   * @return maximum lag in nanoseconds
+   */
+  public long getMaxLagNanos() {
+    return maxLagNanos;
+  }
+
+  /**
+   * Get the number of frames passed to states by the worker.
+   *
+   * @return number of frames
+   */
+  public long getProcessedFrames() {
+    return processedFrames;
+  }
+
+  /**
+   * Get the number of batches processed, one per time a stream was picked up.
+   *
+   * @return number of batches
+   */
+  public long getBatches() {
+    return batches;
+  }
+
+  /**
+   * Get the time the worker spent processing batches.
+   *
+   * @return busy time in nanoseconds
+   */
+  public long getBusyNanos() {
+    return busyNanos;
+  }
+
+  /**
+   * Get the time since the service was created.
+   *
+   * @return elapsed time in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the number of processed frames per second since the service was created.
+   *
+   * @return frames per second
+   */
+  public double getFramesPerSecond() {
+    return elapsedNanos > 0 ? processedFrames * 1e9 / elapsedNanos : 0.0;
+  }
+
+  /**
+   * Get the fraction of the time since the service was created that the worker was busy.
+   *
+   * @return utilization between 0 and 1
+   */
+  public double getUtilization() {
+    return elapsedNanos > 0 ? Math.min(1.0, (double) busyNanos / elapsedNanos) : 0.0;
+  }
+
+  @Override
+  public String toString() {
+    return "ShardStatistics{shard=" + shard
+        + ", streams=" + streams
+        + ", queuedFrames=" + queuedFrames
+        + ", lagNanos=" + lagNanos
+        + ", maxLagNanos=" + maxLagNanos
+        + ", framesPerSecond=" + getFramesPerSecond()
+        + ", utilization=" + getUtilization()
+        + "}";
+  }
+}
@@ -0,0 +1,405 @@
+package io.github.llm96.ebur128java.realtime;
+
+import io.github.llm96.ebur128java.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Meters many live feeds on a fixed pool of worker threads.
+ * <p>
+ * Each worker runs one shard. A registered stream is assigned to a shard, and its state is only
+ * ever used by the worker of that shard, so no locks are taken around the measurement. Frames are
+ * queued per stream; when a stream has frames pending it is put once on the ready queue of its
+ * shard, and the worker then drains all of its pending buffers in one batch, combining small
+ * buffers into calls of up to 100 ms.
+ * <p>
+ * Streams are assigned to the shard with the fewest streams when registered. Periodically the
+ * time each shard spent on its streams is compared, and streams are moved from the busiest shard to
+ * the least busy one while that reduces the imbalance. A stream moves between batches only, so its
+ * state is never used by two workers at a time.
+ */
+public class StreamMeterService implements AutoCloseable {
+  /** default maximum number of frames queued per stream */
+  public static final int DEFAULT_MAX_QUEUED_FRAMES = 1 << 16;
+  /** default interval between rebalancing checks */
+  public static final long DEFAULT_REBALANCE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  /** imbalance tolerated before streams are moved, as a fraction of the mean load of a shard */
+  static final double REBALANCE_THRESHOLD = 0.25;
+  /** longest time an idle worker sleeps between checks */
+  static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Shard[] shards;
+  private final int maxQueuedFrames;
+  private final long rebalanceIntervalNanos;
+  private final Set<MeteredStream> streams = ConcurrentHashMap.newKeySet();
+  private final long startNanos = System.nanoTime();
+  private volatile long nextRebalanceNanos;
+  private final AtomicBoolean rebalancing = new AtomicBoolean();
+  private volatile long migrations;
+  private volatile boolean closing;
+  private volatile boolean stopped;
+
+  /**
+   * Create a service with daemon worker threads and the default limits.
+   *
+   * @param shards number of worker threads
+   * @throws IllegalArgumentException if shards is not positive
+   */
+  public StreamMeterService(int shards) {
+    this(shards, DEFAULT_MAX_QUEUED_FRAMES, DEFAULT_REBALANCE_INTERVAL_NANOS, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ebur128-stream-meter-" + count.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Create a service.
+   *
+   * @param shards                 number of worker threads
+   * @param maxQueuedFrames        maximum number of frames queued per stream
+   * @param rebalanceIntervalNanos interval between rebalancing checks, 0 to rebalance only on request
+   * @param threadFactory          creates the worker threads
+   * @throws IllegalArgumentException if shards or maxQueuedFrames is not positive or the interval is negative
+   */
+  public StreamMeterService(int shards, int maxQueuedFrames, long rebalanceIntervalNanos,
+                            ThreadFactory threadFactory) {
+    if (shards <= 0) {
+      throw new IllegalArgumentException("Invalid number of shards: " + shards);
+    }
+    if (maxQueuedFrames <= 0) {
+      throw new IllegalArgumentException("Invalid maximum number of queued frames: " + maxQueuedFrames);
+    }
+    if (rebalanceIntervalNanos < 0) {
+      throw new IllegalArgumentException("Invalid rebalance interval: " + rebalanceIntervalNanos);
+    }
+    this.maxQueuedFrames = maxQueuedFrames;
+    this.rebalanceIntervalNanos = rebalanceIntervalNanos;
+    this.nextRebalanceNanos = startNanos + rebalanceIntervalNanos;
+    this.shards = new Shard[shards];
+    for (int i = 0; i < shards; i++) {
+      this.shards[i] = new Shard(i);
+    }
+    for (Shard shard : this.shards) {
+      shard.thread = threadFactory.newThread(shard);
+    }
+    for (Shard shard : this.shards) {
+      shard.thread.start();
+    }
+  }
+
+  /**
+   * Register a feed. The service owns the state: it must not be used directly afterwards, and it
+   * is closed with the stream.
+   *
+   * @param state state measuring the feed
+   * @return stream to submit the frames of the feed to
+   * @throws IllegalStateException if the service is closed
+   */
+  public synchronized MeteredStream register(State state) {
+    if (closing) {
+      throw new IllegalStateException("Service is closed");
+    }
+    int[] counts = new int[shards.length];
+    for (MeteredStream stream : streams) {
+      counts[stream.shard]++;
+    }
+    int shard = 0;
+    for (int i = 1; i < counts.length; i++) {
+      if (counts[i] < counts[shard]) {
+        shard = i;
+      }
+    }
+    MeteredStream stream = new MeteredStream(this, state, shard, maxQueuedFrames);
+    streams.add(stream);
+    return stream;
+  }
+
+  void unregister(MeteredStream stream) {
+    streams.remove(stream);
+  }
+
+  /**
+   * Put a stream on the ready queue of its shard unless it is already there or being processed.
+   */
+  void schedule(MeteredStream stream) {
+    if (stream.isFinished() || !stream.scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    Shard shard = shards[stream.shard];
+    shard.ready.offer(stream);
+    if (shard.idle) {
+      LockSupport.unpark(shard.thread);
+    }
+  }
+
+  /**
+   * Move streams from busy shards to idle ones, based on the time the workers spent on each stream
+   * since the previous call. Called periodically by the workers, or on request.
+   *
+   * @return number of streams moved
+   */
+  public synchronized int rebalance() {
+    long[] load = new long[shards.length];
+    List<MeteredStream> active = new ArrayList<>(streams);
+    long[] streamLoad = new long[active.size()];
+    for (int i = 0; i < streamLoad.length; i++) {
+      MeteredStream stream = active.get(i);
+      long busy = stream.busyNanos;
+      streamLoad[i] = busy - stream.rebalanceMark;
+      stream.rebalanceMark = busy;
+      load[stream.shard] += streamLoad[i];
+    }
+    long total = 0;
+    for (long l : load) {
+      total += l;
+    }
+    double tolerance = REBALANCE_THRESHOLD * total / shards.length;
+    int moved = 0;
+    while (moved < streamLoad.length) {
+      int busiest = 0;
+      int idlest = 0;
+      for (int s = 1; s < load.length; s++) {
+        busiest = load[s] > load[busiest] ? s : busiest;
+        idlest = load[s] < load[idlest] ? s : idlest;
+      }
+      long gap = load[busiest] - load[idlest];
+      if (gap <= tolerance || gap == 0) {
+        break;
+      }
+      // the stream whose load is closest to half the gap narrows it the most
+      int best = -1;
+      for (int i = 0; i < streamLoad.length; i++) {
+        if (active.get(i).shard == busiest && streamLoad[i] > 0 && streamLoad[i] < gap
+            && (best < 0 || Math.abs(gap - 2 * streamLoad[i]) < Math.abs(gap - 2 * streamLoad[best]))) {
+          best = i;
+        }
+      }
+      if (best < 0) {
+        break;
+      }
+      active.get(best).shard = idlest;
+      load[busiest] -= streamLoad[best];
+      load[idlest] += streamLoad[best];
+      moved++;
+    }
+    migrations += moved;
+    return moved;
+  }
+
+  private void maybeRebalance(long now) {
+    if (rebalanceIntervalNanos == 0 || closing || now - nextRebalanceNanos < 0 || !rebalancing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      nextRebalanceNanos = now + rebalanceIntervalNanos;
+      rebalance();
+    } finally {
+      rebalancing.set(false);
+    }
+  }
+
+  /**
+   * Get the counters of every shard, to see when the host is saturated.
+   *
+   * @return statistics, indexed by shard
+   */
+  public List<ShardStatistics> getShardStatistics() {
+    long now = System.nanoTime();
+    int[] counts = new int[shards.length];
+    long[] queued = new long[shards.length];
+    long[] lag = new long[shards.length];
+    for (MeteredStream stream : streams) {
+      int shard = stream.shard;
+      counts[shard]++;
+      queued[shard] += stream.getQueuedFrames();
+      lag[shard] = Math.max(lag[shard], stream.lagNanos(now));
+    }
+    List<ShardStatistics> statistics = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      int i = shard.index;
+      statistics.add(new ShardStatistics(i, counts[i], queued[i], lag[i], shard.maxLagNanos, shard.processedFrames,
+          shard.batches, shard.busyNanos, now - startNanos));
+    }
+    return statistics;
+  }
+
+  /**
+   * Get the number of shards.
+   *
+   * @return number of worker threads
+   */
+  public int getShards() {
+    return shards.length;
+  }
+
+  /**
+   * Get the number of registered streams.
+   *
+   * @return number of streams
+   */
+  public int getStreams() {
+    return streams.size();
+  }
+
+  /**
+   * Get the number of times a stream was moved to another shard.
+   *
+   * @return number of migrations
+   */
+  public long getMigrations() {
+    return migrations;
+  }
+
+  /**
+   * Close all streams, passing their queued frames to their states first, and stop the workers.
+   */
+  @Override
+  public void close() {
+    List<MeteredStream> open;
+    // the workers rebalance under the same lock, so the streams are drained without holding it
+    synchronized (this) {
+      closing = true;
+      open = new ArrayList<>(streams);
+    }
+    for (MeteredStream stream : open) {
+      stream.closing = true;
+      schedule(stream);
+    }
+    for (MeteredStream stream : open) {
+      stream.close();
+    }
+    stopped = true;
+    boolean interrupted = false;
+    for (Shard shard : shards) {
+      LockSupport.unpark(shard.thread);
+      while (shard.thread.isAlive()) {
+        try {
+          shard.thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * A worker thread and its ready queue. The counters are written by the worker only.
+   */
+  private final class Shard implements Runnable {
+    final int index;
+    final ConcurrentLinkedQueue<MeteredStream> ready = new ConcurrentLinkedQueue<>();
+    Thread thread;
+    volatile boolean idle;
+    volatile long processedFrames;
+    volatile long batches;
+    volatile long busyNanos;
+    volatile long maxLagNanos;
+    /** buffer combining small buffers of a stream into one call */
+    private float[] scratch = new float[0];
+
+    Shard(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        MeteredStream stream = ready.poll();
+        if (stream == null) {
+          if (stopped) {
+            return;
+          }
+          maybeRebalance(System.nanoTime());
+          idle = true;
+          if (ready.isEmpty() && !stopped) {
+            LockSupport.parkNanos(this, PARK_NANOS);
+          }
+          idle = false;
+          continue;
+        }
+        long start = System.nanoTime();
+        try {
+          process(stream, start);
+        } catch (RuntimeException e) {
+          // the state of this stream is unusable, the other streams of the shard carry on
+          stream.fail(e);
+        }
+        long end = System.nanoTime();
+        busyNanos += end - start;
+        batches++;
+        maybeRebalance(end);
+      }
+    }
+
+    /**
+     * Drain the buffers a stream had pending when it was picked up into its state, then reschedule
+     * it if more arrived, so that a stream fed faster than it is processed cannot starve the others.
+     *
+     * @throws RuntimeException if the state fails, leaving the stream scheduled
+     */
+    private void process(MeteredStream stream, long now) {
+      long before = stream.getProcessedFrames();
+      long budget = stream.getQueuedFrames();
+      int channels = stream.channels;
+      int limit = stream.hop;
+      if (scratch.length < limit * channels) {
+        scratch = new float[limit * channels];
+      }
+      boolean completed = false;
+      int combined = 0;
+      MeteredStream.Chunk chunk;
+      while (budget > 0 && (chunk = stream.pending.poll()) != null) {
+        budget -= chunk.frames;
+        maxLagNanos = Math.max(maxLagNanos, now - chunk.submitNanos);
+        try {
+          if (combined > 0 && combined + chunk.frames > limit) {
+            completed |= stream.add(scratch, combined);
+            combined = 0;
+          }
+          if (chunk.frames >= limit) {
+            completed |= stream.add(chunk.data, chunk.frames);
+          } else {
+            System.arraycopy(chunk.data, 0, scratch, combined * channels, chunk.frames * channels);
+            combined += chunk.frames;
+          }
+        } finally {
+          stream.release(chunk);
+        }
+      }
+      if (combined > 0) {
+        completed |= stream.add(scratch, combined);
+      }
+      if (completed) {
+        stream.publish();
+      }
+      processedFrames += stream.getProcessedFrames() - before;
+      // charged before the stream can be picked up by another shard
+      stream.busyNanos += System.nanoTime() - now;
+      if (stream.finishIfDrained()) {
+        return;
+      }
+      stream.scheduled.set(false);
+      if (!stream.pending.isEmpty() || stream.closing) {
+        schedule(stream);
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package io.github.llm96.ebur128java.spi;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+/**
+ * Implementation of the EBU R128 loudness measurement used by {@link io.github.llm96.ebur128java.State}.
+ * <p>
+ * Backends are looked up by {@link Backends}. A backend that cannot be used on the running platform
+ * should throw a {@link LinkageError} or {@link RuntimeException} from its constructor.
+ */
+public interface Backend {
+  /**
+   * Get the backend name, used to select it with the {@value Backends#BACKEND_PROPERTY} system property.
+   *
+   * @return backend name
+   */
+  String getName();
+
+  /**
+   * Get the backend priority. The available backend with the highest priority is used by default.
+   *
+   * @return backend priority
+   */
+  int getPriority();
+
+  /**
+   * Get library version number.
+   *
+   * @return version array [major, minor, patch]
+   */
+  int[] getVersion();
+
+  /**
+   * Check whether the engines of this backend hold native memory, as accounted by
+   * {@link io.github.llm96.ebur128java.StateRegistry}.
+   *
+   * @return true unless the engines live on the Java heap
+   */
+  default boolean isNative() {
+    return true;
+  }
+
+  /**
+   * Check whether {@link Engine#reset()} empties an engine in place. Engines without an in-place
+   * reset replace their native state, which costs as much as creating a new engine.
+   *
+   * @return true if resetting is cheaper than creating an engine
+   */
+  default boolean hasInPlaceReset() {
+    return false;
+  }
+
+  /**
+   * Initialize a measurement.
+   *
+   * @param channels   the number of channels
+   * @param samplerate the sample rate
+   * @param mode       mode flags (see Mode constants)
+   * @return an initialized engine, or null on error
+   */
+  Engine init(int channels, long samplerate, int mode);
+
+  /**
+   * Restore a measurement written by {@link Engine#save} of an engine of this backend.
+   *
+   * @param in source of the checkpoint
+   * @return the restored engine
+   * @throws IOException                   if reading fails or the checkpoint is invalid
+   * @throws UnsupportedOperationException if the backend cannot restore its state
+   */
+  Engine restore(DataInput in) throws IOException;
+
+  /**
+   * Get global integrated loudness in LUFS across multiple engines of this backend.
+   *
+   * @param engines engines created by this backend
+   * @return integrated loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessGlobalMultiple(Engine[] engines);
+
+  /**
+   * Get loudness range (LRA) in LU across multiple engines of this backend.
+   *
+   * @param engines engines created by this backend
+   * @return loudness range (LRA) in LU, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessRangeMultiple(Engine[] engines);
+}
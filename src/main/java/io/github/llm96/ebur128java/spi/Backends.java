@@ -0,0 +1,155 @@
+package io.github.llm96.ebur128java.spi;
+
+import io.github.llm96.ebur128java.Mode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Lookup of the available {@link Backend} implementations.
+ * <p>
+ * The built-in backends are tried first, followed by those registered with {@link ServiceLoader}.
+ * Backends that fail to load, for example because the running JVM is too old or the native
+ * library cannot be found, are skipped.
+ */
+public final class Backends {
+  /**
+   * System property forcing the default backend by name, e.g. "panama", "jna" or "java".
+   */
+  public static final String BACKEND_PROPERTY = "ebur128java.backend";
+
+  private static final String[] BUILTIN_BACKENDS = {
+      "io.github.llm96.ebur128java.panama.PanamaBackend",
+      "io.github.llm96.ebur128java.jna.JnaBackend",
+      "io.github.llm96.ebur128java.engine.JavaBackend",
+  };
+
+  private Backends() {
+  }
+
+  /**
+   * Get the default backend, chosen once when first requested.
+   *
+   * @return the backend named by {@value #BACKEND_PROPERTY}, or else the available backend with the highest priority
+   * @throws IllegalStateException if no backend is available
+   */
+  public static Backend getDefault() {
+    Backend backend = Holder.DEFAULT;
+    if (backend == null) {
+      String name = System.getProperty(BACKEND_PROPERTY);
+      IllegalStateException e = new IllegalStateException(
+          name == null ? "No EBUR128 backend available" : "EBUR128 backend not available: " + name);
+      for (Throwable failure : Holder.FAILURES) {
+        e.addSuppressed(failure);
+      }
+      throw e;
+    }
+    return backend;
+  }
+
+  /**
+   * Load the backends and make a first measurement with the default one.
+   * <p>
+   * Loading the backends extracts and links libebur128, and the first measurement pays for
+   * resolving its symbols and initializing the filters. Calling this at startup, or on a
+   * background thread, keeps that work off the first request.
+   *
+   * @return the default backend
+   * @throws IllegalStateException if no backend is available
+   */
+  public static Backend preload() {
+    Backend backend = getDefault();
+    Engine engine = backend.init(1, 48000, Mode.MODE_M | Mode.MODE_TRUE_PEAK);
+    if (engine != null) {
+      try {
+        engine.addFramesFloat(new float[4800], 4800);
+        engine.loudnessMomentary();
+        engine.truePeak(0);
+      } finally {
+        engine.destroy();
+      }
+    }
+    return backend;
+  }
+
+  /**
+   * Get a backend by name.
+   *
+   * @param name backend name
+   * @return the backend
+   * @throws IllegalArgumentException if no backend of that name is available
+   */
+  public static Backend get(String name) {
+    for (Backend backend : Holder.AVAILABLE) {
+      if (backend.getName().equals(name)) {
+        return backend;
+      }
+    }
+    throw new IllegalArgumentException("EBUR128 backend not available: " + name);
+  }
+
+  /**
+   * Get all available backends.
+   *
+   * @return backends ordered by descending priority
+   */
+  public static List<Backend> getAvailable() {
+    return Holder.AVAILABLE;
+  }
+
+  private static final class Holder {
+    static final List<Throwable> FAILURES = new ArrayList<>();
+    static final List<Backend> AVAILABLE = Collections.unmodifiableList(load(FAILURES));
+    static final Backend DEFAULT = select(AVAILABLE);
+
+    private Holder() {
+    }
+  }
+
+  private static List<Backend> load(List<Throwable> failures) {
+    List<Backend> backends = new ArrayList<>();
+    for (String className : BUILTIN_BACKENDS) {
+      try {
+        Class<?> cls = Class.forName(className);
+        backends.add((Backend) cls.getDeclaredConstructor().newInstance());
+      } catch (ClassNotFoundException e) {
+        // not present in this version of the jar
+      } catch (java.lang.Exception | LinkageError e) {
+        failures.add(e);
+      }
+    }
+    Iterator<Backend> iterator = ServiceLoader.load(Backend.class).iterator();
+    while (hasNext(iterator, failures)) {
+      try {
+        backends.add(iterator.next());
+      } catch (ServiceConfigurationError | LinkageError e) {
+        failures.add(e);
+      }
+    }
+    Collections.sort(backends, (a, b) -> Integer.compare(b.getPriority(), a.getPriority()));
+    return backends;
+  }
+
+  private static boolean hasNext(Iterator<Backend> iterator, List<Throwable> failures) {
+    try {
+      return iterator.hasNext();
+    } catch (ServiceConfigurationError e) {
+      failures.add(e);
+      return false;
+    }
+  }
+
+  private static Backend select(List<Backend> backends) {
+    String name = System.getProperty(BACKEND_PROPERTY);
+    for (Backend backend : backends) {
+      if (name == null || backend.getName().equals(name)) {
+        return backend;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,252 @@
+package io.github.llm96.ebur128java.spi;
+
+import io.github.llm96.ebur128java.SampleFormat;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Measurement state of a {@link Backend}, mirroring the ebur128_* functions that take a state.
+ * <p>
+ * Engines are not thread-safe. Arguments are validated by {@link io.github.llm96.ebur128java.State}
+ * before they are passed on.
+ */
+public interface Engine {
+  /**
+   * Set channel type.
+   *
+   * @param channelNumber zero based channel index
+   * @param value         channel type from Channel constants
+   * @return error code (see Error constants)
+   */
+  int setChannel(int channelNumber, int value);
+
+  /**
+   * Change library parameters.
+   *
+   * @param channels   new number of channels
+   * @param samplerate new sample rate
+   * @return error code (see Error constants)
+   */
+  int changeParameters(int channels, long samplerate);
+
+  /**
+   * Set the maximum window duration.
+   *
+   * @param window duration of the window in ms
+   * @return error code (see Error constants)
+   */
+  int setMaxWindow(long window);
+
+  /**
+   * Set the maximum history.
+   *
+   * @param history duration of history in ms
+   * @return error code (see Error constants)
+   */
+  int setMaxHistory(long history);
+
+  /**
+   * Discard all frames added so far, keeping the parameters, channel types, maximum window and
+   * maximum history, as if the state had just been initialized with them.
+   *
+   * @return error code (see Error constants)
+   */
+  int reset();
+
+  /**
+   * Add frames to be processed (short samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  int addFramesShort(short[] src, long frames);
+
+  /**
+   * Add frames to be processed (int samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  int addFramesInt(int[] src, long frames);
+
+  /**
+   * Add frames to be processed (float samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  int addFramesFloat(float[] src, long frames);
+
+  /**
+   * Add frames to be processed (double samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  int addFramesDouble(double[] src, long frames);
+
+  /**
+   * Add frames to be processed from a direct buffer in native byte order.
+   *
+   * @param src    buffer of source frames starting at its position (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @param format one of the native sample formats
+   * @return error code (see Error constants)
+   */
+  int addFrames(ByteBuffer src, long frames, SampleFormat format);
+
+  /**
+   * Add frames to be processed from native memory.
+   *
+   * @param address native address of the source frames (channels must be interleaved)
+   * @param frames  number of frames (not number of samples!)
+   * @param format  one of the native sample formats
+   * @return error code (see Error constants)
+   */
+  int addFrames(long address, long frames, SampleFormat format);
+
+  /**
+   * Add frames to be processed from one array per channel (short samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   */
+  int addFramesPlanar(short[][] src, int offset, long frames);
+
+  /**
+   * Add frames to be processed from one array per channel (int samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   */
+  int addFramesPlanar(int[][] src, int offset, long frames);
+
+  /**
+   * Add frames to be processed from one array per channel (float samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   */
+  int addFramesPlanar(float[][] src, int offset, long frames);
+
+  /**
+   * Add frames to be processed from one array per channel (double samples).
+   *
+   * @param src    one array of source samples per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code (see Error constants)
+   */
+  int addFramesPlanar(double[][] src, int offset, long frames);
+
+  /**
+   * Add frames to be processed from one direct buffer in native byte order per channel.
+   *
+   * @param src    one buffer of source samples per channel, starting at its position
+   * @param frames number of frames
+   * @param format one of the native sample formats
+   * @return error code (see Error constants)
+   */
+  int addFramesPlanar(ByteBuffer[] src, long frames, SampleFormat format);
+
+  /**
+   * Get global integrated loudness in LUFS.
+   *
+   * @return integrated loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessGlobal();
+
+  /**
+   * Get momentary loudness (last 400ms) in LUFS.
+   *
+   * @return momentary loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessMomentary();
+
+  /**
+   * Get short-term loudness (last 3s) in LUFS.
+   *
+   * @return short-term loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessShortterm();
+
+  /**
+   * Get loudness of the specified window in LUFS.
+   *
+   * @param window window in ms to calculate loudness
+   * @return loudness in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessWindow(long window);
+
+  /**
+   * Get loudness range (LRA) of programme in LU.
+   *
+   * @return loudness range (LRA) in LU, or Double.NEGATIVE_INFINITY on error
+   */
+  double loudnessRange();
+
+  /**
+   * Get maximum sample peak from all frames that have been processed.
+   *
+   * @param channelNumber channel to analyse
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or Double.NEGATIVE_INFINITY on error
+   */
+  double samplePeak(int channelNumber);
+
+  /**
+   * Get maximum sample peak from the last call to add_frames().
+   *
+   * @param channelNumber channel to analyse
+   * @return maximum sample peak in float format (1.0 is 0 dBFS), or Double.NEGATIVE_INFINITY on error
+   */
+  double prevSamplePeak(int channelNumber);
+
+  /**
+   * Get maximum true peak from all frames that have been processed.
+   *
+   * @param channelNumber channel to analyse
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or Double.NEGATIVE_INFINITY on error
+   */
+  double truePeak(int channelNumber);
+
+  /**
+   * Get maximum true peak from the last call to add_frames().
+   *
+   * @param channelNumber channel to analyse
+   * @return maximum true peak in float format (1.0 is 0 dBTP), or Double.NEGATIVE_INFINITY on error
+   */
+  double prevTruePeak(int channelNumber);
+
+  /**
+   * Get relative threshold in LUFS.
+   *
+   * @return relative threshold in LUFS, or Double.NEGATIVE_INFINITY on error
+   */
+  double relativeThreshold();
+
+  /**
+   * Write the complete measurement state, to be restored by {@link Backend#restore}.
+   *
+   * @param out destination of the checkpoint
+   * @throws IOException                   if writing fails
+   * @throws UnsupportedOperationException if the backend cannot capture its state
+   */
+  void save(DataOutput out) throws IOException;
+
+  /**
+   * Destroy the engine and release resources. The engine must not be used afterwards.
+   */
+  void destroy();
+}
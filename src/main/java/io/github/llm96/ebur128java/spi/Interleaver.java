@@ -0,0 +1,228 @@
+package io.github.llm96.ebur128java.spi;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.metrics.Instrumentation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Interleaves planar samples into a fixed direct buffer, for engines whose native side only
+ * accepts interleaved frames. Calls of any length are passed on to the engine in chunks that fit
+ * the buffer, so that steady calls do not allocate and the buffer does not grow with the largest
+ * call. Instances are not thread-safe.
+ */
+public final class Interleaver {
+  /** size of the scratch buffer, 64 KiB */
+  static final int SCRATCH_BYTES = 1 << 16;
+
+  /**
+   * Receives the interleaved frames, typically the add_frames method of an engine.
+   */
+  @FunctionalInterface
+  public interface Sink {
+    /**
+     * Add interleaved frames.
+     *
+     * @param src    buffer of interleaved frames at position 0, valid until the method returns
+     * @param frames number of frames
+     * @param format sample format of the frames
+     * @return error code (see Error constants)
+     */
+    int addFrames(ByteBuffer src, long frames, SampleFormat format);
+  }
+
+  private final Sink sink;
+  private ByteBuffer scratch;
+
+  /**
+   * Create an interleaver. The scratch buffer is allocated on first use.
+   *
+   * @param sink receives each chunk of interleaved frames
+   */
+  public Interleaver(Sink sink) {
+    this.sink = sink;
+  }
+
+  /**
+   * Get the number of frames interleaved at a time, allocating the scratch buffer if needed.
+   */
+  private int chunkFrames(int channels, int bytes) {
+    int stride = channels * bytes;
+    if (stride > SCRATCH_BYTES) {
+      throw new IllegalArgumentException("Too many channels to interleave: " + channels);
+    }
+    if (scratch == null) {
+      scratch = ByteBuffer.allocateDirect(SCRATCH_BYTES).order(ByteOrder.nativeOrder());
+    }
+    return SCRATCH_BYTES / stride;
+  }
+
+  /**
+   * Pass the frames interleaved at the start of the scratch buffer to the sink.
+   */
+  private int flush(int frames, int channels, SampleFormat format) {
+    Instrumentation.recordMarshalled((long) frames * channels * format.getBytesPerSample());
+    return sink.addFrames(scratch, frames, format);
+  }
+
+  /**
+   * Interleave short samples and add them.
+   *
+   * @param src    one array per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code of the first chunk that failed, or SUCCESS
+   */
+  public int addFrames(short[][] src, int offset, long frames) {
+    int channels = src.length;
+    int chunk = chunkFrames(channels, 2);
+    while (frames > 0) {
+      int count = (int) Math.min(frames, chunk);
+      for (int c = 0; c < channels; c++) {
+        short[] channel = src[c];
+        for (int i = 0, p = 2 * c; i < count; i++, p += 2 * channels) {
+          scratch.putShort(p, channel[offset + i]);
+        }
+      }
+      int result = flush(count, channels, SampleFormat.SHORT);
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      offset += count;
+      frames -= count;
+    }
+    return Error.SUCCESS;
+  }
+
+  /**
+   * Interleave int samples and add them.
+   *
+   * @param src    one array per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code of the first chunk that failed, or SUCCESS
+   */
+  public int addFrames(int[][] src, int offset, long frames) {
+    int channels = src.length;
+    int chunk = chunkFrames(channels, 4);
+    while (frames > 0) {
+      int count = (int) Math.min(frames, chunk);
+      for (int c = 0; c < channels; c++) {
+        int[] channel = src[c];
+        for (int i = 0, p = 4 * c; i < count; i++, p += 4 * channels) {
+          scratch.putInt(p, channel[offset + i]);
+        }
+      }
+      int result = flush(count, channels, SampleFormat.INT);
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      offset += count;
+      frames -= count;
+    }
+    return Error.SUCCESS;
+  }
+
+  /**
+   * Interleave float samples and add them.
+   *
+   * @param src    one array per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code of the first chunk that failed, or SUCCESS
+   */
+  public int addFrames(float[][] src, int offset, long frames) {
+    int channels = src.length;
+    int chunk = chunkFrames(channels, 4);
+    while (frames > 0) {
+      int count = (int) Math.min(frames, chunk);
+      for (int c = 0; c < channels; c++) {
+        float[] channel = src[c];
+        for (int i = 0, p = 4 * c; i < count; i++, p += 4 * channels) {
+          scratch.putFloat(p, channel[offset + i]);
+        }
+      }
+      int result = flush(count, channels, SampleFormat.FLOAT);
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      offset += count;
+      frames -= count;
+    }
+    return Error.SUCCESS;
+  }
+
+  /**
+   * Interleave double samples and add them.
+   *
+   * @param src    one array per channel
+   * @param offset index in each array of the first frame
+   * @param frames number of frames
+   * @return error code of the first chunk that failed, or SUCCESS
+   */
+  public int addFrames(double[][] src, int offset, long frames) {
+    int channels = src.length;
+    int chunk = chunkFrames(channels, 8);
+    while (frames > 0) {
+      int count = (int) Math.min(frames, chunk);
+      for (int c = 0; c < channels; c++) {
+        double[] channel = src[c];
+        for (int i = 0, p = 8 * c; i < count; i++, p += 8 * channels) {
+          scratch.putDouble(p, channel[offset + i]);
+        }
+      }
+      int result = flush(count, channels, SampleFormat.DOUBLE);
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      offset += count;
+      frames -= count;
+    }
+    return Error.SUCCESS;
+  }
+
+  /**
+   * Interleave samples of direct buffers in native byte order and add them.
+   *
+   * @param src    one buffer per channel, starting at its position, which is left unchanged
+   * @param frames number of frames
+   * @param format one of the native sample formats
+   * @return error code of the first chunk that failed, or SUCCESS
+   */
+  public int addFrames(ByteBuffer[] src, long frames, SampleFormat format) {
+    int channels = src.length;
+    int bytes = format.getBytesPerSample();
+    int stride = bytes * channels;
+    int chunk = chunkFrames(channels, bytes);
+    long done = 0;
+    while (done < frames) {
+      int count = (int) Math.min(frames - done, chunk);
+      for (int c = 0; c < channels; c++) {
+        ByteBuffer channel = src[c];
+        int q = (int) (channel.position() + done * bytes);
+        int p = bytes * c;
+        if (bytes == 2) {
+          for (int i = 0; i < count; i++, p += stride, q += 2) {
+            scratch.putShort(p, channel.getShort(q));
+          }
+        } else if (bytes == 4) {
+          for (int i = 0; i < count; i++, p += stride, q += 4) {
+            scratch.putInt(p, channel.getInt(q));
+          }
+        } else {
+          for (int i = 0; i < count; i++, p += stride, q += 8) {
+            scratch.putLong(p, channel.getLong(q));
+          }
+        }
+      }
+      int result = flush(count, channels, format);
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      done += count;
+    }
+    return Error.SUCCESS;
+  }
+}
@@ -0,0 +1,121 @@
+package io.github.llm96.ebur128java.timeline;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.State;
+
+/**
+ * Adds frames to a state in chunks ending at its 100 ms block boundaries, and runs a callback
+ * each time a block completes, when the momentary and short-term loudness of the state end
+ * exactly at the boundary.
+ * <p>
+ * The first chunk of a call is passed in place, the following ones are copied to the start of a
+ * scratch array of one block, allocated on first use of each sample type.
+ */
+final class BlockSplitter {
+  private final int channels;
+  private final int hop;
+  private final Runnable onBoundary;
+  private long frames;
+  private int framesToBoundary;
+
+  private final Sink shortSink;
+  private final Sink intSink;
+  private final Sink floatSink;
+  private final Sink doubleSink;
+  private short[] shortScratch;
+  private int[] intScratch;
+  private float[] floatScratch;
+  private double[] doubleScratch;
+
+  /**
+   * Create a splitter.
+   *
+   * @param state      state without frames
+   * @param onBoundary called after the frames completing each block have been added
+   */
+  BlockSplitter(State state, Runnable onBoundary) {
+    this.channels = state.getChannels();
+    this.hop = (int) ((state.getSamplerate() + 5) / 10);
+    this.onBoundary = onBoundary;
+    this.framesToBoundary = hop;
+    this.shortSink = (chunk, count) -> state.addFramesShort((short[]) chunk, count);
+    this.intSink = (chunk, count) -> state.addFramesInt((int[]) chunk, count);
+    this.floatSink = (chunk, count) -> state.addFramesFloat((float[]) chunk, count);
+    this.doubleSink = (chunk, count) -> state.addFramesDouble((double[]) chunk, count);
+  }
+
+  int addFramesShort(short[] src, long frames) {
+    if (shortScratch == null) {
+      shortScratch = new short[hop * channels];
+    }
+    return addFrames(src, shortScratch, frames, shortSink);
+  }
+
+  int addFramesInt(int[] src, long frames) {
+    if (intScratch == null) {
+      intScratch = new int[hop * channels];
+    }
+    return addFrames(src, intScratch, frames, intSink);
+  }
+
+  int addFramesFloat(float[] src, long frames) {
+    if (floatScratch == null) {
+      floatScratch = new float[hop * channels];
+    }
+    return addFrames(src, floatScratch, frames, floatSink);
+  }
+
+  int addFramesDouble(double[] src, long frames) {
+    if (doubleScratch == null) {
+      doubleScratch = new double[hop * channels];
+    }
+    return addFrames(src, doubleScratch, frames, doubleSink);
+  }
+
+  private interface Sink {
+    int add(Object chunk, int frames);
+  }
+
+  private int addFrames(Object src, Object scratch, long frames, Sink sink) {
+    long offset = 0;
+    while (frames > 0) {
+      int count = (int) Math.min(frames, framesToBoundary);
+      Object chunk = src;
+      if (offset > 0) {
+        System.arraycopy(src, (int) (offset * channels), scratch, 0, count * channels);
+        chunk = scratch;
+      }
+      int result = sink.add(chunk, count);
+      if (result != Error.SUCCESS) {
+        return result;
+      }
+      offset += count;
+      frames -= count;
+      this.frames += count;
+      framesToBoundary -= count;
+      if (framesToBoundary == 0) {
+        framesToBoundary = hop;
+        onBoundary.run();
+      }
+    }
+    return Error.SUCCESS;
+  }
+
+  /**
+   * Get the length of a block.
+   *
+   * @return number of frames in 100 ms
+   */
+  int getHop() {
+    return hop;
+  }
+
+  /**
+   * Get the number of frames added.
+   *
+   * @return number of frames
+   */
+  long getFrames() {
+    return frames;
+  }
+}
@@ -0,0 +1,353 @@
+package io.github.llm96.ebur128java.timeline;
+
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the momentary and short-term loudness of a programme at every 100 ms block boundary.
+ * <p>
+ * Frames are added through the timeline, which splits each call at the block boundaries of the
+ * state so that a point is taken exactly when a block completes. Points are stored as 32-bit
+ * floats or as 16-bit integers in hundredths of a LU, in pages of a {@link TimelineStorage} on the
+ * heap, off-heap or in a memory-mapped file, and can be read by index in constant time. A pyramid
+ * of minimum and maximum values, each level 16 times coarser than the one below, lets a curve be
+ * rendered at any zoom level without scanning every point.
+ * <p>
+ * The timeline must be attached to a state without frames and all frames must be added through
+ * it. Like the state, it is not thread-safe.
+ */
+public class LoudnessTimeline implements Closeable {
+  /** momentary loudness (last 400 ms) series */
+  public static final int MOMENTARY = 0;
+  /** short-term loudness (last 3 s) series, recorded if the state has MODE_S */
+  public static final int SHORTTERM = 1;
+
+  /** store points as 32-bit floats */
+  public static final int FLOAT32 = 0;
+  /** store points as 16-bit integers in hundredths of a LU */
+  public static final int INT16 = 1;
+
+  /** number of entries of a pyramid level combined into one entry of the next level */
+  static final int PYRAMID_FACTOR = 16;
+  /** enough levels for more than 2^32 points */
+  private static final int PYRAMID_LEVELS = 9;
+  /** stored for Double.NEGATIVE_INFINITY in INT16 encoding */
+  private static final short INT16_SILENCE = Short.MIN_VALUE;
+
+  private final State state;
+  private final TimelineStorage storage;
+  private final int encoding;
+  private final BlockSplitter splitter;
+  private final long samplerate;
+  private final int hop;
+  private final int series;
+  private final int valueBytes;
+  private final int recordBytes;
+  private final int pointsPerPage;
+  private final List<ByteBuffer> pages = new ArrayList<>();
+  private final Pyramid[] pyramids;
+  private long points;
+
+  /**
+   * Create a timeline storing 32-bit float points on the heap.
+   *
+   * @param state state without frames to record
+   */
+  public LoudnessTimeline(State state) {
+    this(state, TimelineStorage.heap(), FLOAT32);
+  }
+
+  /**
+   * Create a timeline.
+   *
+   * @param state    state without frames to record
+   * @param storage  storage of the points, closed with the timeline
+   * @param encoding FLOAT32 or INT16
+   * @throws IllegalArgumentException if the encoding is invalid
+   */
+  public LoudnessTimeline(State state, TimelineStorage storage, int encoding) {
+    if (encoding != FLOAT32 && encoding != INT16) {
+      throw new IllegalArgumentException("Invalid encoding: " + encoding);
+    }
+    this.state = state;
+    this.storage = storage;
+    this.encoding = encoding;
+    this.splitter = new BlockSplitter(state, this::record);
+    this.samplerate = state.getSamplerate();
+    this.hop = splitter.getHop();
+    this.series = (state.getMode() & Mode.MODE_S) == Mode.MODE_S ? 2 : 1;
+    this.valueBytes = encoding == FLOAT32 ? Float.BYTES : Short.BYTES;
+    this.recordBytes = series * valueBytes;
+    this.pointsPerPage = TimelineStorage.PAGE_BYTES / recordBytes;
+    this.pyramids = new Pyramid[series];
+    for (int s = 0; s < series; s++) {
+      pyramids[s] = new Pyramid();
+    }
+  }
+
+  /**
+   * Add frames to the state, recording a point at every block boundary (short samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   * @throws UncheckedIOException if a page of the storage cannot be mapped
+   */
+  public int addFramesShort(short[] src, long frames) {
+    return splitter.addFramesShort(src, frames);
+  }
+
+  /**
+   * Add frames to the state, recording a point at every block boundary (int samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   * @throws UncheckedIOException if a page of the storage cannot be mapped
+   */
+  public int addFramesInt(int[] src, long frames) {
+    return splitter.addFramesInt(src, frames);
+  }
+
+  /**
+   * Add frames to the state, recording a point at every block boundary (float samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   * @throws UncheckedIOException if a page of the storage cannot be mapped
+   */
+  public int addFramesFloat(float[] src, long frames) {
+    return splitter.addFramesFloat(src, frames);
+  }
+
+  /**
+   * Add frames to the state, recording a point at every block boundary (double samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   * @throws UncheckedIOException if a page of the storage cannot be mapped
+   */
+  public int addFramesDouble(double[] src, long frames) {
+    return splitter.addFramesDouble(src, frames);
+  }
+
+  private void record() {
+    int page = (int) (points / pointsPerPage);
+    if (page == pages.size()) {
+      try {
+        pages.add(storage.page(page));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    int index = (int) (points % pointsPerPage) * recordBytes;
+    store(pages.get(page), index, state.getLoudnessMomentary(), pyramids[MOMENTARY]);
+    if (series > 1) {
+      store(pages.get(page), index + valueBytes, state.getLoudnessShortterm(), pyramids[SHORTTERM]);
+    }
+    points++;
+  }
+
+  private void store(ByteBuffer page, int index, double value, Pyramid pyramid) {
+    if (encoding == FLOAT32) {
+      page.putFloat(index, (float) value);
+    } else {
+      page.putShort(index, encode(value));
+    }
+    pyramid.add((float) decode(page, index));
+  }
+
+  private static short encode(double value) {
+    if (value == Double.NEGATIVE_INFINITY || Double.isNaN(value)) {
+      return INT16_SILENCE;
+    }
+    return (short) Math.max(INT16_SILENCE + 1, Math.min(Short.MAX_VALUE, Math.round(value * 100.0)));
+  }
+
+  private double decode(ByteBuffer page, int index) {
+    if (encoding == FLOAT32) {
+      return page.getFloat(index);
+    }
+    short value = page.getShort(index);
+    return value == INT16_SILENCE ? Double.NEGATIVE_INFINITY : value / 100.0;
+  }
+
+  /**
+   * Get the number of points recorded.
+   *
+   * @return number of points
+   */
+  public long getPoints() {
+    return points;
+  }
+
+  /**
+   * Get the time at which a point was taken, the end of its block.
+   *
+   * @param point index of the point
+   * @return time from the start of the programme in seconds
+   */
+  public double getTime(long point) {
+    return (double) (point + 1) * hop / samplerate;
+  }
+
+  /**
+   * Get the last point taken at or before a time.
+   *
+   * @param seconds time from the start of the programme
+   * @return index of the point, or -1 if no point was taken by then
+   */
+  public long getPoint(double seconds) {
+    long point = (long) Math.floor(seconds * samplerate / hop) - 1;
+    return Math.max(-1, Math.min(point, points - 1));
+  }
+
+  /**
+   * Get a recorded value.
+   *
+   * @param series MOMENTARY or SHORTTERM
+   * @param point  index of the point
+   * @return loudness in LUFS, Double.NEGATIVE_INFINITY for silence, or NaN for SHORTTERM without MODE_S
+   * @throws IndexOutOfBoundsException if the point has not been recorded
+   */
+  public double get(int series, long point) {
+    if (point < 0 || point >= points) {
+      throw new IndexOutOfBoundsException("Point " + point + " of " + points);
+    }
+    if (series >= this.series) {
+      return Double.NaN;
+    }
+    ByteBuffer page = pages.get((int) (point / pointsPerPage));
+    return decode(page, (int) (point % pointsPerPage) * recordBytes + series * valueBytes);
+  }
+
+  /**
+   * Render a range of points into buckets, each holding the minimum and maximum of its points.
+   * Each bucket is computed from the coarsest pyramid levels that fit, so rendering costs
+   * O(buckets * log(points)) rather than O(points).
+   *
+   * @param series MOMENTARY or SHORTTERM
+   * @param from   index of the first point
+   * @param to     index after the last point
+   * @param min    minimum of each bucket, NaN for empty buckets
+   * @param max    maximum of each bucket, NaN for empty buckets, of the same length as min
+   * @throws IllegalArgumentException if the range or the arrays are invalid
+   */
+  public void render(int series, long from, long to, float[] min, float[] max) {
+    if (from < 0 || to < from || to > points || min.length != max.length) {
+      throw new IllegalArgumentException("Invalid range or buckets: " + from + ", " + to);
+    }
+    int buckets = min.length;
+    for (int i = 0; i < buckets; i++) {
+      long start = from + (to - from) * i / buckets;
+      long end = from + (to - from) * (i + 1) / buckets;
+      if (start == end || series >= this.series) {
+        min[i] = Float.NaN;
+        max[i] = Float.NaN;
+        continue;
+      }
+      float lo = Float.POSITIVE_INFINITY;
+      float hi = Float.NEGATIVE_INFINITY;
+      Pyramid pyramid = pyramids[series];
+      int level = 0;
+      while (start < end) {
+        long alignedStart = (start + PYRAMID_FACTOR - 1) / PYRAMID_FACTOR * PYRAMID_FACTOR;
+        long alignedEnd = end / PYRAMID_FACTOR * PYRAMID_FACTOR;
+        if (level + 1 >= PYRAMID_LEVELS || alignedStart >= alignedEnd) {
+          alignedStart = end;
+          alignedEnd = end;
+        }
+        // the points outside the aligned range are read at this level, the rest one level up
+        for (long p = start; p < alignedStart; p++) {
+          lo = Math.min(lo, minAt(series, pyramid, level, p));
+          hi = Math.max(hi, maxAt(series, pyramid, level, p));
+        }
+        for (long p = Math.max(alignedEnd, alignedStart); p < end; p++) {
+          lo = Math.min(lo, minAt(series, pyramid, level, p));
+          hi = Math.max(hi, maxAt(series, pyramid, level, p));
+        }
+        start = alignedStart / PYRAMID_FACTOR;
+        end = alignedEnd / PYRAMID_FACTOR;
+        level++;
+      }
+      min[i] = lo;
+      max[i] = hi;
+    }
+  }
+
+  private float minAt(int series, Pyramid pyramid, int level, long index) {
+    return level == 0 ? (float) get(series, index) : pyramid.min[level][(int) index];
+  }
+
+  private float maxAt(int series, Pyramid pyramid, int level, long index) {
+    return level == 0 ? (float) get(series, index) : pyramid.max[level][(int) index];
+  }
+
+  /**
+   * Close the storage. The state is not closed.
+   *
+   * @throws IOException if closing the storage fails
+   */
+  @Override
+  public void close() throws IOException {
+    pages.clear();
+    storage.close();
+  }
+
+  /**
+   * Minimum and maximum of every complete group of PYRAMID_FACTOR entries of the level below, for
+   * levels 1 and up; level 0 is the stored points.
+   */
+  private static final class Pyramid {
+    final float[][] min = new float[PYRAMID_LEVELS][];
+    final float[][] max = new float[PYRAMID_LEVELS][];
+    final int[] count = new int[PYRAMID_LEVELS];
+    /** minimum, maximum and size of the incomplete group of each level */
+    final float[] groupMin = new float[PYRAMID_LEVELS];
+    final float[] groupMax = new float[PYRAMID_LEVELS];
+    final int[] groupSize = new int[PYRAMID_LEVELS];
+
+    Pyramid() {
+      for (int level = 1; level < PYRAMID_LEVELS; level++) {
+        min[level] = new float[PYRAMID_FACTOR];
+        max[level] = new float[PYRAMID_FACTOR];
+        groupMin[level] = Float.POSITIVE_INFINITY;
+        groupMax[level] = Float.NEGATIVE_INFINITY;
+      }
+    }
+
+    void add(float value) {
+      float lo = value;
+      float hi = value;
+      for (int level = 1; level < PYRAMID_LEVELS; level++) {
+        groupMin[level] = Math.min(groupMin[level], lo);
+        groupMax[level] = Math.max(groupMax[level], hi);
+        if (++groupSize[level] < PYRAMID_FACTOR) {
+          return;
+        }
+        if (count[level] == min[level].length) {
+          min[level] = Arrays.copyOf(min[level], 2 * count[level]);
+          max[level] = Arrays.copyOf(max[level], 2 * count[level]);
+        }
+        lo = groupMin[level];
+        hi = groupMax[level];
+        min[level][count[level]] = lo;
+        max[level][count[level]] = hi;
+        count[level]++;
+        groupMin[level] = Float.POSITIVE_INFINITY;
+        groupMax[level] = Float.NEGATIVE_INFINITY;
+        groupSize[level] = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,324 @@
+package io.github.llm96.ebur128java.timeline;
+
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+
+/**
+ * Integrated loudness and loudness range over a sliding window, such as the last 10 minutes of a
+ * 24/7 feed.
+ * <p>
+ * Frames are added through this class, which splits each call at the block boundaries of the
+ * state. When a 100 ms block completes, the momentary loudness of the state is the loudness of
+ * the 400 ms gating block ending there; once a second after the first 3 s, the short-term
+ * loudness is a block of the loudness range, at the same times libebur128 takes them. Each block
+ * is put into a histogram of 1000 bins of 0.1 LU from -70 to +30 LUFS, like
+ * {@link Mode#MODE_HISTOGRAM}, and the block that leaves the window is taken out of it again, so
+ * adding a block costs O(1) and memory does not depend on how long the feed runs. Reading the
+ * loudness costs O(bins).
+ * <p>
+ * The state needs MODE_M for integrated loudness and MODE_S for loudness range. MODE_I and
+ * MODE_LRA are not needed: without them the state keeps no history and its memory stays
+ * constant too. The state must not have frames yet and all frames must be added through this
+ * class. Like the state, it is not thread-safe.
+ */
+public class SlidingLoudness {
+  private static final int HISTOGRAM_SIZE = 1000;
+  /** ring entry of a block below the absolute gate */
+  private static final short GATED = -1;
+  /** energy of -10 LU, the relative gate of integrated loudness */
+  private static final double RELATIVE_GATE_FACTOR = Math.pow(10.0, -10.0 / 10.0);
+  /** energy of -20 LU, the relative gate of loudness range */
+  private static final double MINUS_TWENTY_DECIBELS = Math.pow(10.0, -20.0 / 10.0);
+  /** energy at the centre of each histogram bin */
+  private static final double[] HISTOGRAM_ENERGIES = new double[HISTOGRAM_SIZE];
+  /** energy at the lower boundary of each histogram bin, the first one being the absolute gate */
+  private static final double[] HISTOGRAM_ENERGY_BOUNDARIES = new double[HISTOGRAM_SIZE + 1];
+
+  static {
+    for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+      HISTOGRAM_ENERGIES[i] = Math.pow(10.0, ((double) i / 10.0 - 69.95 + 0.691) / 10.0);
+    }
+    for (int i = 0; i < HISTOGRAM_SIZE + 1; i++) {
+      HISTOGRAM_ENERGY_BOUNDARIES[i] = Math.pow(10.0, ((double) i / 10.0 - 70.0 + 0.691) / 10.0);
+    }
+  }
+
+  private final State state;
+  private final BlockSplitter splitter;
+  private final long window;
+  private final boolean shortTerm;
+  private long hops;
+
+  /** histogram bins of the gating blocks in the window */
+  private final Blocks blocks;
+  /** histogram bins of the short-term blocks in the window */
+  private final Blocks shortTermBlocks;
+
+  /**
+   * Create a sliding measurement.
+   *
+   * @param state  state without frames, with MODE_M and optionally MODE_S
+   * @param window duration of the window in ms, at least 400 ms, or 3000 ms with MODE_S
+   * @throws IllegalArgumentException if the state lacks MODE_M or the window is too short
+   */
+  public SlidingLoudness(State state, long window) {
+    if ((state.getMode() & Mode.MODE_M) != Mode.MODE_M) {
+      throw new IllegalArgumentException("State must have MODE_M");
+    }
+    this.shortTerm = (state.getMode() & Mode.MODE_S) == Mode.MODE_S;
+    if (window < (shortTerm ? 3000 : 400) || window / 100 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid window: " + window);
+    }
+    this.state = state;
+    this.splitter = new BlockSplitter(state, this::slide);
+    this.window = window;
+    // a 400 ms block fits once the window holds 4 hops, a 3 s block once it holds 30
+    this.blocks = new Blocks((int) (window / 100) - 3);
+    this.shortTermBlocks = shortTerm ? new Blocks((int) ((window / 100 - 30) / 10) + 1) : null;
+  }
+
+  /**
+   * Add frames to the state, sliding the window at every block boundary (short samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  public int addFramesShort(short[] src, long frames) {
+    return splitter.addFramesShort(src, frames);
+  }
+
+  /**
+   * Add frames to the state, sliding the window at every block boundary (int samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  public int addFramesInt(int[] src, long frames) {
+    return splitter.addFramesInt(src, frames);
+  }
+
+  /**
+   * Add frames to the state, sliding the window at every block boundary (float samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  public int addFramesFloat(float[] src, long frames) {
+    return splitter.addFramesFloat(src, frames);
+  }
+
+  /**
+   * Add frames to the state, sliding the window at every block boundary (double samples).
+   *
+   * @param src    array of source frames (channels must be interleaved)
+   * @param frames number of frames (not number of samples!)
+   * @return error code (see Error constants)
+   */
+  public int addFramesDouble(double[] src, long frames) {
+    return splitter.addFramesDouble(src, frames);
+  }
+
+  /**
+   * Take the blocks completed at a boundary into the window.
+   */
+  private void slide() {
+    hops++;
+    if (hops >= 4) {
+      blocks.add(bin(state.getLoudnessMomentary()));
+    }
+    if (shortTerm && hops >= 30 && (hops - 30) % 10 == 0) {
+      shortTermBlocks.add(bin(state.getLoudnessShortterm()));
+    }
+  }
+
+  /**
+   * Find the histogram bin of a block loudness.
+   *
+   * @return index of the bin, or GATED below the absolute gate
+   */
+  private static short bin(double loudness) {
+    double energy = Math.pow(10.0, (loudness + 0.691) / 10.0);
+    if (!(energy >= HISTOGRAM_ENERGY_BOUNDARIES[0])) {
+      return GATED;
+    }
+    return (short) histogramIndex(energy);
+  }
+
+  private static int histogramIndex(double energy) {
+    int min = 0;
+    int max = HISTOGRAM_SIZE;
+    do {
+      int mid = (min + max) >>> 1;
+      if (energy >= HISTOGRAM_ENERGY_BOUNDARIES[mid]) {
+        min = mid;
+      } else {
+        max = mid;
+      }
+    } while (max - min != 1);
+    return min;
+  }
+
+  /**
+   * Find the first histogram bin whose centre energy is at or above a relative gate.
+   */
+  private static int gateIndex(double gate) {
+    if (gate < HISTOGRAM_ENERGY_BOUNDARIES[0]) {
+      return 0;
+    }
+    int index = histogramIndex(gate);
+    if (gate > HISTOGRAM_ENERGIES[index]) {
+      index++;
+    }
+    return index;
+  }
+
+  private static double toLoudness(double energy) {
+    return 10 * (Math.log(energy) / Math.log(10.0)) - 0.691;
+  }
+
+  /**
+   * Get the integrated loudness of the window, gated at -70 LUFS and -10 LU.
+   *
+   * @return integrated loudness in LUFS, or Double.NEGATIVE_INFINITY if no block is above the gates
+   */
+  public double getLoudnessIntegrated() {
+    int[] histogram = blocks.histogram;
+    long count = 0;
+    double sum = 0.0;
+    for (int j = 0; j < HISTOGRAM_SIZE; j++) {
+      count += histogram[j];
+      sum += histogram[j] * HISTOGRAM_ENERGIES[j];
+    }
+    if (count == 0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    int start = gateIndex(sum / count * RELATIVE_GATE_FACTOR);
+    count = 0;
+    sum = 0.0;
+    for (int j = start; j < HISTOGRAM_SIZE; j++) {
+      count += histogram[j];
+      sum += histogram[j] * HISTOGRAM_ENERGIES[j];
+    }
+    if (count == 0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    return toLoudness(sum / count);
+  }
+
+  /**
+   * Get the loudness range of the window, between the 10th and 95th percentile of the short-term
+   * loudness gated at -70 LUFS and -20 LU.
+   *
+   * @return loudness range in LU, or Double.NEGATIVE_INFINITY if the state lacks MODE_S
+   */
+  public double getLoudnessRange() {
+    if (!shortTerm) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    int[] histogram = shortTermBlocks.histogram;
+    long size = 0;
+    double power = 0.0;
+    for (int j = 0; j < HISTOGRAM_SIZE; j++) {
+      size += histogram[j];
+      power += histogram[j] * HISTOGRAM_ENERGIES[j];
+    }
+    if (size == 0) {
+      return 0.0;
+    }
+    int index = gateIndex(MINUS_TWENTY_DECIBELS * power / size);
+    size = 0;
+    for (int j = index; j < HISTOGRAM_SIZE; j++) {
+      size += histogram[j];
+    }
+    if (size == 0) {
+      return 0.0;
+    }
+    long percentileLow = (long) ((size - 1) * 0.1 + 0.5);
+    long percentileHigh = (long) ((size - 1) * 0.95 + 0.5);
+    size = 0;
+    int j = index;
+    while (size <= percentileLow) {
+      size += histogram[j++];
+    }
+    double lowEnergy = HISTOGRAM_ENERGIES[j - 1];
+    while (size <= percentileHigh) {
+      size += histogram[j++];
+    }
+    double highEnergy = HISTOGRAM_ENERGIES[j - 1];
+    return toLoudness(highEnergy) - toLoudness(lowEnergy);
+  }
+
+  /**
+   * Get the duration of the window.
+   *
+   * @return duration in ms
+   */
+  public long getWindow() {
+    return window;
+  }
+
+  /**
+   * Get the number of gating blocks in the window, including those below the absolute gate.
+   *
+   * @return number of blocks
+   */
+  public int getBlocks() {
+    return blocks.size;
+  }
+
+  /**
+   * Get the number of frames added.
+   *
+   * @return number of frames
+   */
+  public long getFrames() {
+    return splitter.getFrames();
+  }
+
+  /**
+   * Get the state measuring the frames.
+   *
+   * @return state
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Ring of the histogram bins of the blocks in the window, and the histogram they add up to.
+   */
+  private static final class Blocks {
+    final short[] ring;
+    final int[] histogram = new int[HISTOGRAM_SIZE];
+    int head;
+    int size;
+
+    Blocks(int capacity) {
+      this.ring = new short[capacity];
+    }
+
+    /**
+     * Add the newest block, removing the oldest one when the window is full.
+     */
+    void add(short bin) {
+      int tail = head + size;
+      if (size == ring.length) {
+        short oldest = ring[head];
+        if (oldest != GATED) {
+          histogram[oldest]--;
+        }
+        head = head + 1 == ring.length ? 0 : head + 1;
+        tail = head + size - 1;
+      } else {
+        size++;
+      }
+      ring[tail >= ring.length ? tail - ring.length : tail] = bin;
+      if (bin != GATED) {
+        histogram[bin]++;
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package io.github.llm96.ebur128java.timeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Storage of the points of a {@link LoudnessTimeline}, allocated in fixed-size pages so that the
+ * timeline grows without copying and a point is found in constant time.
+ */
+public abstract class TimelineStorage implements Closeable {
+  /** size of a page in bytes */
+  static final int PAGE_BYTES = 1 << 20;
+
+  TimelineStorage() {
+  }
+
+  /**
+   * Store points in pages on the Java heap.
+   *
+   * @return storage
+   */
+  public static TimelineStorage heap() {
+    return new TimelineStorage() {
+      @Override
+      ByteBuffer page(int index) {
+        return ByteBuffer.allocate(PAGE_BYTES).order(ByteOrder.nativeOrder());
+      }
+    };
+  }
+
+  /**
+   * Store points in direct buffers outside the Java heap.
+   *
+   * @return storage
+   */
+  public static TimelineStorage direct() {
+    return new TimelineStorage() {
+      @Override
+      ByteBuffer page(int index) {
+        return ByteBuffer.allocateDirect(PAGE_BYTES).order(ByteOrder.nativeOrder());
+      }
+    };
+  }
+
+  /**
+   * Store points in a memory-mapped file, which is created or truncated. The points are stored
+   * back to back in little-endian order, the file is extended a whole page at a time.
+   *
+   * @param path file to write
+   * @return storage, closing it closes the file
+   * @throws IOException if the file cannot be opened
+   */
+  public static TimelineStorage mapped(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    return new TimelineStorage() {
+      @Override
+      ByteBuffer page(int index) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, (long) index * PAGE_BYTES, PAGE_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+      }
+
+      @Override
+      public void close() throws IOException {
+        channel.close();
+      }
+    };
+  }
+
+  /**
+   * Allocate a page.
+   *
+   * @param index index of the page
+   * @return zeroed page of PAGE_BYTES bytes
+   * @throws IOException if the page cannot be mapped
+   */
+  abstract ByteBuffer page(int index) throws IOException;
+
+  /**
+   * Release the storage. Pages already handed out are released by the garbage collector.
+   *
+   * @throws IOException if closing a file fails
+   */
+  @Override
+  public void close() throws IOException {
+  }
+}
@@ -0,0 +1,34 @@
+package io.github.llm96.ebur128java.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event of a call by a state into its backend that took longer than the threshold.
+ */
+@Name("io.github.llm96.ebur128java.Call")
+@Label("EBUR128 Call")
+@Category("EBUR128")
+@Description("Slow call into a loudness measurement backend")
+@Threshold("1 ms")
+final class CallEvent extends Event {
+  @Label("Operation")
+  String operation;
+
+  @Label("Backend")
+  String backend;
+
+  @Label("Channels")
+  int channels;
+
+  @Label("Frames")
+  long frames;
+
+  @Label("Result")
+  @Description("Error code, 0 on success")
+  int result;
+}
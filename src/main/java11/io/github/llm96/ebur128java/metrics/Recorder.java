@@ -0,0 +1,49 @@
+package io.github.llm96.ebur128java.metrics;
+
+/**
+ * Records instrumented calls as JFR events.
+ */
+final class Recorder {
+  private Recorder() {
+  }
+
+  /**
+   * Start timing a call.
+   *
+   * @return event to pass to {@link #end}, or null if the event is disabled
+   */
+  static Object begin() {
+    CallEvent event = new CallEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Finish timing a call and record it if it was slow enough.
+   *
+   * @param event     event returned by {@link #begin}
+   * @param operation name of the engine method
+   * @param backend   name of the backend
+   * @param channels  number of channels
+   * @param frames    number of frames passed, 0 for other calls
+   * @param result    error code (see Error constants)
+   */
+  static void end(Object event, String operation, String backend, int channels, long frames, int result) {
+    if (event == null) {
+      return;
+    }
+    CallEvent call = (CallEvent) event;
+    call.end();
+    if (call.shouldCommit()) {
+      call.operation = operation;
+      call.backend = backend;
+      call.channels = channels;
+      call.frames = frames;
+      call.result = result;
+      call.commit();
+    }
+  }
+}
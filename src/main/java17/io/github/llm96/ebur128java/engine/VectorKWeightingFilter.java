@@ -0,0 +1,105 @@
+package io.github.llm96.ebur128java.engine;
+
+import io.github.llm96.ebur128java.Channel;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * K-weighting filter running the channels of an interleaved frame in the lanes of a vector.
+ * <p>
+ * The filter memories are planar, so the lanes load and store them directly. Unused channels are
+ * masked out of the stores, and the lanes compute the same operations in the same order as the
+ * scalar filter, so the results are identical.
+ */
+final class VectorKWeightingFilter extends KWeightingFilter {
+  private static final VectorSpecies<Double> SPECIES = VectorKernels.SPECIES;
+
+  /** channels in use, padded to allow loading a mask at any channel */
+  private final boolean[] used;
+
+  VectorKWeightingFilter(int channels, long samplerate) {
+    super(channels, samplerate);
+    used = new boolean[channels + SPECIES.length()];
+  }
+
+  @Override
+  void process(double[] src, double[] dst, int dstFrame, int frames, int[] channelMap) {
+    if (channels == 1) {
+      super.process(src, dst, dstFrame, frames, channelMap);
+      return;
+    }
+    for (int c = 0; c < channels; c++) {
+      used[c] = channelMap[c] != Channel.UNUSED;
+    }
+    for (int c = 0; c < channels; c += SPECIES.length()) {
+      VectorMask<Double> lanes = SPECIES.indexInRange(c, channels);
+      VectorMask<Double> mask = lanes.and(VectorMask.fromArray(SPECIES, used, c));
+      if (mask.allTrue()) {
+        processLanes(src, dst, dstFrame, frames, c);
+      } else if (mask.anyTrue()) {
+        processLanes(src, dst, dstFrame, frames, c, lanes, mask);
+      }
+    }
+  }
+
+  private void processLanes(double[] src, double[] dst, int dstFrame, int frames, int c) {
+    double a1 = a[1], a2 = a[2], a3 = a[3], a4 = a[4];
+    double b0 = b[0], b1 = b[1], b2 = b[2], b3 = b[3], b4 = b[4];
+    DoubleVector v1 = DoubleVector.fromArray(SPECIES, v, c);
+    DoubleVector v2 = DoubleVector.fromArray(SPECIES, v, channels + c);
+    DoubleVector v3 = DoubleVector.fromArray(SPECIES, v, 2 * channels + c);
+    DoubleVector v4 = DoubleVector.fromArray(SPECIES, v, 3 * channels + c);
+    int in = c;
+    int out = dstFrame * channels + c;
+    for (int i = 0; i < frames; i++) {
+      DoubleVector v0 = DoubleVector.fromArray(SPECIES, src, in)
+          .sub(v1.mul(a1)).sub(v2.mul(a2)).sub(v3.mul(a3)).sub(v4.mul(a4));
+      v0.mul(b0).add(v1.mul(b1)).add(v2.mul(b2)).add(v3.mul(b3)).add(v4.mul(b4))
+          .intoArray(dst, out);
+      v4 = v3;
+      v3 = v2;
+      v2 = v1;
+      v1 = v0;
+      in += channels;
+      out += channels;
+    }
+    flush(v1).intoArray(v, c);
+    flush(v2).intoArray(v, channels + c);
+    flush(v3).intoArray(v, 2 * channels + c);
+    flush(v4).intoArray(v, 3 * channels + c);
+  }
+
+  private void processLanes(double[] src, double[] dst, int dstFrame, int frames, int c,
+                            VectorMask<Double> lanes, VectorMask<Double> mask) {
+    double a1 = a[1], a2 = a[2], a3 = a[3], a4 = a[4];
+    double b0 = b[0], b1 = b[1], b2 = b[2], b3 = b[3], b4 = b[4];
+    DoubleVector v1 = DoubleVector.fromArray(SPECIES, v, c, lanes);
+    DoubleVector v2 = DoubleVector.fromArray(SPECIES, v, channels + c, lanes);
+    DoubleVector v3 = DoubleVector.fromArray(SPECIES, v, 2 * channels + c, lanes);
+    DoubleVector v4 = DoubleVector.fromArray(SPECIES, v, 3 * channels + c, lanes);
+    int in = c;
+    int out = dstFrame * channels + c;
+    for (int i = 0; i < frames; i++) {
+      DoubleVector v0 = DoubleVector.fromArray(SPECIES, src, in, lanes)
+          .sub(v1.mul(a1)).sub(v2.mul(a2)).sub(v3.mul(a3)).sub(v4.mul(a4));
+      v0.mul(b0).add(v1.mul(b1)).add(v2.mul(b2)).add(v3.mul(b3)).add(v4.mul(b4))
+          .intoArray(dst, out, mask);
+      v4 = v3;
+      v3 = v2;
+      v2 = v1;
+      v1 = v0;
+      in += channels;
+      out += channels;
+    }
+    flush(v1).intoArray(v, c, mask);
+    flush(v2).intoArray(v, channels + c, mask);
+    flush(v3).intoArray(v, 2 * channels + c, mask);
+    flush(v4).intoArray(v, 3 * channels + c, mask);
+  }
+
+  private static DoubleVector flush(DoubleVector value) {
+    return value.blend(0.0, value.abs().compare(VectorOperators.LT, Double.MIN_NORMAL));
+  }
+}
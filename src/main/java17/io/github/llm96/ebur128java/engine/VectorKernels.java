@@ -0,0 +1,32 @@
+package io.github.llm96.ebur128java.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels built on the incubating Vector API, using the preferred vector size of the CPU.
+ */
+final class VectorKernels extends Kernels {
+  static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  VectorKernels() {
+    if (SPECIES.length() < 2) {
+      throw new UnsupportedOperationException("No SIMD support");
+    }
+  }
+
+  @Override
+  KWeightingFilter filter(int channels, long samplerate) {
+    return new VectorKWeightingFilter(channels, samplerate);
+  }
+
+  @Override
+  TruePeakInterpolator interpolator(int taps, int factor, int channels) {
+    return new VectorTruePeakInterpolator(taps, factor, channels);
+  }
+
+  @Override
+  String getName() {
+    return "vector " + SPECIES.vectorBitSize() + " bit";
+  }
+}
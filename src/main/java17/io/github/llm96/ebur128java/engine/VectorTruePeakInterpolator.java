@@ -0,0 +1,88 @@
+package io.github.llm96.ebur128java.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * True peak interpolator computing the taps of each sub-filter in the lanes of a vector.
+ * <p>
+ * Each channel keeps its delay line twice in a row, so that the last {@code delay} samples are
+ * always contiguous, and the sub-filter coefficients are stored densely in the same order, padded
+ * with zeros to a multiple of the vector length. The sums are accumulated in a different order
+ * than the scalar interpolator, so peaks may differ in the last bits.
+ */
+final class VectorTruePeakInterpolator extends TruePeakInterpolator {
+  private static final VectorSpecies<Double> SPECIES = VectorKernels.SPECIES;
+
+  /** dense coefficients of each sub-filter, from the oldest to the newest sample */
+  private final double[][] dense;
+  private final int length;
+
+  /** doubled delay line of each channel, stored at channel * stride */
+  private final double[] history;
+  private final int stride;
+
+  VectorTruePeakInterpolator(int taps, int factor, int channels) {
+    super(taps, factor, channels);
+    length = SPECIES.loopBound(delay + SPECIES.length() - 1);
+    dense = new double[factor][length];
+    for (int f = 0; f < factor; f++) {
+      for (int t = 0; t < coeff[f].length; t++) {
+        dense[f][delay - 1 - index[f][t]] = coeff[f][t];
+      }
+    }
+    stride = delay + length;
+    history = new double[channels * stride];
+  }
+
+  @Override
+  void reset() {
+    super.reset();
+    Arrays.fill(history, 0.0);
+  }
+
+  @Override
+  float delayed(int channel, int i) {
+    return (float) history[channel * stride + i];
+  }
+
+  @Override
+  void setDelayed(int channel, int i, float value) {
+    history[channel * stride + i] = value;
+    history[channel * stride + i + delay] = value;
+  }
+
+  @Override
+  void process(double[] src, int frames, double[] peaks) {
+    int in = 0;
+    for (int frame = 0; frame < frames; frame++) {
+      for (int chan = 0; chan < channels; chan++) {
+        int base = chan * stride;
+        double sample = (float) src[in++];
+        history[base + zi] = sample;
+        history[base + zi + delay] = sample;
+        int window = base + zi + 1;
+        double peak = peaks[chan];
+        for (int f = 0; f < factor; f++) {
+          double[] c = dense[f];
+          DoubleVector acc = DoubleVector.zero(SPECIES);
+          for (int m = 0; m < length; m += SPECIES.length()) {
+            acc = DoubleVector.fromArray(SPECIES, history, window + m)
+                .fma(DoubleVector.fromArray(SPECIES, c, m), acc);
+          }
+          double value = Math.abs((double) (float) acc.reduceLanes(VectorOperators.ADD));
+          if (value > peak) {
+            peak = value;
+          }
+        }
+        peaks[chan] = peak;
+      }
+      if (++zi == delay) {
+        zi = 0;
+      }
+    }
+  }
+}
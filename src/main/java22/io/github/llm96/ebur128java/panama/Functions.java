@@ -0,0 +1,323 @@
+package io.github.llm96.ebur128java.panama;
+
+import io.github.llm96.ebur128java.jna.NativeLoader;
+
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Downcall handles for the libebur128 functions.
+ * <p>
+ * {@code unsigned long} and {@code size_t} arguments use the platform's C layouts and are always
+ * exposed as Java {@code long}. The add_frames functions are linked as critical functions so
+ * that heap arrays are passed without copying.
+ */
+final class Functions {
+  private static final Linker LINKER = Linker.nativeLinker();
+  private static final MemoryLayout C_LONG = LINKER.canonicalLayouts().get("long");
+  private static final MemoryLayout SIZE_T = LINKER.canonicalLayouts().get("size_t");
+  private static final SymbolLookup LOOKUP = lookup("ebur128");
+
+  private static final Class<?> SEGMENT = MemorySegment.class;
+
+  private static final MethodHandle GET_VERSION = downcall("ebur128_get_version",
+      FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS),
+      methodType(void.class, SEGMENT, SEGMENT, SEGMENT));
+  private static final MethodHandle INIT = downcall("ebur128_init",
+      FunctionDescriptor.of(ADDRESS, JAVA_INT, C_LONG, JAVA_INT),
+      methodType(SEGMENT, int.class, long.class, int.class));
+  private static final MethodHandle DESTROY = downcall("ebur128_destroy",
+      FunctionDescriptor.ofVoid(ADDRESS),
+      methodType(void.class, SEGMENT));
+  private static final MethodHandle SET_CHANNEL = downcall("ebur128_set_channel",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT),
+      methodType(int.class, SEGMENT, int.class, int.class));
+  private static final MethodHandle CHANGE_PARAMETERS = downcall("ebur128_change_parameters",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, C_LONG),
+      methodType(int.class, SEGMENT, int.class, long.class));
+  private static final MethodHandle SET_MAX_WINDOW = downcall("ebur128_set_max_window",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, C_LONG),
+      methodType(int.class, SEGMENT, long.class));
+  private static final MethodHandle SET_MAX_HISTORY = downcall("ebur128_set_max_history",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, C_LONG),
+      methodType(int.class, SEGMENT, long.class));
+  private static final MethodHandle ADD_FRAMES_SHORT = addFrames("ebur128_add_frames_short");
+  private static final MethodHandle ADD_FRAMES_INT = addFrames("ebur128_add_frames_int");
+  private static final MethodHandle ADD_FRAMES_FLOAT = addFrames("ebur128_add_frames_float");
+  private static final MethodHandle ADD_FRAMES_DOUBLE = addFrames("ebur128_add_frames_double");
+  private static final MethodHandle LOUDNESS_GLOBAL = getter("ebur128_loudness_global");
+  private static final MethodHandle LOUDNESS_GLOBAL_MULTIPLE = multiple("ebur128_loudness_global_multiple");
+  private static final MethodHandle LOUDNESS_MOMENTARY = getter("ebur128_loudness_momentary");
+  private static final MethodHandle LOUDNESS_SHORTTERM = getter("ebur128_loudness_shortterm");
+  private static final MethodHandle LOUDNESS_WINDOW = downcall("ebur128_loudness_window",
+      FunctionDescriptor.of(JAVA_INT, ADDRESS, C_LONG, ADDRESS),
+      methodType(int.class, SEGMENT, long.class, SEGMENT));
+  private static final MethodHandle LOUDNESS_RANGE = getter("ebur128_loudness_range");
+  private static final MethodHandle LOUDNESS_RANGE_MULTIPLE = multiple("ebur128_loudness_range_multiple");
+  private static final MethodHandle SAMPLE_PEAK = channelGetter("ebur128_sample_peak");
+  private static final MethodHandle PREV_SAMPLE_PEAK = channelGetter("ebur128_prev_sample_peak");
+  private static final MethodHandle TRUE_PEAK = channelGetter("ebur128_true_peak");
+  private static final MethodHandle PREV_TRUE_PEAK = channelGetter("ebur128_prev_true_peak");
+  private static final MethodHandle RELATIVE_THRESHOLD = getter("ebur128_relative_threshold");
+
+  private Functions() {
+  }
+
+  static void ebur128_get_version(MemorySegment major, MemorySegment minor, MemorySegment patch) {
+    try {
+      GET_VERSION.invokeExact(major, minor, patch);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static MemorySegment ebur128_init(int channels, long samplerate, int mode) {
+    try {
+      return (MemorySegment) INIT.invokeExact(channels, samplerate, mode);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static void ebur128_destroy(MemorySegment st) {
+    try {
+      DESTROY.invokeExact(st);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_set_channel(MemorySegment st, int channelNumber, int value) {
+    try {
+      return (int) SET_CHANNEL.invokeExact(st, channelNumber, value);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_change_parameters(MemorySegment st, int channels, long samplerate) {
+    try {
+      return (int) CHANGE_PARAMETERS.invokeExact(st, channels, samplerate);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_set_max_window(MemorySegment st, long window) {
+    try {
+      return (int) SET_MAX_WINDOW.invokeExact(st, window);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_set_max_history(MemorySegment st, long history) {
+    try {
+      return (int) SET_MAX_HISTORY.invokeExact(st, history);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_add_frames_short(MemorySegment st, MemorySegment src, long frames) {
+    try {
+      return (int) ADD_FRAMES_SHORT.invokeExact(st, src, frames);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_add_frames_int(MemorySegment st, MemorySegment src, long frames) {
+    try {
+      return (int) ADD_FRAMES_INT.invokeExact(st, src, frames);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_add_frames_float(MemorySegment st, MemorySegment src, long frames) {
+    try {
+      return (int) ADD_FRAMES_FLOAT.invokeExact(st, src, frames);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_add_frames_double(MemorySegment st, MemorySegment src, long frames) {
+    try {
+      return (int) ADD_FRAMES_DOUBLE.invokeExact(st, src, frames);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_loudness_global(MemorySegment st, MemorySegment out) {
+    return invokeGetter(LOUDNESS_GLOBAL, st, out);
+  }
+
+  static int ebur128_loudness_global_multiple(MemorySegment sts, long size, MemorySegment out) {
+    try {
+      return (int) LOUDNESS_GLOBAL_MULTIPLE.invokeExact(sts, size, out);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_loudness_momentary(MemorySegment st, MemorySegment out) {
+    return invokeGetter(LOUDNESS_MOMENTARY, st, out);
+  }
+
+  static int ebur128_loudness_shortterm(MemorySegment st, MemorySegment out) {
+    return invokeGetter(LOUDNESS_SHORTTERM, st, out);
+  }
+
+  static int ebur128_loudness_window(MemorySegment st, long window, MemorySegment out) {
+    try {
+      return (int) LOUDNESS_WINDOW.invokeExact(st, window, out);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_loudness_range(MemorySegment st, MemorySegment out) {
+    return invokeGetter(LOUDNESS_RANGE, st, out);
+  }
+
+  static int ebur128_loudness_range_multiple(MemorySegment sts, long size, MemorySegment out) {
+    try {
+      return (int) LOUDNESS_RANGE_MULTIPLE.invokeExact(sts, size, out);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  static int ebur128_sample_peak(MemorySegment st, int channelNumber, MemorySegment out) {
+    return invokeChannelGetter(SAMPLE_PEAK, st, channelNumber, out);
+  }
+
+  static int ebur128_prev_sample_peak(MemorySegment st, int channelNumber, MemorySegment out) {
+    return invokeChannelGetter(PREV_SAMPLE_PEAK, st, channelNumber, out);
+  }
+
+  static int ebur128_true_peak(MemorySegment st, int channelNumber, MemorySegment out) {
+    return invokeChannelGetter(TRUE_PEAK, st, channelNumber, out);
+  }
+
+  static int ebur128_prev_true_peak(MemorySegment st, int channelNumber, MemorySegment out) {
+    return invokeChannelGetter(PREV_TRUE_PEAK, st, channelNumber, out);
+  }
+
+  static int ebur128_relative_threshold(MemorySegment st, MemorySegment out) {
+    return invokeGetter(RELATIVE_THRESHOLD, st, out);
+  }
+
+  private static int invokeGetter(MethodHandle handle, MemorySegment st, MemorySegment out) {
+    try {
+      return (int) handle.invokeExact(st, out);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  private static int invokeChannelGetter(MethodHandle handle, MemorySegment st, int channelNumber,
+                                         MemorySegment out) {
+    try {
+      return (int) handle.invokeExact(st, channelNumber, out);
+    } catch (Throwable t) {
+      throw rethrow(t);
+    }
+  }
+
+  private static MethodHandle addFrames(String name) {
+    return downcall(name,
+        FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, SIZE_T),
+        methodType(int.class, SEGMENT, SEGMENT, long.class),
+        Linker.Option.critical(true));
+  }
+
+  private static MethodHandle getter(String name) {
+    return downcall(name,
+        FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS),
+        methodType(int.class, SEGMENT, SEGMENT));
+  }
+
+  private static MethodHandle channelGetter(String name) {
+    return downcall(name,
+        FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS),
+        methodType(int.class, SEGMENT, int.class, SEGMENT));
+  }
+
+  private static MethodHandle multiple(String name) {
+    return downcall(name,
+        FunctionDescriptor.of(JAVA_INT, ADDRESS, SIZE_T, ADDRESS),
+        methodType(int.class, SEGMENT, long.class, SEGMENT));
+  }
+
+  /**
+   * Link a function and adapt its type, so that C {@code long} and {@code size_t} arguments
+   * are {@code long} on every platform.
+   */
+  private static MethodHandle downcall(String name, FunctionDescriptor descriptor, MethodType type,
+                                       Linker.Option... options) {
+    MemorySegment symbol = LOOKUP.find(name)
+        .orElseThrow(() -> new UnsatisfiedLinkError("Unable to find symbol " + name));
+    MethodHandle handle = LINKER.downcallHandle(symbol, descriptor, options);
+    return MethodHandles.explicitCastArguments(handle, type);
+  }
+
+  /**
+   * Load the bundled binary, or else the library from the directories of jna.library.path, so that
+   * both native backends find the same file, or else from the system search path of the dynamic
+   * linker, trying the versioned name of the shared object last.
+   */
+  private static SymbolLookup lookup(String libraryName) {
+    File file = NativeLoader.getBundledFile();
+    if (file != null) {
+      return SymbolLookup.libraryLookup(file.toPath(), Arena.global());
+    }
+    String fileName = System.mapLibraryName(libraryName);
+    String path = System.getProperty("jna.library.path");
+    if (path != null) {
+      for (String directory : path.split(File.pathSeparator)) {
+        Path candidate = Paths.get(directory, fileName);
+        if (!directory.isEmpty() && Files.isRegularFile(candidate)) {
+          return SymbolLookup.libraryLookup(candidate, Arena.global());
+        }
+      }
+    }
+    try {
+      return SymbolLookup.libraryLookup(fileName, Arena.global());
+    } catch (IllegalArgumentException e) {
+      if (!fileName.endsWith(".so")) {
+        throw e;
+      }
+      // distributions only install the unversioned link with the development package
+      return SymbolLookup.libraryLookup(fileName + ".1", Arena.global());
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable t) {
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw new AssertionError("Unexpected exception from downcall", t);
+  }
+}
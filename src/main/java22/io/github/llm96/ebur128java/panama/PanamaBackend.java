@@ -0,0 +1,97 @@
+package io.github.llm96.ebur128java.panama;
+
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Engine;
+
+import java.io.DataInput;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+/**
+ * Backend calling libebur128 through the Foreign Function and Memory API (Java 22+).
+ * <p>
+ * Frames in Java arrays are passed to the native add_frames functions without copying, and the
+ * loudness getters write into an out-parameter segment owned by each engine.
+ * <p>
+ * Its priority is below the JNA backend, so it is only used when selected with
+ * {@code -Debur128java.backend=panama} or when JNA cannot load the library, until it has been
+ * measured against JNA on Java 22, see {@code BindingBenchmark}. For the same reason it is only
+ * compiled into jars built with the {@code java22} profile.
+ */
+public final class PanamaBackend implements Backend {
+  public static final String NAME = "panama";
+
+  /**
+   * Create the backend, loading the native library.
+   *
+   * @throws ExceptionInInitializerError if the native library cannot be loaded
+   */
+  public PanamaBackend() {
+    getVersion();
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getPriority() {
+    return 50;
+  }
+
+  @Override
+  public int[] getVersion() {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment version = arena.allocate(JAVA_INT, 3);
+      Functions.ebur128_get_version(version, version.asSlice(4), version.asSlice(8));
+      return version.toArray(JAVA_INT);
+    }
+  }
+
+  @Override
+  public Engine init(int channels, long samplerate, int mode) {
+    MemorySegment state = Functions.ebur128_init(channels, samplerate, mode);
+    return state.equals(MemorySegment.NULL) ? null : new PanamaEngine(state, channels, samplerate, mode);
+  }
+
+  @Override
+  public Engine restore(DataInput in) {
+    throw new UnsupportedOperationException("libebur128 does not expose its state, use the java backend");
+  }
+
+  @Override
+  public double loudnessGlobalMultiple(Engine[] engines) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment out = arena.allocate(JAVA_DOUBLE);
+      int result = Functions.ebur128_loudness_global_multiple(toStates(arena, engines), engines.length, out);
+      return result == 0 ? out.get(JAVA_DOUBLE, 0) : Double.NEGATIVE_INFINITY;
+    }
+  }
+
+  @Override
+  public double loudnessRangeMultiple(Engine[] engines) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment out = arena.allocate(JAVA_DOUBLE);
+      int result = Functions.ebur128_loudness_range_multiple(toStates(arena, engines), engines.length, out);
+      return result == 0 ? out.get(JAVA_DOUBLE, 0) : Double.NEGATIVE_INFINITY;
+    }
+  }
+
+  private static MemorySegment toStates(Arena arena, Engine[] engines) {
+    MemorySegment states = arena.allocate(ADDRESS, Math.max(1, engines.length));
+    for (int i = 0; i < engines.length; i++) {
+      states.setAtIndex(ADDRESS, i, ((PanamaEngine) engines[i]).state);
+    }
+    return states;
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+}
@@ -0,0 +1,275 @@
+package io.github.llm96.ebur128java.panama;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.metrics.Instrumentation;
+import io.github.llm96.ebur128java.spi.Engine;
+import io.github.llm96.ebur128java.spi.Interleaver;
+
+import java.io.DataOutput;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+
+/**
+ * Engine wrapping a native libebur128 state.
+ */
+final class PanamaEngine implements Engine {
+  MemorySegment state;
+
+  /** parameters and settings to restore when the state is reset */
+  private final int mode;
+  private int channels;
+  private long samplerate;
+  private int[] channelTypes;
+  private long maxWindow = -1;
+  private long maxHistory = -1;
+
+  /** reusable out-parameter of the loudness getters */
+  private final MemorySegment out = Arena.ofAuto().allocate(JAVA_DOUBLE);
+
+  /** off-heap scratch for planar input, which libebur128 only accepts interleaved */
+  private final Interleaver interleaver = new Interleaver(this::addFrames);
+
+  PanamaEngine(MemorySegment state, int channels, long samplerate, int mode) {
+    this.state = state;
+    this.channels = channels;
+    this.samplerate = samplerate;
+    this.mode = mode;
+  }
+
+  @Override
+  public int setChannel(int channelNumber, int value) {
+    int result = Functions.ebur128_set_channel(state, channelNumber, value);
+    if (result == Error.SUCCESS) {
+      if (channelTypes == null) {
+        channelTypes = new int[channels];
+        Arrays.fill(channelTypes, -1);
+      }
+      channelTypes[channelNumber] = value;
+    }
+    return result;
+  }
+
+  @Override
+  public int changeParameters(int channels, long samplerate) {
+    int result = Functions.ebur128_change_parameters(state, channels, samplerate);
+    if (result == Error.SUCCESS) {
+      if (channels != this.channels) {
+        // libebur128 restores the default channel types
+        channelTypes = null;
+      }
+      this.channels = channels;
+      this.samplerate = samplerate;
+    }
+    return result;
+  }
+
+  @Override
+  public int setMaxWindow(long window) {
+    int result = Functions.ebur128_set_max_window(state, window);
+    if (result == Error.SUCCESS) {
+      maxWindow = window;
+    }
+    return result;
+  }
+
+  @Override
+  public int setMaxHistory(long history) {
+    int result = Functions.ebur128_set_max_history(state, history);
+    if (result == Error.SUCCESS) {
+      maxHistory = history;
+    }
+    return result;
+  }
+
+  /**
+   * libebur128 cannot discard its block lists, so the state is replaced by a new one with the same
+   * settings. If a setting cannot be applied to the new state, the old one is kept and the error
+   * is returned.
+   */
+  @Override
+  public int reset() {
+    MemorySegment fresh = Functions.ebur128_init(channels, samplerate, mode);
+    if (fresh.equals(MemorySegment.NULL)) {
+      return Error.ERROR_NOMEM;
+    }
+    int result = Error.SUCCESS;
+    if (channelTypes != null) {
+      for (int c = 0; c < channels && result == Error.SUCCESS; c++) {
+        if (channelTypes[c] >= 0) {
+          result = Functions.ebur128_set_channel(fresh, c, channelTypes[c]);
+        }
+      }
+    }
+    if (result == Error.SUCCESS && maxWindow >= 0) {
+      result = replayed(Functions.ebur128_set_max_window(fresh, maxWindow));
+    }
+    if (result == Error.SUCCESS && maxHistory >= 0) {
+      result = replayed(Functions.ebur128_set_max_history(fresh, maxHistory));
+    }
+    if (result != Error.SUCCESS) {
+      destroy(fresh);
+      return result;
+    }
+    destroy();
+    state = fresh;
+    return Error.SUCCESS;
+  }
+
+  /**
+   * A setting equal to the default of the new state is not an error.
+   */
+  private static int replayed(int result) {
+    return result == Error.ERROR_NO_CHANGE ? Error.SUCCESS : result;
+  }
+
+  @Override
+  public int addFramesShort(short[] src, long frames) {
+    return Functions.ebur128_add_frames_short(state, MemorySegment.ofArray(src), frames);
+  }
+
+  @Override
+  public int addFramesInt(int[] src, long frames) {
+    return Functions.ebur128_add_frames_int(state, MemorySegment.ofArray(src), frames);
+  }
+
+  @Override
+  public int addFramesFloat(float[] src, long frames) {
+    return Functions.ebur128_add_frames_float(state, MemorySegment.ofArray(src), frames);
+  }
+
+  @Override
+  public int addFramesDouble(double[] src, long frames) {
+    return Functions.ebur128_add_frames_double(state, MemorySegment.ofArray(src), frames);
+  }
+
+  @Override
+  public int addFrames(ByteBuffer src, long frames, SampleFormat format) {
+    return addFrames(MemorySegment.ofBuffer(src), frames, format);
+  }
+
+  @Override
+  public int addFrames(long address, long frames, SampleFormat format) {
+    return addFrames(MemorySegment.ofAddress(address), frames, format);
+  }
+
+  private int addFrames(MemorySegment src, long frames, SampleFormat format) {
+    if (format == SampleFormat.SHORT) {
+      return Functions.ebur128_add_frames_short(state, src, frames);
+    } else if (format == SampleFormat.INT) {
+      return Functions.ebur128_add_frames_int(state, src, frames);
+    } else if (format == SampleFormat.FLOAT) {
+      return Functions.ebur128_add_frames_float(state, src, frames);
+    } else if (format == SampleFormat.DOUBLE) {
+      return Functions.ebur128_add_frames_double(state, src, frames);
+    }
+    throw new IllegalArgumentException("Unsupported sample format: " + format);
+  }
+
+  @Override
+  public int addFramesPlanar(short[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(int[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(float[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(double[][] src, int offset, long frames) {
+    return interleaver.addFrames(src, offset, frames);
+  }
+
+  @Override
+  public int addFramesPlanar(ByteBuffer[] src, long frames, SampleFormat format) {
+    return interleaver.addFrames(src, frames, format);
+  }
+
+  @Override
+  public double loudnessGlobal() {
+    return value(Functions.ebur128_loudness_global(state, out));
+  }
+
+  @Override
+  public double loudnessMomentary() {
+    return value(Functions.ebur128_loudness_momentary(state, out));
+  }
+
+  @Override
+  public double loudnessShortterm() {
+    return value(Functions.ebur128_loudness_shortterm(state, out));
+  }
+
+  @Override
+  public double loudnessWindow(long window) {
+    return value(Functions.ebur128_loudness_window(state, window, out));
+  }
+
+  @Override
+  public double loudnessRange() {
+    return value(Functions.ebur128_loudness_range(state, out));
+  }
+
+  @Override
+  public double samplePeak(int channelNumber) {
+    return value(Functions.ebur128_sample_peak(state, channelNumber, out));
+  }
+
+  @Override
+  public double prevSamplePeak(int channelNumber) {
+    return value(Functions.ebur128_prev_sample_peak(state, channelNumber, out));
+  }
+
+  @Override
+  public double truePeak(int channelNumber) {
+    return value(Functions.ebur128_true_peak(state, channelNumber, out));
+  }
+
+  @Override
+  public double prevTruePeak(int channelNumber) {
+    return value(Functions.ebur128_prev_true_peak(state, channelNumber, out));
+  }
+
+  @Override
+  public double relativeThreshold() {
+    return value(Functions.ebur128_relative_threshold(state, out));
+  }
+
+  @Override
+  public void save(DataOutput out) {
+    throw new UnsupportedOperationException("libebur128 does not expose its state, use the java backend");
+  }
+
+  @Override
+  public void destroy() {
+    destroy(state);
+    state = null;
+  }
+
+  private static void destroy(MemorySegment state) {
+    try (Arena arena = Arena.ofConfined()) {
+      MemorySegment ref = arena.allocate(ADDRESS);
+      ref.set(ADDRESS, 0, state);
+      Functions.ebur128_destroy(ref);
+    }
+  }
+
+  private double value(int result) {
+    if (result != 0) {
+      Instrumentation.recordError(result);
+      return Double.NEGATIVE_INFINITY;
+    }
+    return out.get(JAVA_DOUBLE, 0);
+  }
+}
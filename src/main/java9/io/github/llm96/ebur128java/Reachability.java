@@ -0,0 +1,21 @@
+package io.github.llm96.ebur128java;
+
+import java.lang.ref.Reference;
+
+/**
+ * Keeps an object reachable until a point in the code, so that a {@link State} is not reclaimed
+ * by {@link StateRegistry} while its engine is still in use.
+ */
+final class Reachability {
+  private Reachability() {
+  }
+
+  /**
+   * Ensure that the object stays reachable at least until this call.
+   *
+   * @param object object to keep reachable
+   */
+  static void fence(Object object) {
+    Reference.reachabilityFence(object);
+  }
+}
@@ -0,0 +1,161 @@
+package io.github.llm96.ebur128java;
+
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Samples of every layout added with addFramesBytes, converted or passed on as they are, must
+ * measure like the same samples added as floats.
+ */
+@RunWith(Parameterized.class)
+public class AddFramesBytesTest {
+  private static final int CHANNELS = 2;
+  private static final long SAMPLERATE = 44100;
+  private static final int FRAMES = 2 * 44100 + 3;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_SAMPLE_PEAK;
+  /** bytes before the first frame */
+  private static final int OFFSET = 5;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> formats() {
+    return Arrays.asList(new Object[][]{
+        {"unsigned 8", SampleFormat.UNSIGNED_8, false},
+        {"16 big endian", SampleFormat.integer(2, 16, true, ByteOrder.BIG_ENDIAN), false},
+        {"16 heap", SampleFormat.SHORT, false},
+        {"24 little endian", SampleFormat.INT_24_LE, false},
+        {"24 big endian", SampleFormat.INT_24_BE, false},
+        {"24 in 32", SampleFormat.integer(4, 24, true, ByteOrder.LITTLE_ENDIAN), false},
+        {"float big endian", SampleFormat.floatingPoint(4, ByteOrder.BIG_ENDIAN), false},
+        {"double little endian", SampleFormat.floatingPoint(8, ByteOrder.LITTLE_ENDIAN), false},
+        {"float direct", SampleFormat.FLOAT, true},
+        {"int direct", SampleFormat.INT, true},
+    });
+  }
+
+  private final SampleFormat format;
+  private final boolean direct;
+  private final JavaBackend backend = new JavaBackend();
+
+  public AddFramesBytesTest(String name, SampleFormat format, boolean direct) {
+    this.format = format;
+    this.direct = direct;
+  }
+
+  @Test
+  public void bufferMeasuresLikeFloats() {
+    int[] samples = samples();
+    ByteBuffer src = encode(samples);
+    src.position(OFFSET);
+    try (State bytes = new State(backend, CHANNELS, SAMPLERATE, MODE);
+         State floats = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      assertEquals(Error.SUCCESS, bytes.addFramesBytes(src, FRAMES, format));
+      assertEquals(OFFSET, src.position());
+      assertEquals(Error.SUCCESS, floats.addFramesFloat(toFloats(samples), FRAMES));
+      assertReadings(floats, bytes);
+    }
+  }
+
+  @Test
+  public void arrayMeasuresLikeFloats() {
+    int[] samples = samples();
+    ByteBuffer encoded = encode(samples);
+    byte[] src = new byte[encoded.capacity()];
+    encoded.get(src);
+    int frameBytes = CHANNELS * format.getBytesPerSample();
+    int half = FRAMES / 2;
+    try (State bytes = new State(backend, CHANNELS, SAMPLERATE, MODE);
+         State floats = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      assertEquals(Error.SUCCESS, bytes.addFramesBytes(src, OFFSET, half, format));
+      assertEquals(Error.SUCCESS, bytes.addFramesBytes(src, OFFSET + half * frameBytes, FRAMES - half, format));
+      assertEquals(Error.SUCCESS, floats.addFramesFloat(toFloats(samples), FRAMES));
+      assertReadings(floats, bytes);
+    }
+  }
+
+  @Test
+  public void framesBeyondTheBufferAreRejected() {
+    ByteBuffer src = encode(samples());
+    src.position(OFFSET);
+    try (State state = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      state.addFramesBytes(src, FRAMES + 1, format);
+      fail("No exception");
+    } catch (IllegalArgumentException expected) {
+      // too few bytes
+    }
+  }
+
+  private static void assertReadings(State expected, State actual) {
+    assertEquals(expected.getLoudnessGlobal(), actual.getLoudnessGlobal(), 1e-9);
+    assertEquals(expected.getLoudnessMomentary(), actual.getLoudnessMomentary(), 1e-9);
+    for (int c = 0; c < CHANNELS; c++) {
+      assertEquals(expected.getSamplePeak(c), actual.getSamplePeak(c), 1e-9);
+    }
+  }
+
+  /**
+   * Noisy sines as 24-bit values, rounded to what the format holds.
+   */
+  private int[] samples() {
+    Random random = new Random(13);
+    int shift = format.isFloatingPoint() ? 0 : Math.max(0, 24 - format.getBitsPerSample());
+    int[] samples = new int[FRAMES * CHANNELS];
+    for (int i = 0; i < FRAMES; i++) {
+      for (int c = 0; c < CHANNELS; c++) {
+        double value = 0.4 * Math.sin(i * 2 * Math.PI * (1000 + 500 * c) / SAMPLERATE) + 0.05 * random.nextGaussian();
+        int sample = (int) Math.max(-8388608, Math.min(8388607, Math.round(value * 8388608)));
+        samples[i * CHANNELS + c] = sample >> shift << shift;
+      }
+    }
+    return samples;
+  }
+
+  private static float[] toFloats(int[] samples) {
+    float[] floats = new float[samples.length];
+    for (int i = 0; i < samples.length; i++) {
+      floats[i] = samples[i] / 8388608.0f;
+    }
+    return floats;
+  }
+
+  /**
+   * Encode 24-bit values in the format, after OFFSET bytes of garbage.
+   */
+  private ByteBuffer encode(int[] samples) {
+    int bytes = format.getBytesPerSample();
+    int length = OFFSET + samples.length * bytes;
+    ByteBuffer dst = (direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length)).order(format.getOrder());
+    dst.put(new byte[]{1, 2, 3, 4, 5});
+    for (int value : samples) {
+      if (format.isFloatingPoint()) {
+        if (bytes == 4) {
+          dst.putFloat(value / 8388608.0f);
+        } else {
+          dst.putDouble(value / 8388608.0);
+        }
+        continue;
+      }
+      int bits = format.getBitsPerSample();
+      long stored = bits <= 24 ? value >> (24 - bits) : (long) value << (bits - 24);
+      if (!format.isSigned()) {
+        stored += 1L << (bits - 1);
+      }
+      for (int i = 0; i < bytes; i++) {
+        int shift = format.getOrder() == ByteOrder.LITTLE_ENDIAN ? 8 * i : 8 * (bytes - 1 - i);
+        dst.put((byte) (stored >> shift));
+      }
+    }
+    dst.clear();
+    return dst;
+  }
+}
@@ -0,0 +1,138 @@
+package io.github.llm96.ebur128java;
+
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Readers of published readings must see the values of the last publication, never a mix of two.
+ */
+public class PublishedLoudnessTest {
+  private static final int CHANNELS = 2;
+  private static final long SAMPLERATE = 48000;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_LRA | Mode.MODE_SAMPLE_PEAK | Mode.MODE_TRUE_PEAK;
+
+  private final JavaBackend backend = new JavaBackend();
+
+  @Test
+  public void readingsAreNaNUntilPublished() {
+    PublishedLoudness readings = new PublishedLoudness(CHANNELS, MODE);
+    assertEquals(CHANNELS, readings.getChannels());
+    assertEquals(MODE, readings.getMode());
+    assertEquals(0, readings.getVersion());
+    LoudnessSnapshot snapshot = readings.read(null);
+    assertEquals(MODE, snapshot.getMode());
+    assertEquals(CHANNELS, snapshot.getChannels());
+    assertTrue(Double.isNaN(snapshot.getMomentary()));
+    assertTrue(Double.isNaN(snapshot.getGlobal()));
+    assertTrue(Double.isNaN(snapshot.getTruePeak(1)));
+  }
+
+  @Test
+  public void readReturnsThePublishedValues() {
+    try (State state = state(0.25)) {
+      PublishedLoudness readings = new PublishedLoudness(CHANNELS, MODE);
+      readings.publish(state);
+      assertEquals(1, readings.getVersion());
+      LoudnessSnapshot reuse = new LoudnessSnapshot();
+      assertSame(reuse, readings.read(reuse));
+      assertSnapshot(state.snapshot(null), reuse);
+
+      assertEquals(Error.SUCCESS, state.addFramesFloat(sine(0.5, 4800), 4800));
+      readings.publish(state);
+      assertEquals(2, readings.getVersion());
+      assertSnapshot(state.snapshot(null), readings.read(reuse));
+    }
+  }
+
+  @Test
+  public void stateOfAnotherLayoutIsRejected() {
+    PublishedLoudness readings = new PublishedLoudness(CHANNELS, MODE);
+    try (State state = new State(backend, CHANNELS, SAMPLERATE, Mode.MODE_M)) {
+      readings.publish(state);
+      fail("No exception");
+    } catch (IllegalArgumentException expected) {
+      // other mode
+    }
+  }
+
+  @Test
+  public void readersNeverSeeAMix() throws InterruptedException {
+    try (State quiet = state(0.01); State loud = state(0.9)) {
+      LoudnessSnapshot quietValues = quiet.snapshot(null);
+      LoudnessSnapshot loudValues = loud.snapshot(null);
+      PublishedLoudness readings = new PublishedLoudness(CHANNELS, MODE);
+      readings.publish(quiet);
+
+      AtomicBoolean done = new AtomicBoolean();
+      AtomicReference<String> mixed = new AtomicReference<>();
+      Thread[] readers = new Thread[2];
+      for (int r = 0; r < readers.length; r++) {
+        readers[r] = new Thread(() -> {
+          LoudnessSnapshot snapshot = new LoudnessSnapshot();
+          while (!done.get() && mixed.get() == null) {
+            readings.read(snapshot);
+            if (!same(quietValues, snapshot) && !same(loudValues, snapshot)) {
+              mixed.set(snapshot.toString());
+            }
+          }
+        });
+        readers[r].start();
+      }
+      // the states are only read, the publisher is this thread
+      for (int i = 0; i < 200 && mixed.get() == null; i++) {
+        readings.publish(i % 2 == 0 ? loud : quiet);
+      }
+      done.set(true);
+      for (Thread reader : readers) {
+        reader.join();
+      }
+      assertNull(mixed.get());
+    }
+  }
+
+  private State state(double level) {
+    State state = new State(backend, CHANNELS, SAMPLERATE, MODE);
+    assertEquals(Error.SUCCESS, state.addFramesFloat(sine(level, 48000), 48000));
+    return state;
+  }
+
+  private static float[] sine(double level, int frames) {
+    float[] samples = new float[frames * CHANNELS];
+    for (int i = 0; i < frames; i++) {
+      float sample = (float) (level * Math.sin(i * 2 * Math.PI * 1000 / SAMPLERATE));
+      samples[i * CHANNELS] = sample;
+      samples[i * CHANNELS + 1] = sample / 2;
+    }
+    return samples;
+  }
+
+  private static boolean same(LoudnessSnapshot expected, LoudnessSnapshot actual) {
+    if (Double.compare(expected.getMomentary(), actual.getMomentary()) != 0
+        || Double.compare(expected.getShortterm(), actual.getShortterm()) != 0
+        || Double.compare(expected.getGlobal(), actual.getGlobal()) != 0
+        || Double.compare(expected.getRelativeThreshold(), actual.getRelativeThreshold()) != 0
+        || Double.compare(expected.getRange(), actual.getRange()) != 0) {
+      return false;
+    }
+    for (int c = 0; c < CHANNELS; c++) {
+      if (Double.compare(expected.getSamplePeak(c), actual.getSamplePeak(c)) != 0
+          || Double.compare(expected.getTruePeak(c), actual.getTruePeak(c)) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void assertSnapshot(LoudnessSnapshot expected, LoudnessSnapshot actual) {
+    assertTrue("Expected " + expected + " but was " + actual, same(expected, actual));
+  }
+}
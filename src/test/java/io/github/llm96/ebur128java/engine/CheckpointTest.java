@@ -0,0 +1,175 @@
+package io.github.llm96.ebur128java.engine;
+
+import io.github.llm96.ebur128java.Channel;
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A measurement checkpointed in the middle of a block and restored into a new state must continue
+ * exactly like the uninterrupted measurement, with the block lists and with the histograms. The
+ * native backends cannot checkpoint and must refuse without writing or disturbing anything.
+ */
+@RunWith(Parameterized.class)
+public class CheckpointTest {
+  private static final int CHANNELS = 3;
+  private static final long SAMPLERATE = 44100;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_LRA | Mode.MODE_TRUE_PEAK;
+  private static final long WINDOW = 5000;
+  private static final long HISTORY = 60000;
+  /** 12.345 s, not a multiple of the 100 ms hop */
+  private static final long CHECKPOINT_FRAMES = 544414;
+  private static final long TOTAL_FRAMES = 30 * SAMPLERATE;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> modes() {
+    return Arrays.asList(new Object[][]{{"block list", MODE}, {"histogram", MODE | Mode.MODE_HISTOGRAM}});
+  }
+
+  private final Backend backend = new JavaBackend();
+  private final int mode;
+
+  public CheckpointTest(String name, int mode) {
+    this.mode = mode;
+  }
+
+  @Test
+  public void restoredStateContinuesTheMeasurement() throws IOException {
+    try (State uninterrupted = newState(); State interrupted = newState()) {
+      Signal signal = new Signal();
+      Signal copy = new Signal();
+      add(signal, uninterrupted, CHECKPOINT_FRAMES);
+      add(copy, interrupted, CHECKPOINT_FRAMES);
+
+      ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+      interrupted.checkpoint(checkpoint);
+      try (State restored = State.restore(backend, new ByteArrayInputStream(checkpoint.toByteArray()))) {
+        assertEquals(CHANNELS, restored.getChannels());
+        assertEquals(SAMPLERATE, restored.getSamplerate());
+        assertEquals(mode, restored.getMode());
+        assertReadings(uninterrupted, restored);
+
+        // the checkpoint of the restored state is the same
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        restored.checkpoint(again);
+        assertArrayEquals(checkpoint.toByteArray(), again.toByteArray());
+
+        add(signal, uninterrupted, TOTAL_FRAMES - CHECKPOINT_FRAMES);
+        add(copy, restored, TOTAL_FRAMES - CHECKPOINT_FRAMES);
+        assertReadings(uninterrupted, restored);
+      }
+    }
+  }
+
+  @Test
+  public void nativeBackendsRefuseCleanly() throws IOException {
+    List<Backend> natives = new ArrayList<>();
+    for (String name : new String[]{"jna", "panama"}) {
+      try {
+        natives.add(Backends.get(name));
+      } catch (IllegalArgumentException e) {
+        // not available
+      }
+    }
+    Assume.assumeFalse("No native backend available", natives.isEmpty());
+    for (Backend nativeBackend : natives) {
+      try (State untouched = newState(nativeBackend); State refused = newState(nativeBackend)) {
+        Signal signal = new Signal();
+        Signal copy = new Signal();
+        add(signal, untouched, CHECKPOINT_FRAMES);
+        add(copy, refused, CHECKPOINT_FRAMES);
+
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        try {
+          refused.checkpoint(checkpoint);
+          fail("No exception from " + nativeBackend.getName());
+        } catch (UnsupportedOperationException expected) {
+          // libebur128 does not expose its state
+        }
+        assertEquals(0, checkpoint.size());
+
+        add(signal, untouched, TOTAL_FRAMES - CHECKPOINT_FRAMES);
+        add(copy, refused, TOTAL_FRAMES - CHECKPOINT_FRAMES);
+        assertReadings(untouched, refused);
+      }
+    }
+  }
+
+  private State newState() {
+    return newState(backend);
+  }
+
+  private State newState(Backend backend) {
+    State state = new State(backend, CHANNELS, SAMPLERATE, mode);
+    assertEquals(Error.SUCCESS, state.setChannel(2, Channel.LEFT_SURROUND));
+    assertEquals(Error.SUCCESS, state.setMaxWindow(WINDOW));
+    assertEquals(Error.SUCCESS, state.setMaxHistory(HISTORY));
+    return state;
+  }
+
+  private static void add(Signal signal, State state, long frames) {
+    while (frames > 0) {
+      int count = (int) Math.min(frames, signal.nextChunk());
+      float[] samples = signal.next(count);
+      assertEquals(Error.SUCCESS, state.addFramesFloat(samples, count));
+      frames -= count;
+    }
+  }
+
+  private static void assertReadings(State expected, State actual) {
+    assertEquals(expected.getLoudnessGlobal(), actual.getLoudnessGlobal(), 0.0);
+    assertEquals(expected.getLoudnessMomentary(), actual.getLoudnessMomentary(), 0.0);
+    assertEquals(expected.getLoudnessShortterm(), actual.getLoudnessShortterm(), 0.0);
+    assertEquals(expected.getLoudnessWindow(WINDOW), actual.getLoudnessWindow(WINDOW), 0.0);
+    assertEquals(expected.getLoudnessRange(), actual.getLoudnessRange(), 0.0);
+    assertEquals(expected.getRelativeThreshold(), actual.getRelativeThreshold(), 0.0);
+    for (int c = 0; c < CHANNELS; c++) {
+      assertEquals(expected.getSamplePeak(c), actual.getSamplePeak(c), 0.0);
+      assertEquals(expected.getPrevSamplePeak(c), actual.getPrevSamplePeak(c), 0.0);
+      assertEquals(expected.getTruePeak(c), actual.getTruePeak(c), 0.0);
+      assertEquals(expected.getPrevTruePeak(c), actual.getPrevTruePeak(c), 0.0);
+    }
+  }
+
+  /**
+   * Noise under a slowly changing level, in chunks of random sizes. Signals given the same calls
+   * produce the same samples.
+   */
+  private static final class Signal {
+    private final Random random = new Random(1770);
+    private long frame;
+
+    int nextChunk() {
+      return 1 + random.nextInt(8192);
+    }
+
+    float[] next(int frames) {
+      float[] samples = new float[frames * CHANNELS];
+      for (int i = 0; i < frames; i++, frame++) {
+        double level = 0.05 + 0.3 * (1 + Math.sin(frame * 2 * Math.PI / (7 * SAMPLERATE)));
+        for (int c = 0; c < CHANNELS; c++) {
+          samples[i * CHANNELS + c] = (float) (level * (2 * random.nextDouble() - 1) / (c + 1));
+        }
+      }
+      return samples;
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package io.github.llm96.ebur128java.engine;
+
+import io.github.llm96.ebur128java.Channel;
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.spi.Backend;
+import io.github.llm96.ebur128java.spi.Backends;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Minimum requirements of EBU Tech 3341 (loudness and true peak) and EBU Tech 3342 (loudness
+ * range), measured on synthesized signals by every available backend: the pure Java backend with
+ * scalar and with Vector API kernels, and the native backends. The Java backend must also give
+ * the same results as libebur128 through JNA when the native library is installed.
+ */
+@RunWith(Parameterized.class)
+public class ConformanceTest {
+  private static final long SAMPLERATE = 48000;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_LRA | Mode.MODE_TRUE_PEAK;
+  private static final int[] STEREO = {Channel.LEFT, Channel.RIGHT};
+  private static final int[] FIVE_CHANNELS = {
+      Channel.LEFT, Channel.RIGHT, Channel.CENTER, Channel.LEFT_SURROUND, Channel.RIGHT_SURROUND
+  };
+  private static final int CHUNK_FRAMES = 4800;
+
+  /** tolerance of Tech 3341 for integrated, momentary and short-term loudness, in LU */
+  private static final double LOUDNESS_TOLERANCE = 0.1;
+  /** tolerance of Tech 3342 for loudness range, in LU */
+  private static final double RANGE_TOLERANCE = 1.0;
+  /** difference allowed from libebur128, for floating point rounding */
+  private static final double NATIVE_TOLERANCE = 1e-6;
+
+  /** index of each reading in the result of measure() */
+  private static final int GLOBAL = 0;
+  private static final int MOMENTARY = 1;
+  private static final int SHORTTERM = 2;
+  private static final int RANGE = 3;
+  private static final int TRUE_PEAK = 4;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> backends() {
+    return Arrays.asList(new Object[][]{{"scalar"}, {"vector"}, {"jna"}, {"panama"}});
+  }
+
+  private final String name;
+  private Backend backend;
+  /** libebur128 through JNA to compare the Java backend with, or null */
+  private Backend reference;
+
+  public ConformanceTest(String name) {
+    this.name = name;
+  }
+
+  @Before
+  public void setUp() {
+    switch (name) {
+      case "scalar":
+        backend = new JavaBackend(new Kernels());
+        reference = nativeBackend("jna");
+        break;
+      case "vector":
+        Assume.assumeTrue("Vector API kernels not available", Kernels.INSTANCE.getClass() != Kernels.class);
+        backend = new JavaBackend(Kernels.INSTANCE);
+        reference = nativeBackend("jna");
+        break;
+      default:
+        backend = nativeBackend(name);
+        Assume.assumeTrue("Backend not available: " + name, backend != null);
+        break;
+    }
+  }
+
+  private static Backend nativeBackend(String name) {
+    try {
+      return Backends.get(name);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  @Test
+  public void tech3341Case1() {
+    double[] result = measure(STEREO, 1000, 0, new double[]{20, -23, -23});
+    assertEquals(-23.0, result[GLOBAL], LOUDNESS_TOLERANCE);
+    assertEquals(-23.0, result[MOMENTARY], LOUDNESS_TOLERANCE);
+    assertEquals(-23.0, result[SHORTTERM], LOUDNESS_TOLERANCE);
+  }
+
+  @Test
+  public void tech3341Case2() {
+    double[] result = measure(STEREO, 1000, 0, new double[]{20, -33, -33});
+    assertEquals(-33.0, result[GLOBAL], LOUDNESS_TOLERANCE);
+    assertEquals(-33.0, result[MOMENTARY], LOUDNESS_TOLERANCE);
+    assertEquals(-33.0, result[SHORTTERM], LOUDNESS_TOLERANCE);
+  }
+
+  @Test
+  public void tech3341Case3() {
+    double[] result = measure(STEREO, 1000, 0,
+        new double[]{10, -36, -36}, new double[]{60, -23, -23}, new double[]{10, -36, -36});
+    assertEquals(-23.0, result[GLOBAL], LOUDNESS_TOLERANCE);
+  }
+
+  @Test
+  public void tech3341Case4() {
+    double[] result = measure(STEREO, 1000, 0,
+        new double[]{10, -72, -72}, new double[]{10, -36, -36}, new double[]{60, -23, -23},
+        new double[]{10, -36, -36}, new double[]{10, -72, -72});
+    assertEquals(-23.0, result[GLOBAL], LOUDNESS_TOLERANCE);
+  }
+
+  @Test
+  public void tech3341Case5() {
+    double[] result = measure(STEREO, 1000, 0,
+        new double[]{20, -26, -26}, new double[]{20.1, -20, -20}, new double[]{20, -26, -26});
+    assertEquals(-23.0, result[GLOBAL], LOUDNESS_TOLERANCE);
+  }
+
+  @Test
+  public void tech3341Case6() {
+    double[] result = measure(FIVE_CHANNELS, 1000, 0, new double[]{20, -28, -28, -24, -30, -30});
+    assertEquals(-23.0, result[GLOBAL], LOUDNESS_TOLERANCE);
+  }
+
+  @Test
+  public void tech3341Case15() {
+    assertTruePeak(-6.0, measure(STEREO, SAMPLERATE / 4.0, 0, new double[]{1, -6, -6}));
+  }
+
+  @Test
+  public void tech3341Case16() {
+    assertTruePeak(-6.0, measure(STEREO, SAMPLERATE / 4.0, 45, new double[]{1, -6, -6}));
+  }
+
+  @Test
+  public void tech3341Case17() {
+    assertTruePeak(-6.0, measure(STEREO, SAMPLERATE / 6.0, 60, new double[]{1, -6, -6}));
+  }
+
+  @Test
+  public void tech3341Case18() {
+    assertTruePeak(-6.0, measure(STEREO, SAMPLERATE / 8.0, 67.5, new double[]{1, -6, -6}));
+  }
+
+  @Test
+  public void tech3342Case1() {
+    double[] result = measure(STEREO, 1000, 0, new double[]{20, -20, -20}, new double[]{20, -30, -30});
+    assertEquals(10.0, result[RANGE], RANGE_TOLERANCE);
+  }
+
+  @Test
+  public void tech3342Case2() {
+    double[] result = measure(STEREO, 1000, 0, new double[]{20, -20, -20}, new double[]{20, -15, -15});
+    assertEquals(5.0, result[RANGE], RANGE_TOLERANCE);
+  }
+
+  @Test
+  public void tech3342Case3() {
+    double[] result = measure(STEREO, 1000, 0, new double[]{20, -40, -40}, new double[]{20, -20, -20});
+    assertEquals(20.0, result[RANGE], RANGE_TOLERANCE);
+  }
+
+  @Test
+  public void tech3342Case4() {
+    double[] result = measure(STEREO, 1000, 0,
+        new double[]{20, -50, -50}, new double[]{20, -35, -35}, new double[]{20, -20, -20},
+        new double[]{20, -35, -35}, new double[]{20, -50, -50});
+    assertEquals(15.0, result[RANGE], RANGE_TOLERANCE);
+  }
+
+  /**
+   * Tech 3341 allows a true-peak meter to read 0.4 dB under and 0.2 dB over.
+   */
+  private static void assertTruePeak(double expected, double[] result) {
+    double truePeak = result[TRUE_PEAK];
+    assertTrue("True peak " + truePeak + " dBTP", truePeak >= expected - 0.4 && truePeak <= expected + 0.2);
+  }
+
+  /**
+   * Measure a sine with the backend under test, and with the reference backend if any, which must
+   * give the same readings.
+   *
+   * @param channels  channel type of each channel
+   * @param frequency frequency of the sine in Hz
+   * @param phase     phase of the sine at the first frame in degrees
+   * @param segments  duration in seconds followed by the level of each channel in dBFS
+   * @return readings at the end of the signal, indexed by GLOBAL, MOMENTARY, etc., the true peak
+   * being that of the last chunk
+   */
+  private double[] measure(int[] channels, double frequency, double phase, double[]... segments) {
+    double[] result = measure(backend, channels, frequency, phase, segments);
+    if (reference != null) {
+      assertArrayEquals(measure(reference, channels, frequency, phase, segments), result, NATIVE_TOLERANCE);
+    }
+    return result;
+  }
+
+  private static double[] measure(Backend backend, int[] channels, double frequency, double phase,
+                                  double[]... segments) {
+    try (State state = new State(backend, channels.length, SAMPLERATE, MODE)) {
+      for (int c = 0; c < channels.length; c++) {
+        assertEquals(Error.SUCCESS, state.setChannel(c, channels[c]));
+      }
+      double[] frames = new double[CHUNK_FRAMES * channels.length];
+      double[] gains = new double[channels.length];
+      double step = 2 * Math.PI * frequency / SAMPLERATE;
+      double start = Math.toRadians(phase);
+      long frame = 0;
+      for (double[] segment : segments) {
+        for (int c = 0; c < channels.length; c++) {
+          gains[c] = Math.pow(10.0, segment[c + 1] / 20.0);
+        }
+        long end = frame + Math.round(segment[0] * SAMPLERATE);
+        while (frame < end) {
+          int count = (int) Math.min(CHUNK_FRAMES, end - frame);
+          for (int i = 0; i < count; i++) {
+            double sample = Math.sin(start + step * (frame + i));
+            for (int c = 0; c < channels.length; c++) {
+              frames[i * channels.length + c] = gains[c] * sample;
+            }
+          }
+          assertEquals(Error.SUCCESS, state.addFramesDouble(frames, count));
+          frame += count;
+        }
+      }
+      // of the last chunk, the sines start abruptly and the interpolator rings at first
+      double truePeak = 0.0;
+      for (int c = 0; c < channels.length; c++) {
+        truePeak = Math.max(truePeak, state.getPrevTruePeak(c));
+      }
+      return new double[]{
+          state.getLoudnessGlobal(),
+          state.getLoudnessMomentary(),
+          state.getLoudnessShortterm(),
+          state.getLoudnessRange(),
+          20 * Math.log10(truePeak)
+      };
+    }
+  }
+}
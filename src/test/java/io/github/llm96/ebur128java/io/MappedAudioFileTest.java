@@ -0,0 +1,202 @@
+package io.github.llm96.ebur128java.io;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * WAV files of every supported sample format must read as the samples they were written from, and
+ * measure like those samples added to a state directly, whether the mapped data is passed to the
+ * state as it is or converted.
+ */
+@RunWith(Parameterized.class)
+public class MappedAudioFileTest {
+  private static final int CHANNELS = 2;
+  private static final long SAMPLERATE = 48000;
+  /** not a multiple of the read buffer */
+  private static final int FRAMES = 3 * 48000 + 7;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_SAMPLE_PEAK;
+  private static final int WAVE_FORMAT_PCM = 1;
+  private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> formats() {
+    return Arrays.asList(new Object[][]{
+        {"8-bit", 8, false, false, false},
+        {"16-bit", 16, false, false, false},
+        {"24-bit", 24, false, false, false},
+        {"32-bit", 32, false, false, false},
+        {"float", 32, true, false, false},
+        {"double extensible", 64, true, true, false},
+        {"16-bit RF64", 16, false, false, true},
+    });
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final int bits;
+  private final boolean floatingPoint;
+  private final boolean extensible;
+  private final boolean rf64;
+  private final JavaBackend backend = new JavaBackend();
+
+  public MappedAudioFileTest(String name, int bits, boolean floatingPoint, boolean extensible, boolean rf64) {
+    this.bits = bits;
+    this.floatingPoint = floatingPoint;
+    this.extensible = extensible;
+    this.rf64 = rf64;
+  }
+
+  @Test
+  public void headerIsParsed() throws IOException {
+    try (MappedAudioFile file = MappedAudioFile.openWav(write(samples()))) {
+      assertEquals(CHANNELS, file.getChannels());
+      assertEquals(SAMPLERATE, file.getSamplerate());
+      assertEquals(FRAMES, file.getFrames());
+    }
+  }
+
+  @Test
+  public void readConvertsTheSamples() throws IOException {
+    int[] samples = samples();
+    try (MappedAudioFile file = MappedAudioFile.openWav(write(samples)); AudioSource source = file.open()) {
+      assertArrayEquals(expected(samples, 0, FRAMES), readAll(source), 0.0f);
+    }
+  }
+
+  @Test
+  public void segmentReadsItsRange() throws IOException {
+    int[] samples = samples();
+    try (MappedAudioFile file = MappedAudioFile.openWav(write(samples))) {
+      try (AudioSource source = file.open(12345, 20000)) {
+        assertArrayEquals(expected(samples, 12345, 20000), readAll(source), 0.0f);
+      }
+      try (AudioSource source = file.open(FRAMES - 10, 10);
+           State state = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+        assertEquals(10, source.transferTo(state, new float[1000 * CHANNELS]));
+      }
+    }
+  }
+
+  @Test
+  public void transferToMatchesDirectMeasurement() throws IOException {
+    int[] samples = samples();
+    try (MappedAudioFile file = MappedAudioFile.openWav(write(samples)); AudioSource source = file.open();
+         State mapped = new State(backend, CHANNELS, SAMPLERATE, MODE);
+         State direct = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      assertEquals(FRAMES, source.transferTo(mapped, new float[1000 * CHANNELS]));
+      assertEquals(Error.SUCCESS, direct.addFramesFloat(expected(samples, 0, FRAMES), FRAMES));
+      assertEquals(direct.getLoudnessGlobal(), mapped.getLoudnessGlobal(), 1e-9);
+      for (int c = 0; c < CHANNELS; c++) {
+        assertEquals(direct.getSamplePeak(c), mapped.getSamplePeak(c), 1e-9);
+      }
+    }
+  }
+
+  private static float[] readAll(AudioSource source) throws IOException {
+    float[] buffer = new float[1000 * CHANNELS];
+    float[] all = new float[0];
+    int frames;
+    while ((frames = source.read(buffer, 1000)) >= 0) {
+      int length = all.length;
+      all = Arrays.copyOf(all, length + frames * CHANNELS);
+      System.arraycopy(buffer, 0, all, length, frames * CHANNELS);
+    }
+    return all;
+  }
+
+  /**
+   * Noisy sines as 24-bit values, which every format holds exactly once shifted to its width.
+   */
+  private static int[] samples() {
+    Random random = new Random(12);
+    int[] samples = new int[FRAMES * CHANNELS];
+    for (int i = 0; i < FRAMES; i++) {
+      for (int c = 0; c < CHANNELS; c++) {
+        double value = 0.5 * Math.sin(i * 2 * Math.PI * (440 + 110 * c) / SAMPLERATE) + 0.1 * random.nextGaussian();
+        samples[i * CHANNELS + c] = (int) Math.max(-8388608, Math.min(8388607, Math.round(value * 8388608)));
+      }
+    }
+    return samples;
+  }
+
+  /**
+   * The float samples a file of this format holds for 24-bit values.
+   */
+  private float[] expected(int[] samples, int first, int frames) {
+    float[] expected = new float[frames * CHANNELS];
+    for (int i = 0; i < expected.length; i++) {
+      int value = samples[first * CHANNELS + i];
+      expected[i] = floatingPoint ? value / 8388608.0f : (value >> (24 - Math.min(bits, 24))) / (float) (1 << (Math.min(bits, 24) - 1));
+    }
+    return expected;
+  }
+
+  private Path write(int[] samples) throws IOException {
+    int bytesPerSample = bits / 8;
+    int blockAlign = CHANNELS * bytesPerSample;
+    long dataBytes = (long) samples.length * bytesPerSample;
+    int formatLength = extensible ? 40 : 16;
+    ByteBuffer out = ByteBuffer.allocate((int) dataBytes + 256).order(ByteOrder.LITTLE_ENDIAN);
+    out.put((rf64 ? "RF64" : "RIFF").getBytes(StandardCharsets.US_ASCII));
+    int sizeField = out.position();
+    out.putInt(0);
+    out.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+    if (rf64) {
+      out.put("ds64".getBytes(StandardCharsets.US_ASCII)).putInt(28);
+      out.putLong(0).putLong(dataBytes).putLong(FRAMES).putInt(0);
+    }
+    // a chunk of odd length, followed by a pad byte
+    out.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(3).put(new byte[]{1, 2, 3, 0});
+    out.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(formatLength);
+    int tag = floatingPoint ? WAVE_FORMAT_IEEE_FLOAT : WAVE_FORMAT_PCM;
+    out.putShort((short) (extensible ? 0xFFFE : tag)).putShort((short) CHANNELS).putInt((int) SAMPLERATE);
+    out.putInt((int) (SAMPLERATE * blockAlign)).putShort((short) blockAlign).putShort((short) bits);
+    if (extensible) {
+      out.putShort((short) 22).putShort((short) bits).putInt(3);
+      out.putShort((short) tag).put(new byte[14]);
+    }
+    out.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(rf64 ? -1 : (int) dataBytes);
+    for (int value : samples) {
+      if (floatingPoint) {
+        if (bits == 32) {
+          out.putFloat(value / 8388608.0f);
+        } else {
+          out.putDouble(value / 8388608.0);
+        }
+      } else if (bits == 8) {
+        out.put((byte) ((value >> 16) + 128));
+      } else if (bits == 16) {
+        out.putShort((short) (value >> 8));
+      } else if (bits == 24) {
+        out.put((byte) value).put((byte) (value >> 8)).put((byte) (value >> 16));
+      } else {
+        out.putInt(value << 8);
+      }
+    }
+    out.putInt(sizeField, rf64 ? -1 : out.position() - 8);
+    Path path = folder.newFile().toPath();
+    Files.write(path, Arrays.copyOf(out.array(), out.position()));
+    return path;
+  }
+}
@@ -0,0 +1,147 @@
+package io.github.llm96.ebur128java.io;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.SampleFormat;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Bytes read through the stream must come out unchanged while the frames are measured like the
+ * same samples added to a state directly.
+ */
+public class MeteringAudioInputStreamTest {
+  private static final int CHANNELS = 2;
+  private static final float SAMPLERATE = 44100;
+  private static final int FRAMES = 3 * 44100 + 11;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_SAMPLE_PEAK;
+  private static final AudioFormat FORMAT = new AudioFormat(SAMPLERATE, 16, CHANNELS, true, false);
+
+  private final JavaBackend backend = new JavaBackend();
+
+  @Test
+  public void bytesPassThroughAndAreMeasured() throws IOException {
+    short[] samples = samples();
+    byte[] bytes = toBytes(samples);
+    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    try (State metered = new State(backend, CHANNELS, (long) SAMPLERATE, MODE);
+         State direct = new State(backend, CHANNELS, (long) SAMPLERATE, MODE);
+         MeteringAudioInputStream stream = new MeteringAudioInputStream(source(bytes), metered)) {
+      // not a whole number of frames
+      byte[] buffer = new byte[1001];
+      int read;
+      while ((read = stream.read(buffer, 0, buffer.length)) >= 0) {
+        assertEquals(0, read % 4);
+        copy.write(buffer, 0, read);
+      }
+      assertArrayEquals(bytes, copy.toByteArray());
+      assertEquals(Error.SUCCESS, direct.addFramesShort(samples, FRAMES));
+      assertEquals(direct.getLoudnessGlobal(), metered.getLoudnessGlobal(), 1e-9);
+      for (int c = 0; c < CHANNELS; c++) {
+        assertEquals(direct.getSamplePeak(c), metered.getSamplePeak(c), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void framesWrittenByAudioSystemAreMeasured() throws IOException {
+    short[] samples = samples();
+    ByteArrayOutputStream wav = new ByteArrayOutputStream();
+    try (State metered = new State(backend, CHANNELS, (long) SAMPLERATE, MODE);
+         State direct = new State(backend, CHANNELS, (long) SAMPLERATE, MODE);
+         MeteringAudioInputStream stream = new MeteringAudioInputStream(source(toBytes(samples)), metered)) {
+      AudioSystem.write(stream, AudioFileFormat.Type.WAVE, wav);
+      assertEquals(Error.SUCCESS, direct.addFramesShort(samples, FRAMES));
+      assertEquals(direct.getLoudnessGlobal(), metered.getLoudnessGlobal(), 1e-9);
+    }
+    assertTrue(wav.size() > FRAMES * 4);
+  }
+
+  @Test
+  public void pcmFormatsAreMapped() {
+    SampleFormat unsigned = MeteringAudioInputStream.toSampleFormat(new AudioFormat(SAMPLERATE, 8, 1, false, false));
+    assertEquals(1, unsigned.getBytesPerSample());
+    assertFalse(unsigned.isSigned());
+
+    SampleFormat packed = MeteringAudioInputStream.toSampleFormat(new AudioFormat(SAMPLERATE, 24, 2, true, true));
+    assertEquals(3, packed.getBytesPerSample());
+    assertEquals(24, packed.getBitsPerSample());
+    assertEquals(ByteOrder.BIG_ENDIAN, packed.getOrder());
+
+    SampleFormat floats = MeteringAudioInputStream.toSampleFormat(
+        new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, SAMPLERATE, 32, 2, 8, SAMPLERATE, false));
+    assertTrue(floats.isFloatingPoint());
+    assertEquals(4, floats.getBytesPerSample());
+
+    try {
+      MeteringAudioInputStream.toSampleFormat(
+          new AudioFormat(AudioFormat.Encoding.ULAW, SAMPLERATE, 8, 1, 1, SAMPLERATE, false));
+      fail("No exception");
+    } catch (IllegalArgumentException expected) {
+      // not PCM
+    }
+  }
+
+  @Test
+  public void stateOfAnotherLayoutIsRejected() {
+    try (State state = new State(backend, 1, (long) SAMPLERATE, MODE)) {
+      new MeteringAudioInputStream(source(new byte[0]), state);
+      fail("No exception");
+    } catch (IllegalArgumentException expected) {
+      // mono state, stereo stream
+    }
+  }
+
+  @Test
+  public void resetIsNotSupported() throws IOException {
+    try (State state = new State(backend, CHANNELS, (long) SAMPLERATE, MODE);
+         MeteringAudioInputStream stream = new MeteringAudioInputStream(source(new byte[16]), state)) {
+      assertFalse(stream.markSupported());
+      stream.mark(16);
+      try {
+        stream.reset();
+        fail("No exception");
+      } catch (IOException expected) {
+        // would measure frames twice
+      }
+    }
+  }
+
+  private static AudioInputStream source(byte[] bytes) {
+    return new AudioInputStream(new ByteArrayInputStream(bytes), FORMAT, bytes.length / FORMAT.getFrameSize());
+  }
+
+  private static short[] samples() {
+    Random random = new Random(25);
+    short[] samples = new short[FRAMES * CHANNELS];
+    for (int i = 0; i < samples.length; i++) {
+      double value = 0.5 * Math.sin(i / CHANNELS * 2 * Math.PI * 997 / SAMPLERATE) + 0.05 * random.nextGaussian();
+      samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * 32768)));
+    }
+    return samples;
+  }
+
+  private static byte[] toBytes(short[] samples) {
+    ByteBuffer bytes = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+    bytes.asShortBuffer().put(samples);
+    return bytes.array();
+  }
+}
@@ -0,0 +1,186 @@
+package io.github.llm96.ebur128java.realtime;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Frames written to a meter, interleaved or planar and wrapping around the ring, must read exactly
+ * like frames added to a state directly; frames that do not fit are dropped and counted. An
+ * exception thrown by the state fails the meter instead of silently stopping the measurement.
+ */
+public class RealtimeMeterTest {
+  private static final int CHANNELS = 2;
+  private static final long SAMPLERATE = 48000;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_LRA | Mode.MODE_SAMPLE_PEAK | Mode.MODE_TRUE_PEAK;
+  private static final int CAPACITY = 10000;
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final JavaBackend backend = new JavaBackend();
+
+  @Test
+  public void readingsMatchDirectMeasurement() {
+    Random random = new Random(1);
+    try (State direct = new State(backend, CHANNELS, SAMPLERATE, MODE)) {
+      RealtimeMeter meter = new RealtimeMeter(new State(backend, CHANNELS, SAMPLERATE, MODE), CAPACITY);
+      long written = 0;
+      for (int round = 0; round < 200; round++) {
+        int frames = 1 + random.nextInt(4800);
+        float[] samples = sine(written, frames);
+        assertEquals(Error.SUCCESS, direct.addFramesFloat(samples, frames));
+        if (round % 2 == 0) {
+          write(meter, samples, frames);
+        } else {
+          writePlanar(meter, samples, frames);
+        }
+        written += frames;
+      }
+      meter.close();
+
+      assertEquals(written, meter.getProcessedFrames());
+      assertEquals(0, meter.getBufferedFrames());
+      assertEquals(Error.SUCCESS, meter.getError());
+      assertReadings(direct.snapshot(null), meter.snapshot(null));
+    }
+  }
+
+  @Test
+  public void blockThatDoesNotFitIsDropped() throws InterruptedException {
+    CountDownLatch gate = new CountDownLatch(1);
+    RealtimeMeter meter = new RealtimeMeter(new State(backend, CHANNELS, SAMPLERATE, MODE), CAPACITY, runnable -> {
+      Thread thread = new Thread(() -> {
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        runnable.run();
+      });
+      thread.setDaemon(true);
+      return thread;
+    });
+    float[] samples = sine(0, CAPACITY);
+    assertTrue(meter.write(samples, 0, CAPACITY - 100));
+    assertFalse(meter.write(samples, 0, 101));
+    assertTrue(meter.write(samples, 0, 100));
+    assertFalse(meter.write(samples, 0, 1));
+    assertEquals(2, meter.getOverruns());
+    assertEquals(102, meter.getDroppedFrames());
+    assertEquals(CAPACITY, meter.getBufferedFrames());
+    try {
+      meter.write(new float[(CAPACITY + 1) * CHANNELS], 0, CAPACITY + 1);
+      fail("No exception");
+    } catch (IllegalArgumentException expected) {
+      // larger than the ring
+    }
+
+    gate.countDown();
+    meter.close();
+    assertEquals(CAPACITY, meter.getProcessedFrames());
+  }
+
+  @Test
+  public void exceptionOfTheStateFailsTheMeter() {
+    State state = new State(backend, CHANNELS, SAMPLERATE, MODE);
+    RealtimeMeter meter = new RealtimeMeter(state, CAPACITY);
+    // owned by the meter, closed here to make the analysis thread fail
+    state.close();
+    assertTrue(meter.write(sine(0, 4800), 0, 4800));
+    long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (meter.getFailure() == null) {
+      assertTrue("Analysis thread did not fail", System.nanoTime() - deadline < 0);
+      Thread.yield();
+    }
+
+    RuntimeException failure = meter.getFailure();
+    assertNotNull(failure);
+    try {
+      meter.getError();
+      fail("No exception");
+    } catch (IllegalStateException e) {
+      assertSame(failure, e.getCause());
+    }
+    try {
+      meter.write(new float[CHANNELS], 0, 1);
+      fail("No exception");
+    } catch (IllegalStateException e) {
+      assertSame(failure, e.getCause());
+    }
+    try {
+      meter.writePlanar(new float[CHANNELS][1], 0, 1);
+      fail("No exception");
+    } catch (IllegalStateException e) {
+      assertSame(failure, e.getCause());
+    }
+    try {
+      meter.close();
+      fail("No exception");
+    } catch (IllegalStateException e) {
+      assertSame(failure, e.getCause());
+    }
+  }
+
+  private static void write(RealtimeMeter meter, float[] samples, int frames) {
+    long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (!meter.write(samples, 0, frames)) {
+      assertTrue("Ring full", System.nanoTime() - deadline < 0);
+      Thread.yield();
+    }
+  }
+
+  private static void writePlanar(RealtimeMeter meter, float[] samples, int frames) {
+    float[][] planar = new float[CHANNELS][frames + 3];
+    for (int i = 0; i < frames; i++) {
+      for (int c = 0; c < CHANNELS; c++) {
+        planar[c][i + 3] = samples[i * CHANNELS + c];
+      }
+    }
+    long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (!meter.writePlanar(planar, 3, frames)) {
+      assertTrue("Ring full", System.nanoTime() - deadline < 0);
+      Thread.yield();
+    }
+  }
+
+  /**
+   * A 997 Hz sine whose level drifts, so that the loudness range is not zero.
+   */
+  private static float[] sine(long first, int frames) {
+    float[] samples = new float[frames * CHANNELS];
+    for (int i = 0; i < frames; i++) {
+      long frame = first + i;
+      double level = 0.1 * (1 + 0.5 * Math.sin(frame * 2 * Math.PI / (3 * SAMPLERATE)));
+      float sample = (float) (level * Math.sin(frame * 2 * Math.PI * 997 / SAMPLERATE));
+      samples[i * CHANNELS] = sample;
+      samples[i * CHANNELS + 1] = 0.5f * sample;
+    }
+    return samples;
+  }
+
+  private static void assertReadings(LoudnessSnapshot expected, LoudnessSnapshot actual) {
+    assertEquals(expected.getMomentary(), actual.getMomentary(), 0.0);
+    assertEquals(expected.getShortterm(), actual.getShortterm(), 0.0);
+    assertEquals(expected.getGlobal(), actual.getGlobal(), 0.0);
+    assertEquals(expected.getRelativeThreshold(), actual.getRelativeThreshold(), 0.0);
+    assertEquals(expected.getRange(), actual.getRange(), 0.0);
+    for (int c = 0; c < CHANNELS; c++) {
+      assertEquals(expected.getSamplePeak(c), actual.getSamplePeak(c), 0.0);
+      assertEquals(expected.getTruePeak(c), actual.getTruePeak(c), 0.0);
+    }
+  }
+}
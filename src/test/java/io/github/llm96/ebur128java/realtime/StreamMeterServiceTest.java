@@ -0,0 +1,296 @@
+package io.github.llm96.ebur128java.realtime;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.LoudnessSnapshot;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Streams metered by the service must read exactly like states fed directly, whatever the shard
+ * they run on, including streams moved between shards, failed neighbours and streams closed with
+ * frames still queued.
+ */
+public class StreamMeterServiceTest {
+  private static final int CHANNELS = 2;
+  private static final long SAMPLERATE = 48000;
+  private static final int MODE = Mode.MODE_I | Mode.MODE_LRA | Mode.MODE_SAMPLE_PEAK | Mode.MODE_TRUE_PEAK;
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final JavaBackend backend = new JavaBackend();
+
+  @Test
+  public void readingsMatchDirectMeasurement() {
+    Feed[] feeds = new Feed[5];
+    try (StreamMeterService service = new StreamMeterService(2)) {
+      for (int i = 0; i < feeds.length; i++) {
+        feeds[i] = new Feed(service, i);
+      }
+      for (int round = 0; round < 40; round++) {
+        for (Feed feed : feeds) {
+          feed.submit(feed.nextChunk());
+        }
+      }
+    }
+    for (Feed feed : feeds) {
+      feed.assertReadings();
+    }
+  }
+
+  @Test
+  public void skewedLoadIsRebalancedOnRequest() {
+    Feed[] feeds = new Feed[4];
+    try (StreamMeterService service = new StreamMeterService(2, StreamMeterService.DEFAULT_MAX_QUEUED_FRAMES, 0,
+        daemonThreads(null))) {
+      for (int i = 0; i < feeds.length; i++) {
+        feeds[i] = new Feed(service, i);
+      }
+      // the streams are spread by count, then only those of shard 0 are fed
+      List<Feed> heavy = new ArrayList<>();
+      for (Feed feed : feeds) {
+        if (feed.stream.getShard() == 0) {
+          heavy.add(feed);
+        }
+      }
+      assertEquals(2, heavy.size());
+      for (int round = 0; round < 20; round++) {
+        for (Feed feed : heavy) {
+          feed.submit(4800);
+        }
+      }
+      for (Feed feed : heavy) {
+        feed.awaitProcessed();
+      }
+
+      assertTrue(service.rebalance() > 0);
+      assertTrue(service.getMigrations() > 0);
+      assertEquals(1, heavy.get(0).stream.getShard() + heavy.get(1).stream.getShard());
+
+      // the moved stream carries on in the other shard
+      for (int round = 0; round < 20; round++) {
+        for (Feed feed : feeds) {
+          feed.submit(feed.nextChunk());
+        }
+      }
+    }
+    for (Feed feed : feeds) {
+      feed.assertReadings();
+    }
+  }
+
+  @Test
+  public void skewedLoadIsRebalancedPeriodically() {
+    Feed[] feeds = new Feed[4];
+    try (StreamMeterService service = new StreamMeterService(2, StreamMeterService.DEFAULT_MAX_QUEUED_FRAMES,
+        TimeUnit.MILLISECONDS.toNanos(1), daemonThreads(null))) {
+      for (int i = 0; i < feeds.length; i++) {
+        feeds[i] = new Feed(service, i);
+      }
+      long deadline = System.nanoTime() + TIMEOUT_NANOS;
+      while (service.getMigrations() == 0) {
+        if (System.nanoTime() - deadline > 0) {
+          fail("No stream was moved");
+        }
+        for (Feed feed : feeds) {
+          if (feed.stream.getShard() == 0) {
+            feed.submit(4800);
+          }
+        }
+      }
+    }
+    for (Feed feed : feeds) {
+      feed.assertReadings();
+    }
+  }
+
+  @Test
+  public void failedStreamDoesNotStopTheShard() {
+    try (StreamMeterService service = new StreamMeterService(1)) {
+      Feed broken = new Feed(service, 0);
+      Feed healthy = new Feed(service, 1);
+      // owned by the service, closed here to make the worker fail on it
+      broken.state.close();
+      broken.stream.submit(new float[4800 * CHANNELS], 0, 4800);
+      broken.stream.close();
+
+      RuntimeException failure = broken.stream.getFailure();
+      assertNotNull(failure);
+      assertEquals(0, broken.stream.getQueuedFrames());
+      try {
+        broken.stream.getError();
+        fail("No exception");
+      } catch (IllegalStateException e) {
+        assertSame(failure, e.getCause());
+      }
+      try {
+        broken.stream.submit(new float[CHANNELS], 0, 1);
+        fail("No exception");
+      } catch (IllegalStateException e) {
+        assertSame(failure, e.getCause());
+      }
+
+      for (int round = 0; round < 20; round++) {
+        healthy.submit(healthy.nextChunk());
+      }
+      healthy.stream.close();
+      assertNull(healthy.stream.getFailure());
+      healthy.assertReadings();
+      assertEquals(0, service.getStreams());
+    }
+  }
+
+  @Test
+  public void closeDrainsQueuedStreams() throws InterruptedException {
+    CountDownLatch gate = new CountDownLatch(1);
+    Feed[] feeds = new Feed[3];
+    StreamMeterService service = new StreamMeterService(1, StreamMeterService.DEFAULT_MAX_QUEUED_FRAMES, 0,
+        daemonThreads(gate));
+    for (int i = 0; i < feeds.length; i++) {
+      feeds[i] = new Feed(service, i);
+      for (int round = 0; round < 5; round++) {
+        feeds[i].submit(feeds[i].nextChunk());
+      }
+      assertTrue(feeds[i].stream.getQueuedFrames() > 0);
+    }
+
+    Thread closer = new Thread(service::close);
+    closer.start();
+    long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (closer.getState() != Thread.State.WAITING) {
+      assertTrue("Close did not wait for the worker", System.nanoTime() - deadline < 0);
+      Thread.yield();
+    }
+    for (Feed feed : feeds) {
+      assertTrue(feed.stream.getQueuedFrames() > 0);
+    }
+    gate.countDown();
+    closer.join(TimeUnit.NANOSECONDS.toMillis(TIMEOUT_NANOS));
+    assertFalse(closer.isAlive());
+
+    assertEquals(0, service.getStreams());
+    for (Feed feed : feeds) {
+      assertEquals(0, feed.stream.getQueuedFrames());
+      feed.assertReadings();
+      try {
+        feed.stream.submit(new float[CHANNELS], 0, 1);
+        fail("No exception");
+      } catch (IllegalStateException expected) {
+        // closed
+      }
+    }
+    try {
+      service.register(new State(backend, CHANNELS, SAMPLERATE, MODE));
+      fail("No exception");
+    } catch (IllegalStateException expected) {
+      // closed
+    }
+  }
+
+  /**
+   * Daemon threads running their worker once the gate, if any, is open.
+   */
+  private static ThreadFactory daemonThreads(CountDownLatch gate) {
+    return runnable -> {
+      Thread thread = new Thread(() -> {
+        if (gate != null) {
+          try {
+            gate.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+        runnable.run();
+      });
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * A sine at a level of its own, submitted to a stream and added to a state measuring it directly.
+   */
+  private final class Feed {
+    final State state = new State(backend, CHANNELS, SAMPLERATE, MODE);
+    final MeteredStream stream;
+    private final State direct = new State(backend, CHANNELS, SAMPLERATE, MODE);
+    private final Random random;
+    private final double gain;
+    private final double step;
+    private long frame;
+    private long submitted;
+
+    Feed(StreamMeterService service, int index) {
+      this.stream = service.register(state);
+      this.random = new Random(index);
+      this.gain = Math.pow(10.0, (-12 - 4 * index) / 20.0);
+      this.step = 2 * Math.PI * (220 + 110 * index) / SAMPLERATE;
+    }
+
+    int nextChunk() {
+      return 1 + random.nextInt(9600);
+    }
+
+    void submit(int frames) {
+      float[] samples = new float[frames * CHANNELS];
+      for (int i = 0; i < frames; i++, frame++) {
+        // the level drifts so that the loudness range is not zero
+        double level = gain * (1 + 0.5 * Math.sin(frame * 2 * Math.PI / (3 * SAMPLERATE)));
+        float sample = (float) (level * Math.sin(step * frame));
+        samples[i * CHANNELS] = sample;
+        samples[i * CHANNELS + 1] = -sample;
+      }
+      assertEquals(Error.SUCCESS, direct.addFramesFloat(samples, frames));
+      long deadline = System.nanoTime() + TIMEOUT_NANOS;
+      while (!stream.submit(samples, 0, frames)) {
+        assertTrue("Queue full", System.nanoTime() - deadline < 0);
+        Thread.yield();
+      }
+      submitted += frames;
+    }
+
+    void awaitProcessed() {
+      long deadline = System.nanoTime() + TIMEOUT_NANOS;
+      while (stream.getProcessedFrames() < submitted) {
+        assertTrue("Frames not processed", System.nanoTime() - deadline < 0);
+        Thread.yield();
+      }
+    }
+
+    /**
+     * Check the final readings of the closed stream.
+     */
+    void assertReadings() {
+      assertEquals(submitted, stream.getProcessedFrames());
+      assertEquals(Error.SUCCESS, stream.getError());
+      LoudnessSnapshot expected = direct.snapshot(null);
+      LoudnessSnapshot actual = stream.snapshot(null);
+      assertEquals(expected.getMomentary(), actual.getMomentary(), 0.0);
+      assertEquals(expected.getShortterm(), actual.getShortterm(), 0.0);
+      assertEquals(expected.getGlobal(), actual.getGlobal(), 0.0);
+      assertEquals(expected.getRelativeThreshold(), actual.getRelativeThreshold(), 0.0);
+      assertEquals(expected.getRange(), actual.getRange(), 0.0);
+      for (int c = 0; c < CHANNELS; c++) {
+        assertEquals(expected.getSamplePeak(c), actual.getSamplePeak(c), 0.0);
+        assertEquals(expected.getTruePeak(c), actual.getTruePeak(c), 0.0);
+      }
+      direct.close();
+    }
+  }
+}
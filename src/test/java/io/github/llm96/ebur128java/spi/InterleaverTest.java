@@ -0,0 +1,95 @@
+package io.github.llm96.ebur128java.spi;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.SampleFormat;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Planar input longer than the scratch buffer must reach the sink interleaved and in order, in
+ * chunks that reuse the same buffer.
+ */
+public class InterleaverTest {
+  private static final int CHANNELS = 3;
+
+  @Test
+  public void longInputIsInterleavedInChunks() {
+    int frames = 3 * Interleaver.SCRATCH_BYTES / (CHANNELS * Float.BYTES) + 17;
+    float[][] planar = new float[CHANNELS][frames + 5];
+    for (int c = 0; c < CHANNELS; c++) {
+      for (int i = 0; i < planar[c].length; i++) {
+        planar[c][i] = i * CHANNELS + c;
+      }
+    }
+    List<ByteBuffer> buffers = new ArrayList<>();
+    float[] interleaved = new float[frames * CHANNELS];
+    int[] received = new int[1];
+    Interleaver interleaver = new Interleaver((src, count, format) -> {
+      assertEquals(SampleFormat.FLOAT, format);
+      assertEquals(0, src.position());
+      assertTrue(count * CHANNELS * Float.BYTES <= Interleaver.SCRATCH_BYTES);
+      buffers.add(src);
+      for (int i = 0; i < count * CHANNELS; i++) {
+        interleaved[received[0] * CHANNELS + i] = src.getFloat(i * Float.BYTES);
+      }
+      received[0] += count;
+      return Error.SUCCESS;
+    });
+
+    assertEquals(Error.SUCCESS, interleaver.addFrames(planar, 5, frames));
+    assertEquals(frames, received[0]);
+    assertEquals(4, buffers.size());
+    for (ByteBuffer buffer : buffers) {
+      assertSame(buffers.get(0), buffer);
+    }
+    for (int i = 0; i < interleaved.length; i++) {
+      assertEquals(5 * CHANNELS + i, interleaved[i], 0.0f);
+    }
+  }
+
+  @Test
+  public void directBuffersAreInterleavedInChunks() {
+    int frames = 2 * Interleaver.SCRATCH_BYTES / (CHANNELS * Short.BYTES) + 1;
+    ByteBuffer[] planar = new ByteBuffer[CHANNELS];
+    for (int c = 0; c < CHANNELS; c++) {
+      planar[c] = ByteBuffer.allocateDirect((frames + 2) * Short.BYTES).order(ByteOrder.nativeOrder());
+      for (int i = 0; i < frames + 2; i++) {
+        planar[c].putShort(i * Short.BYTES, (short) (i * CHANNELS + c));
+      }
+      planar[c].position(2 * Short.BYTES);
+    }
+    int[] received = new int[1];
+    Interleaver interleaver = new Interleaver((src, count, format) -> {
+      assertEquals(SampleFormat.SHORT, format);
+      for (int i = 0; i < count * CHANNELS; i++) {
+        assertEquals((short) ((2 + received[0]) * CHANNELS + i), src.getShort(i * Short.BYTES));
+      }
+      received[0] += count;
+      return Error.SUCCESS;
+    });
+
+    assertEquals(Error.SUCCESS, interleaver.addFrames(planar, frames, SampleFormat.SHORT));
+    assertEquals(frames, received[0]);
+    assertEquals(2 * Short.BYTES, planar[0].position());
+  }
+
+  @Test
+  public void firstErrorStopsTheCall() {
+    int[] calls = new int[1];
+    Interleaver interleaver = new Interleaver((src, count, format) -> {
+      calls[0]++;
+      return Error.ERROR_NOMEM;
+    });
+    int frames = 4 * Interleaver.SCRATCH_BYTES / (CHANNELS * Double.BYTES);
+    assertEquals(Error.ERROR_NOMEM, interleaver.addFrames(new double[CHANNELS][frames], 0, frames));
+    assertEquals(1, calls[0]);
+  }
+}
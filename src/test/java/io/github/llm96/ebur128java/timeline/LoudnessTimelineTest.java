@@ -0,0 +1,169 @@
+package io.github.llm96.ebur128java.timeline;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Points recorded in any storage and encoding must be the readings of the state at the end of
+ * each block, and rendering through the pyramid must give the minimum and maximum a scan of the
+ * points gives.
+ */
+@RunWith(Parameterized.class)
+public class LoudnessTimelineTest {
+  private static final long SAMPLERATE = 8000;
+  private static final int HOP = 800;
+  /** enough points for three pyramid levels */
+  private static final int POINTS = 5000;
+  private static final int MODE = Mode.MODE_S;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> storages() {
+    return Arrays.asList(new Object[][]{
+        {"heap float32", "heap", LoudnessTimeline.FLOAT32},
+        {"direct int16", "direct", LoudnessTimeline.INT16},
+        {"mapped float32", "mapped", LoudnessTimeline.FLOAT32},
+        {"mapped int16", "mapped", LoudnessTimeline.INT16},
+    });
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final String storage;
+  private final int encoding;
+  /** one hundredth of a LU is the resolution of INT16 */
+  private final double tolerance;
+  private final JavaBackend backend = new JavaBackend();
+
+  public LoudnessTimelineTest(String name, String storage, int encoding) {
+    this.storage = storage;
+    this.encoding = encoding;
+    this.tolerance = encoding == LoudnessTimeline.INT16 ? 0.005 : 1e-4;
+  }
+
+  @Test
+  public void pointsAreTheReadingsAtEveryBlock() throws IOException {
+    float[] samples = samples();
+    double[][] expected = new double[2][POINTS];
+    try (State state = new State(backend, 1, SAMPLERATE, MODE)) {
+      for (int p = 0; p < POINTS; p++) {
+        assertEquals(Error.SUCCESS, state.addFramesFloat(Arrays.copyOfRange(samples, p * HOP, (p + 1) * HOP), HOP));
+        expected[LoudnessTimeline.MOMENTARY][p] = state.getLoudnessMomentary();
+        expected[LoudnessTimeline.SHORTTERM][p] = state.getLoudnessShortterm();
+      }
+    }
+    try (State state = new State(backend, 1, SAMPLERATE, MODE); LoudnessTimeline timeline = record(state, samples)) {
+      assertEquals(POINTS, timeline.getPoints());
+      for (int series = 0; series < 2; series++) {
+        for (int p = 0; p < POINTS; p++) {
+          double value = timeline.get(series, p);
+          if (expected[series][p] == Double.NEGATIVE_INFINITY) {
+            assertEquals("Point " + p, Double.NEGATIVE_INFINITY, value, 0.0);
+          } else {
+            assertEquals("Point " + p, expected[series][p], value, tolerance);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void renderMatchesAScanOfThePoints() throws IOException {
+    try (State state = new State(backend, 1, SAMPLERATE, MODE); LoudnessTimeline timeline = record(state, samples())) {
+      int[][] ranges = {{0, POINTS}, {0, 17}, {3, 4000}, {255, 4097}, {1234, 1234}};
+      for (int[] range : ranges) {
+        for (int buckets : new int[]{1, 7, 100, 333}) {
+          float[] min = new float[buckets];
+          float[] max = new float[buckets];
+          timeline.render(LoudnessTimeline.SHORTTERM, range[0], range[1], min, max);
+          for (int i = 0; i < buckets; i++) {
+            long start = range[0] + (long) (range[1] - range[0]) * i / buckets;
+            long end = range[0] + (long) (range[1] - range[0]) * (i + 1) / buckets;
+            if (start == end) {
+              assertTrue(Float.isNaN(min[i]) && Float.isNaN(max[i]));
+              continue;
+            }
+            float lo = Float.POSITIVE_INFINITY;
+            float hi = Float.NEGATIVE_INFINITY;
+            for (long p = start; p < end; p++) {
+              lo = Math.min(lo, (float) timeline.get(LoudnessTimeline.SHORTTERM, p));
+              hi = Math.max(hi, (float) timeline.get(LoudnessTimeline.SHORTTERM, p));
+            }
+            assertEquals(lo, min[i], 0.0f);
+            assertEquals(hi, max[i], 0.0f);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void pointsAreFoundByTime() throws IOException {
+    try (State state = new State(backend, 1, SAMPLERATE, MODE); LoudnessTimeline timeline = record(state, samples())) {
+      assertEquals(0.1, timeline.getTime(0), 1e-12);
+      assertEquals(-1, timeline.getPoint(0.05));
+      assertEquals(0, timeline.getPoint(0.1));
+      assertEquals(9, timeline.getPoint(1.05));
+      assertEquals(POINTS - 1, timeline.getPoint(1e6));
+      try {
+        timeline.get(LoudnessTimeline.MOMENTARY, POINTS);
+        fail("No exception");
+      } catch (IndexOutOfBoundsException expected) {
+        // not recorded
+      }
+    }
+  }
+
+  /**
+   * Add the samples in calls that do not line up with the blocks.
+   */
+  private LoudnessTimeline record(State state, float[] samples) throws IOException {
+    LoudnessTimeline timeline = new LoudnessTimeline(state, storage(), encoding);
+    int chunk = 1013;
+    for (int offset = 0; offset < samples.length; offset += chunk) {
+      int frames = Math.min(chunk, samples.length - offset);
+      assertEquals(Error.SUCCESS, timeline.addFramesFloat(Arrays.copyOfRange(samples, offset, offset + frames), frames));
+    }
+    return timeline;
+  }
+
+  private TimelineStorage storage() throws IOException {
+    switch (storage) {
+      case "heap":
+        return TimelineStorage.heap();
+      case "direct":
+        return TimelineStorage.direct();
+      default:
+        return TimelineStorage.mapped(folder.newFile().toPath());
+    }
+  }
+
+  /**
+   * Two seconds of silence, then noise whose level changes every second.
+   */
+  private static float[] samples() {
+    Random random = new Random(17);
+    float[] samples = new float[POINTS * HOP];
+    for (int i = 2 * (int) SAMPLERATE; i < samples.length; i++) {
+      double level = 0.05 + 0.4 * Math.abs(Math.sin(i / SAMPLERATE * 0.7));
+      samples[i] = (float) (level * random.nextGaussian() / 3);
+    }
+    return samples;
+  }
+}
@@ -0,0 +1,100 @@
+package io.github.llm96.ebur128java.timeline;
+
+import io.github.llm96.ebur128java.Error;
+import io.github.llm96.ebur128java.Mode;
+import io.github.llm96.ebur128java.State;
+import io.github.llm96.ebur128java.engine.JavaBackend;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Until the window is full the sliding readings must be those of a state measuring the whole
+ * programme in histogram mode, and afterwards those of a state measuring only the window.
+ */
+public class SlidingLoudnessTest {
+  private static final long SAMPLERATE = 48000;
+  private static final long WINDOW = 10000;
+  private static final int REFERENCE_MODE = Mode.MODE_I | Mode.MODE_LRA | Mode.MODE_HISTOGRAM;
+
+  private final JavaBackend backend = new JavaBackend();
+
+  @Test
+  public void partialWindowMatchesTheWholeProgramme() {
+    float[] samples = samples(9500, 0.3);
+    try (State state = new State(backend, 1, SAMPLERATE, Mode.MODE_S);
+         State reference = new State(backend, 1, SAMPLERATE, REFERENCE_MODE)) {
+      SlidingLoudness sliding = add(new SlidingLoudness(state, WINDOW), samples);
+      assertEquals(Error.SUCCESS, reference.addFramesFloat(samples, samples.length));
+      assertEquals(samples.length, sliding.getFrames());
+      assertEquals(95 - 3, sliding.getBlocks());
+      assertEquals(reference.getLoudnessGlobal(), sliding.getLoudnessIntegrated(), 1e-9);
+      assertEquals(reference.getLoudnessRange(), sliding.getLoudnessRange(), 1e-9);
+    }
+  }
+
+  @Test
+  public void fullWindowMatchesAMeasurementOfTheWindow() {
+    float[] loud = samples(30000, 0.9);
+    float[] window = samples((int) WINDOW, 0.1);
+    float[] samples = Arrays.copyOf(loud, loud.length + window.length);
+    System.arraycopy(window, 0, samples, loud.length, window.length);
+    try (State state = new State(backend, 1, SAMPLERATE, Mode.MODE_S);
+         State reference = new State(backend, 1, SAMPLERATE, REFERENCE_MODE)) {
+      SlidingLoudness sliding = add(new SlidingLoudness(state, WINDOW), samples);
+      assertEquals(Error.SUCCESS, reference.addFramesFloat(window, window.length));
+      assertEquals(WINDOW / 100 - 3, sliding.getBlocks());
+      // only the filter history differs
+      assertEquals(reference.getLoudnessGlobal(), sliding.getLoudnessIntegrated(), 0.05);
+      assertEquals(reference.getLoudnessRange(), sliding.getLoudnessRange(), 0.2);
+    }
+  }
+
+  @Test
+  public void rangeNeedsShortterm() {
+    try (State state = new State(backend, 1, SAMPLERATE, Mode.MODE_M)) {
+      SlidingLoudness sliding = add(new SlidingLoudness(state, 1000), samples(2000, 0.3));
+      assertEquals(Double.NEGATIVE_INFINITY, sliding.getLoudnessRange(), 0.0);
+      assertEquals(10 - 3, sliding.getBlocks());
+    }
+  }
+
+  @Test
+  public void windowShorterThanTheBlocksIsRejected() {
+    try (State state = new State(backend, 1, SAMPLERATE, Mode.MODE_S)) {
+      new SlidingLoudness(state, 2000);
+      fail("No exception");
+    } catch (IllegalArgumentException expected) {
+      // shorter than a short-term block
+    }
+  }
+
+  /**
+   * Add the samples in calls that do not line up with the blocks.
+   */
+  private static SlidingLoudness add(SlidingLoudness sliding, float[] samples) {
+    int chunk = 3001;
+    for (int offset = 0; offset < samples.length; offset += chunk) {
+      int frames = Math.min(chunk, samples.length - offset);
+      assertEquals(Error.SUCCESS, sliding.addFramesFloat(Arrays.copyOfRange(samples, offset, offset + frames), frames));
+    }
+    return sliding;
+  }
+
+  /**
+   * Noise whose level swings by about 20 dB every few seconds.
+   */
+  private static float[] samples(int millis, double level) {
+    Random random = new Random(millis);
+    float[] samples = new float[(int) (millis * SAMPLERATE / 1000)];
+    for (int i = 0; i < samples.length; i++) {
+      double envelope = 0.1 + 0.9 * Math.abs(Math.sin(i * Math.PI / (4.0 * SAMPLERATE)));
+      samples[i] = (float) (level * envelope * random.nextGaussian() / 3);
+    }
+    return samples;
+  }
+}